@@ -17,6 +17,7 @@
  */
 package dmg.cells.network;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import dmg.cells.nucleus.CellAdapter;
 import dmg.cells.nucleus.CellDomainInfo;
 import dmg.cells.nucleus.CellDomainRole;
@@ -26,6 +27,7 @@ import dmg.cells.nucleus.CellRoute;
 import dmg.cells.nucleus.CellTunnel;
 import dmg.cells.nucleus.CellTunnelInfo;
 import dmg.cells.nucleus.MessageEvent;
+import dmg.cells.nucleus.MsgSerializerCompact;
 import dmg.cells.nucleus.NoRouteToCellException;
 import dmg.cells.nucleus.RoutedMessageEvent;
 import dmg.cells.nucleus.SerializationHandler;
@@ -48,6 +50,14 @@ import java.nio.channels.AsynchronousCloseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import org.dcache.util.Args;
 import org.dcache.util.NDC;
@@ -55,6 +65,20 @@ import org.dcache.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Cell tunnel connecting two domains.
+ * <p>
+ * Incoming messages are read by a thread dedicated to the tunnel. Outgoing messages are encoded
+ * on the message thread of the tunnel cell and queued. A writer task, running on an executor
+ * shared by all tunnels of the domain, drains the queue and only flushes the socket once the
+ * queue is empty, so that a burst of messages is sent with few system calls. Messages are
+ * written in the order in which they were queued. The wire format is unaffected.
+ * <p>
+ * The queue is bounded by the number of bytes queued in it. A message that would exceed the
+ * bound is returned to its sender as {@link NoRouteToCellException}, so that a slow or stuck peer
+ * cannot exhaust the heap. At most one writer task runs per tunnel and the number of writer
+ * threads is bounded, so a peer that stops reading holds at most one writer thread.
+ */
 public class LocationMgrTunnel
       extends CellAdapter
       implements CellTunnel, Runnable {
@@ -64,6 +88,25 @@ public class LocationMgrTunnel
      */
     private static final Tunnels _tunnels = new Tunnels();
 
+    /**
+     * Maximum number of threads writing queued messages.
+     */
+    private static final int WRITER_THREADS =
+          Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Executor shared by all tunnels for writing queued messages. Threads only exist while
+     * some tunnel has messages to write.
+     */
+    private static final ExecutorService _writers = newWriterExecutor();
+
+    /**
+     * Maximum number of encoded bytes queued for a tunnel.
+     */
+    private static final long QUEUE_CAPACITY = 64 * 1024 * 1024;
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     private static final Logger _log =
           LoggerFactory.getLogger(LocationMgrTunnel.class);
 
@@ -84,17 +127,41 @@ public class LocationMgrTunnel
 
     private SerializationHandler.Serializer _serializer;
 
+    private final MessageQueue _queue = new MessageQueue(QUEUE_CAPACITY);
+
+    /**
+     * Whether a writer task is scheduled or running.
+     */
+    private final AtomicBoolean _isWriting = new AtomicBoolean();
+
+    /**
+     * Set once writing to the tunnel failed or the tunnel was stopped; queued messages are
+     * returned to their senders.
+     */
+    private volatile boolean _isClosed;
+
     //
     // some statistics
     //
     private LongAdder _messagesToTunnel = new LongAdder();
     private LongAdder _messagesToSystem = new LongAdder();
+    private LongAdder _flushes = new LongAdder();
+    private LongAdder _rejected = new LongAdder();
+
+    private static ExecutorService newWriterExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS,
+              60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+              new ThreadFactoryBuilder().setNameFormat("tunnel-writer-%d").setDaemon(true)
+                    .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
     public LocationMgrTunnel(String cellName, StreamEngine engine, Args args) {
         super(cellName, "System", args);
         _nucleus = getNucleus();
         _socket = engine.getSocket();
-        _rawOut = new BufferedOutputStream(engine.getOutputStream());
+        _rawOut = new BufferedOutputStream(engine.getOutputStream(), OUTPUT_BUFFER_SIZE);
         _rawIn = new BufferedInputStream(engine.getInputStream());
         CellDomainRole role = args.hasOption("role") ? CellDomainRole.valueOf(
               args.getOption("role").toUpperCase()) : CellDomainRole.SATELLITE;
@@ -102,6 +169,7 @@ public class LocationMgrTunnel
               Version.of(LocationMgrTunnel.class).getVersion(),
               role,
               _nucleus.getZone());
+        _localDomainInfo.setCompactSchema(MsgSerializerCompact.getSchemaFingerprint());
     }
 
     @Override
@@ -122,6 +190,8 @@ public class LocationMgrTunnel
     public void stopped() {
         _log.info("Closing tunnel to {}", getRemoteDomainName());
         _tunnels.remove(this);
+        _isClosed = true;
+        bounceQueuedMessages();
         try {
             _socket.shutdownOutput();
             if (_thread != null) {
@@ -177,8 +247,19 @@ public class LocationMgrTunnel
                 // Due to lack of message versioning support in FST, we always use JOS with different dCache versions
                 boolean samedVersionEndpoint = release == _localDomainInfo.getRelease();
 
-                SerializationHandler.Serializer serializer = samedVersionEndpoint ?
-                      _nucleus.getMsgSerialization() : SerializationHandler.Serializer.JOS;
+                SerializationHandler.Serializer serializer = _nucleus.getMsgSerialization();
+                if (serializer == SerializationHandler.Serializer.COMPACT) {
+                    // The compact serializer is versioned by its schema rather than by release
+                    boolean sameSchemaEndpoint = _localDomainInfo.getCompactSchema().isPresent()
+                          && _remoteDomainInfo.getCompactSchema()
+                          .equals(_localDomainInfo.getCompactSchema());
+                    if (!sameSchemaEndpoint) {
+                        serializer = SerializationHandler.Serializer.JOS;
+                    }
+                } else if (!samedVersionEndpoint) {
+                    serializer = SerializationHandler.Serializer.JOS;
+                }
+                _log.debug("Using {} serialization for message payload.", serializer);
                 this._serializer = serializer;
                 /* Since dCache 3.0 we use raw encoding of CellMessage. */
                 _input = new RawObjectSource(_rawIn);
@@ -222,29 +303,71 @@ public class LocationMgrTunnel
     public void messageArrived(MessageEvent me) {
         if (me instanceof RoutedMessageEvent) {
             CellMessage msg = me.getMessage();
-            try {
-                _messagesToTunnel.increment();
-                _output.writeObject(msg);
-            } catch (IOException e) {
-                NDC.push(_remoteDomainInfo.toString());
-                try {
-                    kill();
-                    _log.warn("Error while sending message: {}", e.getMessage());
-                    NoRouteToCellException noRoute =
-                          new NoRouteToCellException(msg,
-                                "Communication failure. Message could not be delivered.");
-                    CellMessage envelope = new CellMessage(msg.getSourcePath().revert(), noRoute);
-                    envelope.setLastUOID(msg.getUOID());
-                    _nucleus.sendMessage(envelope, true, true, true);
-                } finally {
-                    NDC.pop();
-                }
+            _messagesToTunnel.increment();
+            // Older versions do not support the new serialization format
+            // Due to lack of message versioning support, always use JOS with different dCache versions
+            msg.ensureEncodedWith(_serializer);
+            if (!_queue.offer(msg)) {
+                _rejected.increment();
+                bounce(msg, "Tunnel to " + getRemoteDomainName() + " is congested.");
+                return;
+            }
+            if (_isClosed) {
+                bounceQueuedMessages();
+            } else if (_isWriting.compareAndSet(false, true)) {
+                _writers.execute(this::writeQueuedMessages);
             }
         } else {
             super.messageArrived(me);
         }
     }
 
+    /**
+     * Writes queued messages until the queue is empty and flushes the tunnel once it is.
+     */
+    private void writeQueuedMessages() {
+        NDC.push(_remoteDomainInfo.toString());
+        CellMessage msg = null;
+        try {
+            do {
+                while ((msg = _queue.poll()) != null) {
+                    _output.writeObject(msg);
+                }
+                _output.flush();
+                _flushes.increment();
+                _isWriting.set(false);
+            } while (!_queue.isEmpty() && _isWriting.compareAndSet(false, true));
+        } catch (IOException | RuntimeException e) {
+            _isClosed = true;
+            kill();
+            _log.warn("Error while sending message: {}", e.toString());
+            if (msg != null) {
+                bounce(msg);
+            }
+            bounceQueuedMessages();
+        } finally {
+            NDC.pop();
+        }
+    }
+
+    private void bounceQueuedMessages() {
+        CellMessage msg;
+        while ((msg = _queue.poll()) != null) {
+            bounce(msg);
+        }
+    }
+
+    private void bounce(CellMessage msg) {
+        bounce(msg, "Communication failure. Message could not be delivered.");
+    }
+
+    private void bounce(CellMessage msg, String reason) {
+        NoRouteToCellException noRoute = new NoRouteToCellException(msg, reason);
+        CellMessage envelope = new CellMessage(msg.getSourcePath().revert(), noRoute);
+        envelope.setLastUOID(msg.getUOID());
+        _nucleus.sendMessage(envelope, true, true, true);
+    }
+
     @Override
     public CellTunnelInfo getCellTunnelInfo() {
         return new CellTunnelInfo(getNucleus().getThisAddress(), _localDomainInfo,
@@ -283,6 +406,10 @@ public class LocationMgrTunnel
         pw.println("Messages delivered to");
         pw.println("   Peer       : " + _messagesToTunnel);
         pw.println("   Local      : " + _messagesToSystem);
+        pw.println("Outbound queue");
+        pw.println("   Queued     : " + _queue);
+        pw.println("   Flushes    : " + _flushes);
+        pw.println("   Rejected   : " + _rejected);
         pw.println("Local domain");
         pw.println("   Name       : " + _localDomainInfo.getCellDomainName());
         pw.println("   Version    : " + _localDomainInfo.getVersion());
@@ -352,9 +479,56 @@ public class LocationMgrTunnel
         }
     }
 
+    /**
+     * Queue of encoded messages bounded by the number of bytes it holds. A message is always
+     * accepted by an empty queue, so that messages larger than the capacity can still be sent.
+     */
+    private static class MessageQueue {
+
+        private final Queue<CellMessage> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicLong bytes = new AtomicLong();
+        private final long capacity;
+
+        private MessageQueue(long capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean offer(CellMessage msg) {
+            long size = msg.getEncodedSize();
+            long queued;
+            do {
+                queued = bytes.get();
+                if (queued > 0 && queued + size > capacity) {
+                    return false;
+                }
+            } while (!bytes.compareAndSet(queued, queued + size));
+            messages.add(msg);
+            return true;
+        }
+
+        CellMessage poll() {
+            CellMessage msg = messages.poll();
+            if (msg != null) {
+                bytes.addAndGet(-msg.getEncodedSize());
+            }
+            return msg;
+        }
+
+        boolean isEmpty() {
+            return messages.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return messages.size() + " (" + bytes.get() + " bytes)";
+        }
+    }
+
     private interface ObjectSink {
 
         void writeObject(CellMessage message) throws IOException;
+
+        void flush() throws IOException;
     }
 
     private static class RawObjectSink implements ObjectSink {
@@ -369,11 +543,12 @@ public class LocationMgrTunnel
 
         @Override
         public void writeObject(CellMessage message) throws IOException {
-            // Older versions do not support the new serialization format
-            // Due to lack of message versioning support, always use JOS with different dCache versions
             message.ensureEncodedWith(serializer);
-
             message.writeTo(out);
+        }
+
+        @Override
+        public void flush() throws IOException {
             out.flush();
         }
     }
@@ -0,0 +1,169 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel tracking the expiry of message callbacks.
+ * <p>
+ * A callback is placed in the bucket of the tick in which it expires, modulo the number of
+ * buckets. Adding and removing a callback thus only locks a single bucket and takes constant
+ * time. Callbacks expiring more than one rotation of the wheel in the future stay in their bucket
+ * until the rotation in which they expire.
+ * <p>
+ * Expired callbacks are collected by {@link #expire}, which must not be called concurrently.
+ * Callbacks are reported at most one tick after they expired, never before.
+ */
+class CallbackExpiry {
+
+    private final long tickMillis;
+
+    /**
+     * Each bucket is guarded by itself.
+     */
+    private final List<Set<CellLock>> buckets;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * The last tick processed by {@link #expire}.
+     */
+    private long lastTick;
+
+    CallbackExpiry(long tickMillis, int wheelSize) {
+        checkArgument(tickMillis > 0, "Tick must be positive.");
+        checkArgument(wheelSize > 0, "Wheel size must be positive.");
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new HashSet<>());
+        }
+        this.lastTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    private Set<CellLock> bucketOf(long timeout) {
+        return bucketAt(timeout / tickMillis);
+    }
+
+    private Set<CellLock> bucketAt(long tick) {
+        return buckets.get((int) Math.floorMod(tick, (long) buckets.size()));
+    }
+
+    void add(CellLock lock) {
+        Set<CellLock> bucket = bucketOf(lock.getTimeout());
+        synchronized (bucket) {
+            if (bucket.add(lock)) {
+                size.incrementAndGet();
+            }
+        }
+    }
+
+    boolean remove(CellLock lock) {
+        Set<CellLock> bucket = bucketOf(lock.getTimeout());
+        synchronized (bucket) {
+            if (bucket.remove(lock)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Removes and returns the callbacks that expired before {@code now}.
+     */
+    List<CellLock> expire(long now) {
+        List<CellLock> expired = new ArrayList<>();
+        long tick = now / tickMillis;
+        /* The bucket of the last processed tick is visited again, as callbacks expiring later
+         * during that tick were left in it.
+         */
+        long first = Math.max(lastTick, tick - buckets.size() + 1);
+        for (long t = first; t <= tick; t++) {
+            Set<CellLock> bucket = bucketAt(t);
+            synchronized (bucket) {
+                Iterator<CellLock> i = bucket.iterator();
+                while (i.hasNext()) {
+                    CellLock lock = i.next();
+                    if (lock.getTimeout() < now) {
+                        i.remove();
+                        size.decrementAndGet();
+                        expired.add(lock);
+                    }
+                }
+            }
+        }
+        lastTick = tick;
+        return expired;
+    }
+
+    /**
+     * Returns the earliest timeout of the callbacks not yet expired at {@code now}, or {@code
+     * Long.MAX_VALUE} if there are none.
+     * <p>
+     * The buckets are visited in the order of their ticks, starting with the tick of {@code now},
+     * so the search usually ends at the first non-empty bucket. Only if no callback expires within
+     * one rotation of the wheel are all buckets searched.
+     */
+    long nextExpiry(long now) {
+        long tick = now / tickMillis;
+        long earliest = Long.MAX_VALUE;
+        for (long t = tick; t < tick + buckets.size(); t++) {
+            long end = (t + 1) * tickMillis;
+            Set<CellLock> bucket = bucketAt(t);
+            synchronized (bucket) {
+                for (CellLock lock : bucket) {
+                    earliest = Math.min(earliest, lock.getTimeout());
+                }
+            }
+            if (earliest < end) {
+                break;
+            }
+        }
+        return earliest;
+    }
+
+    void clear() {
+        for (Set<CellLock> bucket : buckets) {
+            synchronized (bucket) {
+                size.addAndGet(-bucket.size());
+                bucket.clear();
+            }
+        }
+    }
+}
@@ -67,6 +67,7 @@ public class CellAdapter
           LoggerFactory.getLogger(CellAdapter.class);
     public static final String MAX_MESSAGE_THREADS = "cell.max-message-threads";
     public static final String MAX_MESSAGES_QUEUED = "cell.max-messages-queued";
+    public static final String MESSAGE_THREADS = "cell.message-threads";
 
     private final CellVersion _version = new CellVersion(Version.of(this));
 
@@ -160,6 +161,14 @@ public class CellAdapter
             setCommandExceptionEnabled(false);
         }
 
+        if (executor == null && "virtual".equals(_args.getOption(MESSAGE_THREADS))) {
+            executor = VirtualThreadExecutor.create(cellName + "-vt-").orElse(null);
+            if (executor == null) {
+                _log.warn("Virtual threads are not supported by this JVM; {} uses platform threads.",
+                      cellName);
+            }
+        }
+
         _nucleus = new CellNucleus(this, cellName, cellType, executor);
         if (!Strings.isNullOrEmpty(_args.getOption(MAX_MESSAGE_THREADS))) {
             _nucleus.setMaximumPoolSize(_args.getIntOption(MAX_MESSAGE_THREADS));
@@ -641,6 +650,28 @@ public class CellAdapter
         }
     }
 
+    @Command(name = "show message delivery",
+          hint = "display message delivery statistics",
+          description = "Shows the number of message threads, queued messages and pending " +
+                "callbacks of this cell, together with histograms of the queue depth seen " +
+                "by arriving messages, of the time messages spent queued and of the time " +
+                "spent processing them.")
+    public class ShowMessageDeliveryCommand implements Callable<String> {
+
+        @Option(name = "reset", usage = "Reset the histograms after displaying them.")
+        boolean reset;
+
+        @Override
+        public String call() {
+            StringWriter sw = new StringWriter();
+            _nucleus.printDeliveryStatistics(new PrintWriter(sw));
+            if (reset) {
+                _nucleus.resetDeliveryStatistics();
+            }
+            return sw.toString();
+        }
+    }
+
     @Command(name = "show pinboard",
           hint = "display the most recent pinboard messages",
           description = "The pinboard always stores the most recent log messages.  It has " +
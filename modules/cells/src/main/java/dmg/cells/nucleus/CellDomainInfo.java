@@ -31,6 +31,7 @@ public class CellDomainInfo implements Serializable {
     private final String _version;
     private final String _zone;
     private CellDomainRole _role;
+    private Integer _compactSchema;
 
     public CellDomainInfo(String name, String version, CellDomainRole role,
           Optional<String> zone) {
@@ -67,6 +68,19 @@ public class CellDomainInfo implements Serializable {
         return Optional.ofNullable(_zone);
     }
 
+    public void setCompactSchema(Integer fingerprint) {
+        _compactSchema = fingerprint;
+    }
+
+    /**
+     * Returns the fingerprint of the compact serializer schema of the domain, if any.
+     */
+    public Optional<Integer> getCompactSchema() {
+        // NB. _compactSchema is null if the domain does not register any classes with the
+        // compact serializer, or if the dCache version predates the compact serializer.
+        return Optional.ofNullable(_compactSchema);
+    }
+
     public String toString() {
         return _domainName + ',' + _version + ',' + _role;
     }
@@ -253,6 +253,14 @@ public final class CellMessage implements Cloneable, Serializable {
         return this;
     }
 
+    /**
+     * Returns the size in bytes of the encoded message payload.
+     */
+    public int getEncodedSize() {
+        checkState(_mode == STREAM_MODE, "not encoded");
+        return _messageStream.length;
+    }
+
     public CellMessage decode() throws SerializationException {
         checkState(_mode == STREAM_MODE);
         CellMessage decoded = clone();
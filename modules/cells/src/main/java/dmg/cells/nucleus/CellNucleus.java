@@ -4,7 +4,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.consumingIterable;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
-import static java.util.Comparator.comparingLong;
 import static org.dcache.util.CompletableFutures.fromListenableFuture;
 import static org.dcache.util.MathUtils.addWithInfinity;
 import static org.dcache.util.MathUtils.subWithInfinity;
@@ -23,6 +22,7 @@ import dmg.util.Pinboard;
 import dmg.util.logback.FilterThresholdSet;
 import dmg.util.logback.RootFilterThresholds;
 import java.io.FileNotFoundException;
+import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
@@ -32,8 +32,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -60,6 +58,7 @@ import org.apache.curator.framework.CuratorFramework;
 import org.dcache.util.BoundedCachedExecutor;
 import org.dcache.util.BoundedExecutor;
 import org.dcache.util.FireAndForgetTask;
+import org.dcache.util.PowerOfTwoHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -125,11 +124,34 @@ public class CellNucleus implements ThreadFactory {
 
     private volatile State _state = State.NEW;
 
-    private ScheduledFuture _scheduledTimeoutRun;
-    private boolean _processingTimedOutCallbacks;
+    /**
+     * Resolution of callback timeouts in milliseconds.
+     */
+    private static final long CALLBACK_EXPIRY_TICK = 50;
+
+    /**
+     * Number of buckets of the callback timing wheel; one rotation spans about 25 seconds.
+     */
+    private static final int CALLBACK_EXPIRY_WHEEL_SIZE = 512;
+
+    private final CallbackExpiry _callbackExpiry =
+          new CallbackExpiry(CALLBACK_EXPIRY_TICK, CALLBACK_EXPIRY_WHEEL_SIZE);
+
+    /**
+     * Guards the scheduling of {@link #processTimedOutMessages}.
+     */
+    private final Object _callbackExpiryLock = new Object();
+
+    /**
+     * Time at which {@link #processTimedOutMessages} is scheduled to run next, or {@code
+     * Long.MAX_VALUE} if it is not scheduled. Only written while holding {@link
+     * #_callbackExpiryLock}.
+     */
+    private volatile long _callbackExpiryDeadline = Long.MAX_VALUE;
+
+    @GuardedBy("_callbackExpiryLock")
+    private ScheduledFuture<?> _callbackExpiryTask;
 
-    private final Queue<CellLock> _callbackExpiry
-          = new PriorityQueue<>(comparingLong(CellLock::getTimeout));
     private final ConcurrentMap<UOID, CellLock> _waitHash = new ConcurrentHashMap<>();
     private String _cellClass;
     private String _cellSimpleClass;
@@ -137,6 +159,11 @@ public class CellNucleus implements ThreadFactory {
     private final BoundedExecutor _messageExecutor;
     private final AtomicInteger _eventQueueSize = new AtomicInteger();
 
+    /* Message delivery statistics. */
+    private final PowerOfTwoHistogram _queueDepth = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram _queueTime = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram _processingTime = new PowerOfTwoHistogram();
+
     /**
      * Timer for periodic low-priority maintenance tasks. Shared among all cell instances. Since a
      * Timer is single-threaded, it is important that the timer is not used for long-running or
@@ -805,6 +832,28 @@ public class CellNucleus implements ThreadFactory {
         return _eventQueueSize.get();
     }
 
+    /**
+     * Prints statistics about the delivery of messages to this cell and about pending callbacks.
+     */
+    void printDeliveryStatistics(PrintWriter pw) {
+        pw.println("Message threads      : " + _messageExecutor.getThreadCount() + " of "
+              + _messageExecutor.getMaximumPoolSize());
+        pw.println("Queued messages      : " + _eventQueueSize.get());
+        pw.println("Pending callbacks    : " + _callbackExpiry.size());
+        pw.println("Queue depth on arrival :");
+        _queueDepth.print(pw, "    ", "");
+        pw.println("Queue time :");
+        _queueTime.print(pw, "    ", " ms");
+        pw.println("Processing time :");
+        _processingTime.print(pw, "    ", " us");
+    }
+
+    void resetDeliveryStatistics() {
+        _queueDepth.reset();
+        _queueTime.reset();
+        _processingTime.reset();
+    }
+
     void addToEventQueue(MessageEvent ce) {
         CellMessage msg = ce.getMessage();
         LOGGER.trace("addToEventQueue : message arrived : {}", msg);
@@ -848,7 +897,7 @@ public class CellNucleus implements ThreadFactory {
 
             try {
                 EventLogger.queueBegin(ce);
-                _eventQueueSize.incrementAndGet();
+                _queueDepth.add(_eventQueueSize.incrementAndGet());
                 _messageExecutor.execute(new DeliverMessageTask(ce));
             } catch (RejectedExecutionException e) {
                 EventLogger.queueEnd(ce);
@@ -918,72 +967,57 @@ public class CellNucleus implements ThreadFactory {
     }
 
     private void addCallbackTimeout(CellLock lock) {
-        synchronized (_callbackExpiry) {
-            _callbackExpiry.add(lock);
-
-            if (!_processingTimedOutCallbacks) {
-                rescheduleCallbackTimeout();
+        _callbackExpiry.add(lock);
+        /* Most callbacks expire after the one processTimedOutMessages is scheduled for, so the
+         * schedule rarely needs to change.
+         */
+        if (lock.getTimeout() < _callbackExpiryDeadline) {
+            synchronized (_callbackExpiryLock) {
+                if (lock.getTimeout() < _callbackExpiryDeadline) {
+                    scheduleCallbackExpiry(lock.getTimeout());
+                }
             }
         }
     }
 
     private void removeCallbackTimeout(CellLock lock) {
-        synchronized (_callbackExpiry) {
-            boolean callbackRemoved = _callbackExpiry.remove(lock);
-
-            if (callbackRemoved && !_processingTimedOutCallbacks) {
-                if (_callbackExpiry.isEmpty()) {
-                    if (_scheduledTimeoutRun != null) {
-                        _scheduledTimeoutRun.cancel(false);
-                        _scheduledTimeoutRun = null;
-                    }
-                } else {
-                    rescheduleCallbackTimeout();
-                }
-            }
-        }
+        _callbackExpiry.remove(lock);
     }
 
-    @GuardedBy("_callbackExpiry")
-    private void rescheduleCallbackTimeout() {
-        CellLock earliestExpiringCallback = _callbackExpiry.peek();
-
-        if (earliestExpiringCallback != null) {
-            long delayUntilFirstTimeout =
-                  earliestExpiringCallback.getTimeout() - System.currentTimeMillis();
-
-            if (_scheduledTimeoutRun != null) {
-                long delayUntilNextTimeoutRun = _scheduledTimeoutRun.getDelay(
-                      TimeUnit.MILLISECONDS);
-
-                if (delayUntilNextTimeoutRun <= delayUntilFirstTimeout) {
-                    return; // Do nothing: the next scheduled run is soon enough.
-                }
-
-                _scheduledTimeoutRun.cancel(false);
-            }
-
-            _scheduledTimeoutRun = _timer.schedule(
+    /**
+     * Schedules processTimedOutMessages to run at the end of the tick in which {@code deadline}
+     * falls, replacing any earlier schedule. Callbacks expiring within the same tick are thus
+     * processed together, while no timer task runs while no callback expires.
+     */
+    @GuardedBy("_callbackExpiryLock")
+    private void scheduleCallbackExpiry(long deadline) {
+        if (_callbackExpiryTask != null) {
+            _callbackExpiryTask.cancel(false);
+            _callbackExpiryTask = null;
+        }
+        _callbackExpiryDeadline = deadline;
+        if (deadline != Long.MAX_VALUE) {
+            long tick = _callbackExpiry.getTickMillis();
+            long delay = (deadline / tick + 1) * tick - System.currentTimeMillis();
+            _callbackExpiryTask = _timer.schedule(
                   new FireAndForgetTask(this::processTimedOutMessages),
-                  delayUntilFirstTimeout, TimeUnit.MILLISECONDS);
+                  Math.max(delay, 0), TimeUnit.MILLISECONDS);
         }
     }
 
     private void processTimedOutMessages() {
-        synchronized (_callbackExpiry) {
-            _processingTimedOutCallbacks = true;
-            try {
-                long now = System.currentTimeMillis();
-                _waitHash.entrySet().stream()
-                      .filter(e -> e.getValue().getTimeout() < now)
-                      .forEach(e -> {
-                          _callbackExpiry.remove(e.getValue());
-                          timeOutMessage(e.getKey(), e.getValue(), this::reregisterCallback);
-                      });
-            } finally {
-                _processingTimedOutCallbacks = false;
-                _scheduledTimeoutRun = null;
-                rescheduleCallbackTimeout();
+        long now = System.currentTimeMillis();
+        try {
+            for (CellLock lock : _callbackExpiry.expire(now)) {
+                timeOutMessage(lock.getMessage().getUOID(), lock, this::reregisterCallback);
+            }
+        } finally {
+            /* Resetting the deadline before searching the wheel makes callbacks added during the
+             * search reschedule on their own if they expire earlier than the one found.
+             */
+            synchronized (_callbackExpiryLock) {
+                _callbackExpiryDeadline = Long.MAX_VALUE;
+                scheduleCallbackExpiry(_callbackExpiry.nextExpiry(now));
             }
         }
     }
@@ -1041,13 +1075,7 @@ public class CellNucleus implements ThreadFactory {
              */
             _waitHash.forEach((uoid, lock) -> timeOutMessage(uoid, lock, (u, l) -> {
             }));
-            synchronized (_callbackExpiry) {
-                _callbackExpiry.clear();
-                if (_scheduledTimeoutRun != null) {
-                    _scheduledTimeoutRun.cancel(false);
-                    _scheduledTimeoutRun = null;
-                }
-            }
+            _callbackExpiry.clear();
 
             /* Shut down message executor.
              */
@@ -1261,25 +1289,17 @@ public class CellNucleus implements ThreadFactory {
             try (CDC ignored = CDC.reset(CellNucleus.this)) {
                 try {
                     EventLogger.queueEnd(_event);
-                    _lastQueueTime = _event.getMessage().getLocalAge();
+                    long queueTime = _event.getMessage().getLocalAge();
+                    _lastQueueTime = queueTime;
+                    _queueTime.add(queueTime);
                     _eventQueueSize.decrementAndGet();
 
-                    if (_event instanceof RoutedMessageEvent) {
-                        _cell.messageArrived(_event);
-                    } else {
-                        CellMessage msg = _event.getMessage();
-                        CDC.setMessageContext(msg);
-                        msg.getDestinationPath().next();
-                        try {
-                            _cell.messageArrived(_event);
-                        } catch (RuntimeException e) {
-                            if (!msg.isReply()) {
-                                msg.revertDirection();
-                                msg.setMessageObject(e);
-                                sendMessage(msg, true, true, true);
-                            }
-                            throw e;
-                        }
+                    long start = System.nanoTime();
+                    try {
+                        deliver();
+                    } finally {
+                        _processingTime.add(
+                              TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
                     }
                 } catch (Throwable e) {
                     Thread t = Thread.currentThread();
@@ -1288,6 +1308,26 @@ public class CellNucleus implements ThreadFactory {
             }
         }
 
+        private void deliver() {
+            if (_event instanceof RoutedMessageEvent) {
+                _cell.messageArrived(_event);
+            } else {
+                CellMessage msg = _event.getMessage();
+                CDC.setMessageContext(msg);
+                msg.getDestinationPath().next();
+                try {
+                    _cell.messageArrived(_event);
+                } catch (RuntimeException e) {
+                    if (!msg.isReply()) {
+                        msg.revertDirection();
+                        msg.setMessageObject(e);
+                        sendMessage(msg, true, true, true);
+                    }
+                    throw e;
+                }
+            }
+        }
+
         @Override
         public String toString() {
             return "Delivery-of-" + _event;
@@ -0,0 +1,38 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Registers classes with the compact message payload serializer.
+ * <p>
+ * Implementations are discovered through {@link java.util.ServiceLoader}. Instances of registered
+ * classes are encoded field by field following a schema derived from the serializable fields of
+ * the class, rather than with Java Object Serialization. Registered classes must not be {@link
+ * java.io.Externalizable} and must not declare {@code writeObject}, {@code writeReplace} or {@code
+ * readResolve} methods. A {@code readObject} method is not invoked when decoding, so it must not
+ * be needed for correctness.
+ * <p>
+ * Registered enum types are encoded by ordinal.
+ */
+public interface CompactSchemaProvider {
+
+    Collection<Class<? extends Serializable>> getClasses();
+}
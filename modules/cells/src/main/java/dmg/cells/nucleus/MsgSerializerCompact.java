@@ -0,0 +1,911 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.NotActiveException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisException;
+import org.objenesis.ObjenesisSerializer;
+import org.objenesis.instantiator.ObjectInstantiator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class contains methods for serializing and deserializing objects to/from a byte array
+ * representation. Instances of classes registered through a {@link CompactSchemaProvider} are
+ * encoded field by field in a compact binary format; all other objects are encoded with Java
+ * Object Serialization.
+ * <p>
+ * The encoded form starts with a header, followed by a fingerprint of the schema of all
+ * registered classes. Peers only exchange compactly encoded messages if their fingerprints match.
+ * Objects of classes that are not registered and that are referenced from registered objects
+ * are written to a single embedded Java Object Serialization stream, so class descriptors are
+ * written at most once per message. If the message itself is not of a registered class, it is
+ * encoded with Java Object Serialization only.
+ * <p>
+ * Strings, boxed primitives, byte arrays, enum sets of registered enums, and the common
+ * collection classes of {@code java.util} are encoded compactly too, regardless of registration.
+ * <p>
+ * Shared references between registered objects are preserved. Shared references between other
+ * objects are only preserved within the embedded stream.
+ * <p>
+ * Registered classes may declare a {@code readObject} method, as long as it only calls
+ * {@code defaultReadObject} on the stream. It is invoked once all fields of the object have been
+ * decoded, so that the object is post-processed as with Java Object Serialization.
+ */
+public final class MsgSerializerCompact {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MsgSerializerCompact.class);
+
+    private static final byte[] COMPACT_MESSAGE_HEADER = new byte[]{
+          0x05, 0x4d,   // 054D -> [o]bject [s]tream [for] [d]Cache
+          0x01, 0x00    // compact, version 1
+    };
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    /* Value tags. */
+    private static final byte NULL = 0;
+    private static final byte REFERENCE = 1;
+    private static final byte OBJECT = 2;
+    private static final byte ENUM = 3;
+    private static final byte ASCII = 4;
+    private static final byte UTF = 5;
+    private static final byte INTEGER = 6;
+    private static final byte LONG = 7;
+    private static final byte TRUE = 8;
+    private static final byte FALSE = 9;
+    private static final byte DOUBLE = 10;
+    private static final byte BYTES = 11;
+    private static final byte ARRAY_LIST = 12;
+    private static final byte HASH_SET = 13;
+    private static final byte LINKED_HASH_SET = 14;
+    private static final byte HASH_MAP = 15;
+    private static final byte LINKED_HASH_MAP = 16;
+    private static final byte ENUM_SET = 17;
+    private static final byte EMBEDDED = 18;
+    private static final byte EMPTY_LIST = 19;
+    private static final byte EMPTY_SET = 20;
+    private static final byte EMPTY_MAP = 21;
+    private static final byte IMMUTABLE_LIST = 22;
+    private static final byte IMMUTABLE_SET = 23;
+    private static final byte IMMUTABLE_MAP = 24;
+    private static final byte SINGLETON_LIST = 25;
+    private static final byte SINGLETON_SET = 26;
+
+    private static final Class<?> EMPTY_LIST_CLASS = Collections.emptyList().getClass();
+    private static final Class<?> EMPTY_SET_CLASS = Collections.emptySet().getClass();
+    private static final Class<?> EMPTY_MAP_CLASS = Collections.emptyMap().getClass();
+    private static final Class<?> SINGLETON_LIST_CLASS = Collections.singletonList(0).getClass();
+    private static final Class<?> SINGLETON_SET_CLASS = Collections.singleton(0).getClass();
+    private static final String IMMUTABLE_COLLECTIONS = "java.util.ImmutableCollections$";
+
+    /* Field kinds. */
+    private static final byte KIND_BOOLEAN = 0;
+    private static final byte KIND_BYTE = 1;
+    private static final byte KIND_CHAR = 2;
+    private static final byte KIND_SHORT = 3;
+    private static final byte KIND_INT = 4;
+    private static final byte KIND_LONG = 5;
+    private static final byte KIND_FLOAT = 6;
+    private static final byte KIND_DOUBLE = 7;
+    private static final byte KIND_OBJECT = 8;
+
+    /**
+     * Longest string guaranteed to fit the 64 KiB limit of modified UTF-8.
+     */
+    private static final int MAX_UTF_LENGTH = 65535 / 3;
+
+    private static final Objenesis INSTANTIATORS = new ObjenesisSerializer(false);
+
+    private static final ObjectInputStream READ_HOOK_STREAM = ReadHookStream.create();
+
+    private static final Registry REGISTRY = Registry.load();
+
+    private MsgSerializerCompact() {
+    }
+
+    /**
+     * Returns the fingerprint of the schema of all registered classes, or null if no classes
+     * are registered.
+     */
+    public static Integer getSchemaFingerprint() {
+        return REGISTRY.isEmpty() ? null : REGISTRY.fingerprint;
+    }
+
+    public static byte[] encode(Object message) {
+        checkState(message != null, "Unencoded message payload is null.");
+        ClassSchema schema = REGISTRY.byClass.get(message.getClass());
+        if (schema == null) {
+            return MsgSerializerJos.encode(message);
+        }
+        try {
+            Writer writer = new Writer();
+            writer.writeValue(message);
+            return writer.toByteArray();
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new SerializationException("Failed to serialize object: " + e, e);
+        }
+    }
+
+    public static Object decode(byte[] messageStream) {
+        checkState(messageStream != null, "Encoded message payload is null.");
+        checkState(isCompactEncoded(messageStream));
+        try {
+            Reader reader = new Reader(messageStream);
+            return reader.readValue();
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException(
+                  "Failed to deserialize object: The class could not be found. Is there a software version mismatch in your installation?",
+                  e);
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            throw new SerializationException("Failed to deserialize object: " + e, e);
+        }
+    }
+
+    public static boolean isCompactEncoded(byte[] messageStream) {
+        return (messageStream.length >= COMPACT_MESSAGE_HEADER.length &&
+              messageStream[0] == COMPACT_MESSAGE_HEADER[0] &&
+              messageStream[1] == COMPACT_MESSAGE_HEADER[1] &&
+              messageStream[2] == COMPACT_MESSAGE_HEADER[2] &&
+              messageStream[3] == COMPACT_MESSAGE_HEADER[3]);
+    }
+
+    /**
+     * Schema of a registered class: its serializable instance fields in a fixed order.
+     */
+    private static class ClassSchema {
+
+        private final Class<?> type;
+        private final int id;
+        private final Field[] fields;
+        private final byte[] kinds;
+        private final ObjectInstantiator<?> instantiator;
+        private final Object[] constants;
+
+        /**
+         * The readObject methods of the class and its superclasses, superclasses first.
+         */
+        private final Method[] readHooks;
+
+        ClassSchema(Class<?> type, int id) {
+            this.type = type;
+            this.id = id;
+            if (type.isEnum()) {
+                fields = new Field[0];
+                kinds = new byte[0];
+                instantiator = null;
+                constants = type.getEnumConstants();
+                readHooks = new Method[0];
+            } else {
+                List<Field> list = new ArrayList<>();
+                List<Method> hooks = new ArrayList<>();
+                Class<?> c = type;
+                while (Serializable.class.isAssignableFrom(c)) {
+                    Method hook = getReadHook(c);
+                    if (hook != null) {
+                        hooks.add(0, hook);
+                    }
+                    Field[] declared = c.getDeclaredFields();
+                    Arrays.sort(declared, Comparator.comparing(Field::getName));
+                    for (Field field : declared) {
+                        int modifiers = field.getModifiers();
+                        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                            field.setAccessible(true);
+                            list.add(field);
+                        }
+                    }
+                    c = c.getSuperclass();
+                }
+                fields = list.toArray(Field[]::new);
+                readHooks = hooks.toArray(Method[]::new);
+                kinds = new byte[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    kinds[i] = kindOf(fields[i].getType());
+                }
+                /* Like Java Object Serialization, only the no-arg constructor of the
+                 * first non-serializable superclass is run.
+                 */
+                instantiator = INSTANTIATORS.getInstantiatorOf(type);
+                constants = null;
+            }
+        }
+
+        boolean isEnum() {
+            return constants != null;
+        }
+
+        Object newInstance() throws ReflectiveOperationException {
+            try {
+                return instantiator.newInstance();
+            } catch (ObjenesisException e) {
+                throw new InstantiationException("Failed to create " + type.getName() + ": "
+                      + e.getMessage());
+            }
+        }
+
+        /**
+         * Invokes the readObject methods of a decoded object.
+         */
+        void runReadHooks(Object value) throws IOException, ClassNotFoundException,
+              ReflectiveOperationException {
+            for (Method hook : readHooks) {
+                try {
+                    hook.invoke(value, READ_HOOK_STREAM);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    Throwables.throwIfInstanceOf(cause, IOException.class);
+                    Throwables.throwIfInstanceOf(cause, ClassNotFoundException.class);
+                    throw e;
+                }
+            }
+        }
+
+        private static Method getReadHook(Class<?> c) {
+            try {
+                Method method = c.getDeclaredMethod("readObject", ObjectInputStream.class);
+                int modifiers = method.getModifiers();
+                if (!Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers)) {
+                    return null;
+                }
+                method.setAccessible(true);
+                return method;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        void describe(StringBuilder sb) {
+            sb.append(id).append(' ').append(type.getName()).append('{');
+            if (isEnum()) {
+                for (Object constant : constants) {
+                    sb.append(((Enum<?>) constant).name()).append(',');
+                }
+            } else {
+                for (Field field : fields) {
+                    sb.append(field.getDeclaringClass().getName()).append('.')
+                          .append(field.getName()).append(':')
+                          .append(field.getType().getName()).append(',');
+                }
+            }
+            sb.append('}');
+        }
+
+        private static byte kindOf(Class<?> type) {
+            if (type == boolean.class) {
+                return KIND_BOOLEAN;
+            } else if (type == byte.class) {
+                return KIND_BYTE;
+            } else if (type == char.class) {
+                return KIND_CHAR;
+            } else if (type == short.class) {
+                return KIND_SHORT;
+            } else if (type == int.class) {
+                return KIND_INT;
+            } else if (type == long.class) {
+                return KIND_LONG;
+            } else if (type == float.class) {
+                return KIND_FLOAT;
+            } else if (type == double.class) {
+                return KIND_DOUBLE;
+            } else {
+                return KIND_OBJECT;
+            }
+        }
+    }
+
+    private static class Registry {
+
+        private final Map<Class<?>, ClassSchema> byClass = new HashMap<>();
+        private final List<ClassSchema> byId = new ArrayList<>();
+        private int fingerprint;
+
+        static Registry load() {
+            Registry registry = new Registry();
+            TreeMap<String, Class<?>> classes = new TreeMap<>();
+            try {
+                for (CompactSchemaProvider provider : ServiceLoader.load(
+                      CompactSchemaProvider.class, MsgSerializerCompact.class.getClassLoader())) {
+                    for (Class<?> type : provider.getClasses()) {
+                        if (isSupported(type)) {
+                            classes.put(type.getName(), type);
+                        } else {
+                            LOGGER.warn("Class {} cannot be registered for compact serialization.",
+                                  type.getName());
+                        }
+                    }
+                }
+            } catch (ServiceConfigurationError | LinkageError e) {
+                LOGGER.error("Failed to load compact serialization schema: {}", e.toString());
+                return registry;
+            }
+            StringBuilder description = new StringBuilder();
+            for (Class<?> type : classes.values()) {
+                try {
+                    ClassSchema schema = new ClassSchema(type, registry.byId.size());
+                    registry.byClass.put(type, schema);
+                    registry.byId.add(schema);
+                    schema.describe(description);
+                } catch (RuntimeException | LinkageError e) {
+                    LOGGER.warn("Class {} cannot be registered for compact serialization: {}",
+                          type.getName(), e.toString());
+                }
+            }
+            registry.fingerprint = Hashing.murmur3_32().hashString(description, UTF_8).asInt();
+            return registry;
+        }
+
+        private static boolean isSupported(Class<?> type) {
+            if (!Serializable.class.isAssignableFrom(type)
+                  || Externalizable.class.isAssignableFrom(type)) {
+                return false;
+            }
+            if (type.isEnum()) {
+                return true;
+            }
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                if (declares(c, "writeObject", ObjectOutputStream.class)
+                      || declares(c, "writeReplace")
+                      || declares(c, "readResolve")
+                      || declares(c, "serialPersistentFields")) {
+                    return false;
+                }
+            }
+            return !Modifier.isAbstract(type.getModifiers());
+        }
+
+        private static boolean declares(Class<?> c, String name, Class<?>... parameters) {
+            try {
+                if (parameters.length == 0 && name.equals("serialPersistentFields")) {
+                    c.getDeclaredField(name);
+                } else {
+                    c.getDeclaredMethod(name, parameters);
+                }
+                return true;
+            } catch (NoSuchFieldException | NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        boolean isEmpty() {
+            return byId.isEmpty();
+        }
+
+        ClassSchema byId(int id) throws IOException {
+            if (id < 0 || id >= byId.size()) {
+                throw new IOException("Unknown class id " + id);
+            }
+            return byId.get(id);
+        }
+    }
+
+    /**
+     * Stream passed to the readObject methods of decoded objects. As all fields have already been
+     * decoded, {@code defaultReadObject} has nothing left to do; reading anything else fails.
+     */
+    private static class ReadHookStream extends ObjectInputStream {
+
+        private ReadHookStream() throws IOException {
+        }
+
+        static ObjectInputStream create() {
+            try {
+                return new ReadHookStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void defaultReadObject() {
+        }
+
+        @Override
+        public GetField readFields() throws IOException {
+            throw new NotActiveException("readFields is not supported by compact serialization");
+        }
+
+        @Override
+        protected Object readObjectOverride() throws IOException {
+            throw new NotActiveException("readObject is not supported by compact serialization");
+        }
+    }
+
+    private static class Writer {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<Object, Integer> handles = new IdentityHashMap<>();
+        private ByteArrayOutputStream embeddedBytes;
+        private ObjectOutputStream embedded;
+
+        byte[] toByteArray() throws IOException {
+            out.flush();
+            if (embedded != null) {
+                embedded.close();
+            }
+            int length = bytes.size();
+            ByteArrayOutputStream result = new ByteArrayOutputStream(
+                  length + 13 + (embeddedBytes == null ? 0 : embeddedBytes.size()));
+            DataOutputStream header = new DataOutputStream(result);
+            header.write(COMPACT_MESSAGE_HEADER);
+            header.writeInt(REGISTRY.fingerprint);
+            writeVarInt(header, length);
+            bytes.writeTo(result);
+            if (embeddedBytes != null) {
+                embeddedBytes.writeTo(result);
+            }
+            return result.toByteArray();
+        }
+
+        void writeValue(Object value) throws IOException, ReflectiveOperationException {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                writeString((String) value);
+            } else if (type == Integer.class) {
+                out.writeByte(INTEGER);
+                writeVarLong(out, (Integer) value);
+            } else if (type == Long.class) {
+                out.writeByte(LONG);
+                writeVarLong(out, (Long) value);
+            } else if (type == Boolean.class) {
+                out.writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (type == Double.class) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (type == byte[].class) {
+                byte[] array = (byte[]) value;
+                out.writeByte(BYTES);
+                writeVarInt(out, array.length);
+                out.write(array);
+            } else {
+                ClassSchema schema = REGISTRY.byClass.get(value instanceof Enum
+                      ? ((Enum<?>) value).getDeclaringClass() : type);
+                if (schema != null) {
+                    writeRegistered(schema, value);
+                } else if (type == ArrayList.class) {
+                    writeCollection(ARRAY_LIST, (Collection<?>) value);
+                } else if (type == HashSet.class) {
+                    writeCollection(HASH_SET, (Collection<?>) value);
+                } else if (type == LinkedHashSet.class) {
+                    writeCollection(LINKED_HASH_SET, (Collection<?>) value);
+                } else if (type == HashMap.class) {
+                    writeMap(HASH_MAP, (Map<?, ?>) value);
+                } else if (type == LinkedHashMap.class) {
+                    writeMap(LINKED_HASH_MAP, (Map<?, ?>) value);
+                } else if (type == EMPTY_LIST_CLASS) {
+                    out.writeByte(EMPTY_LIST);
+                } else if (type == EMPTY_SET_CLASS) {
+                    out.writeByte(EMPTY_SET);
+                } else if (type == EMPTY_MAP_CLASS) {
+                    out.writeByte(EMPTY_MAP);
+                } else if (type == SINGLETON_LIST_CLASS) {
+                    out.writeByte(SINGLETON_LIST);
+                    writeValue(((List<?>) value).get(0));
+                } else if (type == SINGLETON_SET_CLASS) {
+                    out.writeByte(SINGLETON_SET);
+                    writeValue(((Set<?>) value).iterator().next());
+                } else if (type.getName().startsWith(IMMUTABLE_COLLECTIONS)
+                      && value instanceof List) {
+                    writeCollection(IMMUTABLE_LIST, (Collection<?>) value);
+                } else if (type.getName().startsWith(IMMUTABLE_COLLECTIONS)
+                      && value instanceof Set) {
+                    writeCollection(IMMUTABLE_SET, (Collection<?>) value);
+                } else if (type.getName().startsWith(IMMUTABLE_COLLECTIONS)
+                      && value instanceof Map) {
+                    writeMap(IMMUTABLE_MAP, (Map<?, ?>) value);
+                } else if (value instanceof EnumSet && enumSchema((EnumSet<?>) value) != null) {
+                    writeEnumSet(enumSchema((EnumSet<?>) value), (EnumSet<?>) value);
+                } else {
+                    writeEmbedded(value);
+                }
+            }
+        }
+
+        private void writeRegistered(ClassSchema schema, Object value)
+              throws IOException, ReflectiveOperationException {
+            if (schema.isEnum()) {
+                out.writeByte(ENUM);
+                writeVarInt(out, schema.id);
+                writeVarInt(out, ((Enum<?>) value).ordinal());
+                return;
+            }
+            Integer handle = handles.get(value);
+            if (handle != null) {
+                out.writeByte(REFERENCE);
+                writeVarInt(out, handle);
+                return;
+            }
+            handles.put(value, handles.size());
+            out.writeByte(OBJECT);
+            writeVarInt(out, schema.id);
+            Field[] fields = schema.fields;
+            byte[] kinds = schema.kinds;
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                switch (kinds[i]) {
+                    case KIND_BOOLEAN:
+                        out.writeBoolean(field.getBoolean(value));
+                        break;
+                    case KIND_BYTE:
+                        out.writeByte(field.getByte(value));
+                        break;
+                    case KIND_CHAR:
+                        out.writeChar(field.getChar(value));
+                        break;
+                    case KIND_SHORT:
+                        out.writeShort(field.getShort(value));
+                        break;
+                    case KIND_INT:
+                        writeVarLong(out, field.getInt(value));
+                        break;
+                    case KIND_LONG:
+                        writeVarLong(out, field.getLong(value));
+                        break;
+                    case KIND_FLOAT:
+                        out.writeFloat(field.getFloat(value));
+                        break;
+                    case KIND_DOUBLE:
+                        out.writeDouble(field.getDouble(value));
+                        break;
+                    default:
+                        writeValue(field.get(value));
+                        break;
+                }
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            int length = value.length();
+            boolean isAscii = true;
+            for (int i = 0; i < length && isAscii; i++) {
+                isAscii = value.charAt(i) < 0x80;
+            }
+            if (isAscii) {
+                out.writeByte(ASCII);
+                writeVarInt(out, length);
+                out.write(value.getBytes(ISO_8859_1));
+            } else if (length <= MAX_UTF_LENGTH) {
+                out.writeByte(UTF);
+                out.writeUTF(value);
+            } else {
+                writeEmbedded(value);
+            }
+        }
+
+        private void writeCollection(byte tag, Collection<?> collection)
+              throws IOException, ReflectiveOperationException {
+            out.writeByte(tag);
+            writeVarInt(out, collection.size());
+            for (Object element : collection) {
+                writeValue(element);
+            }
+        }
+
+        private void writeMap(byte tag, Map<?, ?> map)
+              throws IOException, ReflectiveOperationException {
+            out.writeByte(tag);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        /**
+         * Returns the schema of the element type of the set, or null if it is not registered.
+         */
+        private ClassSchema enumSchema(EnumSet<?> set) {
+            EnumSet<?> nonEmpty = set.isEmpty() ? EnumSet.complementOf(set) : set;
+            return nonEmpty.isEmpty()
+                  ? null
+                  : REGISTRY.byClass.get(nonEmpty.iterator().next().getDeclaringClass());
+        }
+
+        private void writeEnumSet(ClassSchema schema, EnumSet<?> set) throws IOException {
+            out.writeByte(ENUM_SET);
+            writeVarInt(out, schema.id);
+            writeVarInt(out, set.size());
+            for (Enum<?> element : set) {
+                writeVarInt(out, element.ordinal());
+            }
+        }
+
+        private void writeEmbedded(Object value) throws IOException {
+            if (embedded == null) {
+                embeddedBytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+                embedded = new ObjectOutputStream(embeddedBytes);
+            }
+            out.writeByte(EMBEDDED);
+            embedded.writeObject(value);
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] stream;
+        private final DataInputStream in;
+        private final int embeddedOffset;
+        private final List<Object> handles = new ArrayList<>();
+        private ObjectInputStream embedded;
+
+        Reader(byte[] stream) throws IOException {
+            this.stream = stream;
+            ByteArrayInputStream bytes = new ByteArrayInputStream(stream);
+            bytes.skip(COMPACT_MESSAGE_HEADER.length);
+            in = new DataInputStream(bytes);
+            int fingerprint = in.readInt();
+            if (fingerprint != REGISTRY.fingerprint) {
+                throw new IOException("Message was encoded with a different compact schema.");
+            }
+            int length = readVarInt(in);
+            embeddedOffset = stream.length - bytes.available() + length;
+        }
+
+        Object readValue() throws IOException, ClassNotFoundException,
+              ReflectiveOperationException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case REFERENCE:
+                    return handles.get(readVarInt(in));
+                case OBJECT:
+                    return readObject(REGISTRY.byId(readVarInt(in)));
+                case ENUM:
+                    return REGISTRY.byId(readVarInt(in)).constants[readVarInt(in)];
+                case ASCII: {
+                    byte[] chars = new byte[readVarInt(in)];
+                    in.readFully(chars);
+                    return new String(chars, ISO_8859_1);
+                }
+                case UTF:
+                    return in.readUTF();
+                case INTEGER:
+                    return (int) readVarLong(in);
+                case LONG:
+                    return readVarLong(in);
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case DOUBLE:
+                    return in.readDouble();
+                case BYTES: {
+                    byte[] array = new byte[readVarInt(in)];
+                    in.readFully(array);
+                    return array;
+                }
+                case ARRAY_LIST: {
+                    int size = readVarInt(in);
+                    return readCollection(new ArrayList<>(size), size);
+                }
+                case HASH_SET: {
+                    int size = readVarInt(in);
+                    return readCollection(new HashSet<>(capacity(size)), size);
+                }
+                case LINKED_HASH_SET: {
+                    int size = readVarInt(in);
+                    return readCollection(new LinkedHashSet<>(capacity(size)), size);
+                }
+                case HASH_MAP: {
+                    int size = readVarInt(in);
+                    return readMap(new HashMap<>(capacity(size)), size);
+                }
+                case LINKED_HASH_MAP: {
+                    int size = readVarInt(in);
+                    return readMap(new LinkedHashMap<>(capacity(size)), size);
+                }
+                case EMPTY_LIST:
+                    return Collections.emptyList();
+                case EMPTY_SET:
+                    return Collections.emptySet();
+                case EMPTY_MAP:
+                    return Collections.emptyMap();
+                case SINGLETON_LIST:
+                    return Collections.singletonList(readValue());
+                case SINGLETON_SET:
+                    return Collections.singleton(readValue());
+                case IMMUTABLE_LIST: {
+                    int size = readVarInt(in);
+                    return List.copyOf(readCollection(new ArrayList<>(size), size));
+                }
+                case IMMUTABLE_SET: {
+                    int size = readVarInt(in);
+                    return Set.copyOf(readCollection(new ArrayList<>(size), size));
+                }
+                case IMMUTABLE_MAP: {
+                    int size = readVarInt(in);
+                    return Map.copyOf(readMap(new HashMap<>(capacity(size)), size));
+                }
+                case ENUM_SET:
+                    return readEnumSet(REGISTRY.byId(readVarInt(in)));
+                case EMBEDDED:
+                    return embedded().readObject();
+                default:
+                    throw new IOException("Invalid value tag " + tag);
+            }
+        }
+
+        private Object readObject(ClassSchema schema) throws IOException, ClassNotFoundException,
+              ReflectiveOperationException {
+            Object value = schema.newInstance();
+            handles.add(value);
+            Field[] fields = schema.fields;
+            byte[] kinds = schema.kinds;
+            for (int i = 0; i < fields.length; i++) {
+                Field field = fields[i];
+                switch (kinds[i]) {
+                    case KIND_BOOLEAN:
+                        field.setBoolean(value, in.readBoolean());
+                        break;
+                    case KIND_BYTE:
+                        field.setByte(value, in.readByte());
+                        break;
+                    case KIND_CHAR:
+                        field.setChar(value, in.readChar());
+                        break;
+                    case KIND_SHORT:
+                        field.setShort(value, in.readShort());
+                        break;
+                    case KIND_INT:
+                        field.setInt(value, (int) readVarLong(in));
+                        break;
+                    case KIND_LONG:
+                        field.setLong(value, readVarLong(in));
+                        break;
+                    case KIND_FLOAT:
+                        field.setFloat(value, in.readFloat());
+                        break;
+                    case KIND_DOUBLE:
+                        field.setDouble(value, in.readDouble());
+                        break;
+                    default:
+                        field.set(value, readValue());
+                        break;
+                }
+            }
+            schema.runReadHooks(value);
+            return value;
+        }
+
+        private Collection<Object> readCollection(Collection<Object> collection, int size)
+              throws IOException, ClassNotFoundException, ReflectiveOperationException {
+            for (int i = 0; i < size; i++) {
+                collection.add(readValue());
+            }
+            return collection;
+        }
+
+        private Map<Object, Object> readMap(Map<Object, Object> map, int size)
+              throws IOException, ClassNotFoundException, ReflectiveOperationException {
+            for (int i = 0; i < size; i++) {
+                Object key = readValue();
+                map.put(key, readValue());
+            }
+            return map;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Set<?> readEnumSet(ClassSchema schema) throws IOException {
+            EnumSet set = EnumSet.noneOf((Class<Enum>) schema.type);
+            int size = readVarInt(in);
+            for (int i = 0; i < size; i++) {
+                set.add(schema.constants[readVarInt(in)]);
+            }
+            return set;
+        }
+
+        private ObjectInputStream embedded() throws IOException {
+            if (embedded == null) {
+                embedded = new ObjectInputStream(new ByteArrayInputStream(stream,
+                      embeddedOffset, stream.length - embeddedOffset));
+            }
+            return embedded;
+        }
+
+        private static int capacity(int size) {
+            return (int) (size / 0.75f) + 1;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Writes a signed value as a zig-zag encoded variable length integer.
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -26,14 +26,14 @@ import org.slf4j.LoggerFactory;
  * The class contains methods for serializing and deserializing objects to/from a byte array
  * representation. It selects the deserialization method based on a header that is appended to
  * serialized byte arrays based on the used serializer. Currently the class can differentiate
- * between JOS and FST.
+ * between JOS, FST and the compact serializer.
  */
 public final class SerializationHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SerializationHandler.class);
 
     public enum Serializer {
-        UNDEFINED("undefined"), JOS("standard"), FST("experimental");
+        UNDEFINED("undefined"), JOS("standard"), FST("experimental"), COMPACT("compact");
 
         private final String displayName;
 
@@ -46,6 +46,8 @@ public final class SerializationHandler {
         }
     }
 
+    private static final byte[] JOS_STREAM_MAGIC = new byte[]{(byte) 0xac, (byte) 0xed};
+
     private SerializationHandler() {
     }
 
@@ -59,6 +61,8 @@ public final class SerializationHandler {
                 return Serializer.FST;
             case "standard":
                 return Serializer.JOS;
+            case "compact":
+                return Serializer.COMPACT;
             default:
                 LOGGER.warn("Unknown serializer specified in configuration. Defaulting to {}.",
                       Serializer.JOS);
@@ -67,8 +71,29 @@ public final class SerializationHandler {
         }
     }
 
+    /**
+     * Returns whether the encoded message can be passed on to a peer expecting the given
+     * serializer without being re-encoded. The compact serializer falls back to JOS for
+     * unregistered classes, so JOS encoded messages are accepted by it too.
+     */
     public static boolean isEncodedWith(byte[] msgStream, Serializer serializer) {
-        return serializer == Serializer.FST && MsgSerializerFst.isFstEncoded(msgStream);
+        switch (serializer) {
+            case JOS:
+                return isJosEncoded(msgStream);
+            case FST:
+                return MsgSerializerFst.isFstEncoded(msgStream);
+            case COMPACT:
+                return MsgSerializerCompact.isCompactEncoded(msgStream)
+                      || isJosEncoded(msgStream);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isJosEncoded(byte[] msgStream) {
+        return msgStream.length >= JOS_STREAM_MAGIC.length
+              && msgStream[0] == JOS_STREAM_MAGIC[0]
+              && msgStream[1] == JOS_STREAM_MAGIC[1];
     }
 
     public static byte[] encode(Object message, Serializer serializer) {
@@ -77,6 +102,8 @@ public final class SerializationHandler {
                 return MsgSerializerJos.encode(message);
             case FST:
                 return MsgSerializerFst.encode(message);
+            case COMPACT:
+                return MsgSerializerCompact.encode(message);
             case UNDEFINED:
             default:
                 throw new UnsupportedOperationException(
@@ -85,6 +112,12 @@ public final class SerializationHandler {
     }
 
     public static Object decode(byte[] messageStream) {
+        if (MsgSerializerCompact.isCompactEncoded(messageStream)) {
+            return MsgSerializerCompact.decode(messageStream);
+        }
+        if (isJosEncoded(messageStream)) {
+            return MsgSerializerJos.decode(messageStream);
+        }
         if (MsgSerializerFst.isFstEncoded(messageStream)) {
             return MsgSerializerFst.decode(messageStream);
         }
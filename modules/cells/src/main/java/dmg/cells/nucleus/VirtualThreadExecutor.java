@@ -0,0 +1,75 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dmg.cells.nucleus;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executor running each task in a new virtual thread.
+ * <p>
+ * Virtual threads are cheap to create and to block, so a cell whose message handlers block on
+ * I/O or on other cells can allow many concurrent deliveries without a large pool of platform
+ * threads. Virtual threads are only available on Java 21 and newer; since dCache is built for an
+ * older release, they are looked up reflectively.
+ */
+class VirtualThreadExecutor implements Executor {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+    private final ThreadFactory factory;
+
+    private VirtualThreadExecutor(ThreadFactory factory) {
+        this.factory = factory;
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameters) {
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns an executor running each task in a new virtual thread named after the given prefix,
+     * or empty if the JVM does not support virtual threads.
+     */
+    static Optional<Executor> create(String prefix) {
+        if (OF_VIRTUAL == null) {
+            return Optional.empty();
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> type = OF_VIRTUAL.getReturnType();
+            builder = type.getMethod("name", String.class, long.class)
+                  .invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) type.getMethod("factory").invoke(builder);
+            return Optional.of(new VirtualThreadExecutor(factory));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        factory.newThread(command).start();
+    }
+}
@@ -0,0 +1,91 @@
+package dmg.cells.nucleus;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+public class CallbackExpiryTest {
+
+    private final CallbackExpiry expiry = new CallbackExpiry(10, 8);
+
+    private static CellLock lock(long timeout) {
+        return new CellLock(new CellMessage(new CellPath("foo"), "payload"),
+              mock(CellMessageAnswerable.class), Runnable::run, timeout);
+    }
+
+    @Test
+    public void shouldExpireCallbacksAfterTimeout() {
+        CellLock lock = lock(100);
+
+        expiry.add(lock);
+
+        assertThat(expiry.expire(lock.getTimeout() - 1), is(empty()));
+        assertThat(expiry.expire(lock.getTimeout() + 1), contains(lock));
+        assertThat(expiry.isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldNotExpireRemovedCallbacks() {
+        CellLock lock = lock(100);
+
+        expiry.add(lock);
+        expiry.remove(lock);
+
+        assertThat(expiry.expire(lock.getTimeout() + 1), is(empty()));
+        assertThat(expiry.size(), is(0));
+    }
+
+    @Test
+    public void shouldKeepCallbacksExpiringInLaterRotation() {
+        CellLock early = lock(100);
+        CellLock late = lock(100 + 8 * 10);
+
+        expiry.add(early);
+        expiry.add(late);
+
+        assertThat(expiry.expire(early.getTimeout() + 1), contains(early));
+        assertThat(expiry.size(), is(1));
+        assertThat(expiry.expire(late.getTimeout() + 1), contains(late));
+    }
+
+    @Test
+    public void shouldExpireCallbacksAfterLongPause() {
+        CellLock first = lock(100);
+        CellLock second = lock(150);
+
+        expiry.add(first);
+        expiry.add(second);
+
+        assertThat(expiry.expire(second.getTimeout() + 1000), containsInAnyOrder(first, second));
+    }
+
+    @Test
+    public void shouldFindEarliestExpiry() {
+        CellLock early = lock(100);
+        CellLock late = lock(150);
+
+        expiry.add(late);
+        expiry.add(early);
+
+        assertThat(expiry.nextExpiry(early.getTimeout() - 100), is(early.getTimeout()));
+    }
+
+    @Test
+    public void shouldFindExpiryBeyondOneRotation() {
+        CellLock lock = lock(100_000);
+
+        expiry.add(lock);
+
+        assertThat(expiry.nextExpiry(System.currentTimeMillis()), is(lock.getTimeout()));
+    }
+
+    @Test
+    public void shouldFindNoExpiryWhenEmpty() {
+        assertThat(expiry.nextExpiry(System.currentTimeMillis()), is(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,157 @@
+package dmg.cells.nucleus;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class MsgSerializerCompactTest {
+
+    public static class TestSchemaProvider implements CompactSchemaProvider {
+
+        @Override
+        public Collection<Class<? extends Serializable>> getClasses() {
+            return List.of(Payload.class, Child.class, Colour.class);
+        }
+    }
+
+    enum Colour {
+        RED, GREEN, BLUE
+    }
+
+    static class Base implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+
+        Base(long id) {
+            this.id = id;
+        }
+    }
+
+    static class Payload extends Base {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final int count;
+        private final boolean flag;
+        private final double ratio;
+        private final Colour colour;
+        private final EnumSet<Colour> colours;
+        private final Child first;
+        private final Child second;
+        private final List<Object> list;
+        private final Map<String, Long> map;
+        private final TimeUnit unregistered;
+        private final EnumSet<Colour> none = EnumSet.noneOf(Colour.class);
+        private final List<String> immutable = List.of("x", "y");
+        private final Set<String> empty = Collections.emptySet();
+        private transient String ignored = "ignored";
+
+        Payload(long id, String name, Child child) {
+            super(id);
+            this.name = name;
+            this.count = -42;
+            this.flag = true;
+            this.ratio = 0.25;
+            this.colour = Colour.GREEN;
+            this.colours = EnumSet.of(Colour.RED, Colour.BLUE);
+            this.first = child;
+            this.second = child;
+            this.list = new ArrayList<>(List.of("a", 1, 2L, "été"));
+            this.map = new HashMap<>(Map.of("key", Long.MAX_VALUE));
+            this.unregistered = TimeUnit.SECONDS;
+        }
+    }
+
+    static class Child implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+
+        Child(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    @Test
+    public void shouldRoundTripRegisteredObject() {
+        Payload payload = new Payload(7, "pool", new Child(new byte[]{1, 2, 3}));
+
+        byte[] encoded = MsgSerializerCompact.encode(payload);
+        Payload decoded = (Payload) SerializationHandler.decode(encoded);
+
+        assertThat(MsgSerializerCompact.isCompactEncoded(encoded), is(true));
+        assertThat(((Base) decoded).id, is(7L));
+        assertThat(decoded.name, is("pool"));
+        assertThat(decoded.count, is(-42));
+        assertThat(decoded.flag, is(true));
+        assertThat(decoded.ratio, is(0.25));
+        assertThat(decoded.colour, is(Colour.GREEN));
+        assertThat(decoded.colours, equalTo(EnumSet.of(Colour.RED, Colour.BLUE)));
+        assertThat(decoded.first.data, equalTo(new byte[]{1, 2, 3}));
+        assertThat(decoded.second, sameInstance(decoded.first));
+        assertThat(decoded.list, contains("a", 1, 2L, "été"));
+        assertThat(decoded.map, hasEntry("key", Long.MAX_VALUE));
+        assertThat(decoded.unregistered, is(TimeUnit.SECONDS));
+        assertThat(decoded.ignored, nullValue());
+        assertThat(decoded.none, equalTo(EnumSet.noneOf(Colour.class)));
+        assertThat(decoded.immutable, contains("x", "y"));
+        assertThat(decoded.empty, sameInstance(Collections.emptySet()));
+    }
+
+    @Test
+    public void shouldBeSmallerThanJos() {
+        Payload payload = new Payload(7, "pool", new Child(new byte[]{1, 2, 3}));
+
+        assertThat(MsgSerializerCompact.encode(payload).length,
+              lessThan(MsgSerializerJos.encode(payload).length));
+    }
+
+    @Test
+    public void shouldFallBackToJosForUnregisteredObject() {
+        byte[] encoded = MsgSerializerCompact.encode("payload");
+
+        assertThat(MsgSerializerCompact.isCompactEncoded(encoded), is(false));
+        assertThat(SerializationHandler.decode(encoded), is("payload"));
+        assertThat(SerializationHandler.isEncodedWith(encoded,
+              SerializationHandler.Serializer.COMPACT), is(true));
+    }
+
+    @Test
+    public void shouldReencodeCompactForJosPeer() throws Exception {
+        CellMessage message = new CellMessage(new CellPath("foo", "bar"),
+              new Payload(1, "pool", null));
+        CellMessage encoded = message.encodeWith(SerializationHandler.Serializer.COMPACT);
+
+        encoded.ensureEncodedWith(SerializationHandler.Serializer.JOS);
+
+        assertThat(encoded.decode().getMessageObject(), instanceOf(Payload.class));
+    }
+
+    @Test
+    public void shouldHaveSchemaFingerprint() {
+        assertThat(MsgSerializerCompact.getSchemaFingerprint(), notNullValue());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.dcache.chimera;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.dcache.chimera.posix.Stat;
+
+/**
+ * Bounded cache of directory entries, mapping a (parent inode, name) pair to the inode number
+ * and file type of the child.
+ * <p>
+ * Only information that never changes for a given directory entry is cached; in particular
+ * the stat of the child is not, as it is updated by every write. An entry therefore only
+ * becomes stale if the directory entry is removed or replaced. Such changes made through this
+ * file system instance are invalidated explicitly; changes made through other instances sharing
+ * the same database are only noticed once the entry expires.
+ * <p>
+ * To prevent a lookup that raced with a modification from inserting a stale entry, lookups
+ * obtain the generation of the stripe of each name before querying the database and the result
+ * is only cached if no invalidation of an entry in the same stripe happened in the meantime.
+ * Stripes are chosen by name only, so that the generation can be read before the inode of the
+ * parent directory is known.
+ */
+class DentryCache {
+
+    /**
+     * Cached directory entry.
+     */
+    static class Entry {
+
+        private final long ino;
+        private final int type;
+
+        Entry(long ino, int type) {
+            this.ino = ino;
+            this.type = type;
+        }
+
+        long ino() {
+            return ino;
+        }
+
+        boolean isSymLink() {
+            return type == UnixPermission.S_IFLNK;
+        }
+    }
+
+    private static class Key {
+
+        private final long parent;
+        private final String name;
+
+        Key(long parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return parent == other.parent && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parent, name);
+        }
+    }
+
+    private static final int STRIPES = 256;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private volatile Cache<Key, Entry> cache;
+
+    private volatile long size;
+
+    private volatile long timeout;
+
+    private volatile TimeUnit timeoutUnit;
+
+    DentryCache(long size, long timeout, TimeUnit timeoutUnit) {
+        configure(size, timeout, timeoutUnit);
+    }
+
+    /**
+     * Replaces the cache by an empty cache with the given limits. A size of zero disables the
+     * cache.
+     */
+    synchronized void configure(long size, long timeout, TimeUnit timeoutUnit) {
+        this.size = size;
+        this.timeout = timeout;
+        this.timeoutUnit = timeoutUnit;
+        cache = size > 0
+              ? CacheBuilder.newBuilder()
+              .maximumSize(size)
+              .expireAfterWrite(timeout, timeoutUnit)
+              .recordStats()
+              .<Key, Entry>build()
+              : null;
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+    }
+
+    private static int stripe(String name) {
+        return (name.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    boolean isEnabled() {
+        return cache != null;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    TimeUnit getTimeoutUnit() {
+        return timeoutUnit;
+    }
+
+    /**
+     * Returns the generation to pass to {@link #put} for an entry with the given name after the
+     * database has been queried.
+     */
+    long generation(String name) {
+        return generations.get(stripe(name));
+    }
+
+    /**
+     * Returns the generations of the given names, in the same order.
+     */
+    long[] generations(List<String> names) {
+        long[] snapshot = new long[names.size()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = generation(names.get(i));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the cached entry, or null if the entry is not cached.
+     */
+    Entry get(long parent, String name) {
+        Cache<Key, Entry> cache = this.cache;
+        return cache == null ? null : cache.getIfPresent(new Key(parent, name));
+    }
+
+    /**
+     * Caches a directory entry read from the database, unless a conflicting invalidation happened
+     * since {@code generation} was obtained.
+     */
+    void put(long generation, long parent, String name, Stat stat) {
+        Cache<Key, Entry> cache = this.cache;
+        if (cache != null) {
+            Key key = new Key(parent, name);
+            cache.put(key, new Entry(stat.getIno(), UnixPermission.getType(stat.getMode())));
+            if (generations.get(stripe(name)) != generation) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    void invalidate(long parent, String name) {
+        Key key = new Key(parent, name);
+        generations.incrementAndGet(stripe(name));
+        Cache<Key, Entry> cache = this.cache;
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    CacheStats stats() {
+        Cache<Key, Entry> cache = this.cache;
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    long entries() {
+        Cache<Key, Entry> cache = this.cache;
+        return cache == null ? 0 : cache.size();
+    }
+}
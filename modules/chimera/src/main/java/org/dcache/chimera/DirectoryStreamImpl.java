@@ -23,6 +23,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
@@ -36,12 +37,44 @@ public class DirectoryStreamImpl {
                 "UNION ALL " +
                 "SELECT i.*, '..' FROM t_inodes i JOIN t_dirs d ON i.inumber = d.iparent WHERE d.ichild=?";
 
+    /**
+     * Lists the entries of a directory in lexicographic order of their names, starting after a
+     * given name. As the primary key of t_dirs is (iparent, iname), this is an index range scan,
+     * so that a large directory can be listed in pages without rescanning the entries of
+     * preceding pages.
+     */
+    private static final String QUERY_AFTER =
+          "SELECT i.*, d.iname FROM t_inodes i JOIN t_dirs d ON i.inumber = d.ichild "
+                + "WHERE d.iparent=? AND d.iname > ? ORDER BY d.iname";
+
     private final ResultSet _resultSet;
     private final JdbcTemplate _jdbc;
     private final Connection _connection;
     private final PreparedStatement _statement;
 
     DirectoryStreamImpl(FsInode dir, JdbcTemplate jdbc) {
+        this(jdbc, QUERY, 0, ps -> {
+            ps.setLong(1, dir.ino());
+            ps.setLong(2, dir.ino());
+            ps.setLong(3, dir.ino());
+        });
+    }
+
+    /**
+     * Creates a stream of the entries of {@code dir} with names greater than {@code after}, in
+     * lexicographic order of their names. The entries "." and ".." are not included.
+     *
+     * @param limit maximum number of entries to return; zero means unlimited
+     */
+    DirectoryStreamImpl(FsInode dir, JdbcTemplate jdbc, String after, int limit) {
+        this(jdbc, QUERY_AFTER, limit, ps -> {
+            ps.setLong(1, dir.ino());
+            ps.setString(2, after);
+        });
+    }
+
+    private DirectoryStreamImpl(JdbcTemplate jdbc, String query, int limit,
+          PreparedStatementSetter setter) {
         _jdbc = jdbc;
 
         Connection connection = null;
@@ -49,16 +82,15 @@ public class DirectoryStreamImpl {
         ResultSet rs;
         try {
             connection = DataSourceUtils.getConnection(_jdbc.getDataSource());
-            ps = connection.prepareStatement(QUERY);
+            ps = connection.prepareStatement(query);
             ps.setFetchSize(50);
-            ps.setLong(1, dir.ino());
-            ps.setLong(2, dir.ino());
-            ps.setLong(3, dir.ino());
+            ps.setMaxRows(limit);
+            setter.setValues(ps);
             rs = ps.executeQuery();
         } catch (SQLException ex) {
             JdbcUtils.closeStatement(ps);
             DataSourceUtils.releaseConnection(connection, _jdbc.getDataSource());
-            throw _jdbc.getExceptionTranslator().translate("StatementExecution", QUERY, ex);
+            throw _jdbc.getExceptionTranslator().translate("StatementExecution", query, ex);
         }
         _connection = connection;
         _resultSet = rs;
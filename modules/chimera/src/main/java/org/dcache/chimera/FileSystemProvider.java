@@ -160,6 +160,22 @@ public interface FileSystemProvider extends Closeable {
     DirectoryStreamB<ChimeraDirectoryEntry> newDirectoryStream(FsInode dir)
           throws ChimeraFsException;
 
+    /**
+     * Returns {@link DirectoryStreamB} of the ChimeraDirectoryEntry in the directory with names
+     * greater than {@code after}, in lexicographic order of their names. The entries "." and
+     * ".." are not included.
+     * <p>
+     * Unlike {@link #newDirectoryStream(FsInode)}, the stream may be resumed after the name of
+     * the last entry returned, allowing large directories to be listed in pages.
+     *
+     * @param dir   inode of the directory to list
+     * @param after name after which to start; the empty string lists from the start
+     * @param limit maximum number of entries to return; zero means unlimited
+     * @return stream of directory entries
+     */
+    DirectoryStreamB<ChimeraDirectoryEntry> newDirectoryStream(FsInode dir, String after,
+          int limit) throws ChimeraFsException;
+
 
     /**
      * Returns {@link DirectoryStreamB} of ChimeraDirectoryEntry in the directory.
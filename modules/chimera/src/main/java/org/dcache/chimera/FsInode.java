@@ -430,6 +430,11 @@ public class FsInode {
         return _fs.newDirectoryStream(this);
     }
 
+    public DirectoryStreamB<ChimeraDirectoryEntry> newDirectoryStream(String after, int limit)
+          throws ChimeraFsException {
+        return _fs.newDirectoryStream(this, after, limit);
+    }
+
     public DirectoryStreamB<ChimeraDirectoryEntry> virtualDirectoryStream(String labelname)
           throws ChimeraFsException {
         return _fs.virtualDirectoryStream(this, labelname);
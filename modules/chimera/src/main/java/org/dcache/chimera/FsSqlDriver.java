@@ -112,6 +112,11 @@ public class FsSqlDriver {
     private static final ServiceLoader<DBDriverProvider> ALL_PROVIDERS
           = ServiceLoader.load(DBDriverProvider.class);
 
+    /**
+     * Maximum number of path elements resolved by a single query in {@link #resolvePath}.
+     */
+    private static final int MAX_RESOLVE_DEPTH = 32;
+
     final JdbcTemplate _jdbc;
 
     private final long _root;
@@ -234,8 +239,26 @@ public class FsSqlDriver {
      * @return stream of directory entries
      */
     DirectoryStreamB<ChimeraDirectoryEntry> newDirectoryStream(FsInode dir) {
+        return toDirectoryStream(dir, new DirectoryStreamImpl(dir, _jdbc));
+    }
+
+    /**
+     * Returns {@link DirectoryStreamB} of ChimeraDirectoryEntry in the directory with names
+     * greater than {@code after}, ordered by name.
+     *
+     * @param dir
+     * @param after name of the last entry already seen; the empty string lists from the start
+     * @param limit maximum number of entries; zero means unlimited
+     * @return stream of directory entries
+     */
+    DirectoryStreamB<ChimeraDirectoryEntry> newDirectoryStream(FsInode dir, String after,
+          int limit) {
+        return toDirectoryStream(dir, new DirectoryStreamImpl(dir, _jdbc, after, limit));
+    }
+
+    private DirectoryStreamB<ChimeraDirectoryEntry> toDirectoryStream(FsInode dir,
+          DirectoryStreamImpl stream) {
         return new DirectoryStreamB<ChimeraDirectoryEntry>() {
-            final DirectoryStreamImpl stream = new DirectoryStreamImpl(dir, _jdbc);
 
             @Override
             public Iterator<ChimeraDirectoryEntry> iterator() {
@@ -1580,6 +1603,11 @@ public class FsSqlDriver {
             pathFile = pathFile.getParentFile();
         } while (pathFile != null);
 
+        List<FsInode> resolved = resolvePath(root, Lists.reverse(pathElemts));
+        if (resolved != null) {
+            return resolved.get(resolved.size() - 1);
+        }
+
         FsInode parentInode = root;
         FsInode inode = root;
         /*
@@ -1615,6 +1643,63 @@ public class FsSqlDriver {
         return inode;
     }
 
+    /**
+     * Resolves a path in a single query by joining one instance of t_dirs per path element.
+     * Resolving a path element by element costs a database round trip per element, which adds
+     * up for deep directory trees.
+     * <p>
+     * The query cannot follow symbolic links and does not handle the '.' and '..' pseudo
+     * entries; for such paths, and for paths that do not exist, null is returned and the caller
+     * has to fall back to resolving the path element by element.
+     *
+     * @param root     the inode to resolve the path relative to
+     * @param elements the path elements in order
+     * @return the inodes of the path elements with their stat, excluding root, or null
+     */
+    private List<FsInode> resolvePath(FsInode root, List<String> elements) {
+        int depth = elements.size();
+        if (depth < 2 || depth > MAX_RESOLVE_DEPTH
+              || elements.contains(".") || elements.contains("..")) {
+            return null;
+        }
+
+        StringBuilder from = new StringBuilder("t_inodes c");
+        StringBuilder where = new StringBuilder("d1.iparent = ? AND d1.iname = ?");
+        StringBuilder children = new StringBuilder("d1.ichild");
+        StringBuilder level = new StringBuilder("CASE c.inumber WHEN d1.ichild THEN 1");
+        from.append(", t_dirs d1");
+        for (int i = 2; i <= depth; i++) {
+            from.append(", t_dirs d").append(i);
+            where.append(" AND d").append(i).append(".iparent = d").append(i - 1)
+                  .append(".ichild AND d").append(i).append(".iname = ?");
+            children.append(", d").append(i).append(".ichild");
+            level.append(" WHEN d").append(i).append(".ichild THEN ").append(i);
+        }
+        level.append(" END");
+        String sql = "SELECT c.*, " + level + " AS ilevel FROM " + from
+              + " WHERE " + where + " AND c.inumber IN (" + children + ") ORDER BY ilevel";
+
+        List<FsInode> inodes = _jdbc.query(sql,
+              ps -> {
+                  ps.setLong(1, root.ino());
+                  for (int i = 0; i < depth; i++) {
+                      ps.setString(i + 2, elements.get(i));
+                  }
+              },
+              (rs, rowNum) -> new FsInode(root.getFs(), rs.getLong("inumber"),
+                    FsInodeType.INODE, 0, toStat(rs)));
+
+        if (inodes.size() != depth) {
+            return null;
+        }
+        for (FsInode inode : inodes) {
+            if (UnixPermission.getType(inode.getStatCache().getMode()) == UnixPermission.S_IFLNK) {
+                return null;
+            }
+        }
+        return inodes;
+    }
+
     /**
      * Get the inodes of given the path starting at <i>root</i>.
      *
@@ -1642,6 +1727,12 @@ public class FsSqlDriver {
         List<FsInode> inodes = new ArrayList<>(pathElements.size() + 1);
         inodes.add(root);
 
+        List<FsInode> resolved = resolvePath(root, Lists.reverse(pathElements));
+        if (resolved != null) {
+            inodes.addAll(resolved);
+            return inodes;
+        }
+
         /* Path elements are in reverse order.
          */
         for (String f : Lists.reverse(pathElements)) {
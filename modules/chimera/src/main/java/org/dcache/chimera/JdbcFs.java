@@ -30,6 +30,7 @@ import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.io.ByteSource;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -39,6 +40,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -67,6 +69,8 @@ import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * JDBC-FS is THE building block of Chimera. It's an abstraction layer, which allows to build
@@ -151,6 +155,11 @@ public class JdbcFs implements FileSystemProvider {
                 .maximumSize(100000)
                 .build();
 
+    /* Directory entries resolved by path lookups. Disabled unless a size is configured, as
+     * entries modified through other instances are only noticed once the cached entry expires.
+     */
+    private final DentryCache _dentryCache = new DentryCache(0, 10, TimeUnit.SECONDS);
+
     private QuotaHandler _quota;
 
     /**
@@ -212,6 +221,26 @@ public class JdbcFs implements FileSystemProvider {
         _defaultRetentionPolicy = rp;
     }
 
+    /**
+     * Sets the maximum number of directory entries cached for path lookups. Zero disables the
+     * cache.
+     */
+    public void setDentryCacheSize(long size) {
+        _dentryCache.configure(size, _dentryCache.getTimeout(), _dentryCache.getTimeoutUnit());
+    }
+
+    /**
+     * Sets the time after which a cached directory entry expires. This bounds how long changes
+     * made through other instances sharing the same database may go unnoticed.
+     */
+    public void setDentryCacheTimeout(long timeout) {
+        _dentryCache.configure(_dentryCache.getSize(), timeout, _dentryCache.getTimeoutUnit());
+    }
+
+    public void setDentryCacheTimeoutUnit(TimeUnit unit) {
+        _dentryCache.configure(_dentryCache.getSize(), _dentryCache.getTimeout(), unit);
+    }
+
     private FsInode getWormID() throws ChimeraFsException {
 
         return this.path2inode("/admin/etc/config");
@@ -295,6 +324,7 @@ public class JdbcFs implements FileSystemProvider {
             try {
                 Stat stat = parent.statCache();
                 int group = (stat.getMode() & UnixPermission.S_ISGID) != 0 ? stat.getGid() : gid;
+                invalidateDentry(parent, name);
                 inode = _sqlDriver.createFile(parent, name, uid, group, mode,
                       UnixPermission.S_IFLNK);
                 // link is a regular file where content is a reference
@@ -328,6 +358,7 @@ public class JdbcFs implements FileSystemProvider {
 
         return inTransaction(status -> {
             try {
+                invalidateDentry(parent, name);
                 _sqlDriver.createEntryInParent(parent, name, inode);
                 _sqlDriver.incNlink(inode);
                 _sqlDriver.incNlink(parent);
@@ -440,6 +471,7 @@ public class JdbcFs implements FileSystemProvider {
                     RetentionPolicy rp = getRetentionPolicyFromParentTag(parent);
                     checkQuota(owner, gid, rp);
                 }
+                invalidateDentry(parent, name);
                 FsInode inode = _sqlDriver.createFile(parent, name, owner, gid, mode, type);
                 _sqlDriver.copyAcl(parent, inode, RsType.FILE,
                       EnumSet.of(INHERIT_ONLY_ACE, DIRECTORY_INHERIT_ACE, FILE_INHERIT_ACE),
@@ -485,6 +517,7 @@ public class JdbcFs implements FileSystemProvider {
                     RetentionPolicy rp = getRetentionPolicyFromParentTag(parent);
                     checkQuota(owner, gid, rp);
                 }
+                invalidateDentry(parent, name);
                 FsInode inode = _sqlDriver.createFileWithId(parent, id, name, owner, gid, mode,
                       type);
                 _sqlDriver.copyAcl(parent, inode, RsType.FILE,
@@ -504,6 +537,12 @@ public class JdbcFs implements FileSystemProvider {
         return _sqlDriver.newDirectoryStream(dir);
     }
 
+    @Override
+    public DirectoryStreamB<ChimeraDirectoryEntry> newDirectoryStream(FsInode dir, String after,
+          int limit) throws ChimeraFsException {
+        return _sqlDriver.newDirectoryStream(dir, after, limit);
+    }
+
     @Override
     public DirectoryStreamB<ChimeraDirectoryEntry> virtualDirectoryStream(FsInode dir,
           String labelname) throws ChimeraFsException {
@@ -524,6 +563,7 @@ public class JdbcFs implements FileSystemProvider {
             FsInode parent = path2inode(parentPath);
             String name = filePath.getName();
             FsInode inode = _sqlDriver.inodeOf(parent, name, STAT);
+            invalidateDentry(parent, name);
             if (inode == null || !_sqlDriver.remove(parent, name, inode)) {
                 throw FileNotFoundChimeraFsException.ofPath(path);
             }
@@ -534,6 +574,7 @@ public class JdbcFs implements FileSystemProvider {
     @Override
     public void remove(FsInode directory, String name, FsInode inode) throws ChimeraFsException {
         inTransaction(status -> {
+            invalidateDentry(directory, name);
             if (!_sqlDriver.remove(directory, name, inode)) {
                 throw FileNotFoundChimeraFsException.ofFileInDirectory(directory, name);
             }
@@ -557,6 +598,11 @@ public class JdbcFs implements FileSystemProvider {
             if (inode.isDirectory() && inode.statCache().getNlink() > 2) {
                 throw new DirNotEmptyChimeraFsException("Directory is not empty");
             }
+            if (_dentryCache.isEnabled()) {
+                for (Link link : _sqlDriver.find(inode)) {
+                    invalidateDentry(link.getParent(), link.getName());
+                }
+            }
             _sqlDriver.remove(inode);
             return null;
         });
@@ -621,6 +667,7 @@ public class JdbcFs implements FileSystemProvider {
 
                 // ensure that t_inodes and t_tags_inodes update in the same order as
                 // in removeDir
+                invalidateDentry(parent, name);
                 FsInode inode = _sqlDriver.mkdir(parent, name, owner, gid, perm);
                 _sqlDriver.copyTags(parent, inode);
                 _sqlDriver.copyAcl(parent, inode, RsType.DIR, EnumSet.of(INHERIT_ONLY_ACE),
@@ -661,6 +708,7 @@ public class JdbcFs implements FileSystemProvider {
                     gid = group;
                     perm = mode;
                 }
+                invalidateDentry(parent, name);
                 FsInode inode = _sqlDriver.mkdir(parent, name, owner, gid, perm);
                 _sqlDriver.createTags(inode, owner, gid, perm & 0666, tags);
                 _sqlDriver.writeAcl(inode, RsType.DIR, acl);
@@ -679,7 +727,9 @@ public class JdbcFs implements FileSystemProvider {
 
     @Override
     public FsInode path2inode(String path, FsInode startFrom) throws ChimeraFsException {
-        FsInode inode = _sqlDriver.path2inode(startFrom, path);
+        FsInode inode = _dentryCache.isEnabled()
+              ? cachedPath2inode(startFrom, path)
+              : _sqlDriver.path2inode(startFrom, path);
         if (inode == null) {
             throw FileNotFoundChimeraFsException.ofPath(path);
         }
@@ -687,6 +737,98 @@ public class JdbcFs implements FileSystemProvider {
         return inode;
     }
 
+    /**
+     * Resolves the longest prefix of the path from the directory entry cache and the remainder
+     * of the path in a single call to the database. Directory entries resolved from the database
+     * are added to the cache.
+     *
+     * @return the inode of the path or null if the path does not exist
+     */
+    private FsInode cachedPath2inode(FsInode startFrom, String path) throws ChimeraFsException {
+        List<String> elements = pathElements(path);
+        FsInode inode = startFrom;
+        int resolved = 0;
+        while (resolved < elements.size()) {
+            DentryCache.Entry entry = _dentryCache.get(inode.ino(), elements.get(resolved));
+            if (entry == null || entry.isSymLink()) {
+                break;
+            }
+            inode = new FsInode(this, entry.ino());
+            resolved++;
+        }
+
+        if (resolved == elements.size()) {
+            return inode;
+        }
+
+        List<String> remaining = elements.subList(resolved, elements.size());
+        if (remaining.contains(".") || remaining.contains("..")) {
+            return _sqlDriver.path2inode(inode, String.join("/", remaining));
+        }
+
+        long[] generations = _dentryCache.generations(remaining);
+        List<FsInode> inodes = _sqlDriver.path2inodes(inode, String.join("/", remaining));
+        if (inodes.isEmpty()) {
+            return null;
+        }
+        cacheDentries(generations, remaining, inodes);
+        return inodes.get(inodes.size() - 1);
+    }
+
+    /**
+     * Adds the directory entries of a resolved path to the cache. Resolution of symbolic links
+     * adds inodes to the list that do not correspond to path elements; such entries are not
+     * cached.
+     *
+     * @param generations cache generations of the path elements obtained before the path was
+     *                    resolved
+     * @param elements    the path elements
+     * @param inodes      the inodes of the path as returned by {@code path2inodes}
+     */
+    private void cacheDentries(long[] generations, List<String> elements, List<FsInode> inodes) {
+        for (int i = 0; i < elements.size() && i + 1 < inodes.size(); i++) {
+            Stat stat = inodes.get(i + 1).getStatCache();
+            if (stat == null) {
+                break;
+            }
+            _dentryCache.put(generations[i], inodes.get(i).ino(), elements.get(i), stat);
+            if (UnixPermission.getType(stat.getMode()) == UnixPermission.S_IFLNK) {
+                break;
+            }
+        }
+    }
+
+    private static List<String> pathElements(String path) {
+        List<String> elements = new ArrayList<>();
+        for (String element : path.split("/")) {
+            if (!element.isEmpty()) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Invalidates a cached directory entry. As a concurrent lookup may observe the entry before
+     * this transaction commits, the entry is invalidated again once the transaction completes.
+     */
+    private void invalidateDentry(FsInode parent, String name) {
+        if (!_dentryCache.isEnabled()) {
+            return;
+        }
+        long ino = parent.ino();
+        _dentryCache.invalidate(ino, name);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                  new TransactionSynchronizationAdapter() {
+                      @Override
+                      public void afterCompletion(int status) {
+                          _dentryCache.invalidate(ino, name);
+                      }
+                  });
+        }
+    }
+
     @Override
     public String inode2id(FsInode inode) throws ChimeraFsException {
         try {
@@ -741,10 +883,16 @@ public class JdbcFs implements FileSystemProvider {
     @Override
     public List<FsInode> path2inodes(String path, FsInode startFrom)
           throws ChimeraFsException {
+        List<String> elements = _dentryCache.isEnabled() ? pathElements(path) : null;
+        long[] generations = elements != null && !elements.contains(".")
+              && !elements.contains("..") ? _dentryCache.generations(elements) : null;
         List<FsInode> inodes = _sqlDriver.path2inodes(startFrom, path);
         if (inodes.isEmpty()) {
             throw FileNotFoundChimeraFsException.ofPath(path);
         }
+        if (generations != null) {
+            cacheDentries(generations, elements, inodes);
+        }
         fillIdCaches(inodes.get(inodes.size() - 1));
         return inodes;
     }
@@ -972,10 +1120,24 @@ public class JdbcFs implements FileSystemProvider {
             }
         }
 
+        if (cacheOption == NO_STAT) {
+            DentryCache.Entry entry = _dentryCache.get(parent.ino(), name);
+            if (entry != null) {
+                FsInode inode = new FsInode(this, entry.ino());
+                inode.setParent(parent);
+                return inode;
+            }
+        }
+
+        long generation = _dentryCache.generation(name);
         FsInode inode = _sqlDriver.inodeOf(parent, name, cacheOption);
         if (inode == null) {
             throw FileNotFoundChimeraFsException.ofFileInDirectory(parent, name);
         }
+        Stat stat = inode.getStatCache();
+        if (stat != null && !name.equals(".") && !name.equals("..")) {
+            _dentryCache.put(generation, parent.ino(), name, stat);
+        }
         fillIdCaches(inode);
         inode.setParent(parent);
         return inode;
@@ -1118,6 +1280,9 @@ public class JdbcFs implements FileSystemProvider {
                 throw new NotDirChimeraException(destDir);
             }
 
+            invalidateDentry(srcDir, source);
+            invalidateDentry(destDir, dest);
+
             FsInode destInode = _sqlDriver.inodeOf(destDir, dest, STAT);
 
             if (destInode != null) {
@@ -1449,6 +1614,12 @@ public class JdbcFs implements FileSystemProvider {
             sb.append("rootID    : ").append(e.getMessage()).append('\n');
         }
         sb.append("FsId      : ").append(_fsId).append('\n');
+        if (_dentryCache.isEnabled()) {
+            CacheStats stats = _dentryCache.stats();
+            sb.append(String.format("Dentries  : %d/%d cached, hit rate %.1f%% (%d hits, %d misses)",
+                  _dentryCache.entries(), _dentryCache.getSize(), stats.hitRate() * 100,
+                  stats.hitCount(), stats.missCount())).append('\n');
+        }
         return sb.toString();
     }
 
@@ -5,6 +5,7 @@ import static org.dcache.chimera.FileSystemProvider.SetXattrMode;
 import static org.dcache.chimera.FileSystemProvider.StatCacheOption.NO_STAT;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasEntry;
@@ -1129,6 +1130,29 @@ public class JdbcFsTest extends ChimeraTestCaseHelper {
         }
     }
 
+    @Test
+    public void testDirectoryStreamAfterName() throws Exception {
+        FsInode dir = _rootInode.mkdir("junit");
+        dir.create("c", 0, 0, 0644);
+        dir.create("a", 0, 0, 0644);
+        dir.create("d", 0, 0, 0644);
+        dir.create("b", 0, 0, 0644);
+
+        assertThat(namesAfter(dir, "", 0), is(List.of("a", "b", "c", "d")));
+        assertThat(namesAfter(dir, "", 2), is(List.of("a", "b")));
+        assertThat(namesAfter(dir, "b", 2), is(List.of("c", "d")));
+        assertThat(namesAfter(dir, "bb", 0), is(List.of("c", "d")));
+        assertThat(namesAfter(dir, "d", 2), is(List.of()));
+    }
+
+    private List<String> namesAfter(FsInode dir, String after, int limit) throws Exception {
+        try (DirectoryStreamB<ChimeraDirectoryEntry> dirStream =
+              dir.newDirectoryStream(after, limit)) {
+            return dirStream.stream().map(ChimeraDirectoryEntry::getName)
+                  .collect(Collectors.toList());
+        }
+    }
+
     private void assertHasChecksum(Checksum expectedChecksum, FsInode inode) throws Exception {
         for (Checksum checksum : _fs.getInodeChecksums(inode)) {
             if (checksum.equals(expectedChecksum)) {
@@ -1727,6 +1751,75 @@ public class JdbcFsTest extends ChimeraTestCaseHelper {
               _fs.stat(inode).getGeneration(), greaterThan(s0.getGeneration()));
     }
 
+    @Test
+    public void testPath2InodesResolvesDeepPath() throws Exception {
+        FsInode dir = _rootInode;
+        for (int i = 0; i < 12; i++) {
+            dir = dir.mkdir("level" + i);
+        }
+        FsInode file = dir.create("file", 0, 0, 0644);
+        String path = IntStream.range(0, 12).mapToObj(i -> "level" + i)
+              .collect(Collectors.joining("/", "/", "/file"));
+
+        List<FsInode> inodes = _fs.path2inodes(path);
+
+        assertEquals(14, inodes.size());
+        assertEquals(dir, inodes.get(12));
+        assertEquals(file, inodes.get(13));
+        assertEquals(file, _fs.path2inode(path));
+    }
+
+    @Test
+    public void testPathResolutionWithDentryCache() throws Exception {
+        ((JdbcFs) _fs).setDentryCacheSize(1000);
+        FsInode dir = _fs.mkdir("/cached");
+        FsInode sub = dir.mkdir("sub");
+        FsInode file = sub.create("file", 0, 0, 0644);
+
+        assertEquals(file, _fs.path2inode("/cached/sub/file"));
+        assertEquals(file, _fs.path2inode("/cached/sub/file"));
+        assertEquals(file, _fs.inodeOf(sub, "file", NO_STAT));
+        assertThat(_fs.getInfo(), containsString("hit rate"));
+    }
+
+    @Test
+    public void testDentryCacheResolvesSymlink() throws Exception {
+        ((JdbcFs) _fs).setDentryCacheSize(1000);
+        FsInode dir = _fs.mkdir("/target");
+        FsInode file = dir.create("file", 0, 0, 0644);
+        _fs.createLink(_rootInode, "link", "/target");
+
+        assertEquals(file, _fs.path2inode("/link/file"));
+        assertEquals(file, _fs.path2inode("/link/file"));
+    }
+
+    @Test(expected = FileNotFoundChimeraFsException.class)
+    public void testDentryCacheInvalidatedOnRename() throws Exception {
+        ((JdbcFs) _fs).setDentryCacheSize(1000);
+        FsInode dir = _fs.mkdir("/renamed");
+        FsInode file = dir.create("before", 0, 0, 0644);
+        assertEquals(file, _fs.path2inode("/renamed/before"));
+
+        _fs.rename(file, dir, "before", dir, "after");
+
+        assertEquals(file, _fs.path2inode("/renamed/after"));
+        _fs.path2inode("/renamed/before");
+    }
+
+    @Test
+    public void testDentryCacheInvalidatedOnRemoveAndCreate() throws Exception {
+        ((JdbcFs) _fs).setDentryCacheSize(1000);
+        FsInode dir = _fs.mkdir("/recreated");
+        FsInode file = dir.create("file", 0, 0, 0644);
+        assertEquals(file, _fs.path2inode("/recreated/file"));
+
+        _fs.remove(file);
+        FsInode newFile = dir.create("file", 0, 0, 0644);
+
+        assertNotEquals(file, newFile);
+        assertEquals(newFile, _fs.path2inode("/recreated/file"));
+    }
+
     private long getDirEntryCount(FsInode dir) throws IOException {
         try (var s = _fs.newDirectoryStream(dir)) {
             return s.stream().count();
@@ -9,6 +9,7 @@
 
 package diskCacheV111.util;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 
 /**
@@ -23,6 +24,11 @@ import java.security.MessageDigest;
 
 public class Adler32 extends MessageDigest {
 
+    /**
+     * Largest prime smaller than 65536.
+     */
+    private static final long BASE = 65521L;
+
     private final java.util.zip.Adler32 _zipAdler;
     private long _adler = 1L;
 
@@ -43,8 +49,7 @@ public class Adler32 extends MessageDigest {
 
     @Override
     public void engineUpdate(byte input) {
-        byte[] x = {input};
-        _zipAdler.update(x, 0, 1);
+        _zipAdler.update(input);
     }
 
     @Override
@@ -52,19 +57,73 @@ public class Adler32 extends MessageDigest {
         _zipAdler.update(data, offset, size);
     }
 
+    /**
+     * Updates the checksum directly from the buffer.  Unlike the default implementation, direct
+     * buffers are not copied to a temporary array first.
+     */
+    @Override
+    public void engineUpdate(ByteBuffer input) {
+        _zipAdler.update(input);
+    }
+
     @Override
     public int engineGetDigestLength() {
         return 4;
     }
 
+    /**
+     * Returns the adler32 value of the concatenation of two byte sequences.
+     * <p>
+     * This allows the adler32 value of a file to be computed from the values of consecutive
+     * stripes computed independently, e.g. by different threads.  The algorithm is the one used
+     * by {@code adler32_combine} in zlib.
+     *
+     * @param adler1 the adler32 value of the first sequence
+     * @param adler2 the adler32 value of the second sequence
+     * @param len2   the length of the second sequence
+     * @return the adler32 value of the first sequence followed by the second sequence
+     */
+    public static long combine(long adler1, long adler2, long len2) {
+        if (len2 < 0) {
+            throw new IllegalArgumentException("Negative length: " + len2);
+        }
+
+        long rem = len2 % BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % BASE;
+        sum1 += (adler2 & 0xffff) + BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + BASE - rem;
+        if (sum1 >= BASE) {
+            sum1 -= BASE;
+        }
+        if (sum1 >= BASE) {
+            sum1 -= BASE;
+        }
+        if (sum2 >= (BASE << 1)) {
+            sum2 -= (BASE << 1);
+        }
+        if (sum2 >= BASE) {
+            sum2 -= BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Returns the four byte big-endian representation of an adler32 value, as returned by {@link
+     * #digest()}.
+     */
+    public static byte[] toBytes(long adler) {
+        byte[] value = new byte[4];
+        value[0] = (byte) ((adler >> 24) & 0xff);
+        value[1] = (byte) ((adler >> 16) & 0xff);
+        value[2] = (byte) ((adler >> 8) & 0xff);
+        value[3] = (byte) ((adler) & 0xff);
+        return value;
+    }
+
     private byte[] digestAdlerZip() {
         _adler = _zipAdler.getValue();
-        byte[] _value = new byte[4];
-        _value[0] = (byte) ((_adler >> 24) & 0xff);
-        _value[1] = (byte) ((_adler >> 16) & 0xff);
-        _value[2] = (byte) ((_adler >> 8) & 0xff);
-        _value[3] = (byte) ((_adler) & 0xff);
-        return _value;
+        return toBytes(_adler);
     }
 }
 
@@ -0,0 +1,139 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values with buckets whose upper bounds are powers of two.
+ * <p>
+ * Bucket {@code i} counts values {@code v} with {@code 2^(i-1) < v <= 2^i}; bucket zero counts
+ * values of zero and one.  Recording a value is a few atomic additions and never blocks, which
+ * makes the histogram suitable for hot paths.  Quantiles are reported as the upper bound of the
+ * bucket containing the quantile, i.e. they are accurate to within a factor of two.
+ */
+public class PowerOfTwoHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public PowerOfTwoHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    private static int bucketOf(long value) {
+        return value <= 1 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value - 1);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     */
+    public void add(long value) {
+        long v = Math.max(0, value);
+        buckets[Math.min(bucketOf(v), BUCKETS - 1)].increment();
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns an upper bound of the given quantile of the recorded values, or zero if no values
+     * have been recorded.
+     *
+     * @param quantile a value between 0 and 1
+     */
+    public long getQuantile(double quantile) {
+        checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1");
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * Resets the histogram. Values recorded concurrently with a reset may be partially lost.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Prints a one line summary followed by the non-empty buckets.
+     *
+     * @param pw     the writer to print to
+     * @param indent prefix of each line
+     * @param unit   unit of the recorded values, e.g. "ms"
+     */
+    public void print(PrintWriter pw, String indent, String unit) {
+        pw.println(String.format("%scount=%d mean=%.1f%s p50=%d%s p99=%d%s max=%d%s",
+              indent, getCount(), getMean(), unit, getQuantile(0.5), unit,
+              getQuantile(0.99), unit, getMax(), unit));
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = buckets[i].sum();
+            if (n > 0) {
+                pw.println(String.format("%s  <= %d%s : %d", indent, upperBound(i), unit, n));
+            }
+        }
+    }
+}
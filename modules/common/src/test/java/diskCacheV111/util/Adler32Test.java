@@ -0,0 +1,75 @@
+package diskCacheV111.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+public class Adler32Test {
+
+    private byte[] data;
+
+    @Before
+    public void setUp() {
+        data = new byte[100_000];
+        new Random(42).nextBytes(data);
+    }
+
+    @Test
+    public void shouldComputeSameDigestForDirectBuffer() {
+        Adler32 heap = new Adler32();
+        heap.update(data);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        Adler32 direct = new Adler32();
+        direct.update(buffer);
+
+        assertThat(direct.digest(), equalTo(heap.digest()));
+    }
+
+    @Test
+    public void shouldCombineStripes() {
+        for (int split : new int[]{0, 1, 5552, 65521, 70_000, data.length}) {
+            long first = adler(data, 0, split);
+            long second = adler(data, split, data.length - split);
+
+            assertThat(Adler32.combine(first, second, data.length - split),
+                  equalTo(adler(data, 0, data.length)));
+        }
+    }
+
+    @Test
+    public void shouldCombineManyStripes() {
+        int stripe = 7919;
+        long combined = 1L;
+        for (int offset = 0; offset < data.length; offset += stripe) {
+            int length = Math.min(stripe, data.length - offset);
+            combined = Adler32.combine(combined, adler(data, offset, length), length);
+        }
+
+        assertThat(combined, equalTo(adler(data, 0, data.length)));
+    }
+
+    @Test
+    public void shouldEncodeValueAsDigest() {
+        Adler32 digest = new Adler32();
+        digest.update(data);
+
+        assertThat(Adler32.toBytes(adler(data, 0, data.length)), equalTo(digest.digest()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeLength() {
+        Adler32.combine(1L, 1L, -1L);
+    }
+
+    private static long adler(byte[] data, int offset, int length) {
+        java.util.zip.Adler32 adler = new java.util.zip.Adler32();
+        adler.update(data, offset, length);
+        return adler.getValue();
+    }
+}
@@ -0,0 +1,75 @@
+package org.dcache.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import org.junit.Test;
+
+public class PowerOfTwoHistogramTest {
+
+    private final PowerOfTwoHistogram histogram = new PowerOfTwoHistogram();
+
+    @Test
+    public void shouldBeEmptyInitially() {
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getMean(), closeTo(0, 0.001));
+        assertThat(histogram.getQuantile(0.5), equalTo(0L));
+    }
+
+    @Test
+    public void shouldReportUpperBoundOfBucket() {
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i);
+        }
+
+        assertThat(histogram.getCount(), equalTo(100L));
+        assertThat(histogram.getMean(), closeTo(50.5, 0.001));
+        assertThat(histogram.getMax(), equalTo(100L));
+        assertThat(histogram.getQuantile(0.5), equalTo(64L));
+        assertThat(histogram.getQuantile(0.01), equalTo(1L));
+        assertThat(histogram.getQuantile(1), equalTo(100L));
+    }
+
+    @Test
+    public void shouldPlacePowersOfTwoInOwnBucket() {
+        histogram.add(4);
+        histogram.add(5);
+
+        assertThat(histogram.getQuantile(0.5), equalTo(4L));
+        assertThat(histogram.getQuantile(1.0), equalTo(5L));
+    }
+
+    @Test
+    public void shouldHandleExtremeValues() {
+        histogram.add(-3);
+        histogram.add(Long.MAX_VALUE);
+
+        assertThat(histogram.getQuantile(0.5), equalTo(1L));
+        assertThat(histogram.getQuantile(1.0), equalTo(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldReset() {
+        histogram.add(10);
+        histogram.reset();
+
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo(0L));
+    }
+
+    @Test
+    public void shouldPrintBuckets() {
+        histogram.add(3);
+        histogram.add(3);
+        StringWriter out = new StringWriter();
+
+        histogram.print(new PrintWriter(out), "", "ms");
+
+        assertThat(out.toString(), containsString("count=2"));
+        assertThat(out.toString(), containsString("<= 4ms : 2"));
+    }
+}
@@ -0,0 +1,134 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.benchmarks;
+
+import diskCacheV111.util.Adler32;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import org.dcache.util.ChecksumType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ways in which the pool feeds data to checksum digests.
+ * <p>
+ * The {@code readOnly} benchmarks correspond to the code path used before digests were given
+ * plain buffer views: a read-only view hides the backing array and forces {@link MessageDigest}
+ * to copy the data.  The {@code direct} benchmarks correspond to reading from a file into a
+ * direct buffer.  CRC32C is included as a reference for the fastest checksum the JDK provides.
+ * <p>
+ * The results are reported as throughput in bytes per microsecond, i.e. MB/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    /**
+     * Total amount of data digested per invocation.
+     */
+    private static final int DATA_SIZE = 16 * 1024 * 1024;
+
+    @Param({"4096", "65536", "262144", "1048576"})
+    public int bufferSize;
+
+    @Param({"ADLER32", "MD5"})
+    public String type;
+
+    private ByteBuffer heap;
+    private ByteBuffer direct;
+    private MessageDigest digest;
+
+    @Setup
+    public void setUp() {
+        byte[] data = new byte[bufferSize];
+        new Random(1).nextBytes(data);
+        heap = ByteBuffer.wrap(data);
+        direct = ByteBuffer.allocateDirect(bufferSize);
+        direct.put(data).flip();
+        digest = ChecksumType.getChecksumType(type).createMessageDigest();
+    }
+
+    private byte[] digest(ByteBuffer buffer, boolean readOnly) {
+        for (int i = 0; i < DATA_SIZE / bufferSize; i++) {
+            digest.update(readOnly ? buffer.asReadOnlyBuffer() : buffer.duplicate());
+        }
+        return digest.digest();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATA_SIZE)
+    public byte[] heapReadOnly() {
+        return digest(heap, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATA_SIZE)
+    public byte[] heap() {
+        return digest(heap, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATA_SIZE)
+    public byte[] direct() {
+        return digest(direct, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATA_SIZE)
+    public long crc32cDirect() {
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < DATA_SIZE / bufferSize; i++) {
+            crc.update(direct.duplicate());
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Measures the cost of combining per-stripe adler32 values, as done when a file is checksummed
+     * by several threads.  Each buffer is treated as a separate stripe.
+     */
+    @Benchmark
+    @OperationsPerInvocation(DATA_SIZE)
+    public long adler32Combine() {
+        long adler = 1L;
+        java.util.zip.Adler32 stripe = new java.util.zip.Adler32();
+        for (int i = 0; i < DATA_SIZE / bufferSize; i++) {
+            stripe.reset();
+            stripe.update(direct.duplicate());
+            adler = Adler32.combine(adler, stripe.getValue(), bufferSize);
+        }
+        return adler;
+    }
+}
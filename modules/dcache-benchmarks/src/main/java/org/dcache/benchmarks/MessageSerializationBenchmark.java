@@ -0,0 +1,123 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.benchmarks;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+import dmg.cells.nucleus.SerializationHandler;
+import dmg.cells.nucleus.SerializationHandler.Serializer;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the message payload serializers on messages that dominate inter-domain traffic:
+ * the periodic pool heartbeat and a name space lookup reply.
+ * <p>
+ * The encoded size of each payload is printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+    private static final PnfsId PNFSID = new PnfsId("0000ABCDEF0123456789ABCDEF0123456789");
+
+    @Param({"JOS", "FST", "COMPACT"})
+    public String serializer;
+
+    @Param({"poolUp", "getFileAttributes"})
+    public String message;
+
+    private Serializer type;
+    private Object payload;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        type = Serializer.valueOf(serializer);
+        payload = message.equals("poolUp") ? poolUp() : getFileAttributes();
+        encoded = SerializationHandler.encode(payload, type);
+    }
+
+    private static PoolManagerPoolUpMessage poolUp() {
+        PoolCostInfo info = new PoolCostInfo("pool-1", "regular");
+        info.setSpaceUsage(100_000_000_000L, 20_000_000_000L, 1_000_000_000L, 30_000_000_000L);
+        info.addExtendedMoverQueueSizes("regular", 12, 100, 0, 5, 7);
+        info.addExtendedMoverQueueSizes("wan", 3, 20, 1, 2, 1);
+        info.setP2pServerQueueSizes(1, 10, 0);
+        info.setP2pClientQueueSizes(0, 10, 0);
+        PoolManagerPoolUpMessage up = new PoolManagerPoolUpMessage("pool-1", 1234L,
+              new PoolV2Mode(PoolV2Mode.ENABLED), info);
+        Map<String, String> tags = new HashMap<>();
+        tags.put("hostname", "pool-host-1.example.org");
+        tags.put("rack", "r12");
+        up.setTagMap(tags);
+        up.setHsmInstances(Set.of("osm"));
+        return up;
+    }
+
+    private static PnfsGetFileAttributes getFileAttributes() {
+        PnfsGetFileAttributes request = new PnfsGetFileAttributes(PNFSID,
+              EnumSet.of(FileAttribute.SIZE, FileAttribute.CHECKSUM, FileAttribute.STORAGECLASS,
+                    FileAttribute.HSM, FileAttribute.MODIFICATION_TIME));
+        request.setFileAttributes(FileAttributes.of()
+              .pnfsId(PNFSID)
+              .size(1_234_567_890L)
+              .modificationTime(1_700_000_000_000L)
+              .checksum(new Checksum(ChecksumType.ADLER32, "12345678"))
+              .storageClass("atlas:raw")
+              .hsm("osm")
+              .build());
+        request.setSucceeded();
+        return request;
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SerializationHandler.encode(payload, type);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return SerializationHandler.decode(encoded);
+    }
+}
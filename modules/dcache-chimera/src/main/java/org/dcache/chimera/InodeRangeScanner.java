@@ -0,0 +1,368 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.chimera;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.util.PnfsId;
+import dmg.cells.nucleus.CellInfoProvider;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import javax.sql.DataSource;
+import org.dcache.util.PowerOfTwoHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs long namespace queries as a number of short ones.
+ * <p>
+ * The inumber space of t_inodes is split into ranges which are scanned in parallel on a bounded
+ * executor.  Each range is read in pages using keyset pagination: a page is the next
+ * <code>pageSize</code> rows ordered by inumber following the last inumber of the previous page.
+ * Every page is read in its own statement on a connection borrowed from the pool, so that no
+ * transaction stays open for longer than it takes to read one page.
+ * <p>
+ * The progress of each range is checkpointed under the key of the scan.  If a scan is cancelled
+ * or fails, a later scan with the same key, query and scope resumes from the checkpoint, provided
+ * it has not expired.  Any other scan with the same key discards the checkpoint.
+ * <p>
+ * The query passed to {@link #scan} must select the inumber and pnfsid, in that order, and end in
+ * a WHERE clause to which the range condition on the key column can be appended.  It must not
+ * return more than one row per inumber.
+ */
+public class InodeRangeScanner implements CellInfoProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InodeRangeScanner.class);
+
+    private static final String SQL_GET_MIN_MAX_INUMBER =
+          "SELECT min(inumber), max(inumber) FROM t_inodes";
+
+    /**
+     * Receives the pnfsids of a page.  Called concurrently for pages of different ranges.
+     */
+    @FunctionalInterface
+    public interface PageHandler<E extends Exception> {
+
+        void handle(List<PnfsId> page) throws E;
+    }
+
+    /**
+     * Outcome of a completed scan.
+     */
+    public static class Result {
+
+        private final long rows;
+        private final int ranges;
+        private final long elapsed;
+        private final boolean resumed;
+
+        private Result(long rows, int ranges, long elapsed, boolean resumed) {
+            this.rows = rows;
+            this.ranges = ranges;
+            this.elapsed = elapsed;
+            this.resumed = resumed;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public int getRanges() {
+            return ranges;
+        }
+
+        /**
+         * Returns the duration of the scan in milliseconds.
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        public boolean isResumed() {
+            return resumed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows in %d ranges in %d ms (%.0f rows/s)%s",
+                  rows, ranges, elapsed, elapsed == 0 ? 0.0 : rows * 1000.0 / elapsed,
+                  resumed ? ", resumed from checkpoint" : "");
+        }
+    }
+
+    /**
+     * The ranges of a scan and how far each of them has been read.
+     */
+    private static class Checkpoint {
+
+        private final long created = System.currentTimeMillis();
+        private final String query;
+        private final String scope;
+        private final AtomicLongArray last;
+        private final long[] upper;
+
+        Checkpoint(String query, String scope, long min, long max, int ranges) {
+            this.query = query;
+            this.scope = scope;
+            long width = Math.max(1, (max - min + ranges) / ranges);
+            int count = (int) Math.min(ranges, (max - min) / width + 1);
+            last = new AtomicLongArray(count);
+            upper = new long[count];
+            long bound = min - 1;
+            for (int i = 0; i < count; i++) {
+                last.set(i, bound);
+                bound += width;
+                upper[i] = bound;
+            }
+            /* Also include files created since the scan started. */
+            upper[count - 1] = Long.MAX_VALUE;
+        }
+    }
+
+    private final Map<String, Checkpoint> checkpoints = new ConcurrentHashMap<>();
+
+    private DataSource dataSource;
+    private ExecutorService executor;
+    private int pageSize = 1000;
+    private int ranges = 16;
+    private long checkpointExpiry = 1;
+    private TimeUnit checkpointExpiryUnit = TimeUnit.HOURS;
+
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder resumedScans = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder scanTime = new LongAdder();
+    private final PowerOfTwoHistogram rangeTimes = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram pageTimes = new PowerOfTwoHistogram();
+
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = requireNonNull(dataSource);
+    }
+
+    /**
+     * Executor on which ranges are scanned; its size bounds the number of concurrent queries of
+     * all scans.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = requireNonNull(executor);
+    }
+
+    public void setPageSize(int pageSize) {
+        checkArgument(pageSize > 0, "Page size must be positive.");
+        this.pageSize = pageSize;
+    }
+
+    public void setRanges(int ranges) {
+        checkArgument(ranges > 0, "Number of ranges must be positive.");
+        this.ranges = ranges;
+    }
+
+    public void setCheckpointExpiry(long checkpointExpiry) {
+        this.checkpointExpiry = checkpointExpiry;
+    }
+
+    public void setCheckpointExpiryUnit(TimeUnit checkpointExpiryUnit) {
+        this.checkpointExpiryUnit = requireNonNull(checkpointExpiryUnit);
+    }
+
+    /**
+     * Scans the rows of the query in parallel ranges of inumbers.
+     *
+     * @param key        identifies the scan for checkpointing, e.g., the name of a pool
+     * @param scope      what the rows are scanned for, e.g., the type of a pool scan; only a
+     *                   scan of the same scope resumes from a checkpoint
+     * @param query      the query, see class documentation
+     * @param keyColumn  the inumber column the pages are ordered by, e.g., "l.inumber"
+     * @param parameters values of the parameters of the query
+     * @param cancelled  polled between pages; the scan stops once it returns true
+     * @param handler    receives the pnfsids page by page
+     * @return the outcome of the scan, or null if the scan was cancelled
+     */
+    public <E extends Exception> Result scan(String key, String scope, String query,
+          String keyColumn, List<?> parameters, BooleanSupplier cancelled, PageHandler<E> handler)
+          throws E, SQLException, InterruptedException {
+        long start = System.currentTimeMillis();
+
+        Checkpoint checkpoint = checkpoints.remove(key);
+        boolean resumed = checkpoint != null && checkpoint.query.equals(query)
+              && checkpoint.scope.equals(scope)
+              && checkpoint.created + checkpointExpiryUnit.toMillis(checkpointExpiry) > start;
+        if (!resumed) {
+            long[] bounds = getMinMaxInumbers();
+            checkpoint = new Checkpoint(query, scope, bounds[0], bounds[1], ranges);
+        } else {
+            LOGGER.info("Resuming scan of {} from checkpoint.", key);
+        }
+
+        String sql = query + " AND " + keyColumn + " > ? AND " + keyColumn + " <= ?"
+              + " ORDER BY " + keyColumn + " LIMIT ?";
+        LongAdder scanned = new LongAdder();
+        BooleanSupplier stop = () -> cancelled.getAsBoolean()
+              || Thread.currentThread().isInterrupted();
+
+        List<Future<?>> futures = new ArrayList<>();
+        Checkpoint progress = checkpoint;
+        for (int i = 0; i < checkpoint.upper.length; i++) {
+            int range = i;
+            futures.add(executor.submit(() -> {
+                scanRange(sql, parameters, progress, range, stop, handler, scanned);
+                return null;
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            checkpoints.put(key, checkpoint);
+            throw e;
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            checkpoints.put(key, checkpoint);
+            throw this.<E>rethrow(e.getCause());
+        } finally {
+            rows.add(scanned.sum());
+            scanTime.add(System.currentTimeMillis() - start);
+        }
+
+        if (cancelled.getAsBoolean()) {
+            checkpoints.put(key, checkpoint);
+            return null;
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        scans.increment();
+        if (resumed) {
+            resumedScans.increment();
+        }
+        return new Result(scanned.sum(), checkpoint.upper.length, elapsed, resumed);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> E rethrow(Throwable cause) throws SQLException {
+        if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (E) cause;
+    }
+
+    private <E extends Exception> void scanRange(String sql, List<?> parameters,
+          Checkpoint checkpoint, int range, BooleanSupplier stop, PageHandler<E> handler,
+          LongAdder scanned) throws E, SQLException {
+        long start = System.nanoTime();
+        long upper = checkpoint.upper[range];
+        int pages = 0;
+        long count = 0;
+        boolean more = checkpoint.last.get(range) < upper;
+        while (more && !stop.getAsBoolean()) {
+            long pageStart = System.nanoTime();
+            long last = checkpoint.last.get(range);
+            List<PnfsId> page = new ArrayList<>(pageSize);
+            long next = last;
+            try (Connection connection = dataSource.getConnection();
+                  PreparedStatement statement = connection.prepareStatement(sql)) {
+                int index = 1;
+                for (Object parameter : parameters) {
+                    statement.setObject(index++, parameter);
+                }
+                statement.setLong(index++, last);
+                statement.setLong(index++, upper);
+                statement.setInt(index, pageSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        next = resultSet.getLong(1);
+                        page.add(new PnfsId(resultSet.getString(2)));
+                    }
+                }
+            }
+            pageTimes.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - pageStart));
+
+            if (stop.getAsBoolean()) {
+                break;
+            }
+            if (!page.isEmpty()) {
+                handler.handle(page);
+                scanned.add(page.size());
+                count += page.size();
+            }
+            more = page.size() == pageSize;
+            checkpoint.last.set(range, more ? next : upper);
+            pages++;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        rangeTimes.add(elapsed);
+        LOGGER.debug("Scanned range {} up to inumber {}: {} rows in {} pages, {} ms.",
+              range, upper, count, pages, elapsed);
+    }
+
+    private long[] getMinMaxInumbers() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+              PreparedStatement statement = connection.prepareStatement(SQL_GET_MIN_MAX_INUMBER);
+              ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+        }
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw) {
+        long completed = scans.sum();
+        long time = scanTime.sum();
+        pw.println("Namespace scans:");
+        pw.println("    Ranges per scan : " + ranges);
+        pw.println("    Page size       : " + pageSize);
+        pw.println("    Completed       : " + completed + " (" + resumedScans.sum() + " resumed)");
+        pw.println("    Checkpointed    : " + checkpoints.size());
+        pw.println("    Rows scanned    : " + rows.sum());
+        if (time > 0) {
+            pw.println(String.format("    Throughput      : %.0f rows/s",
+                  rows.sum() * 1000.0 / time));
+        }
+        if (rangeTimes.getCount() > 0) {
+            pw.println("    Range scan time:");
+            rangeTimes.print(pw, "        ", " ms");
+        }
+        if (pageTimes.getCount() > 0) {
+            pw.println("    Page query time:");
+            pageTimes.print(pw, "        ", " us");
+        }
+    }
+}
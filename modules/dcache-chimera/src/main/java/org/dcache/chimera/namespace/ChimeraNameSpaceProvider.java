@@ -28,6 +28,7 @@ import static org.dcache.namespace.FileAttribute.STORAGEINFO;
 import static org.dcache.namespace.FileAttribute.TYPE;
 import static org.dcache.namespace.FileAttribute.XATTR;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -1229,6 +1230,35 @@ public class ChimeraNameSpaceProvider
     public void list(Subject subject, String path, Glob glob, Range<Integer> range,
           Set<FileAttribute> attrs, ListHandler handler)
           throws CacheException {
+        list(subject, path, glob, range, attrs, handler, FsInode::newDirectoryStream);
+    }
+
+    @Override
+    public void listAfter(Subject subject, String path, Glob glob, String after,
+          Range<Integer> range, Set<FileAttribute> attrs, ListHandler handler)
+          throws CacheException {
+        /* Without a pattern, the range determines how many entries the database has to return.
+         */
+        int limit = 0;
+        if (glob == null && range.hasUpperBound()) {
+            long upper = range.upperEndpoint();
+            limit = Ints.saturatedCast(
+                  range.upperBoundType() == BoundType.CLOSED ? upper + 1 : upper);
+        }
+        int maxRows = limit;
+        list(subject, path, glob, range, attrs, handler,
+              dir -> dir.newDirectoryStream(after, maxRows));
+    }
+
+    @FunctionalInterface
+    private interface DirectoryStreamFactory {
+
+        DirectoryStreamB<ChimeraDirectoryEntry> open(FsInode dir) throws ChimeraFsException;
+    }
+
+    private void list(Subject subject, String path, Glob glob, Range<Integer> range,
+          Set<FileAttribute> attrs, ListHandler handler, DirectoryStreamFactory factory)
+          throws CacheException {
         try {
             Pattern pattern = (glob == null) ? null : glob.toPattern();
             ExtendedInode dir = pathToInode(subject, path);
@@ -1248,8 +1278,7 @@ public class ChimeraNameSpaceProvider
             }
 
             int counter = 0;
-            try (DirectoryStreamB<ChimeraDirectoryEntry> dirStream = dir
-                  .newDirectoryStream()) {
+            try (DirectoryStreamB<ChimeraDirectoryEntry> dirStream = factory.open(dir)) {
                 for (ChimeraDirectoryEntry entry : dirStream) {
                     try {
                         String name = entry.getName();
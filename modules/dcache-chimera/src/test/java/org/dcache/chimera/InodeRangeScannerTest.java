@@ -0,0 +1,145 @@
+package org.dcache.chimera;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import diskCacheV111.util.PnfsId;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InodeRangeScannerTest {
+
+    private static final String QUERY =
+          "SELECT l.inumber, n.ipnfsid FROM t_locationinfo l, t_inodes n "
+                + "WHERE l.inumber = n.inumber AND l.ilocation = ?";
+
+    private JDBCDataSource dataSource;
+    private ExecutorService executor;
+    private InodeRangeScanner scanner;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = new JDBCDataSource();
+        dataSource.setUrl("jdbc:hsqldb:mem:scanner");
+        dataSource.setUser("sa");
+        try (Connection connection = dataSource.getConnection();
+              Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE t_inodes (inumber BIGINT PRIMARY KEY,"
+                  + " ipnfsid VARCHAR(36))");
+            statement.execute("CREATE TABLE t_locationinfo (inumber BIGINT,"
+                  + " ilocation VARCHAR(64))");
+        }
+
+        executor = Executors.newFixedThreadPool(3);
+        scanner = new InodeRangeScanner();
+        scanner.setDataSource(dataSource);
+        scanner.setExecutor(executor);
+        scanner.setPageSize(7);
+        scanner.setRanges(4);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        executor.shutdownNow();
+        try (Connection connection = dataSource.getConnection();
+              Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    public void shouldScanAllRowsOfLocation() throws Exception {
+        Set<PnfsId> expected = givenFiles(1, 100, "pool1");
+        givenFiles(101, 150, "pool2");
+
+        Set<PnfsId> scanned = Collections.synchronizedSet(new HashSet<>());
+        InodeRangeScanner.Result result = scanner.scan("pool1", "DOWN", QUERY, "l.inumber",
+              List.of("pool1"), () -> false, scanned::addAll);
+
+        assertThat(scanned, is(equalTo(expected)));
+        assertThat(result.getRows(), is(equalTo(100L)));
+        assertThat(result.getRanges(), is(equalTo(4)));
+        assertThat(result.isResumed(), is(false));
+    }
+
+    @Test
+    public void shouldResumeCancelledScan() throws Exception {
+        Set<PnfsId> expected = givenFiles(1, 100, "pool1");
+
+        Set<PnfsId> scanned = Collections.synchronizedSet(new HashSet<>());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger pages = new AtomicInteger();
+        InodeRangeScanner.Result result = scanner.scan("pool1", "DOWN", QUERY, "l.inumber",
+              List.of("pool1"), cancelled::get, page -> {
+                  scanned.addAll(page);
+                  if (pages.incrementAndGet() == 3) {
+                      cancelled.set(true);
+                  }
+              });
+        assertThat(result, is(nullValue()));
+
+        List<PnfsId> resumed = Collections.synchronizedList(new ArrayList<>());
+        result = scanner.scan("pool1", "DOWN", QUERY, "l.inumber", List.of("pool1"), () -> false,
+              resumed::addAll);
+
+        assertThat(result.isResumed(), is(true));
+        assertThat(resumed.size() < 100, is(true));
+        scanned.addAll(resumed);
+        assertThat(scanned, is(equalTo(expected)));
+    }
+
+    @Test
+    public void shouldNotResumeScanOfOtherScope() throws Exception {
+        Set<PnfsId> expected = givenFiles(1, 100, "pool1");
+
+        AtomicInteger pages = new AtomicInteger();
+        InodeRangeScanner.Result result = scanner.scan("pool1", "DOWN", QUERY, "l.inumber",
+              List.of("pool1"), () -> pages.get() >= 3, page -> pages.incrementAndGet());
+        assertThat(result, is(nullValue()));
+
+        Set<PnfsId> scanned = Collections.synchronizedSet(new HashSet<>());
+        result = scanner.scan("pool1", "UP", QUERY, "l.inumber", List.of("pool1"), () -> false,
+              scanned::addAll);
+
+        assertThat(result.isResumed(), is(false));
+        assertThat(scanned, is(equalTo(expected)));
+    }
+
+    private Set<PnfsId> givenFiles(long from, long to, String location) throws SQLException {
+        Set<PnfsId> ids = new HashSet<>();
+        try (Connection connection = dataSource.getConnection();
+              PreparedStatement inode = connection.prepareStatement(
+                    "INSERT INTO t_inodes VALUES (?, ?)");
+              PreparedStatement replica = connection.prepareStatement(
+                    "INSERT INTO t_locationinfo VALUES (?, ?)")) {
+            for (long i = from; i <= to; i++) {
+                PnfsId id = new PnfsId(String.format("%036X", i));
+                inode.setLong(1, i);
+                inode.setString(2, id.toString());
+                inode.executeUpdate();
+                replica.setLong(1, i);
+                replica.setString(2, location);
+                replica.executeUpdate();
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
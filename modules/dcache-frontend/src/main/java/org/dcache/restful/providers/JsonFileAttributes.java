@@ -112,6 +112,10 @@ public class JsonFileAttributes {
     @ApiModelProperty("dCache file attributes for children, if this file is a directory.")
     private List<JsonFileAttributes> children;
 
+    @ApiModelProperty("Opaque token to pass as cursor to list the entries following the "
+          + "children of this listing; absent if there are no further entries.")
+    private String nextCursor;
+
     @ApiModelProperty("dCache file attributes of the file.")
     public FileAttributes attributes;
 
@@ -370,6 +374,14 @@ public class JsonFileAttributes {
         return children;
     }
 
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     public void setCurrentQos(String qos) {
         this.currentQos = qos;
     }
@@ -60,6 +60,7 @@ documents or software obtained from this server.
 package org.dcache.restful.providers.pool;
 
 import java.io.Serializable;
+import org.dcache.pool.movers.json.IoStatisticsData;
 
 /**
  * <p>A frontend wrapper for the pool-side object</p>
@@ -80,6 +81,8 @@ public class MoverData
     private Long submitTime;
     private Long lastModified;
     private Integer moverId;
+    private IoStatisticsData reads;
+    private IoStatisticsData writes;
 
     public MoverData() {
     }
@@ -97,6 +100,8 @@ public class MoverData
         submitTime = moverData.getSubmitTime();
         lastModified = moverData.getLastModified();
         moverId = moverData.getMoverId();
+        reads = moverData.getReads();
+        writes = moverData.getWrites();
     }
 
     public Long getBytes() {
@@ -119,6 +124,14 @@ public class MoverData
         return moverId;
     }
 
+    public IoStatisticsData getReads() {
+        return reads;
+    }
+
+    public IoStatisticsData getWrites() {
+        return writes;
+    }
+
     public String getPnfsId() {
         return pnfsId;
     }
@@ -167,6 +180,14 @@ public class MoverData
         this.moverId = moverId;
     }
 
+    public void setReads(IoStatisticsData reads) {
+        this.reads = reads;
+    }
+
+    public void setWrites(IoStatisticsData writes) {
+        this.writes = writes;
+    }
+
     public void setPnfsId(String pnfsId) {
         this.pnfsId = pnfsId;
     }
@@ -2,7 +2,14 @@ package org.dcache.restful.resources.namespace;
 
 import static org.dcache.restful.providers.SuccessfulResponse.successfulResponse;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
 import diskCacheV111.util.AttributeExistsCacheException;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileNotFoundCacheException;
@@ -24,13 +31,17 @@ import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.Authorization;
 import io.swagger.annotations.Example;
 import io.swagger.annotations.ExampleProperty;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +67,8 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Providers;
 import org.dcache.auth.Subjects;
 import org.dcache.cells.CellStub;
 import org.dcache.http.PathMapper;
@@ -91,6 +104,10 @@ public class FileResources {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileResources.class);
 
+    private static final Set<FileAttribute> BASIC_CHILD_ATTRIBUTES =
+          Sets.immutableEnumSet(FileAttribute.PNFSID, FileAttribute.TYPE, FileAttribute.SIZE,
+                FileAttribute.MODE, FileAttribute.MODIFICATION_TIME);
+
     /*
      * Used to get fully qualified name of the client
      * or the last proxy that sent the request.
@@ -99,6 +116,9 @@ public class FileResources {
     @Context
     private HttpServletRequest request;
 
+    @Context
+    private Providers providers;
+
     @Inject
     private PoolMonitor poolMonitor;
 
@@ -124,16 +144,23 @@ public class FileResources {
     @ApiOperation(value = "Find metadata and optionally directory contents.",
           notes = "The method offers the possibility to list the content of a "
                 + "directory in addition to providing metadata of a "
-                + "specified file or directory.")
+                + "specified file or directory.  Unless an offset is given, "
+                + "the directory entries are listed in order of their names; "
+                + "if the number of entries reaches the limit, the reply "
+                + "includes a nextCursor value that may be passed as cursor "
+                + "to list the following entries.",
+          response = JsonFileAttributes.class)
     @ApiResponses({
+          @ApiResponse(code = 400, message = "Bad Request"),
           @ApiResponse(code = 401, message = "Unauthorized"),
           @ApiResponse(code = 403, message = "Forbidden"),
           @ApiResponse(code = 404, message = "Not Found"),
           @ApiResponse(code = 500, message = "Internal Server Error"),
+          @ApiResponse(code = 501, message = "Not Implemented"),
     })
     @Path("{path : .*}")
     @Produces(MediaType.APPLICATION_JSON)
-    public JsonFileAttributes getFileAttributes(@ApiParam("Path of file or directory.")
+    public Response getFileAttributes(@ApiParam("Path of file or directory.")
     @PathParam("path") String requestPath,
           @ApiParam("Whether to include directory listing.")
           @DefaultValue("false")
@@ -155,7 +182,16 @@ public class FileResources {
           @ApiParam("Limit number of replies in directory listing.")
           @QueryParam("limit") String limit,
           @ApiParam("Number of entries to skip in directory listing.")
-          @QueryParam("offset") String offset) throws CacheException {
+          @QueryParam("offset") String offset,
+          @ApiParam("Continue the directory listing after the entries of a previous "
+                + "reply, as given by its nextCursor value.  Cannot be combined with offset.")
+          @QueryParam("cursor") String cursor,
+          @ApiParam(value = "The attributes to include for each directory entry.  If 'basic' "
+                + "then only the PNFS-ID, type, size, mode and modification time are "
+                + "included, ignoring the locality, locations, qos, xattr, labels and "
+                + "checksum options.", allowableValues = "all,basic")
+          @DefaultValue("all")
+          @QueryParam("children-attributes") String childrenAttributes) throws CacheException {
         JsonFileAttributes fileAttributes = new JsonFileAttributes();
         Set<FileAttribute> attributes =
               NamespaceUtils.getRequestedAttributes(isLocality,
@@ -179,12 +215,18 @@ public class FileResources {
                       request, poolMonitor, pinmanager);
             }
 
-            // fill children list id it's a directory and listing is requested
+            // stream children list if it's a directory and listing is requested
             if (namespaceAttributes.getFileType() == FileType.DIR && isList) {
+                if (offset != null && cursor != null) {
+                    throw new BadRequestException("offset and cursor can not be combined.");
+                }
+
+                int lower;
+                int ceiling;
                 Range<Integer> range;
                 try {
-                    int lower = (offset == null) ? 0 : Integer.parseInt(offset);
-                    int ceiling = (limit == null) ? Integer.MAX_VALUE : Integer.parseInt(limit);
+                    lower = (offset == null) ? 0 : Integer.parseInt(offset);
+                    ceiling = (limit == null) ? Integer.MAX_VALUE : Integer.parseInt(limit);
                     if (ceiling < 0 || lower < 0) {
                         throw new BadRequestException(
                               "limit and offset can not be less than zero.");
@@ -195,37 +237,79 @@ public class FileResources {
                     throw new BadRequestException("limit and offset must be an integer value.");
                 }
 
-                List<JsonFileAttributes> children = new ArrayList<>();
-
-                DirectoryStream stream = listDirectoryHandler.list(
-                      HttpServletRequests.roleAwareSubject(request),
-                      HttpServletRequests.roleAwareRestriction(request),
-                      path,
-                      null,
-                      range,
-                      attributes);
-
-                for (DirectoryEntry entry : stream) {
-                    String fName = entry.getName();
-
-                    JsonFileAttributes childrenAttributes = new JsonFileAttributes();
-
-                    NamespaceUtils.chimeraToJsonAttributes(fName,
-                          childrenAttributes,
-                          entry.getFileAttributes(),
-                          isLocality, isLocations, isLabels,
-                          false, isXattr, isChecksum,
-                          request, poolMonitor);
-                    childrenAttributes.setFileName(fName);
-                    if (isQos) {
-                        NamespaceUtils.addQoSAttributes(childrenAttributes,
-                              entry.getFileAttributes(),
-                              request, poolMonitor, pinmanager);
+                ChildConverter converter;
+                Set<FileAttribute> childAttributes;
+                switch (childrenAttributes) {
+                    case "all":
+                        childAttributes = attributes;
+                        converter = entry -> {
+                            JsonFileAttributes json = new JsonFileAttributes();
+                            NamespaceUtils.chimeraToJsonAttributes(entry.getName(),
+                                  json,
+                                  entry.getFileAttributes(),
+                                  isLocality, isLocations, isLabels,
+                                  false, isXattr, isChecksum,
+                                  request, poolMonitor);
+                            if (isQos) {
+                                NamespaceUtils.addQoSAttributes(json,
+                                      entry.getFileAttributes(),
+                                      request, poolMonitor, pinmanager);
+                            }
+                            return json;
+                        };
+                        break;
+                    case "basic":
+                        childAttributes = BASIC_CHILD_ATTRIBUTES;
+                        converter = entry -> {
+                            JsonFileAttributes json = new JsonFileAttributes();
+                            NamespaceUtils.chimeraToJsonAttributes(entry.getName(),
+                                  json,
+                                  entry.getFileAttributes(),
+                                  false, false, false,
+                                  false, false, false,
+                                  request, poolMonitor);
+                            return json;
+                        };
+                        break;
+                    default:
+                        throw new BadRequestException(
+                              "children-attributes must be either 'all' or 'basic'.");
+                }
+
+                DirectoryStream stream;
+                if (offset != null) {
+                    stream = listDirectoryHandler.list(
+                          HttpServletRequests.roleAwareSubject(request),
+                          HttpServletRequests.roleAwareRestriction(request),
+                          path,
+                          null,
+                          range,
+                          childAttributes);
+                } else {
+                    ListDirectoryHandler.Stream ordered = listDirectoryHandler.listAfter(
+                          HttpServletRequests.roleAwareSubject(request),
+                          HttpServletRequests.roleAwareRestriction(request),
+                          path,
+                          null,
+                          decodeCursor(cursor),
+                          range,
+                          childAttributes);
+                    /* An older PnfsManager ignores the cursor and lists from
+                     * the start in no particular order.  That is fine for a
+                     * complete listing, but cursors would skip or repeat entries.
+                     */
+                    if (!ordered.isOrdered() && (cursor != null || limit != null)) {
+                        ordered.close();
+                        throw new WebApplicationException(Response.status(501,
+                              "Paged directory listing is not supported by the name space.")
+                              .build());
                     }
-                    children.add(childrenAttributes);
+                    stream = ordered;
                 }
 
-                fileAttributes.setChildren(children);
+                int pageSize = (offset == null && limit != null) ? ceiling : 0;
+                return Response.ok(streamListing(path, fileAttributes, stream, converter,
+                      pageSize)).build();
             }
 
         } catch (FileNotFoundCacheException e) {
@@ -240,7 +324,91 @@ public class FileResources {
             LOG.warn(Exceptions.meaningfulMessage(ex));
             throw new InternalServerErrorException(ex);
         }
-        return fileAttributes;
+        return Response.ok(fileAttributes).build();
+    }
+
+    /**
+     * Converts a directory entry to its JSON representation.
+     */
+    @FunctionalInterface
+    private interface ChildConverter {
+
+        JsonFileAttributes convert(DirectoryEntry entry)
+              throws CacheException, InterruptedException, NoRouteToCellException;
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null) {
+            return "";
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+    }
+
+    private static String encodeCursor(String name) {
+        return Base64.getUrlEncoder().withoutPadding()
+              .encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the JSON representation of a directory and its children. The children are written
+     * as they arrive from PnfsManager rather than being collected first, so that the memory
+     * used does not grow with the size of the directory and the client receives the first
+     * entries without waiting for the last.
+     * <p>
+     * As the response is committed by the time the children are written, a failure while
+     * listing can no longer be reported as an error status; the connection is aborted instead,
+     * leaving the client with an incomplete document.
+     *
+     * @param pageSize if positive, the number of entries after which to include a cursor for
+     *                 the following entries
+     */
+    private StreamingOutput streamListing(FsPath path, JsonFileAttributes parent,
+          DirectoryStream stream, ChildConverter converter, int pageSize) {
+        ObjectMapper mapper = providers
+              .getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+              .getContext(JsonFileAttributes.class);
+        ObjectWriter writer = mapper.writer()
+              .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            try (DirectoryStream entries = stream;
+                  JsonGenerator generator = writer.createGenerator(out)) {
+                generator.writeStartObject();
+                ObjectNode node = mapper.valueToTree(parent);
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    generator.writeFieldName(field.getKey());
+                    generator.writeTree(field.getValue());
+                }
+
+                generator.writeArrayFieldStart("children");
+                int count = 0;
+                String last = null;
+                for (DirectoryEntry entry : entries) {
+                    JsonFileAttributes child = converter.convert(entry);
+                    child.setFileName(entry.getName());
+                    writer.writeValue(generator, child);
+                    last = entry.getName();
+                    count++;
+                }
+                generator.writeEndArray();
+
+                if (pageSize > 0 && count == pageSize) {
+                    generator.writeStringField("nextCursor", encodeCursor(last));
+                }
+                generator.writeEndObject();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Listing of " + path + " interrupted.");
+            } catch (CacheException | NoRouteToCellException e) {
+                LOG.warn("Listing of {} aborted: {}", path, Exceptions.meaningfulMessage(e));
+                throw new IOException(e.getMessage(), e);
+            }
+        };
     }
 
     @POST
@@ -230,6 +230,7 @@ import org.dcache.ftp.proxy.ActiveAdapter;
 import org.dcache.ftp.proxy.PassiveConnectionHandler;
 import org.dcache.ftp.proxy.ProxyAdapter;
 import org.dcache.ftp.proxy.ProxyAdapter.Direction;
+import org.dcache.ftp.proxy.ProxyEventLoop;
 import org.dcache.ftp.proxy.SocketAdapter;
 import org.dcache.namespace.ACLPermissionHandler;
 import org.dcache.namespace.ChainedPermissionHandler;
@@ -369,6 +370,7 @@ public abstract class AbstractFtpDoorV1
     private LoadingCache<GetSpaceTokensKey, long[]> _spaceDescriptionCache;
     private LoadingCache<String, Optional<Space>> _spaceLookupCache;
     protected Executor _executor;
+    private ProxyEventLoop _proxyEventLoop;
     private IdentityResolverFactory _identityResolverFactory;
     private IdentityResolver _identityResolver;
     private EnumSet<WorkAround> _activeWorkarounds = EnumSet.noneOf(WorkAround.class);
@@ -1064,7 +1066,8 @@ public abstract class AbstractFtpDoorV1
             switch (_mode) {
                 case PASSIVE:
                     _adapter =
-                          new SocketAdapter(_clientConnectionHandler, _internalInetAddress);
+                          new SocketAdapter(_clientConnectionHandler, _internalInetAddress,
+                                _proxyEventLoop);
                     break;
 
                 case ACTIVE:
@@ -1522,6 +1525,14 @@ public abstract class AbstractFtpDoorV1
         _executor = new CDCExecutorDecorator<>(executor);
     }
 
+    /**
+     * Sets the event loop relaying proxied passive transfers, or null to relay each data channel
+     * with its own thread.
+     */
+    public void setProxyEventLoop(ProxyEventLoop eventLoop) {
+        _proxyEventLoop = eventLoop;
+    }
+
     public void setSpaceDescriptionCache(LoadingCache<GetSpaceTokensKey, long[]> cache) {
         _spaceDescriptionCache = cache;
     }
@@ -149,6 +149,24 @@ public class FtpDoorSettings {
           defaultValue = "false")
     protected boolean isProxyRequiredOnActive;
 
+    /**
+     * Number of threads relaying data of proxied passive transfers, or zero to relay each data
+     * channel with its own thread.
+     */
+    @Option(name = "proxyEventLoopThreads",
+          description = "Number of threads relaying proxied transfers",
+          defaultValue = "2")
+    protected int proxyEventLoopThreads;
+
+    /**
+     * Maximum number of direct buffers of maxBlockSize bytes kept for reuse by the proxy event
+     * loop.
+     */
+    @Option(name = "proxyBuffers",
+          description = "Number of pooled proxy buffers",
+          defaultValue = "256")
+    protected int proxyBuffers;
+
     /**
      * File (StageConfiguration.conf) containing DNs and FQANs whose owner are allowed to STAGE
      * files (i.e. allowed to copy file from dCache in case file is stored on tape but not on disk).
@@ -271,6 +289,14 @@ public class FtpDoorSettings {
         return isProxyRequiredOnActive;
     }
 
+    public int getProxyEventLoopThreads() {
+        return proxyEventLoopThreads;
+    }
+
+    public int getProxyBuffers() {
+        return proxyBuffers;
+    }
+
     public String getStageConfigurationFilePath() {
         return stageConfigurationFilePath;
     }
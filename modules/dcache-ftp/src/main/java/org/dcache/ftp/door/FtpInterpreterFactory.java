@@ -25,9 +25,12 @@ import diskCacheV111.util.ConfigurationException;
 import dmg.cells.nucleus.CellAddressCore;
 import dmg.cells.nucleus.CellEndpoint;
 import dmg.util.LineWriter;
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import org.dcache.ftp.proxy.DirectBufferPool;
+import org.dcache.ftp.proxy.ProxyEventLoop;
 import org.dcache.poolmanager.PoolManagerHandler;
 import org.dcache.services.login.IdentityResolverFactory;
 import org.dcache.space.ReservationCaches.GetSpaceTokensKey;
@@ -44,6 +47,8 @@ public abstract class FtpInterpreterFactory implements NettyLineBasedInterpreter
 
     protected final FtpDoorSettings settings = new FtpDoorSettings();
 
+    private ProxyEventLoop proxyEventLoop;
+
     protected abstract AbstractFtpDoorV1 createInterpreter() throws Exception;
 
     @Override
@@ -56,6 +61,16 @@ public abstract class FtpInterpreterFactory implements NettyLineBasedInterpreter
             LOGGER.info("Creating KafkaProducer");
 
         }
+        if (settings.getProxyEventLoopThreads() > 0) {
+            try {
+                proxyEventLoop = new ProxyEventLoop("ftp-proxy",
+                      settings.getProxyEventLoopThreads(),
+                      new DirectBufferPool(settings.getMaxBlockSize(), settings.getProxyBuffers()));
+            } catch (IOException e) {
+                throw new ConfigurationException("Failed to create proxy event loop: "
+                      + e.getMessage(), e);
+            }
+        }
     }
 
     @Override
@@ -74,6 +89,7 @@ public abstract class FtpInterpreterFactory implements NettyLineBasedInterpreter
         interpreter.setLocalSocketAddress(localAddress);
         interpreter.setProxySocketAddress(proxyAddress);
         interpreter.setExecutor(executor);
+        interpreter.setProxyEventLoop(proxyEventLoop);
         interpreter.setCellEndpoint(endpoint);
         interpreter.setCellAddress(myAddress);
         interpreter.setPoolManagerHandler(poolManagerHandler);
@@ -90,5 +106,8 @@ public abstract class FtpInterpreterFactory implements NettyLineBasedInterpreter
             settings.destroy();
             LOGGER.info("Shutdow KafkaProducer");
         }
+        if (proxyEventLoop != null) {
+            proxyEventLoop.shutdown();
+        }
     }
 }
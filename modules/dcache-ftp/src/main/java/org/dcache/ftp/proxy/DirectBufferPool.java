@@ -0,0 +1,78 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.ftp.proxy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of equally sized direct byte buffers.
+ * <p>
+ * Allocating direct buffers is expensive, so buffers released to the pool are kept for reuse.  At
+ * most {@code maxPooled} buffers are retained; if the pool is empty, a new buffer is allocated and
+ * buffers released to a full pool are left to the garbage collector.
+ */
+public class DirectBufferPool {
+
+    private final int _bufferSize;
+    private final BlockingQueue<ByteBuffer> _free;
+
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        checkArgument(bufferSize > 0, "Buffer size must be positive.");
+        checkArgument(maxPooled > 0, "Number of pooled buffers must be positive.");
+        _bufferSize = bufferSize;
+        _free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * Returns a cleared buffer of {@link #getBufferSize()} bytes.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = _free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(_bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire()} to the pool. The caller must not use the
+     * buffer afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == _bufferSize) {
+            _free.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return _bufferSize;
+    }
+
+    /**
+     * Returns the number of buffers currently available for reuse.
+     */
+    public int getPooled() {
+        return _free.size();
+    }
+}
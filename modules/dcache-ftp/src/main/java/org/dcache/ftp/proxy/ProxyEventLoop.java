@@ -0,0 +1,183 @@
+/*
+ * dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.ftp.proxy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small, fixed set of selector threads shared by all proxy adapters of a door.
+ * <p>
+ * Each adapter obtains a {@link Worker} and registers all its channels with that worker.  Handlers
+ * and tasks of a worker are only ever invoked by the worker's thread, so the state of an adapter's
+ * relay does not need to be synchronized.  The number of threads is independent of the number of
+ * transfers and data channels.
+ */
+public class ProxyEventLoop {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyEventLoop.class);
+
+    /**
+     * Callback for channels registered with a worker.
+     */
+    public interface Handler {
+
+        /**
+         * Called by the worker thread when the channel is ready for one of the operations of its
+         * interest set.
+         */
+        void ready(SelectionKey key);
+    }
+
+    private final Worker[] _workers;
+    private final AtomicInteger _next = new AtomicInteger();
+    private final DirectBufferPool _buffers;
+
+    public ProxyEventLoop(String name, int threads, DirectBufferPool buffers)
+          throws IOException {
+        checkArgument(threads > 0, "Number of threads must be positive.");
+        _buffers = requireNonNull(buffers);
+        _workers = new Worker[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                _workers[i] = new Worker(name + "-" + i);
+            }
+        } catch (IOException e) {
+            shutdown();
+            throw e;
+        }
+        for (Worker worker : _workers) {
+            worker._thread.start();
+        }
+    }
+
+    /**
+     * Returns the next worker in round-robin order.
+     */
+    public Worker next() {
+        return _workers[Math.floorMod(_next.getAndIncrement(), _workers.length)];
+    }
+
+    public DirectBufferPool getBuffers() {
+        return _buffers;
+    }
+
+    public int getThreads() {
+        return _workers.length;
+    }
+
+    public void shutdown() {
+        for (Worker worker : _workers) {
+            if (worker != null) {
+                worker.shutdown();
+            }
+        }
+    }
+
+    public static class Worker implements Runnable {
+
+        private final Selector _selector;
+        private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
+        private final Thread _thread;
+        private volatile boolean _running = true;
+
+        private Worker(String name) throws IOException {
+            _selector = Selector.open();
+            _thread = new Thread(this, name);
+            _thread.setDaemon(true);
+        }
+
+        /**
+         * Runs the task on the worker thread.
+         */
+        public void execute(Runnable task) {
+            _tasks.add(task);
+            _selector.wakeup();
+        }
+
+        public boolean inEventLoop() {
+            return Thread.currentThread() == _thread;
+        }
+
+        /**
+         * Registers a channel with this worker. Must be called on the worker thread.
+         */
+        public SelectionKey register(SelectableChannel channel, int ops, Handler handler)
+              throws ClosedChannelException {
+            checkState(inEventLoop(), "Channels must be registered by the event loop.");
+            return channel.register(_selector, ops, handler);
+        }
+
+        private void shutdown() {
+            _running = false;
+            _selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (_running) {
+                    _selector.select();
+                    Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            try {
+                                ((Handler) key.attachment()).ready(key);
+                            } catch (RuntimeException e) {
+                                _thread.getUncaughtExceptionHandler().uncaughtException(_thread, e);
+                            }
+                        }
+                    }
+
+                    Runnable task;
+                    while ((task = _tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            _thread.getUncaughtExceptionHandler().uncaughtException(_thread, e);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Proxy event loop failed: {}", e.toString());
+            } finally {
+                try {
+                    _selector.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close selector: {}", e.toString());
+                }
+            }
+        }
+    }
+}
@@ -84,9 +84,14 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.dcache.ftp.TransferMode;
 import org.dcache.util.NDC;
 import org.dcache.util.PortRange;
@@ -112,6 +117,11 @@ import org.slf4j.LoggerFactory;
  * is an upload).  The connection to the pool also uses MODE_E.  The client may open multiple TCP
  * connections; therefore, care is taken to ensure complete blocks are sent when multiplexing the
  * single pool connection.
+ * <p>
+ * Data is either relayed by one thread per data sender connection, or, if the adapter is given a
+ * {@link ProxyEventLoop}, by a worker of that event loop.  In the latter case all connections of
+ * the adapter are non-blocking and share a single selector thread, data is read into pooled direct
+ * buffers, and these buffers are written to the data recipient without being copied.
  */
 public class SocketAdapter implements Runnable, ProxyAdapter {
 
@@ -175,6 +185,27 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
     private String _outputLocalAddress = "awaiting";
     private String _outputRemoteAddress = "awaiting";
 
+    /**
+     * Maximum number of blocks queued for the output channel before relays stop reading from their
+     * input channels.
+     */
+    private static final int MAX_QUEUED_WRITES = 16;
+
+    /**
+     * The event loop worker relaying data for this adapter, or null if every input channel is
+     * relayed by its own Redirector thread.
+     */
+    private final ProxyEventLoop.Worker _worker;
+    private final DirectBufferPool _buffers;
+
+    /**
+     * All relays created by the SocketAdapter. Also guards _activeRelays.
+     */
+    private final List<Relay> _relays = new ArrayList<>();
+    private int _activeRelays;
+
+    private volatile RelayOutput _relayOutput;
+
 
     private abstract class Redirector extends Thread {
 
@@ -260,14 +291,6 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
                 LOGGER.warn("Interrupted while waiting for accept loop to terminate");
             }
         }
-
-        private void markInputClosed(SocketChannel channel) {
-            try {
-                channel.shutdownInput();
-            } catch (IOException e) {
-                LOGGER.error("Failed to mark socket {} closed: {}", channel, e.toString());
-            }
-        }
     }
 
     /**
@@ -392,6 +415,468 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
         }
     }
 
+    /**
+     * Writes blocks to the output channel on behalf of all relays of the adapter. Except for the
+     * methods used by the adapter thread to wait for the output to drain, all methods are called
+     * by the event loop worker.
+     */
+    private class RelayOutput implements ProxyEventLoop.Handler {
+
+        private final Deque<PendingWrite> _queue = new ArrayDeque<>();
+        private final List<Relay> _paused = new ArrayList<>();
+        private SelectionKey _key;
+        private boolean _failed;
+
+        /**
+         * Whether all queued blocks have been written or discarded. Guarded by this.
+         */
+        private boolean _flushed = true;
+        private IOException _failure;
+
+        void start() {
+            try {
+                _key = _worker.register(_output, 0, this);
+            } catch (ClosedChannelException e) {
+                fail(e);
+            }
+        }
+
+        boolean isCongested() {
+            return _queue.size() >= MAX_QUEUED_WRITES;
+        }
+
+        /**
+         * Registers a relay to be resumed once the output is no longer congested.
+         */
+        void pause(Relay relay) {
+            _paused.add(relay);
+        }
+
+        /**
+         * Queues buffers to be written with a single gathering write.
+         *
+         * @param pooled a buffer to return to the pool once written, or null
+         */
+        void send(@Nullable ByteBuffer pooled, ByteBuffer... buffers) {
+            if (_failed) {
+                release(pooled);
+                return;
+            }
+            _queue.add(new PendingWrite(pooled, buffers));
+            setFlushed(false, null);
+            flush();
+        }
+
+        @Override
+        public void ready(SelectionKey key) {
+            if (key.isWritable()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            try {
+                while (!_queue.isEmpty()) {
+                    PendingWrite write = _queue.peek();
+                    _output.write(write.buffers);
+                    if (write.hasRemaining()) {
+                        _key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    _queue.remove();
+                    release(write.pooled);
+                    if (_queue.size() <= MAX_QUEUED_WRITES / 2) {
+                        _paused.forEach(Relay::resume);
+                        _paused.clear();
+                    }
+                }
+                _key.interestOps(0);
+                setFlushed(true, null);
+            } catch (IOException e) {
+                setError("Error writing to " + _outputRemoteAddress + ": " + e.getMessage());
+                fail(e);
+            }
+        }
+
+        private void fail(IOException e) {
+            _failed = true;
+            discard();
+            setFlushed(true, e);
+        }
+
+        /**
+         * Drops all queued blocks, returning their buffers to the pool.
+         */
+        void discard() {
+            PendingWrite write;
+            while ((write = _queue.poll()) != null) {
+                release(write.pooled);
+            }
+            _paused.clear();
+            setFlushed(true, null);
+        }
+
+        private void release(@Nullable ByteBuffer pooled) {
+            if (pooled != null) {
+                _buffers.release(pooled);
+            }
+        }
+
+        private synchronized void setFlushed(boolean flushed, @Nullable IOException failure) {
+            _flushed = flushed;
+            if (failure != null && _failure == null) {
+                _failure = failure;
+            }
+            if (flushed) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits until all queued blocks have been written. Called by the adapter thread.
+         */
+        synchronized void awaitFlushed() throws IOException, InterruptedException {
+            while (!_flushed) {
+                wait();
+            }
+            if (_failure != null) {
+                throw _failure;
+            }
+        }
+
+        /**
+         * Writes a block and waits until it and all blocks queued before it have been written.
+         * Called by the adapter thread.
+         */
+        void sendAndFlush(ByteBuffer block) throws IOException, InterruptedException {
+            setFlushed(false, null);
+            _worker.execute(() -> send(null, block));
+            awaitFlushed();
+        }
+    }
+
+    private static class PendingWrite {
+
+        final ByteBuffer pooled;
+        final ByteBuffer[] buffers;
+
+        PendingWrite(ByteBuffer pooled, ByteBuffer[] buffers) {
+            this.pooled = pooled;
+            this.buffers = buffers;
+        }
+
+        boolean hasRemaining() {
+            return buffers[buffers.length - 1].hasRemaining();
+        }
+    }
+
+    /**
+     * A relay moves data from a non-blocking input channel to the shared output of the adapter.
+     * All methods are called by the event loop worker.
+     */
+    private abstract class Relay implements ProxyEventLoop.Handler {
+
+        protected final SocketChannel _input;
+        protected final ByteBuffer _initial;
+        protected final String _inputRemoteAddress;
+        protected final String _inputLocalAddress;
+        private SelectionKey _key;
+        private boolean _finished;
+
+        Relay(SocketChannel input, ByteBuffer initial) {
+            _input = requireNonNull(input);
+            _initial = initial;
+            _inputRemoteAddress = SocketAdapter.toString(_input.socket().getRemoteSocketAddress());
+            _inputLocalAddress = SocketAdapter.toString(_input.socket().getLocalSocketAddress());
+        }
+
+        /**
+         * Called once the input channel is registered with the event loop.
+         */
+        protected abstract void begin();
+
+        /**
+         * Reads from the input until it would block, the input is finished, or the output is
+         * congested.
+         */
+        protected abstract void relay() throws IOException;
+
+        /**
+         * Returns any pooled buffers still held by the relay.
+         */
+        protected abstract void releaseBuffers();
+
+        void start() {
+            LOGGER.debug("Accepting data: {} --> {}", _inputRemoteAddress, _inputLocalAddress);
+            LOGGER.debug("Initial data: {}", _initial);
+            try {
+                _input.configureBlocking(false);
+                _key = _worker.register(_input, SelectionKey.OP_READ, this);
+                begin();
+                read();
+            } catch (IOException e) {
+                setError("Error reading from " + _inputRemoteAddress + ": " + e.getMessage());
+                finish();
+            }
+        }
+
+        @Override
+        public void ready(SelectionKey key) {
+            read();
+        }
+
+        private void read() {
+            if (_finished) {
+                return;
+            }
+            try {
+                relay();
+                if (!_finished && _relayOutput.isCongested()) {
+                    _key.interestOps(0);
+                    _relayOutput.pause(this);
+                }
+            } catch (IOException e) {
+                setError("Error reading from " + _inputRemoteAddress + ": " + e.getMessage());
+                finish();
+            }
+        }
+
+        void resume() {
+            if (!_finished && _key.isValid()) {
+                _key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        protected boolean isFinished() {
+            return _finished;
+        }
+
+        /**
+         * Fills the buffer, using any initial data before reading from the input channel.
+         */
+        protected int fill(ByteBuffer buffer) throws IOException {
+            if (_initial.hasRemaining()) {
+                ByteBuffer initial = _initial.duplicate();
+                int count = Math.min(initial.remaining(), buffer.remaining());
+                initial.limit(initial.position() + count);
+                buffer.put(initial);
+                _initial.position(_initial.position() + count);
+                return count;
+            }
+            return _input.read(buffer);
+        }
+
+        protected void finishAccept() {
+            try {
+                LOGGER.debug("Finishing accept");
+                _inbound.finishAccept();
+            } catch (InterruptedException e) {
+                setError("Interrupted waiting for accept to shut down");
+            }
+        }
+
+        void finish() {
+            if (!_finished) {
+                _finished = true;
+                if (_key != null) {
+                    _key.cancel();
+                }
+                releaseBuffers();
+                LOGGER.debug("Returning input channel");
+                _inbound.returnChannel(_input);
+                relayFinished();
+            }
+        }
+    }
+
+    /**
+     * A relay moving data in mode S.
+     */
+    private class StreamRelay extends Relay {
+
+        private ByteBuffer _buffer;
+
+        StreamRelay(SocketChannel input, ByteBuffer initial) {
+            super(input, initial);
+        }
+
+        @Override
+        protected void begin() {
+            finishAccept(); // only expect a single connection.
+            if (_initial.hasRemaining()) {
+                _relayOutput.send(null, _initial);
+            }
+        }
+
+        @Override
+        protected void relay() throws IOException {
+            while (!_relayOutput.isCongested()) {
+                if (_buffer == null) {
+                    _buffer = _buffers.acquire();
+                }
+                int n = _input.read(_buffer);
+                if (n == -1) {
+                    sendBuffer();
+                    markInputClosed(_input);
+                    finish();
+                    return;
+                }
+                if (n == 0 || !_buffer.hasRemaining()) {
+                    sendBuffer();
+                    if (n == 0) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void sendBuffer() {
+            if (_buffer.position() > 0) {
+                _buffer.flip();
+                _relayOutput.send(_buffer, _buffer);
+            } else {
+                _buffers.release(_buffer);
+            }
+            _buffer = null;
+        }
+
+        @Override
+        protected void releaseBuffers() {
+            if (_buffer != null) {
+                _buffers.release(_buffer);
+                _buffer = null;
+            }
+        }
+    }
+
+    /**
+     * A relay moving data in mode E. Headers and data are read incrementally as they arrive on the
+     * input channel and each block is forwarded to the output once complete.
+     */
+    private class BlockRelay extends Relay {
+
+        private final ByteBuffer _header = ByteBuffer.allocate(EDataBlockNio.HEADER_LENGTH);
+        private ByteBuffer _data;
+        private byte _descriptors;
+        private long _count;
+        private long _position;
+        private boolean _used;
+
+        BlockRelay(SocketChannel input, ByteBuffer initial) {
+            super(input, initial);
+        }
+
+        @Override
+        protected void begin() {
+        }
+
+        @Override
+        protected void relay() throws IOException {
+            while (!isFinished() && !_relayOutput.isCongested()) {
+                ByteBuffer buffer = (_data == null) ? _header : _data;
+                int n = fill(buffer);
+                if (n == -1) {
+                    if (_used) {
+                        setError("Data channel from " + _inputRemoteAddress
+                              + " was closed before EOD marker");
+                    }
+                    markInputClosed(_input);
+                    finish();
+                    return;
+                }
+                if (buffer.hasRemaining()) {
+                    if (n == 0) {
+                        return;
+                    }
+                } else if (_data == null) {
+                    headerReceived();
+                } else {
+                    dataReceived();
+                }
+            }
+        }
+
+        private void headerReceived() throws IOException {
+            _used = true;
+            _header.flip();
+            _descriptors = _header.get();
+            long size = _header.getLong();
+            long offset = _header.getLong();
+            _header.clear();
+
+            /* EOF blocks are never forwarded as they do not contain any
+             * data and the SocketAdapter sends an EOF at the beginning
+             * of the stream.
+             */
+            if ((_descriptors & EDataBlockNio.EOF_DESCRIPTOR) != 0) {
+                if (offset <= 0) {
+                    throw new IOException("Invalid Data Channel Count value: " + offset);
+                }
+                setEODExcepted(offset);
+                if (hasSeenAllExpectedEOD()) {
+                    finishAccept();
+                }
+                _count = _position = 0;
+                LOGGER.debug("EOF descriptor: conns={}", offset);
+            } else {
+                _count = size;
+                _position = offset;
+                LOGGER.debug("Receiving {} bytes for offset {}", size, offset);
+            }
+            nextChunk();
+        }
+
+        /* To limit memory usage, at most _maxBlockSize bytes are read at
+         * a time. Larger blocks are divided into multiple blocks.
+         */
+        private void nextChunk() {
+            if (_count > 0) {
+                _data = _buffers.acquire();
+                _data.limit((int) Math.min(_count, Math.min(_maxBlockSize, _data.capacity())));
+            } else if ((_descriptors & EDataBlockNio.EOD_DESCRIPTOR) != 0) {
+                LOGGER.debug("Block just received contains EOD");
+                incrementEODSeen();
+                if (hasSeenAllExpectedEOD()) {
+                    finishAccept();
+                }
+                finish();
+            }
+        }
+
+        private void dataReceived() {
+            int len = _data.position();
+            ByteBuffer header = ByteBuffer.allocate(EDataBlockNio.HEADER_LENGTH);
+            header.put((byte) 0);
+            header.putLong(len);
+            header.putLong(_position);
+            header.flip();
+            _data.flip();
+            LOGGER.debug("Sending {} bytes", len);
+            _relayOutput.send(_data, header, _data);
+            _data = null;
+
+            _count -= len;
+            _position += len;
+            nextChunk();
+        }
+
+        @Override
+        protected void releaseBuffers() {
+            if (_data != null) {
+                _buffers.release(_data);
+                _data = null;
+            }
+        }
+    }
+
+    private static void markInputClosed(SocketChannel channel) {
+        try {
+            channel.shutdownInput();
+        } catch (IOException e) {
+            LOGGER.error("Failed to mark socket {} closed: {}", channel, e.toString());
+        }
+    }
+
     /**
      * Provide a better string representation than String.valueOf(..).  The default representation
      * always includes a '/' to seperate the hostname from the IP address, even if the hostname is
@@ -414,6 +899,18 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
 
     public SocketAdapter(PassiveConnectionHandler handler, InetAddress addressForPools)
           throws IOException {
+        this(handler, addressForPools, null);
+    }
+
+    /**
+     * Creates an adapter relaying data with the given event loop, or with a thread per data
+     * channel if {@code eventLoop} is null.
+     */
+    public SocketAdapter(PassiveConnectionHandler handler, InetAddress addressForPools,
+          @Nullable ProxyEventLoop eventLoop) throws IOException {
+        _worker = eventLoop == null ? null : eventLoop.next();
+        _buffers = eventLoop == null ? null : eventLoop.getBuffers();
+
         _clientConnectionHandler = handler;
         _clientConnectionHandler.setErrorConsumer(this::setError);
 
@@ -476,6 +973,7 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
             if (_error == null) {
                 _inbound.close();
                 _error = msg;
+                abortRelays();
             }
         }
     }
@@ -492,6 +990,7 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
             if (_error == null) {
                 _inbound.close();
                 _error = e.getMessage();
+                abortRelays();
             }
         }
     }
@@ -589,6 +1088,12 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
                     sendEof();
                 }
 
+                if (_worker != null) {
+                    _output.configureBlocking(false);
+                    _relayOutput = new RelayOutput();
+                    _worker.execute(_relayOutput::start);
+                }
+
                 _inbound.accept(this::acceptNewChannel);
 
                 awaitRedirectors();
@@ -634,6 +1139,7 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
             for (Thread redirector : _redirectors) {
                 redirector.interrupt();
             }
+            abortRelays();
 
             /* Close down everything on the pool side. */
             _poolConnectionHandler.close();
@@ -649,28 +1155,90 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
         _output.write(block);
     }
 
-    private void sendEod() throws IOException {
+    private void sendEod() throws IOException, InterruptedException {
         ByteBuffer block = ByteBuffer.allocate(17);
         block.put((byte) EDataBlockNio.EOD_DESCRIPTOR);
         block.putLong(0);
         block.putLong(0);
         block.flip();
-        _output.write(block);
+        if (_relayOutput == null) {
+            _output.write(block);
+        } else {
+            _relayOutput.sendAndFlush(block);
+        }
     }
 
-    private void awaitRedirectors() throws InterruptedException {
+    private void awaitRedirectors() throws IOException, InterruptedException {
         LOGGER.debug("Waiting for {} redirectors to finish", _redirectors.size());
         for (Thread redirector : _redirectors) {
             redirector.join();
         }
         _redirectors.clear();
 
+        if (_worker != null) {
+            synchronized (_relays) {
+                while (_activeRelays > 0) {
+                    _relays.wait();
+                }
+            }
+            if (!hasError()) {
+                _relayOutput.awaitFlushed();
+            }
+        }
+
         LOGGER.debug("All redirectors have finished");
     }
 
+    private void relayFinished() {
+        synchronized (_relays) {
+            _activeRelays--;
+            _relays.notifyAll();
+        }
+    }
+
+    /**
+     * Stops all relays and discards any data not yet written to the output. The relays are
+     * stopped by the event loop worker.
+     */
+    private void abortRelays() {
+        if (_worker != null) {
+            _worker.execute(() -> {
+                List<Relay> relays;
+                synchronized (_relays) {
+                    relays = new ArrayList<>(_relays);
+                }
+                relays.forEach(Relay::finish);
+                RelayOutput output = _relayOutput;
+                if (output != null) {
+                    output.discard();
+                }
+            });
+        }
+    }
+
     private void acceptNewChannel(SocketChannel input, ByteBuffer initialInput) {
         LOGGER.debug("Accepting new TCP connection");
 
+        if (_worker != null) {
+            Relay relay;
+            switch (_mode) {
+                case MODE_E:
+                    relay = new BlockRelay(input, initialInput);
+                    break;
+                case MODE_S:
+                    relay = new StreamRelay(input, initialInput);
+                    break;
+                default:
+                    throw new RuntimeException("Unsupported transfer mode: " + _mode);
+            }
+            synchronized (_relays) {
+                _relays.add(relay);
+                _activeRelays++;
+            }
+            _worker.execute(relay::start);
+            return;
+        }
+
         Redirector redir;
         switch (_mode) {
             case MODE_E:
@@ -748,7 +1316,16 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
             ProxyPrinter proxy = new ProxyPrinter();
             Socket out = _output.socket();
             boolean isFirstRow = true;
+            List<SocketChannel> inputs = new ArrayList<>();
             for (Redirector redirector : _redirectors) {
+                inputs.add(redirector._input);
+            }
+            synchronized (_relays) {
+                for (Relay relay : _relays) {
+                    inputs.add(relay._input);
+                }
+            }
+            for (SocketChannel input : inputs) {
                 if (isFirstRow) {
                     if (_direction == UPLOAD) {
                         proxy.pool(out);
@@ -757,7 +1334,7 @@ public class SocketAdapter implements Runnable, ProxyAdapter {
                     }
                     isFirstRow = false;
                 }
-                Socket in = redirector._input.socket();
+                Socket in = input.socket();
                 if (_direction == UPLOAD) {
                     proxy.client(in);
                 } else {
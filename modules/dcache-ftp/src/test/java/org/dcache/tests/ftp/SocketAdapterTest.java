@@ -0,0 +1,164 @@
+package org.dcache.tests.ftp;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.dcache.ftp.TransferMode;
+import org.dcache.ftp.proxy.DirectBufferPool;
+import org.dcache.ftp.proxy.EDataBlockNio;
+import org.dcache.ftp.proxy.PassiveConnectionHandler;
+import org.dcache.ftp.proxy.ProxyAdapter.Direction;
+import org.dcache.ftp.proxy.ProxyEventLoop;
+import org.dcache.ftp.proxy.SocketAdapter;
+import org.dcache.util.PortRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SocketAdapterTest {
+
+    private static final InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+
+    private ProxyEventLoop eventLoop;
+    private PassiveConnectionHandler clientHandler;
+    private SocketAdapter adapter;
+
+    @Before
+    public void setUp() throws IOException {
+        eventLoop = new ProxyEventLoop("test-proxy", 1, new DirectBufferPool(4096, 4));
+        clientHandler = new PassiveConnectionHandler(LOOPBACK, PortRange.ANY);
+        clientHandler.open();
+        adapter = new SocketAdapter(clientHandler, LOOPBACK, eventLoop);
+        adapter.setMaxBlockSize(1000);
+        adapter.setDataDirection(Direction.UPLOAD);
+    }
+
+    @After
+    public void tearDown() {
+        adapter.close();
+        clientHandler.close();
+        eventLoop.shutdown();
+    }
+
+    @Test
+    public void shouldRelayModeSWithEventLoop() throws Exception {
+        byte[] data = randomData(100_000);
+        adapter.setMode(TransferMode.MODE_S);
+        adapter.start();
+
+        try (Socket pool = new Socket(adapter.getInternalAddress().getAddress(),
+              adapter.getInternalAddress().getPort())) {
+            CompletableFuture<byte[]> received =
+                  CompletableFuture.supplyAsync(() -> readFully(pool));
+
+            try (Socket client = connectClient()) {
+                client.getOutputStream().write(data);
+            }
+
+            assertArrayEquals(data, received.get(10, TimeUnit.SECONDS));
+        }
+
+        adapter.join(10_000);
+        assertFalse(adapter.isAlive());
+        assertFalse(adapter.getError(), adapter.hasError());
+    }
+
+    @Test
+    public void shouldRelayModeEFromParallelStreamsWithEventLoop() throws Exception {
+        byte[] data = randomData(50_000);
+        adapter.setMode(TransferMode.MODE_E);
+        adapter.start();
+
+        try (Socket pool = new Socket(adapter.getInternalAddress().getAddress(),
+              adapter.getInternalAddress().getPort())) {
+            CompletableFuture<byte[]> received =
+                  CompletableFuture.supplyAsync(() -> readModeE(pool, data.length));
+
+            try (Socket first = connectClient(); Socket second = connectClient()) {
+                DataOutputStream out1 = new DataOutputStream(first.getOutputStream());
+                DataOutputStream out2 = new DataOutputStream(second.getOutputStream());
+                writeBlock(out1, EDataBlockNio.EOF_DESCRIPTOR, new byte[0], 0, 0, 2);
+                for (int offset = 0; offset < data.length; offset += 5000) {
+                    DataOutputStream out = (offset / 5000) % 2 == 0 ? out1 : out2;
+                    writeBlock(out, 0, data, offset, 5000, offset);
+                }
+                writeBlock(out1, EDataBlockNio.EOD_DESCRIPTOR, new byte[0], 0, 0, 0);
+                writeBlock(out2, EDataBlockNio.EOD_DESCRIPTOR, new byte[0], 0, 0, 0);
+                out1.flush();
+                out2.flush();
+
+                assertArrayEquals(data, received.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        adapter.join(10_000);
+        assertFalse(adapter.isAlive());
+        assertFalse(adapter.getError(), adapter.hasError());
+    }
+
+    private Socket connectClient() throws IOException {
+        return new Socket(clientHandler.getLocalAddress().getAddress(),
+              clientHandler.getLocalAddress().getPort());
+    }
+
+    private static void writeBlock(DataOutputStream out, int descriptors, byte[] data,
+          int offset, int length, long position) throws IOException {
+        out.writeByte(descriptors);
+        out.writeLong(length);
+        out.writeLong(position);
+        out.write(data, offset, length);
+    }
+
+    private static byte[] readModeE(Socket socket, int size) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] file = new byte[size];
+            boolean eod = false;
+            while (!eod) {
+                int descriptors = in.readUnsignedByte();
+                long length = in.readLong();
+                long position = in.readLong();
+                if ((descriptors & EDataBlockNio.EOF_DESCRIPTOR) != 0) {
+                    assertThat(position, is(equalTo(1L)));
+                    continue;
+                }
+                assertThat(length <= 1000, is(true));
+                in.readFully(file, (int) position, (int) length);
+                eod = (descriptors & EDataBlockNio.EOD_DESCRIPTOR) != 0;
+            }
+            assertThat(in.read(), is(equalTo(-1)));
+            return file;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] readFully(Socket socket) {
+        try (InputStream in = socket.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] randomData(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
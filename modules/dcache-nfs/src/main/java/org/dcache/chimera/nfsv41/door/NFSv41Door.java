@@ -1,5 +1,6 @@
 package org.dcache.chimera.nfsv41.door;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static dmg.util.CommandException.checkCommand;
 import static java.util.stream.Collectors.toList;
 import static org.dcache.chimera.nfsv41.door.ExceptionUtils.asNfsException;
@@ -88,6 +89,7 @@ import org.dcache.chimera.FsInodeType;
 import org.dcache.chimera.JdbcFs;
 import org.dcache.chimera.nfsv41.common.StatsDecoratedOperationExecutor;
 import org.dcache.chimera.nfsv41.door.proxy.NfsProxyIoFactory;
+import org.dcache.chimera.nfsv41.door.proxy.ProxyIoBufferPool;
 import org.dcache.chimera.nfsv41.door.proxy.ProxyIoFactory;
 import org.dcache.chimera.nfsv41.mover.NFS4ProtocolInfo;
 import org.dcache.commons.stats.RequestExecutionTimeGauges;
@@ -282,6 +284,21 @@ public class NFSv41Door extends AbstractCellComponent implements
 
     private ProxyIoFactory _proxyIoFactory;
 
+    /**
+     * Maximum number of compounds in flight per file proxied to a pool.
+     */
+    private int _proxyIoMaxRequests = 8;
+
+    /**
+     * Maximum number of bytes read ahead per file proxied to a pool.
+     */
+    private int _proxyIoReadAhead;
+
+    /**
+     * Memory available for read-ahead of all files proxied to pools.
+     */
+    private ProxyIoBufferPool _proxyIoBufferPool = new ProxyIoBufferPool(0);
+
     private Consumer<DoorRequestInfoMessage> _kafkaSender = (s) -> {
     };
 
@@ -399,6 +416,20 @@ public class NFSv41Door extends AbstractCellComponent implements
         _kafkaSender = kafkaTemplate::sendDefault;
     }
 
+    public void setProxyIoMaxRequests(int maxRequests) {
+        checkArgument(maxRequests > 0, "At least one request must be allowed.");
+        _proxyIoMaxRequests = maxRequests;
+    }
+
+    public void setProxyIoReadAhead(int readAhead) {
+        checkArgument(readAhead >= 0, "Read-ahead must not be negative.");
+        _proxyIoReadAhead = readAhead;
+    }
+
+    public void setProxyIoReadAheadMemory(long memory) {
+        _proxyIoBufferPool = new ProxyIoBufferPool(memory);
+    }
+
     @Autowired(required = false)
     public void setManageGroups(boolean manageGids) {
         _manageGids = manageGids;
@@ -454,7 +485,8 @@ public class NFSv41Door extends AbstractCellComponent implements
                     break;
                 case V41:
                     final NFSv41DeviceManager _dm = this;
-                    _proxyIoFactory = new NfsProxyIoFactory(_dm);
+                    _proxyIoFactory = new NfsProxyIoFactory(_dm, _proxyIoMaxRequests,
+                          _proxyIoBufferPool, _proxyIoReadAhead);
                     _executor = new StatsDecoratedOperationExecutor(
                           new DoorOperationFactory(
                                 _proxyIoFactory,
@@ -962,6 +994,8 @@ public class NFSv41Door extends AbstractCellComponent implements
             pw.printf("  Total pools (DS) used   : %d\n", _poolDeviceMap.getDevices().size());
             pw.printf("  Active transfers        : %d\n", _transfers.values().size());
             pw.printf("  Known proxy adapters    : %d\n", _proxyIoFactory.getCount());
+            pw.printf("  Proxy read-ahead memory : %d of %d bytes\n",
+                  _proxyIoBufferPool.getReserved(), _proxyIoBufferPool.getCapacity());
         }
     }
 
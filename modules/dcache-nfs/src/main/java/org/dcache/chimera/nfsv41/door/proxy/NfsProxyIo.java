@@ -1,11 +1,21 @@
 package org.dcache.chimera.nfsv41.door.proxy;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -37,15 +47,28 @@ import org.dcache.oncrpc4j.rpc.RpcCall;
 import org.dcache.oncrpc4j.rpc.RpcTransport;
 import org.dcache.oncrpc4j.rpc.net.IpProtocolType;
 import org.dcache.util.NetworkUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A {@link ProxyIoAdapter} which proxies requests to an other NFSv4.1 server.
+ * <p>
+ * Requests are sent through the slots of a single session, allowing as many compounds to be in
+ * flight as the session has slots. Concurrent READ and WRITE requests of the client are thus
+ * forwarded concurrently rather than one after the other.
+ * <p>
+ * If the client reads the file sequentially, the adapter reads ahead: on each sequential read,
+ * READ compounds for the following blocks are sent to the pool, up to a window that doubles
+ * with each sequential read until it reaches the configured maximum. Read-ahead uses free slots
+ * only, never the last free one, and only as long as room for the data can be reserved in the
+ * door-wide {@link ProxyIoBufferPool}. A non-sequential read, or any write, discards the
+ * outstanding read-ahead, and no read-ahead is sent while a write is in flight, as the pool
+ * might serve it before the write is applied. A failed read-ahead is not reported to the client; the read is
+ * retried on demand instead, so that the client sees the error of the read it asked for.
  */
 public class NfsProxyIo implements ProxyIoAdapter {
 
-    // FIXME: for now we will use only a single slot. e.q serialize all requests
-    private static final int SLOT_ID = 0;
-    private static final int MAX_SLOT_ID = 0;
+    private static final Logger _log = LoggerFactory.getLogger(NfsProxyIo.class);
 
     private static final int ROOT_UID = 0;
     private static final int ROOT_GID = 0;
@@ -70,6 +93,44 @@ public class NfsProxyIo implements ProxyIoAdapter {
     private sequenceid4 _sequenceID;
     private sessionid4 _sessionid;
 
+    /**
+     * Session slots not used by any request in flight.
+     */
+    private final BlockingQueue<Slot> _slots = new LinkedBlockingQueue<>();
+    private final int _maxRequests;
+    private int _highestSlotId;
+
+    private final ProxyIoBufferPool bufferPool;
+    private final int maxReadAhead;
+
+    /**
+     * Read-ahead requests in flight or completed but not yet consumed, by file offset.
+     */
+    private final NavigableMap<Long, ReadAhead> readAhead = new TreeMap<>();
+
+    /**
+     * End of the furthest block read by the client.
+     */
+    private long expectedOffset = -1;
+
+    /**
+     * End of the furthest block requested by read-ahead.
+     */
+    private long readAheadOffset;
+
+    /**
+     * Current size of the read-ahead window in bytes.
+     */
+    private int window;
+
+    /**
+     * Number of WRITE compounds in flight.
+     */
+    private int writesInFlight;
+
+    private boolean isEofSeen;
+    private boolean isClosed;
+
     private final stateid4 stateid;
     private final nfs_fh4 fh;
 
@@ -79,9 +140,18 @@ public class NfsProxyIo implements ProxyIoAdapter {
     private final RpcTransport transport;
     private final ScheduledExecutorService sessionThread;
 
+    /**
+     * @param maxRequests  maximum number of compounds in flight
+     * @param bufferPool   memory available for read-ahead
+     * @param maxReadAhead maximum number of bytes to read ahead; zero disables read-ahead
+     */
     public NfsProxyIo(InetSocketAddress poolAddress, InetSocketAddress remoteClient, Inode inode,
-          stateid4 stateid, long timeout, TimeUnit timeUnit) throws IOException {
+          stateid4 stateid, long timeout, TimeUnit timeUnit, int maxRequests,
+          ProxyIoBufferPool bufferPool, int maxReadAhead) throws IOException {
         this.remoteClient = remoteClient;
+        _maxRequests = maxRequests;
+        this.bufferPool = bufferPool;
+        this.maxReadAhead = maxReadAhead;
         rpcsvc = new OncRpcSvcBuilder()
               .withClientMode()
               .withPort(0)
@@ -116,37 +186,260 @@ public class NfsProxyIo implements ProxyIoAdapter {
         this.stateid = new stateid4(stateid.other, SEQ_UP_TO_DATE);
     }
 
+    /**
+     * Creates an adapter for an already established session with the given number of slots.
+     */
+    @VisibleForTesting
+    NfsProxyIo(RpcCall client, sessionid4 sessionid, nfs_fh4 fh, stateid4 stateid, int slots,
+          ProxyIoBufferPool bufferPool, int maxReadAhead) {
+        this.client = client;
+        this.fh = fh;
+        this.stateid = stateid;
+        this.bufferPool = bufferPool;
+        this.maxReadAhead = maxReadAhead;
+        _sessionid = sessionid;
+        _maxRequests = slots;
+        for (int i = 0; i < slots; i++) {
+            _slots.add(new Slot(i));
+        }
+        _highestSlotId = slots - 1;
+        remoteClient = null;
+        rpcsvc = null;
+        transport = client.getTransport();
+        sessionThread = Executors.newSingleThreadScheduledExecutor();
+    }
+
     @Override
-    public synchronized ReadResult read(ByteBuffer dst, long position) throws IOException {
+    public ReadResult read(ByteBuffer dst, long position) throws IOException {
+        int count = dst.remaining();
+        ReadAhead block = takeReadAhead(position, count);
+        if (block != null) {
+            try {
+                READ4resok res = await(block.slot, block.reply).resarray.get(2).opread.resok4;
+                dst.put(res.data);
+                if (res.eof) {
+                    setEofSeen();
+                }
+                return new ReadResult(count - dst.remaining(), res.eof);
+            } catch (IOException e) {
+                _log.debug("Read-ahead of {} bytes at {} failed: {}", count, position,
+                      e.toString());
+            } finally {
+                bufferPool.release(block.length);
+            }
+        }
 
-        int needToRead = dst.remaining();
-        COMPOUND4args args = new CompoundBuilder()
-              .withSequence(false, _sessionid, _sequenceID.value, SLOT_ID, MAX_SLOT_ID)
-              .withPutfh(fh)
-              .withRead(dst.remaining(), position, stateid)
-              .withTag("pNFS read")
-              .build();
-        COMPOUND4res compound4res = sendCompound(args);
+        Slot slot = acquireSlot();
+        COMPOUND4res compound4res = await(slot, send(slot, readArgs(slot, position, count)));
         READ4resok res = compound4res.resarray.get(2).opread.resok4;
         dst.put(res.data);
-        return new ReadResult(needToRead - dst.remaining(), res.eof);
+        if (res.eof) {
+            setEofSeen();
+        }
+        return new ReadResult(count - dst.remaining(), res.eof);
     }
 
     @Override
-    public synchronized VirtualFileSystem.WriteResult write(ByteBuffer src, long position)
+    public VirtualFileSystem.WriteResult write(ByteBuffer src, long position)
           throws IOException {
+        synchronized (this) {
+            writesInFlight++;
+            discardReadAhead();
+        }
+        try {
+            Slot slot = acquireSlot();
+            COMPOUND4args args = new CompoundBuilder()
+                  .withSequence(false, _sessionid, slot.sequence, slot.id, _highestSlotId)
+                  .withPutfh(fh)
+                  .withWrite(position, src, stateid)
+                  .withTag("pNFS write")
+                  .build();
+
+            COMPOUND4res compound4res = await(slot, send(slot, args));
+            WRITE4resok res = compound4res.resarray.get(2).opwrite.resok4;
+            return new VirtualFileSystem.WriteResult(
+                  VirtualFileSystem.StabilityLevel.fromStableHow(res.committed),
+                  res.count.value);
+        } finally {
+            synchronized (this) {
+                writesInFlight--;
+            }
+        }
+    }
 
-        COMPOUND4args args = new CompoundBuilder()
-              .withSequence(false, _sessionid, _sequenceID.value, SLOT_ID, MAX_SLOT_ID)
+    private COMPOUND4args readArgs(Slot slot, long position, int count) {
+        return new CompoundBuilder()
+              .withSequence(false, _sessionid, slot.sequence, slot.id, _highestSlotId)
               .withPutfh(fh)
-              .withWrite(position, src, stateid)
-              .withTag("pNFS write")
+              .withRead(count, position, stateid)
+              .withTag("pNFS read")
               .build();
+    }
 
-        COMPOUND4res compound4res = sendCompound(args);
-        WRITE4resok res = compound4res.resarray.get(2).opwrite.resok4;
-        return new VirtualFileSystem.WriteResult(
-              VirtualFileSystem.StabilityLevel.fromStableHow(res.committed), res.count.value);
+    /**
+     * Returns the read-ahead of the block at {@code position}, if any, and sends read-ahead
+     * requests for the blocks following it if the client reads sequentially.
+     */
+    private synchronized ReadAhead takeReadAhead(long position, int count) {
+        ReadAhead block = readAhead.remove(position);
+        if (block != null && block.length != count) {
+            discard(block);
+            block = null;
+        }
+
+        boolean isSequential = block != null || position == expectedOffset
+              || (position >= expectedOffset - window && position < readAheadOffset);
+        if (isSequential) {
+            window = (window == 0) ? count : (int) Math.min(2L * window, maxReadAhead);
+            expectedOffset = Math.max(expectedOffset, position + count);
+            readAheadOffset = Math.max(readAheadOffset, expectedOffset);
+
+            /* Blocks well behind the client were skipped. Blocks just behind it may still
+             * be read, as clients issue several reads concurrently, which may arrive out of
+             * order.
+             */
+            NavigableMap<Long, ReadAhead> skipped = readAhead.headMap(position - window, false);
+            skipped.values().forEach(this::discard);
+            skipped.clear();
+        } else {
+            discardReadAhead();
+            window = 0;
+            isEofSeen = false;
+            expectedOffset = position + count;
+            readAheadOffset = expectedOffset;
+        }
+
+        while (!isClosed && !isEofSeen && writesInFlight == 0 && count > 0
+              && readAheadOffset + count <= expectedOffset + Math.min(window, maxReadAhead)
+              && _slots.size() > 1 && bufferPool.tryReserve(count)) {
+            Slot slot = _slots.poll();
+            if (slot == null) {
+                bufferPool.release(count);
+                break;
+            }
+            try {
+                Future<COMPOUND4res> reply = send(slot, readArgs(slot, readAheadOffset, count));
+                readAhead.put(readAheadOffset, new ReadAhead(slot, reply, count));
+                readAheadOffset += count;
+            } catch (IOException e) {
+                bufferPool.release(count);
+                _log.debug("Failed to send read-ahead: {}", e.toString());
+                break;
+            }
+        }
+
+        return block;
+    }
+
+    private synchronized void setEofSeen() {
+        isEofSeen = true;
+    }
+
+    private synchronized void discardReadAhead() {
+        readAhead.values().forEach(this::discard);
+        readAhead.clear();
+        readAheadOffset = expectedOffset;
+    }
+
+    /**
+     * Discards a read-ahead block. As the slot used by the request cannot be reused before the
+     * pool replied, the reply is awaited in the background.
+     */
+    private void discard(ReadAhead block) {
+        drainLater(block.slot, block.reply, () -> bufferPool.release(block.length));
+    }
+
+    private Slot acquireSlot() throws IOException {
+        try {
+            Slot slot = _slots.poll(IO_TIMEOUT, IO_TIMEOUT_UNIT);
+            if (slot == null) {
+                throw new DelayException("No free session slot");
+            }
+            return slot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a session slot");
+        }
+    }
+
+    /**
+     * Sends a compound using the given slot. If sending fails, the slot is released.
+     */
+    private Future<COMPOUND4res> send(Slot slot, COMPOUND4args args) throws IOException {
+        try {
+            return client.call(nfs4_prot.NFSPROC4_COMPOUND_4, args, new COMPOUND4res());
+        } catch (IOException | RuntimeException e) {
+            _slots.add(slot);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the reply to a compound sent with {@link #send} and releases its slot.
+     */
+    private COMPOUND4res await(Slot slot, Future<COMPOUND4res> reply) throws IOException {
+        COMPOUND4res compound4res;
+        try {
+            compound4res = reply.get(IO_TIMEOUT, IO_TIMEOUT_UNIT);
+        } catch (TimeoutException e) {
+            drainLater(slot, reply, () -> {});
+            throw new DelayException("No reply from pool within " + IO_TIMEOUT + " "
+                  + IO_TIMEOUT_UNIT, e);
+        } catch (InterruptedException e) {
+            drainLater(slot, reply, () -> {});
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for pool");
+        } catch (ExecutionException e) {
+            _slots.add(slot);
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause.getMessage(), cause);
+        }
+        release(slot, compound4res);
+        nfsstat.throwIfNeeded(compound4res.status);
+        return compound4res;
+    }
+
+    /**
+     * Releases a slot after its reply was received, advancing its sequence id if the reply
+     * was processed by the session.
+     */
+    private void release(Slot slot, COMPOUND4res compound4res) {
+        if (!compound4res.resarray.isEmpty()) {
+            nfs_resop4 res = compound4res.resarray.get(0);
+            if (res.resop == nfs_opnum4.OP_SEQUENCE
+                  && res.opsequence.sr_status == nfsstat.NFS_OK) {
+                ++slot.sequence;
+            }
+        }
+        _slots.add(slot);
+    }
+
+    /**
+     * Waits in the background for a reply nobody is interested in, releasing the slot once it
+     * arrives. Reusing the slot earlier would make the pool treat the next request as a retry of
+     * the pending one. If the reply does not arrive, the slot is not used again.
+     */
+    private void drainLater(Slot slot, Future<COMPOUND4res> reply, Runnable onDone) {
+        try {
+            sessionThread.execute(() -> {
+                try {
+                    release(slot, reply.get(IO_TIMEOUT, IO_TIMEOUT_UNIT));
+                } catch (ExecutionException e) {
+                    _slots.add(slot);
+                } catch (TimeoutException e) {
+                    _log.warn("Session slot {} to {} is lost: no reply within {} {}", slot.id,
+                          transport.getRemoteSocketAddress(), IO_TIMEOUT, IO_TIMEOUT_UNIT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    onDone.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            onDone.run();
+        }
     }
 
     @Override
@@ -164,9 +457,17 @@ public class NfsProxyIo implements ProxyIoAdapter {
 
     @Override
     public void close() throws IOException {
+        synchronized (this) {
+            isClosed = true;
+            discardReadAhead();
+        }
         sessionThread.shutdown();
         try {
+            sessionThread.awaitTermination(IO_TIMEOUT, IO_TIMEOUT_UNIT);
             destroy_session();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing session");
         } finally {
             rpcsvc.stop();
         }
@@ -197,11 +498,13 @@ public class NfsProxyIo implements ProxyIoAdapter {
         return client.getTransport();
     }
 
+    /**
+     * Sends a compound without SEQUENCE operation, as used for session management.
+     */
     private COMPOUND4res sendCompound(COMPOUND4args compound4args)
           throws OncRpcException, IOException {
 
         COMPOUND4res compound4res = nfsProcCompound(compound4args);
-        processSequence(compound4res);
         nfsstat.throwIfNeeded(compound4res.status);
         return compound4res;
     }
@@ -235,7 +538,15 @@ public class NfsProxyIo implements ProxyIoAdapter {
         COMPOUND4res compound4res = sendCompound(args);
 
         _sessionid = compound4res.resarray.get(0).opcreate_session.csr_resok4.csr_sessionid;
-        _sequenceID.value = 0;
+
+        /* The pool may grant fewer slots than requested.
+         */
+        int slots = Math.max(1, Math.min(_maxRequests, compound4res.resarray.get(0)
+              .opcreate_session.csr_resok4.csr_fore_chan_attrs.ca_maxrequests.value));
+        for (int i = 0; i < slots; i++) {
+            _slots.add(new Slot(i));
+        }
+        _highestSlotId = slots - 1;
 
         sessionThread.scheduleAtFixedRate(() -> {
                   try {
@@ -247,21 +558,13 @@ public class NfsProxyIo implements ProxyIoAdapter {
               60, 60, TimeUnit.SECONDS);
     }
 
-    public void processSequence(COMPOUND4res compound4res) {
-
-        nfs_resop4 res = compound4res.resarray.get(0);
-        if (res.resop == nfs_opnum4.OP_SEQUENCE && res.opsequence.sr_status == nfsstat.NFS_OK) {
-            ++_sequenceID.value;
-        }
-    }
-
-    private synchronized void sequence() throws OncRpcException, IOException {
-
+    private void sequence() throws OncRpcException, IOException {
+        Slot slot = acquireSlot();
         COMPOUND4args args = new CompoundBuilder()
-              .withSequence(false, _sessionid, _sequenceID.value, SLOT_ID, MAX_SLOT_ID)
+              .withSequence(false, _sessionid, slot.sequence, slot.id, _highestSlotId)
               .withTag("sequence")
               .build();
-        COMPOUND4res compound4res = sendCompound(args);
+        await(slot, send(slot, args));
     }
 
     private synchronized void destroy_session() throws OncRpcException, IOException {
@@ -273,4 +576,35 @@ public class NfsProxyIo implements ProxyIoAdapter {
 
         COMPOUND4res compound4res = sendCompound(args);
     }
+
+    /**
+     * A slot of the session's fore channel.
+     */
+    private static class Slot {
+
+        private final int id;
+
+        /**
+         * Sequence id of the next request sent with this slot; only modified by the owner of the
+         * slot.
+         */
+        private int sequence;
+
+        Slot(int id) {
+            this.id = id;
+        }
+    }
+
+    private static class ReadAhead {
+
+        private final Slot slot;
+        private final Future<COMPOUND4res> reply;
+        private final int length;
+
+        ReadAhead(Slot slot, Future<COMPOUND4res> reply, int length) {
+            this.slot = slot;
+            this.reply = reply;
+            this.length = length;
+        }
+    }
 }
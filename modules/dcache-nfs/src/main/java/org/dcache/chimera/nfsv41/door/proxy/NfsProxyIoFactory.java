@@ -64,9 +64,21 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
 
     private final NFSv41DeviceManager deviceManager;
     private final ExponentialBackoffAlgorithmFactory backoffFactory;
-
-    public NfsProxyIoFactory(NFSv41DeviceManager deviceManager) {
+    private final int maxRequests;
+    private final ProxyIoBufferPool bufferPool;
+    private final int maxReadAhead;
+
+    /**
+     * @param maxRequests  maximum number of compounds in flight per proxied file
+     * @param bufferPool   memory available for read-ahead, shared by all proxied files
+     * @param maxReadAhead maximum number of bytes to read ahead per proxied file
+     */
+    public NfsProxyIoFactory(NFSv41DeviceManager deviceManager, int maxRequests,
+          ProxyIoBufferPool bufferPool, int maxReadAhead) {
         this.deviceManager = deviceManager;
+        this.maxRequests = maxRequests;
+        this.bufferPool = bufferPool;
+        this.maxReadAhead = maxReadAhead;
         backoffFactory = new ExponentialBackoffAlgorithmFactory();
         backoffFactory.setMinDelay(TIMEOUT_STEP);
         backoffFactory.setMinUnit(TIMEOUT_STEP_UNIT);
@@ -162,7 +174,7 @@ public class NfsProxyIoFactory implements ProxyIoFactory {
                         try {
                             return new NfsProxyIo(poolSocketAddress,
                                   context.getRemoteSocketAddress(), inode, stateid, timeout,
-                                  TIMEOUT_STEP_UNIT);
+                                  TIMEOUT_STEP_UNIT, maxRequests, bufferPool, maxReadAhead);
                         } catch (IOException e) {
                             _log.warn("Failed to connect to remote mover {} : {}", address,
                                   e.getMessage());
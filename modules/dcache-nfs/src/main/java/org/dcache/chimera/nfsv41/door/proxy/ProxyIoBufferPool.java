@@ -0,0 +1,55 @@
+package org.dcache.chimera.nfsv41.door.proxy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the memory held by proxy-io read-ahead across all files of a door.
+ * <p>
+ * Before a read-ahead request is sent to a pool, room for its reply is reserved in the pool; the
+ * reservation is released once the data is handed to the client or discarded. If there is no
+ * room, no read-ahead is done and reads are proxied on demand only.
+ */
+public class ProxyIoBufferPool {
+
+    private final long capacity;
+    private final AtomicLong reserved = new AtomicLong();
+
+    public ProxyIoBufferPool(long capacity) {
+        checkArgument(capacity >= 0, "Capacity must not be negative.");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Reserves {@code size} bytes if available.
+     *
+     * @return true if the bytes were reserved, false otherwise
+     */
+    public boolean tryReserve(int size) {
+        checkArgument(size >= 0, "Size must not be negative.");
+        long current;
+        do {
+            current = reserved.get();
+            if (current + size > capacity) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current + size));
+        return true;
+    }
+
+    /**
+     * Releases {@code size} previously reserved bytes.
+     */
+    public void release(int size) {
+        reserved.addAndGet(-size);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getReserved() {
+        return reserved.get();
+    }
+}
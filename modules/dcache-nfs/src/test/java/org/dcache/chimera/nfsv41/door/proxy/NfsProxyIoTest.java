@@ -0,0 +1,143 @@
+package org.dcache.chimera.nfsv41.door.proxy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.dcache.nfs.nfsstat;
+import org.dcache.nfs.v4.xdr.COMPOUND4args;
+import org.dcache.nfs.v4.xdr.COMPOUND4res;
+import org.dcache.nfs.v4.xdr.READ4res;
+import org.dcache.nfs.v4.xdr.READ4resok;
+import org.dcache.nfs.v4.xdr.SEQUENCE4res;
+import org.dcache.nfs.v4.xdr.WRITE4res;
+import org.dcache.nfs.v4.xdr.WRITE4resok;
+import org.dcache.nfs.v4.xdr.count4;
+import org.dcache.nfs.v4.xdr.nfs4_prot;
+import org.dcache.nfs.v4.xdr.nfs_argop4;
+import org.dcache.nfs.v4.xdr.nfs_fh4;
+import org.dcache.nfs.v4.xdr.nfs_opnum4;
+import org.dcache.nfs.v4.xdr.nfs_resop4;
+import org.dcache.nfs.v4.xdr.sessionid4;
+import org.dcache.nfs.v4.xdr.stable_how4;
+import org.dcache.nfs.v4.xdr.stateid4;
+import org.dcache.oncrpc4j.rpc.RpcCall;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+
+public class NfsProxyIoTest {
+
+    private static final int BLOCK = 4096;
+
+    private final byte[] content = new byte[16 * BLOCK];
+    private final CountDownLatch writeSent = new CountDownLatch(1);
+    private final CompletableFuture<Void> writeApplied = new CompletableFuture<>();
+
+    private ExecutorService executor;
+    private NfsProxyIo io;
+
+    @Before
+    public void setUp() throws Exception {
+        RpcCall client = mock(RpcCall.class);
+        given(client.call(eq(nfs4_prot.NFSPROC4_COMPOUND_4), any(COMPOUND4args.class),
+              any(COMPOUND4res.class))).willAnswer(this::serve);
+
+        io = new NfsProxyIo(client, new sessionid4(new byte[16]), new nfs_fh4(new byte[]{1}),
+              new stateid4(new byte[12], 0), 8, new ProxyIoBufferPool(1024 * 1024),
+              8 * BLOCK);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotServeReadAheadSentBeforeWriteCompleted() throws Exception {
+        read(0);
+        read(BLOCK);
+
+        byte[] data = new byte[BLOCK];
+        Arrays.fill(data, (byte) 1);
+        Future<?> write = executor.submit(() -> io.write(ByteBuffer.wrap(data), 4 * BLOCK));
+        assertTrue(writeSent.await(5, TimeUnit.SECONDS));
+
+        read(2 * BLOCK);
+        read(3 * BLOCK);
+
+        writeApplied.complete(null);
+        write.get(5, TimeUnit.SECONDS);
+
+        assertArrayEquals(data, read(4 * BLOCK));
+    }
+
+    private byte[] read(long position) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK);
+        io.read(buffer, position);
+        return buffer.array();
+    }
+
+    /**
+     * Simulates the pool: reads are served at once, while writes are only applied once the test
+     * completes {@code writeApplied}.
+     */
+    private Future<COMPOUND4res> serve(InvocationOnMock invocation) {
+        COMPOUND4args args = invocation.getArgument(1);
+        COMPOUND4res res = invocation.getArgument(2);
+        nfs_argop4 op = args.argarray[2];
+
+        res.status = nfsstat.NFS_OK;
+        res.resarray = new ArrayList<>();
+        nfs_resop4 sequence = new nfs_resop4();
+        sequence.resop = nfs_opnum4.OP_SEQUENCE;
+        sequence.opsequence = new SEQUENCE4res();
+        sequence.opsequence.sr_status = nfsstat.NFS_OK;
+        res.resarray.add(sequence);
+        res.resarray.add(new nfs_resop4());
+        nfs_resop4 result = new nfs_resop4();
+        res.resarray.add(result);
+
+        if (op.argop == nfs_opnum4.OP_WRITE) {
+            int offset = (int) op.opwrite.offset.value;
+            ByteBuffer data = op.opwrite.data.duplicate();
+            int count = data.remaining();
+            result.opwrite = new WRITE4res();
+            result.opwrite.resok4 = new WRITE4resok();
+            result.opwrite.resok4.count = new count4(count);
+            result.opwrite.resok4.committed = stable_how4.FILE_SYNC4;
+            writeSent.countDown();
+            return writeApplied.thenApply(v -> {
+                synchronized (content) {
+                    data.get(content, offset, count);
+                }
+                return res;
+            });
+        }
+
+        int offset = (int) op.opread.offset.value;
+        int count = op.opread.count.value;
+        result.opread = new READ4res();
+        result.opread.resok4 = new READ4resok();
+        synchronized (content) {
+            result.opread.resok4.data =
+                  ByteBuffer.wrap(Arrays.copyOfRange(content, offset, offset + count));
+        }
+        result.opread.resok4.eof = offset + count >= content.length;
+        return CompletableFuture.completedFuture(res);
+    }
+}
@@ -0,0 +1,40 @@
+package org.dcache.chimera.nfsv41.door.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ProxyIoBufferPoolTest {
+
+    @Test
+    public void shouldReserveUpToCapacity() {
+        ProxyIoBufferPool pool = new ProxyIoBufferPool(100);
+
+        assertTrue(pool.tryReserve(60));
+        assertTrue(pool.tryReserve(40));
+        assertFalse(pool.tryReserve(1));
+        assertEquals(100, pool.getReserved());
+    }
+
+    @Test
+    public void shouldAllowReservationAfterRelease() {
+        ProxyIoBufferPool pool = new ProxyIoBufferPool(100);
+        assertTrue(pool.tryReserve(80));
+        assertFalse(pool.tryReserve(30));
+
+        pool.release(50);
+
+        assertTrue(pool.tryReserve(30));
+        assertEquals(60, pool.getReserved());
+    }
+
+    @Test
+    public void shouldRejectAllReservationsWithZeroCapacity() {
+        ProxyIoBufferPool pool = new ProxyIoBufferPool(0);
+
+        assertFalse(pool.tryReserve(1));
+        assertEquals(0, pool.getReserved());
+    }
+}
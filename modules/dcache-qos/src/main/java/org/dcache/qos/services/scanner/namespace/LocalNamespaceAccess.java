@@ -75,6 +75,7 @@ import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import org.dcache.chimera.BackEndErrorChimeraFsException;
 import org.dcache.chimera.ChimeraFsException;
+import org.dcache.chimera.InodeRangeScanner;
 import org.dcache.qos.QoSException;
 import org.dcache.qos.data.QoSMessageType;
 import org.dcache.qos.listeners.QoSVerificationListener;
@@ -140,6 +141,16 @@ public class LocalNamespaceAccess implements NamespaceAccess {
           + "AND n.iaccess_latency = 1 "
           + "AND l.ilocation = ?";
 
+    /**
+     * Same as above, for paginated scans by {@link InodeRangeScanner}.
+     */
+    static final String SQL_SCAN_ONLINE_FOR_LOCATION
+          = "SELECT l.inumber, n.ipnfsid FROM t_locationinfo l, t_inodes n "
+          + "WHERE l.inumber = n.inumber "
+          + "AND l.itype = 1 "
+          + "AND n.iaccess_latency = 1 "
+          + "AND l.ilocation = ?";
+
     /**
      * Get the current range of the entire scan.
      */
@@ -177,6 +188,12 @@ public class LocalNamespaceAccess implements NamespaceAccess {
      */
     private int fetchSize;
 
+    /**
+     * Splits pool scans into short, parallel range queries.  If not set, a pool is scanned with a
+     * single query.
+     */
+    private InodeRangeScanner scanner;
+
     public long[] getMinMaxInumbers() throws CacheException {
         try {
             Connection connection = getConnection();
@@ -200,7 +217,33 @@ public class LocalNamespaceAccess implements NamespaceAccess {
 
     @Override
     public void handlePoolScan(PoolScanSummary poolScan) throws CacheException {
-        handleQuery((connection, scan) -> handleQuery(connection, scan), poolScan);
+        if (scanner == null) {
+            handleQuery((connection, scan) -> handleQuery(connection, scan), poolScan);
+            return;
+        }
+
+        String pool = poolScan.getId();
+        String scope = poolScan.getType() + "/" + poolScan.getGroup() + "/"
+              + poolScan.getStorageUnit() + "/" + poolScan.isForced();
+        try {
+            InodeRangeScanner.Result result =
+                  scanner.scan(pool, scope, SQL_SCAN_ONLINE_FOR_LOCATION, "l.inumber",
+                        List.of(pool), poolScan::isCancelled, page -> handlePage(poolScan, page));
+            if (result != null) {
+                LOGGER.info("Scan of {}: {}.", pool, result);
+            }
+        } catch (SQLException e) {
+            throw new CacheException(CacheException.RESOURCE,
+                  String.format("Could not handle query %s", poolScan), e);
+        } catch (QoSException e) {
+            throw CacheExceptionUtils.getCacheExceptionFrom(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!poolScan.isCancelled()) {
+                throw new CacheException(CacheException.RESOURCE,
+                      String.format("Scan of %s was interrupted", pool));
+            }
+        }
     }
 
     @Override
@@ -237,6 +280,10 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         this.fetchSize = fetchSize;
     }
 
+    public void setScanner(InodeRangeScanner scanner) {
+        this.scanner = scanner;
+    }
+
     public void setVerificationListener(QoSVerificationListener verificationListener) {
         this.verificationListener = verificationListener;
     }
@@ -318,6 +365,20 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         }
     }
 
+    /**
+     * Dispatches a page of online replicas of a paginated pool scan to the verification service.
+     * Pages of different ranges are dispatched concurrently.
+     */
+    private void handlePage(PoolScanSummary scan, List<PnfsId> page) throws QoSException {
+        if (scan.isCancelled()) {
+            return;
+        }
+        page.forEach(pnfsId -> scan.incrementCount());
+        verificationListener.fileQoSVerificationRequested(
+              new QoSScannerVerificationRequest(scan.getId(), page, scan.getType(),
+                    scan.getGroup(), scan.getStorageUnit(), scan.isForced()));
+    }
+
     /**
      * The query processes file inodes by batching the returned pnfsids into lists to be dispatched
      * to the verification service.
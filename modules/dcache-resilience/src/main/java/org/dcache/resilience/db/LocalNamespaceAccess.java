@@ -79,6 +79,7 @@ import javax.sql.DataSource;
 import org.dcache.auth.Subjects;
 import org.dcache.chimera.BackEndErrorChimeraFsException;
 import org.dcache.chimera.ChimeraFsException;
+import org.dcache.chimera.InodeRangeScanner;
 import org.dcache.resilience.data.FileOperationMap;
 import org.dcache.resilience.data.FileUpdate;
 import org.dcache.resilience.data.MessageType;
@@ -111,6 +112,15 @@ public class LocalNamespaceAccess implements NamespaceAccess {
           + "AND l.itype = 1 AND n.iaccess_latency = 1 "
           + "AND l.ilocation = ?";
 
+    /**
+     * <p>Pool scan query; paginated by {@link InodeRangeScanner}.</p>
+     */
+    static final String SQL_SCAN_ONLINE_FOR_LOCATION
+          = "SELECT l.inumber, n.ipnfsid FROM t_locationinfo l, t_inodes n "
+          + "WHERE l.inumber = n.inumber "
+          + "AND l.itype = 1 AND n.iaccess_latency = 1 "
+          + "AND l.ilocation = ?";
+
     static final String SQL_GET_CONTAINED_IN
           = "SELECT n.ipnfsid FROM t_locationinfo l, t_inodes n "
           + "WHERE n.inumber = l.inumber "
@@ -140,6 +150,11 @@ public class LocalNamespaceAccess implements NamespaceAccess {
      */
     private NameSpaceProvider namespace;
 
+    /**
+     * <p>Splits pool scans into short, parallel range queries.</p>
+     */
+    private InodeRangeScanner scanner;
+
     /**
      * <p>Round-trip buffer used when running pool-based queries.</p>
      */
@@ -208,19 +223,27 @@ public class LocalNamespaceAccess implements NamespaceAccess {
     @Override
     public void handlePnfsidsForPool(ScanSummary scan)
           throws CacheException {
+        String pool = scan.getPool();
+        String scope = scan.getType() + "/" + scan.getGroup() + "/" + scan.getStorageUnit()
+              + "/" + scan.isForced();
         try {
-            Connection connection = getConnection();
-            try {
-                handleQuery(connection, scan);
-            } catch (SQLException | CacheException e) {
-                throw new ChimeraFsException(e.getMessage());
-            } finally {
-                tryToClose(connection);
+            InodeRangeScanner.Result result =
+                  scanner.scan(pool, scope, SQL_SCAN_ONLINE_FOR_LOCATION, "l.inumber",
+                        List.of(pool), scan::isCancelled,
+                        page -> handlePage(scan, page));
+            if (result != null) {
+                LOGGER.info("Scan of {}: {}.", pool, result);
             }
-        } catch (ChimeraFsException e) {
+        } catch (SQLException e) {
             throw new CacheException(CacheException.RESOURCE,
                   String.format("Could not handle pnfsids for %s",
-                        scan.getPool()), e);
+                        pool), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!scan.isCancelled()) {
+                throw new CacheException(CacheException.RESOURCE,
+                      String.format("Scan of %s was interrupted", pool));
+            }
         }
     }
 
@@ -247,6 +270,10 @@ public class LocalNamespaceAccess implements NamespaceAccess {
         this.fetchSize = fetchSize;
     }
 
+    public void setScanner(InodeRangeScanner scanner) {
+        this.scanner = scanner;
+    }
+
     public void setHandler(FileOperationHandler handler) {
         this.handler = handler;
     }
@@ -265,47 +292,34 @@ public class LocalNamespaceAccess implements NamespaceAccess {
     }
 
     /**
-     * <p>The query processes all pnfsids for the given location which
+     * <p>Processes a page of pnfsids for the given location which
      * have access latency = ONLINE.  These are sent one-by-one to the {@link FileOperationHandler}
      * to either create or update a corresponding entry in the {@link FileOperationMap}.</p>
+     *
+     * <p>Pages of different ranges are processed concurrently.</p>
      */
-    private void handleQuery(Connection connection, ScanSummary scan)
-          throws SQLException, CacheException {
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
+    private void handlePage(ScanSummary scan, List<PnfsId> page) {
         String pool = scan.getPool();
         MessageType type = scan.getType();
         Integer group = scan.getGroup();
         Integer storageUnit = scan.getStorageUnit();
         boolean full = scan.isForced();
 
-        try {
-            statement = connection.prepareStatement(SQL_GET_ONLINE_FOR_LOCATION);
-            statement.setString(1, pool);
-            statement.setFetchSize(fetchSize);
+        for (PnfsId pnfsId : page) {
             if (scan.isCancelled()) {
                 return;
             }
-
-            resultSet = statement.executeQuery();
-
-            while (resultSet.next() && !scan.isCancelled()) {
-                PnfsId pnfsId = new PnfsId(resultSet.getString(1));
-                FileUpdate data = new FileUpdate(pnfsId, pool, type, group, full);
-                try {
-                    LOGGER.debug("checking {}, {}.", pool, pnfsId);
-                    if (handler.handleScannedLocation(data, storageUnit)) {
-                        scan.incrementCount();
-                    }
-                    LOGGER.debug("after checking {}, {}, count is {}.", pool, pnfsId,
-                          scan.getCount());
-                } catch (CacheException e) {
-                    LOGGER.debug("{}: {}", data, new ExceptionMessage(e));
+            FileUpdate data = new FileUpdate(pnfsId, pool, type, group, full);
+            try {
+                LOGGER.debug("checking {}, {}.", pool, pnfsId);
+                if (handler.handleScannedLocation(data, storageUnit)) {
+                    scan.incrementCount();
                 }
+                LOGGER.debug("after checking {}, {}, count is {}.", pool, pnfsId,
+                      scan.getCount());
+            } catch (CacheException e) {
+                LOGGER.debug("{}: {}", data, new ExceptionMessage(e));
             }
-        } finally {
-            tryToClose(resultSet);
-            tryToClose(statement);
         }
     }
 
@@ -92,7 +92,7 @@ public final class ScanSummary {
         files = 0;
     }
 
-    public int getCount() {
+    public synchronized int getCount() {
         return files;
     }
 
@@ -112,7 +112,7 @@ public final class ScanSummary {
         return type;
     }
 
-    public void incrementCount() {
+    public synchronized void incrementCount() {
         ++files;
     }
 
@@ -133,6 +133,16 @@ public class Message
         return true;
     }
 
+    /**
+     * Returns false if {@link #invalidates} returns false for any message.
+     * <p>
+     * Message queues use this to skip messages that cannot invalidate other messages when
+     * searching for messages that prevent folding.
+     */
+    public boolean mayInvalidate() {
+        return true;
+    }
+
     /**
      * Folds the reply of another Messages into this Message.
      * <p>
@@ -50,4 +50,9 @@ public class PnfsFlagMessage extends PnfsMessage {
     public boolean invalidates(Message message) {
         return super.invalidates(message) && _operation != FlagOperation.GET;
     }
+
+    @Override
+    public boolean mayInvalidate() {
+        return _operation != FlagOperation.GET;
+    }
 }
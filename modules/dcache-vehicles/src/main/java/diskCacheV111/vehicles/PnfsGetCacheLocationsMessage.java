@@ -45,6 +45,11 @@ public class PnfsGetCacheLocationsMessage extends PnfsMessage {
         return false;
     }
 
+    @Override
+    public boolean mayInvalidate() {
+        return false;
+    }
+
     @Override
     public boolean fold(Message message) {
         if (message.getClass().equals(PnfsGetCacheLocationsMessage.class)) {
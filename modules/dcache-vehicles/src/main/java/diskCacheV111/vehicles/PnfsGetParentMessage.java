@@ -47,4 +47,9 @@ public class PnfsGetParentMessage extends PnfsMessage {
     public boolean invalidates(Message message) {
         return false;
     }
+
+    @Override
+    public boolean mayInvalidate() {
+        return false;
+    }
 }
@@ -28,4 +28,9 @@ public class PnfsMapPathMessage extends PnfsMessage {
     public boolean invalidates(Message message) {
         return false;
     }
+
+    @Override
+    public boolean mayInvalidate() {
+        return false;
+    }
 }
@@ -81,6 +81,11 @@ public class PnfsGetFileAttributes extends PnfsMessage {
         return false;
     }
 
+    @Override
+    public boolean mayInvalidate() {
+        return false;
+    }
+
     @Override
     public boolean fold(Message message) {
         if (message instanceof PnfsGetFileAttributes) {
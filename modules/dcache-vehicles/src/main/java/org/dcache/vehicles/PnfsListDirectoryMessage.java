@@ -53,6 +53,17 @@ public class PnfsListDirectoryMessage extends PnfsMessage {
      *  */
     private PathType _pathType = PathType.PATH;
 
+    /**
+     * Name of the entry after which to continue listing, or null for an unordered listing.
+     */
+    private String _after;
+
+    /**
+     * Set by PnfsManager in replies to a request with {@link #_after} to confirm that the listing
+     * is ordered by name.  Older versions ignore {@link #_after} and leave this false.
+     */
+    private boolean _isOrdered;
+
 
 
     /**
@@ -161,6 +172,37 @@ public class PnfsListDirectoryMessage extends PnfsMessage {
         _pathType = pathType;
     }
 
+    /**
+     * Returns the name after which the listing continues, or null if the listing is not ordered
+     * by name.
+     *
+     * @see diskCacheV111.namespace.NameSpaceProvider#listAfter
+     */
+    public String getAfter() {
+        return _after;
+    }
+
+    /**
+     * Requests a listing ordered by name, starting after the entry with the given name. The empty
+     * string starts from the first entry. The range is applied relative to the first entry
+     * after {@code after}.
+     */
+    public void setAfter(String after) {
+        _after = after;
+    }
+
+    /**
+     * Returns whether the entries of this reply are ordered by name as requested by
+     * {@link #setAfter}.
+     */
+    public boolean isOrdered() {
+        return _isOrdered;
+    }
+
+    public void setOrdered(boolean isOrdered) {
+        _isOrdered = isOrdered;
+    }
+
     public boolean isFinal() {
         return _isFinal;
     }
@@ -173,4 +215,9 @@ public class PnfsListDirectoryMessage extends PnfsMessage {
     public boolean invalidates(Message message) {
         return false;
     }
+
+    @Override
+    public boolean mayInvalidate() {
+        return false;
+    }
 }
@@ -0,0 +1,73 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.vehicles;
+
+import diskCacheV111.pools.PoolCostInfo;
+import diskCacheV111.pools.PoolV2Mode;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.DoorTransferFinishedMessage;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.Pool;
+import diskCacheV111.vehicles.PoolAcceptFileMessage;
+import diskCacheV111.vehicles.PoolDeliverFileMessage;
+import diskCacheV111.vehicles.PoolManagerPoolUpMessage;
+import dmg.cells.nucleus.CompactSchemaProvider;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import org.dcache.auth.attributes.Activity;
+import org.dcache.auth.attributes.DenyActivityRestriction;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.namespace.FileType;
+import org.dcache.poolmanager.SelectedPool;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+
+/**
+ * Registers the messages on the hot path between doors, pools, pool manager and PnfsManager,
+ * and the value types they carry, with the compact message serializer.
+ */
+public class VehicleSchemaProvider implements CompactSchemaProvider {
+
+    @Override
+    public Collection<Class<? extends Serializable>> getClasses() {
+        return List.of(
+              PoolManagerPoolUpMessage.class,
+              PoolV2Mode.class,
+              PoolCostInfo.class,
+              PoolCostInfo.PoolQueueInfo.class,
+              PoolCostInfo.NamedPoolQueueInfo.class,
+              PoolCostInfo.PoolSpaceInfo.class,
+              PnfsGetFileAttributes.class,
+              PnfsSetFileAttributes.class,
+              PoolAcceptFileMessage.class,
+              PoolDeliverFileMessage.class,
+              DoorTransferFinishedMessage.class,
+              FileAttributes.class,
+              FileAttribute.class,
+              FileType.class,
+              PnfsId.class,
+              GenericStorageInfo.class,
+              Checksum.class,
+              ChecksumType.class,
+              Pool.class,
+              SelectedPool.class,
+              DenyActivityRestriction.class,
+              Activity.class);
+    }
+}
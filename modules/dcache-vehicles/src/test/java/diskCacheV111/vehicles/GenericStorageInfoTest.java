@@ -0,0 +1,34 @@
+package diskCacheV111.vehicles;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import diskCacheV111.util.AccessLatency;
+import diskCacheV111.util.RetentionPolicy;
+import dmg.cells.nucleus.MsgSerializerCompact;
+import java.lang.reflect.Field;
+import org.junit.Test;
+
+public class GenericStorageInfoTest {
+
+    @Test
+    public void shouldApplyLegacyDefaultsWhenDecodedCompactly() throws Exception {
+        GenericStorageInfo info = new GenericStorageInfo("osm", new String("exp:raw"));
+        info.setLegacyAccessLatency(null);
+        info.setLegacyRetentionPolicy(null);
+        Field locations = GenericStorageInfo.class.getDeclaredField("_locations");
+        locations.setAccessible(true);
+        locations.set(info, null);
+
+        byte[] encoded = MsgSerializerCompact.encode(info);
+        GenericStorageInfo decoded = (GenericStorageInfo) MsgSerializerCompact.decode(encoded);
+
+        assertThat(MsgSerializerCompact.isCompactEncoded(encoded), is(true));
+        assertThat(decoded.getLegacyAccessLatency(), is(AccessLatency.NEARLINE));
+        assertThat(decoded.getLegacyRetentionPolicy(), is(RetentionPolicy.CUSTODIAL));
+        assertThat(decoded.locations(), is(empty()));
+        assertThat(decoded.getStorageClass(), sameInstance("exp:raw"));
+    }
+}
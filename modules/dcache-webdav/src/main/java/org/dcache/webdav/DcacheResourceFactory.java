@@ -138,6 +138,7 @@ import org.dcache.util.Exceptions;
 import org.dcache.util.PingMoversTask;
 import org.dcache.util.RedirectedTransfer;
 import org.dcache.util.Transfer;
+import org.dcache.util.TransferLatencies;
 import org.dcache.util.TransferRetryPolicy;
 import org.dcache.util.Xattrs;
 import org.dcache.util.list.DirectoryEntry;
@@ -235,6 +236,7 @@ public class DcacheResourceFactory
     private boolean _impatientClientProxied = true;
     private boolean _isOverwriteAllowed;
     private boolean _isAnonymousListingAllowed;
+    private boolean _isCombinedReadOpenEnabled;
 
     private String _staticContentPath;
     private ReloadableTemplate _template;
@@ -251,6 +253,8 @@ public class DcacheResourceFactory
     private Consumer<DoorRequestInfoMessage> _kafkaSender = (s) -> {
     };
 
+    private final TransferLatencies _latencies = new TransferLatencies();
+
     public DcacheResourceFactory()
           throws UnknownHostException {
         _internalAddress = InetAddress.getLocalHost();
@@ -465,6 +469,15 @@ public class DcacheResourceFactory
         return _isOverwriteAllowed;
     }
 
+    /**
+     * Sets whether files are opened for reading with a single PoolMgrOpenReadMsg rather than a
+     * name space lookup followed by pool selection.  Requires a pool manager that understands
+     * the message.
+     */
+    public void setCombinedReadOpenEnabled(boolean enabled) {
+        _isCombinedReadOpenEnabled = enabled;
+    }
+
     public void setAnonymousListing(boolean isAllowed) {
         _isAnonymousListingAllowed = isAllowed;
     }
@@ -588,6 +601,7 @@ public class DcacheResourceFactory
     public void getInfo(PrintWriter pw) {
         pw.println("Allowed paths: " + getAllowedPaths());
         pw.println("IO queue     : " + getIoQueue());
+        _latencies.getInfo(pw);
     }
 
     @Override
@@ -1201,9 +1215,13 @@ public class DcacheResourceFactory
         _transfers.put((int) transfer.getId(), transfer);
         try {
             transfer.setProxyTransfer(isProxyTransfer);
-            transfer.readNameSpaceEntry(false);
             try {
-                transfer.selectPoolAndStartMover(_retryPolicy);
+                if (_isCombinedReadOpenEnabled) {
+                    transfer.openForRead(_retryPolicy);
+                } else {
+                    transfer.readNameSpaceEntry(false);
+                    transfer.selectPoolAndStartMover(_retryPolicy);
+                }
                 uri = transfer.waitForRedirect(_moverTimeout, _moverTimeoutUnit);
                 if (uri == null) {
                     throw new TimeoutCacheException("Server is busy (internal timeout)");
@@ -1414,6 +1432,7 @@ public class DcacheResourceFactory
         transfer.setClientAddresses(addresses);
         transfer.setOverwriteAllowed(_isOverwriteAllowed);
         transfer.setKafkaSender(_kafkaSender);
+        transfer.setLatencies(_latencies);
     }
 
     private Set<FileAttribute> buildRequestedAttributes() {
@@ -20,8 +20,6 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.haproxy.HAProxyMessageDecoder;
 import io.netty.handler.logging.LoggingHandler;
 import java.net.InetAddress;
@@ -35,6 +33,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.dcache.util.CDCThreadFactory;
 import org.dcache.util.NDC;
+import org.dcache.util.NettyTransport;
 import org.dcache.xrootd.core.XrootdAuthenticationHandler;
 import org.dcache.xrootd.core.XrootdDecoder;
 import org.dcache.xrootd.core.XrootdEncoder;
@@ -75,6 +74,7 @@ public class NettyXrootdServer implements CellIdentityAware {
     private String sessionPrefix;
     private EventLoopGroup _acceptGroup;
     private EventLoopGroup _socketGroup;
+    private NettyTransport _transport = new NettyTransport();
     private Map<String, String> _queryConfig;
     private Map<String, String> _appIoQueues;
     private CellAddressCore _myAddress;
@@ -114,6 +114,10 @@ public class NettyXrootdServer implements CellIdentityAware {
         return _backlog;
     }
 
+    public void setTransport(NettyTransport transport) {
+        _transport = transport;
+    }
+
     @Required
     public void setBacklog(int backlog) {
         _backlog = backlog;
@@ -194,14 +198,13 @@ public class NettyXrootdServer implements CellIdentityAware {
         sessionPrefix =
               "door:" + _myAddress.getCellName() + "@" + _myAddress.getCellDomainName() + ":";
 
-        _acceptGroup = new NioEventLoopGroup(0, new CDCThreadFactory(
+        _acceptGroup = _transport.newEventLoopGroup(0, new CDCThreadFactory(
               new ThreadFactoryBuilder().setNameFormat("xrootd-listen-%d").build()));
-        _socketGroup = new NioEventLoopGroup(0, new CDCThreadFactory(
+        _socketGroup = _transport.newEventLoopGroup(0, new CDCThreadFactory(
               new ThreadFactoryBuilder().setNameFormat("xrootd-net-%d").build()));
 
-        ServerBootstrap bootstrap = new ServerBootstrap()
+        ServerBootstrap bootstrap = _transport.configure(new ServerBootstrap())
               .group(_acceptGroup, _socketGroup)
-              .channel(NioServerSocketChannel.class)
               .childOption(ChannelOption.TCP_NODELAY, true)
               .childOption(ChannelOption.SO_KEEPALIVE, true)
               .childHandler(new ChannelInitializer<Channel>() {
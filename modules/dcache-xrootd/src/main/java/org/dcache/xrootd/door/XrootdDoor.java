@@ -98,6 +98,7 @@ import org.dcache.util.Checksum;
 import org.dcache.util.FireAndForgetTask;
 import org.dcache.util.PingMoversTask;
 import org.dcache.util.Transfer;
+import org.dcache.util.TransferLatencies;
 import org.dcache.util.TransferRetryPolicy;
 import org.dcache.vehicles.FileAttributes;
 import org.dcache.vehicles.PnfsListDirectoryMessage;
@@ -181,8 +182,12 @@ public class XrootdDoor
     private final Map<Integer, XrootdTransfer> _transfers =
           new ConcurrentHashMap<>();
 
+    private final TransferLatencies _latencies = new TransferLatencies();
+
     private boolean triedHostsEnabled;
 
+    private boolean combinedReadOpenEnabled;
+
     @Autowired(required = false)
     private void setKafkaTemplate(
           @Qualifier("billing-template") KafkaTemplate kafkaTemplate) {
@@ -313,6 +318,15 @@ public class XrootdDoor
         this.triedHostsEnabled = triedHostsEnabled;
     }
 
+    /**
+     * Sets whether files are opened for reading with a single PoolMgrOpenReadMsg rather than a
+     * name space lookup followed by pool selection.  Requires a pool manager that understands
+     * the message.
+     */
+    public void setCombinedReadOpenEnabled(boolean enabled) {
+        combinedReadOpenEnabled = enabled;
+    }
+
     public TimeUnit getMoverTimeoutUnit() {
         return _moverTimeoutUnit;
     }
@@ -342,6 +356,7 @@ public class XrootdDoor
         pw.println(String.format("Protocol Version %d.%d",
               XrootdProtocol.PROTOCOL_VERSION_MAJOR,
               XrootdProtocol.PROTOCOL_VERSION_MINOR));
+        _latencies.getInfo(pw);
     }
 
     private XrootdTransfer
@@ -381,6 +396,7 @@ public class XrootdDoor
         transfer.setFileHandle(_handleCounter.getAndIncrement());
         transfer.setKafkaSender(_kafkaSender);
         transfer.setTriedHosts(tried);
+        transfer.setLatencies(_latencies);
         return transfer;
     }
 
@@ -401,8 +417,12 @@ public class XrootdDoor
         _transfers.put(handle, transfer);
         String explanation = "unspecified problem";
         try {
-            transfer.readNameSpaceEntry(false);
-            transfer.selectPoolAndStartMover(RETRY_POLICY);
+            if (combinedReadOpenEnabled) {
+                transfer.openForRead(RETRY_POLICY);
+            } else {
+                transfer.readNameSpaceEntry(false);
+                transfer.selectPoolAndStartMover(RETRY_POLICY);
+            }
             address = transfer.waitForRedirect(_moverTimeout, _moverTimeoutUnit);
             if (address == null) {
                 throw new CacheException(transfer.getPool() + " failed to open TCP socket");
@@ -9,37 +9,162 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
 import org.dcache.xrootd.core.XrootdException;
+import org.dcache.xrootd.protocol.messages.GenericReadRequestMessage.EmbeddedReadRequest;
 import org.dcache.xrootd.protocol.messages.ReadVRequest;
 import org.dcache.xrootd.stream.AbstractChunkedReadvResponse;
 
+/**
+ * Reads the segments of a kXR_readv request from the file descriptors of a transfer.
+ * <p>
+ * Analysis frameworks typically send long lists of small segments sorted by offset.  Rather than
+ * issuing one read per segment, consecutive segments of the same file that are at most {@code
+ * maxGap} bytes apart are coalesced into a span.  A span is read with a single positional read
+ * into a pooled buffer and the segments are returned as slices of that buffer.  The span buffer
+ * is released once the last of its segments has been handed out; the slices keep the memory
+ * alive until they are written to the client.
+ * <p>
+ * Segments are only coalesced with their successors in request order, as the reply must list the
+ * segments in the order they were requested.  This keeps at most one span alive per response.
+ */
 public class ChunkedFileDescriptorReadvResponse extends AbstractChunkedReadvResponse {
 
     private final List<FileDescriptor> descriptors;
 
+    private final EmbeddedReadRequest[] segments;
+
+    private final int maxGap;
+
+    private final int maxSpan;
+
+    private final ReadvStatistics statistics;
+
+    /**
+     * Index of the segment expected by the next call to {@link #read}.
+     */
+    private int next;
+
+    /**
+     * The span currently being handed out, or null.
+     */
+    private Span span;
+
     public ChunkedFileDescriptorReadvResponse(ReadVRequest request,
           int maxFrameSize,
           List<FileDescriptor> descriptors) {
+        this(request, maxFrameSize, descriptors, -1, new ReadvStatistics());
+    }
+
+    /**
+     * @param maxGap     the largest number of unrequested bytes between two segments for them to
+     *                   be read together, or -1 to disable coalescing
+     * @param statistics counters to update
+     */
+    public ChunkedFileDescriptorReadvResponse(ReadVRequest request,
+          int maxFrameSize,
+          List<FileDescriptor> descriptors,
+          int maxGap,
+          ReadvStatistics statistics) {
         super(request, maxFrameSize);
         this.descriptors = descriptors;
+        this.segments = request.getReadRequestList();
+        this.maxGap = maxGap;
+        this.maxSpan = maxFrameSize;
+        this.statistics = statistics;
     }
 
     @Override
     protected long getSize(int fd) throws IOException, XrootdException {
-        if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
-            throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
-        }
-        return descriptors.get(fd).getChannel().size();
+        return getDescriptor(fd).getChannel().size();
     }
 
     @Override
     protected ByteBuf read(ByteBufAllocator alloc, int fd, long position, int length)
           throws IOException, XrootdException {
+        FileDescriptor descriptor = getDescriptor(fd);
+
+        try {
+            ByteBuf chunk;
+            if (span != null && span.contains(fd, position, length)) {
+                chunk = span.slice(position, length);
+            } else {
+                releaseSpan();
+                if (isExpected(fd, position, length)) {
+                    span = readSpan(alloc, descriptor, next);
+                }
+                if (span != null) {
+                    chunk = span.slice(position, length);
+                } else {
+                    chunk = readSegment(alloc, descriptor, position, length);
+                    statistics.segmentRead();
+                }
+            }
+
+            if (span != null && next >= span.last) {
+                releaseSpan();
+            }
+            next++;
+            return chunk;
+        } catch (RuntimeException | IOException e) {
+            releaseSpan();
+            throw e;
+        }
+    }
+
+    private FileDescriptor getDescriptor(int fd) throws XrootdException {
         if (fd < 0 || fd >= descriptors.size() || descriptors.get(fd) == null) {
             throw new XrootdException(kXR_FileNotOpen, "Invalid file descriptor");
         }
+        return descriptors.get(fd);
+    }
 
-        FileDescriptor descriptor = descriptors.get(fd);
+    private boolean isExpected(int fd, long position, int length) {
+        if (next >= segments.length) {
+            return false;
+        }
+        EmbeddedReadRequest segment = segments[next];
+        return segment.getFileHandle() == fd && segment.getOffset() == position
+              && segment.BytesToRead() == length;
+    }
+
+    /**
+     * Coalesces the segments starting at {@code first} and reads them.  Returns null if the
+     * segment cannot be coalesced with its successor.
+     */
+    private Span readSpan(ByteBufAllocator alloc, FileDescriptor descriptor, int first)
+          throws IOException {
+        if (maxGap < 0) {
+            return null;
+        }
+
+        int fd = segments[first].getFileHandle();
+        long start = segments[first].getOffset();
+        long end = start + segments[first].BytesToRead();
+        long gap = 0;
+        int last = first;
+        while (last + 1 < segments.length) {
+            EmbeddedReadRequest segment = segments[last + 1];
+            long offset = segment.getOffset();
+            long segmentEnd = offset + segment.BytesToRead();
+            if (segment.getFileHandle() != fd || offset < start || offset > end + maxGap
+                  || Math.max(end, segmentEnd) - start > maxSpan) {
+                break;
+            }
+            gap += Math.max(0, offset - end);
+            end = Math.max(end, segmentEnd);
+            last++;
+        }
 
+        if (last == first) {
+            return null;
+        }
+
+        ByteBuf buffer = readSegment(alloc, descriptor, start, (int) (end - start));
+        statistics.spanRead(last - first + 1, end - start, gap);
+        return new Span(fd, start, (int) (end - start), last, buffer);
+    }
+
+    private static ByteBuf readSegment(ByteBufAllocator alloc, FileDescriptor descriptor,
+          long position, int length) throws IOException {
         ByteBuf chunk = alloc.ioBuffer(length);
         try {
             ByteBuffer buffer = chunk.nioBuffer(0, length);
@@ -51,4 +176,46 @@ public class ChunkedFileDescriptorReadvResponse extends AbstractChunkedReadvResp
             throw e;
         }
     }
+
+    private void releaseSpan() {
+        if (span != null) {
+            span.buffer.release();
+            span = null;
+        }
+    }
+
+    /**
+     * A contiguous region of a file holding several segments.
+     */
+    private static class Span {
+
+        private final int fd;
+        private final long position;
+        private final int length;
+        private final int last;
+        private final ByteBuf buffer;
+
+        Span(int fd, long position, int length, int last, ByteBuf buffer) {
+            this.fd = fd;
+            this.position = position;
+            this.length = length;
+            this.last = last;
+            this.buffer = buffer;
+        }
+
+        boolean contains(int fd, long position, int length) {
+            return this.fd == fd && position >= this.position
+                  && position + length <= this.position + this.length;
+        }
+
+        /**
+         * Returns a retained slice for the given segment.  Like a direct read, the slice is short
+         * if the segment extends beyond the end of the file.
+         */
+        ByteBuf slice(long position, int length) {
+            int index = (int) (position - this.position);
+            int readable = Math.max(0, Math.min(length, buffer.writerIndex() - index));
+            return buffer.retainedSlice(Math.min(index, buffer.writerIndex()), readable);
+        }
+    }
 }
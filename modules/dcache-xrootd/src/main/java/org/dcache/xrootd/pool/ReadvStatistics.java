@@ -0,0 +1,86 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.xrootd.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing how kXR_readv segments were mapped onto reads from the replica.
+ * <p>
+ * Shared by all readv responses of a transfer service.
+ */
+public class ReadvStatistics {
+
+    private final LongAdder segments = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder coalescedSegments = new LongAdder();
+    private final LongAdder coalescedBytes = new LongAdder();
+    private final LongAdder gapBytes = new LongAdder();
+
+    /**
+     * Records a segment served by its own read.
+     */
+    void segmentRead() {
+        segments.increment();
+        reads.increment();
+    }
+
+    /**
+     * Records a single read covering several segments.
+     *
+     * @param count  the number of segments served from the read
+     * @param length the number of bytes read
+     * @param gap    the number of bytes read that were not requested by any segment
+     */
+    void spanRead(int count, long length, long gap) {
+        segments.add(count);
+        reads.increment();
+        coalescedSegments.add(count);
+        coalescedBytes.add(length);
+        gapBytes.add(gap);
+    }
+
+    public long getSegments() {
+        return segments.sum();
+    }
+
+    public long getReads() {
+        return reads.sum();
+    }
+
+    public long getCoalescedSegments() {
+        return coalescedSegments.sum();
+    }
+
+    public long getCoalescedBytes() {
+        return coalescedBytes.sum();
+    }
+
+    public long getGapBytes() {
+        return gapBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Segments           : " + getSegments() + '\n'
+              + "Reads              : " + getReads() + '\n'
+              + "Coalesced segments : " + getCoalescedSegments() + '\n'
+              + "Coalesced bytes    : " + getCoalescedBytes() + '\n'
+              + "Wasted gap bytes   : " + getGapBytes();
+    }
+}
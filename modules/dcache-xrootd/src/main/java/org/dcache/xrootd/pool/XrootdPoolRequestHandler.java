@@ -646,7 +646,8 @@ public class XrootdPoolRequestHandler extends AbstractXrootdRequestHandler {
             }
         }
 
-        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, copyDescriptors());
+        return new ChunkedFileDescriptorReadvResponse(msg, _maxFrameSize, copyDescriptors(),
+              _server.getReadvMaxGap(), _server.getReadvStatistics());
     }
 
     /**
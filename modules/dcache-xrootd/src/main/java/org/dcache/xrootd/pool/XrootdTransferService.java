@@ -145,7 +145,24 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         }
     }
 
+    @Command(name = "xrootd readv stats",
+          hint = "show vector read statistics",
+          description = "Shows how the segments of kXR_readv requests were mapped "
+                + "onto reads from the replicas.  Segments that are close "
+                + "together are read with a single read; the bytes between "
+                + "them are read but not sent to the client.")
+    class ReadvStatsCommand implements Callable<String> {
+
+        @Override
+        public String call() throws Exception {
+            return readvStatistics.toString();
+        }
+    }
+
+    private final ReadvStatistics readvStatistics = new ReadvStatistics();
+
     private int maxFrameSize;
+    private int readvMaxGap;
     private List<ChannelHandlerFactory> plugins;
     private List<ChannelHandlerFactory> accessLogPlugins;
     private List<ChannelHandlerFactory> tpcClientPlugins;
@@ -319,6 +336,23 @@ public class XrootdTransferService extends NettyTransferService<XrootdProtocolIn
         return maxFrameSize;
     }
 
+    /**
+     * Sets the largest number of unrequested bytes between two segments of a vector read for the
+     * segments to be read together.  A negative value disables coalescing.
+     */
+    @Required
+    public void setReadvMaxGap(int readvMaxGap) {
+        this.readvMaxGap = readvMaxGap;
+    }
+
+    public int getReadvMaxGap() {
+        return readvMaxGap;
+    }
+
+    public ReadvStatistics getReadvStatistics() {
+        return readvStatistics;
+    }
+
     @Required
     public void setTpcClientChunkSize(int tpcClientChunkSize) {
         this.tpcClientChunkSize = tpcClientChunkSize;
@@ -0,0 +1,165 @@
+package org.dcache.xrootd.pool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.dcache.xrootd.protocol.messages.GenericReadRequestMessage.EmbeddedReadRequest;
+import org.dcache.xrootd.protocol.messages.ReadVRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkedFileDescriptorReadvResponseTest {
+
+    private static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+    private final ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+    private final byte[] content = new byte[4096];
+    private final ReadvStatistics statistics = new ReadvStatistics();
+
+    private FileDescriptor descriptor;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        descriptor = mock(FileDescriptor.class);
+        doAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            long position = invocation.getArgument(1);
+            int length = (int) Math.max(0,
+                  Math.min(buffer.remaining(), content.length - position));
+            buffer.put(content, (int) position, length);
+            return null;
+        }).when(descriptor).read(any(ByteBuffer.class), anyLong());
+    }
+
+    @Test
+    public void shouldCoalesceSegmentsUpToMaxGap() throws Exception {
+        long[][] segments = {{0, 100}, {110, 100}, {221, 100}};
+
+        readAll(10, segments);
+
+        verify(descriptor, times(2)).read(any(ByteBuffer.class), anyLong());
+        assertThat(statistics.getSegments(), is(3L));
+        assertThat(statistics.getReads(), is(2L));
+        assertThat(statistics.getCoalescedSegments(), is(2L));
+        assertThat(statistics.getCoalescedBytes(), is(210L));
+        assertThat(statistics.getGapBytes(), is(10L));
+    }
+
+    @Test
+    public void shouldCoalesceOverlappingSegments() throws Exception {
+        long[][] segments = {{0, 100}, {50, 100}, {60, 20}};
+
+        readAll(0, segments);
+
+        verify(descriptor, times(1)).read(any(ByteBuffer.class), anyLong());
+        assertThat(statistics.getCoalescedSegments(), is(3L));
+        assertThat(statistics.getCoalescedBytes(), is(150L));
+        assertThat(statistics.getGapBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCoalesceUnsortedSegments() throws Exception {
+        long[][] segments = {{200, 100}, {0, 100}, {100, 50}};
+
+        readAll(10, segments);
+
+        verify(descriptor, times(2)).read(any(ByteBuffer.class), anyLong());
+        assertThat(statistics.getReads(), is(2L));
+        assertThat(statistics.getCoalescedSegments(), is(2L));
+    }
+
+    @Test
+    public void shouldNotCoalesceSegmentsOfDifferentFiles() throws Exception {
+        long[][] segments = {{0, 100, 0}, {100, 100, 1}};
+
+        readAll(10, segments);
+
+        assertThat(statistics.getReads(), is(2L));
+        assertThat(statistics.getCoalescedSegments(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCoalesceWhenDisabled() throws Exception {
+        long[][] segments = {{0, 100}, {100, 100}, {200, 100}};
+
+        readAll(-1, segments);
+
+        verify(descriptor, times(3)).read(any(ByteBuffer.class), anyLong());
+        assertThat(statistics.getReads(), is(3L));
+        assertThat(statistics.getCoalescedSegments(), is(0L));
+    }
+
+    @Test
+    public void shouldReturnShortSegmentAtEndOfFile() throws Exception {
+        long[][] segments = {{3900, 100}, {4000, 200}};
+
+        List<ByteBuf> chunks = readAll(0, segments);
+
+        assertThat(chunks.get(1).readableBytes(), is(96));
+    }
+
+    @Test
+    public void shouldReleaseSpanWithLastSegment() throws Exception {
+        long[][] segments = {{0, 100}, {100, 100}};
+
+        List<ByteBuf> chunks = readAll(0, segments);
+
+        assertThat(chunks.get(0).refCnt(), is(2));
+        chunks.forEach(ByteBuf::release);
+        assertThat(chunks.get(0).refCnt(), is(0));
+    }
+
+    /**
+     * Reads the segments in request order and checks that each chunk holds the data of its
+     * segment. Each segment is given as offset, length and optionally file descriptor.
+     */
+    private List<ByteBuf> readAll(int maxGap, long[][] segments) throws Exception {
+        EmbeddedReadRequest[] requests = new EmbeddedReadRequest[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            requests[i] = mock(EmbeddedReadRequest.class);
+            given(requests[i].getOffset()).willReturn(segments[i][0]);
+            given(requests[i].BytesToRead()).willReturn((int) segments[i][1]);
+            given(requests[i].getFileHandle())
+                  .willReturn(segments[i].length > 2 ? (int) segments[i][2] : 0);
+        }
+        ReadVRequest request = mock(ReadVRequest.class);
+        given(request.getReadRequestList()).willReturn(requests);
+
+        ChunkedFileDescriptorReadvResponse response =
+              new ChunkedFileDescriptorReadvResponse(request, MAX_FRAME_SIZE,
+                    Arrays.asList(descriptor, descriptor), maxGap, statistics);
+
+        List<ByteBuf> chunks = new ArrayList<>();
+        for (EmbeddedReadRequest segment : requests) {
+            ByteBuf chunk = response.read(alloc, segment.getFileHandle(), segment.getOffset(),
+                  segment.BytesToRead());
+            int from = (int) Math.min(segment.getOffset(), content.length);
+            int to = (int) Math.min(segment.getOffset() + segment.BytesToRead(),
+                  content.length);
+            assertThat(ByteBufUtil.getBytes(chunk),
+                  is(equalTo(Arrays.copyOfRange(content, from, to))));
+            chunks.add(chunk);
+        }
+        return Collections.unmodifiableList(chunks);
+    }
+}
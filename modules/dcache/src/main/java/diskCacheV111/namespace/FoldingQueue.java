@@ -0,0 +1,399 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package diskCacheV111.namespace;
+
+import diskCacheV111.vehicles.Message;
+import diskCacheV111.vehicles.PnfsMessage;
+import dmg.cells.nucleus.CellMessage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import javax.security.auth.Subject;
+
+/**
+ * Request queue of PnfsManager with support for message folding.
+ * <p>
+ * Queued messages are indexed by their fold key: message class, subject and either PNFS ID or
+ * path. When a message has been processed, the messages that may be folded into it are found by
+ * index lookup rather than by scanning the queue. Queued messages that may invalidate other
+ * messages are tracked separately, so that only those have to be checked for whether they
+ * prevent folding.
+ * <p>
+ * A message that cannot invalidate other messages may further be attached to an identical
+ * message that is still queued, provided no message that may invalidate it was queued in
+ * between. Attached messages do not occupy a queue slot and are folded once the message they are
+ * attached to has been processed. If folding fails, they are queued again.
+ * <p>
+ * Messages removed by folding are removed lazily from the underlying deque.
+ */
+class FoldingQueue {
+
+    /**
+     * Key identifying messages that may fold into each other.
+     */
+    private static class FoldKey {
+
+        private final Class<?> type;
+        private final Subject subject;
+        private final Object target;
+
+        FoldKey(Class<?> type, Subject subject, Object target) {
+            this.type = type;
+            this.subject = subject;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FoldKey)) {
+                return false;
+            }
+            FoldKey other = (FoldKey) o;
+            return type.equals(other.type) && Objects.equals(subject, other.subject)
+                  && target.equals(other.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, target);
+        }
+    }
+
+    /**
+     * A queued message.
+     */
+    static class Entry {
+
+        private final CellMessage envelope;
+        private final Message message;
+        private final long sequence;
+        private final FoldKey key;
+        private final List<Entry> attached = new ArrayList<>(0);
+        private boolean isRemoved;
+
+        private Entry(CellMessage envelope, long sequence) {
+            this.envelope = envelope;
+            this.message = (Message) envelope.getMessageObject();
+            this.sequence = sequence;
+            this.key = keyOf(message);
+        }
+
+        CellMessage getEnvelope() {
+            return envelope;
+        }
+    }
+
+    private final int capacity;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /* All fields below are guarded by lock. */
+
+    private final Deque<Entry> queue = new ArrayDeque<>();
+
+    private final Map<FoldKey, Deque<Entry>> index = new HashMap<>();
+
+    /**
+     * Queued messages that may invalidate other messages, by sequence number.
+     */
+    private final NavigableMap<Long, Entry> invalidators = new TreeMap<>();
+
+    private long sequence;
+
+    private long lastInvalidator = -1;
+
+    private int size;
+
+    private int attachedCount;
+
+    /**
+     * @param capacity maximum number of queued messages, or zero for an unbounded queue
+     */
+    FoldingQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    private static FoldKey keyOf(Message message) {
+        if (!(message instanceof PnfsMessage)) {
+            return null;
+        }
+        PnfsMessage pnfsMessage = (PnfsMessage) message;
+        Object target = pnfsMessage.getPnfsId() != null
+              ? pnfsMessage.getPnfsId()
+              : pnfsMessage.getPnfsPath();
+        return target == null
+              ? null
+              : new FoldKey(message.getClass(), message.getSubject(), target);
+    }
+
+    /**
+     * Queues a message.
+     *
+     * @param envelope  the message to queue
+     * @param canAttach whether the message may be attached to an identical queued message
+     * @return false if the queue is full
+     */
+    boolean offer(CellMessage envelope, boolean canAttach) {
+        lock.lock();
+        try {
+            Entry entry = new Entry(envelope, sequence++);
+            if (canAttach && entry.key != null && !entry.message.mayInvalidate()) {
+                Deque<Entry> identical = index.get(entry.key);
+                if (identical != null) {
+                    Entry target = identical.peekLast();
+                    if (target.sequence > lastInvalidator) {
+                        target.attached.add(entry);
+                        attachedCount++;
+                        return true;
+                    }
+                }
+            }
+            if (capacity > 0 && size >= capacity) {
+                return false;
+            }
+            enqueue(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a message regardless of the capacity of the queue.
+     */
+    void add(CellMessage envelope) {
+        lock.lock();
+        try {
+            enqueue(new Entry(envelope, sequence++));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        queue.addLast(entry);
+        size++;
+        if (entry.key != null) {
+            index.computeIfAbsent(entry.key, k -> new ArrayDeque<>()).addLast(entry);
+        }
+        if (entry.message == null || entry.message.mayInvalidate()) {
+            invalidators.put(entry.sequence, entry);
+            lastInvalidator = entry.sequence;
+        }
+        notEmpty.signal();
+    }
+
+    private void remove(Entry entry) {
+        entry.isRemoved = true;
+        size--;
+        if (entry.key != null) {
+            Deque<Entry> identical = index.get(entry.key);
+            identical.remove(entry);
+            if (identical.isEmpty()) {
+                index.remove(entry.key);
+            }
+        }
+        invalidators.remove(entry.sequence);
+    }
+
+    /**
+     * Removes the next message from the queue, waiting if necessary. Messages attached to the
+     * returned entry must be passed to {@link #fold} once the message has been processed.
+     */
+    Entry take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Entry entry = queue.pollFirst();
+                if (entry == null) {
+                    notEmpty.await();
+                } else if (!entry.isRemoved) {
+                    remove(entry);
+                    return entry;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Folds queued and attached messages into a processed message.
+     * <p>
+     * Messages attached to the processed message that cannot be folded are queued again.
+     *
+     * @param processed the entry returned by {@link #take} after its message has been processed
+     * @param canFold   whether folding into the processed message is allowed
+     * @param reply     called with the envelope of each folded message
+     */
+    void fold(Entry processed, boolean canFold, Consumer<CellMessage> reply) {
+        Message message = processed.message;
+        List<Entry> folded = new ArrayList<>();
+        lock.lock();
+        try {
+            List<Entry> orphans = new ArrayList<>(processed.attached);
+            attachedCount -= processed.attached.size();
+            processed.attached.clear();
+
+            if (canFold) {
+                for (Entry candidate : candidates(message)) {
+                    if (candidate.message.fold(message)) {
+                        remove(candidate);
+                        folded.add(candidate);
+                        orphans.addAll(candidate.attached);
+                        attachedCount -= candidate.attached.size();
+                        candidate.attached.clear();
+                    }
+                }
+            }
+
+            for (Entry orphan : orphans) {
+                if (canFold && orphan.message.fold(message)) {
+                    folded.add(orphan);
+                } else {
+                    enqueue(new Entry(orphan.envelope, sequence++));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (Entry entry : folded) {
+            entry.envelope.revertDirection();
+            reply.accept(entry.envelope);
+        }
+    }
+
+    /**
+     * Returns the queued messages with the same fold key as the given message that are not
+     * preceded by a queued message invalidating it.
+     */
+    private List<Entry> candidates(Message message) {
+        if (!(message instanceof PnfsMessage)) {
+            return List.of();
+        }
+        PnfsMessage pnfsMessage = (PnfsMessage) message;
+        TreeMap<Long, Entry> candidates = new TreeMap<>();
+        addCandidates(candidates, message, pnfsMessage.getPnfsId());
+        addCandidates(candidates, message, pnfsMessage.getPnfsPath());
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        for (Entry invalidator : invalidators.headMap(candidates.lastKey(), true).values()) {
+            if (invalidator.message.invalidates(message)) {
+                return new ArrayList<>(candidates.headMap(invalidator.sequence).values());
+            }
+        }
+        return new ArrayList<>(candidates.values());
+    }
+
+    private void addCandidates(Map<Long, Entry> candidates, Message message, Object target) {
+        if (target != null) {
+            Deque<Entry> identical =
+                  index.get(new FoldKey(message.getClass(), message.getSubject(), target));
+            if (identical != null) {
+                identical.forEach(e -> candidates.put(e.sequence, e));
+            }
+        }
+    }
+
+    /**
+     * Removes all queued and attached messages.
+     */
+    void drainTo(Collection<CellMessage> drained) {
+        lock.lock();
+        try {
+            for (Entry entry : queue) {
+                if (!entry.isRemoved) {
+                    drained.add(entry.envelope);
+                    entry.attached.forEach(e -> drained.add(e.envelope));
+                }
+            }
+            queue.clear();
+            index.clear();
+            invalidators.clear();
+            size = 0;
+            attachedCount = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of queued messages, excluding attached messages.
+     */
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of messages attached to queued messages.
+     */
+    int attached() {
+        lock.lock();
+        try {
+            return attachedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a snapshot of the queued and attached messages in queue order.
+     */
+    List<CellMessage> toList() {
+        lock.lock();
+        try {
+            List<CellMessage> messages = new ArrayList<>(size + attachedCount);
+            for (Entry entry : queue) {
+                if (!entry.isRemoved) {
+                    messages.add(entry.envelope);
+                    entry.attached.forEach(e -> messages.add(e.envelope));
+                }
+            }
+            return messages;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
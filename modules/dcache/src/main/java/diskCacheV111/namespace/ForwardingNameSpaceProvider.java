@@ -155,6 +155,13 @@ public abstract class ForwardingNameSpaceProvider implements NameSpaceProvider {
         delegate().list(subject, path, glob, range, attrs, handler);
     }
 
+    @Override
+    public void listAfter(Subject subject, String path, Glob glob, String after,
+          Range<Integer> range, Set<FileAttribute> attrs, ListHandler handler)
+          throws CacheException {
+        delegate().listAfter(subject, path, glob, after, range, attrs, handler);
+    }
+
 
     @Override
     public void listVirtualDirectory(Subject subject, String path, Range<Integer> range,
@@ -268,6 +268,21 @@ public class MonitoringNameSpaceProvider extends ForwardingNameSpaceProvider {
     @Override
     public void list(Subject subject, String path, Glob glob, Range<Integer> range,
           Set<FileAttribute> attrs, ListHandler handler) throws CacheException {
+        MonitoringListHandler monitoringHandler = monitoringListHandler(path, handler);
+        super.list(subject, path, glob, range, attrs, monitoringHandler);
+        monitoringHandler.sendClose();
+    }
+
+    @Override
+    public void listAfter(Subject subject, String path, Glob glob, String after,
+          Range<Integer> range, Set<FileAttribute> attrs, ListHandler handler)
+          throws CacheException {
+        MonitoringListHandler monitoringHandler = monitoringListHandler(path, handler);
+        super.listAfter(subject, path, glob, after, range, attrs, monitoringHandler);
+        monitoringHandler.sendClose();
+    }
+
+    private MonitoringListHandler monitoringListHandler(String path, ListHandler handler) {
         PnfsId target;
         Collection<Link> links;
         try {
@@ -278,9 +293,7 @@ public class MonitoringNameSpaceProvider extends ForwardingNameSpaceProvider {
             links = Collections.emptyList();
         }
 
-        MonitoringListHandler monitoringHandler = new MonitoringListHandler(handler, target, links);
-        super.list(subject, path, glob, range, attrs, monitoringHandler);
-        monitoringHandler.sendClose();
+        return new MonitoringListHandler(handler, target, links);
     }
 
 
@@ -300,6 +300,28 @@ public interface NameSpaceProvider {
           Set<FileAttribute> attrs, ListHandler handler)
           throws CacheException;
 
+    /**
+     * Lists the content of a directory in lexicographic order of the entry names, starting after
+     * the entry named {@code after}.
+     * <p>
+     * Unlike {@link #list}, the listing can be resumed: passing the name of the last entry of one
+     * invocation as {@code after} to the next invocation continues the listing without
+     * skipping or repeating entries that existed throughout, and without the cost of
+     * enumerating the preceding entries again. The range is applied to the entries following
+     * {@code after}.
+     *
+     * @param subject Subject of user who invoked this method
+     * @param path    Path to directory to list
+     * @param glob    Pattern to limit the result set; may be null
+     * @param after   Name after which to start; the empty string starts from the first entry
+     * @param range   The range of entries to return
+     * @param attrs   The file attributes to query for each entry
+     * @param handler Handler called for each entry
+     */
+    void listAfter(Subject subject, String path, Glob glob, String after, Range<Integer> range,
+          Set<FileAttribute> attrs, ListHandler handler)
+          throws CacheException;
+
     /**
      * Set up a temporary upload location for a file.
      * <p>
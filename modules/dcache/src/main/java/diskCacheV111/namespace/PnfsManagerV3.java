@@ -92,7 +92,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.Iterator;
+import java.util.Formatter;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -101,11 +101,9 @@ import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -215,12 +213,12 @@ public class PnfsManagerV3
     /**
      * Queues for list operations. There is one queue per thread group.
      */
-    private BlockingQueue<CellMessage> _listQueue;
+    private FoldingQueue _listQueue;
 
     /**
      * Tasks queues used for messages that do not operate on cache locations.
      */
-    private BlockingQueue<CellMessage>[] _fifos;
+    private FoldingQueue[] _fifos;
 
     /**
      * Executor for ProcessThread instances.
@@ -408,14 +406,10 @@ public class PnfsManagerV3
     public void init() {
         _stub = new CellStub(getCellEndpoint());
 
-        _fifos = new BlockingQueue[_threads];
+        _fifos = new FoldingQueue[_threads];
         LOGGER.info("Starting {} threads", _fifos.length);
         for (int i = 0; i < _fifos.length; i++) {
-            if (_queueMaxSize > 0) {
-                _fifos[i] = new LinkedBlockingQueue<>(_queueMaxSize);
-            } else {
-                _fifos[i] = new LinkedBlockingQueue<>();
-            }
+            _fifos[i] = new FoldingQueue(Math.max(_queueMaxSize, 0));
             executor.execute(new ProcessThread(_fifos[i]));
         }
 
@@ -423,7 +417,7 @@ public class PnfsManagerV3
          * as list operations are read only and thus there is no need
          * to serialize the operations.
          */
-        _listQueue = new LinkedBlockingQueue<>();
+        _listQueue = new FoldingQueue(0);
         for (int j = 0; j < _listThreads; j++) {
             ProcessThread t = new ProcessThread(_listQueue);
             _listProcessThreads.add(t);
@@ -437,11 +431,11 @@ public class PnfsManagerV3
         MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.SECONDS);
     }
 
-    private void drainQueues(BlockingQueue<CellMessage>[] queues) {
+    private void drainQueues(FoldingQueue[] queues) {
         Arrays.stream(queues).forEach(this::drainQueue);
     }
 
-    private void drainQueue(BlockingQueue<CellMessage> queue) {
+    private void drainQueue(FoldingQueue queue) {
         String error = "Name space is shutting down.";
         ArrayList<CellMessage> drained = new ArrayList<>();
         queue.drainTo(drained);
@@ -453,7 +447,7 @@ public class PnfsManagerV3
                 sendMessage(envelope);
             }
         }
-        queue.offer(SHUTDOWN_SENTINEL);
+        queue.add(SHUTDOWN_SENTINEL);
     }
 
     @Override
@@ -523,16 +517,41 @@ public class PnfsManagerV3
         pw.println();
         pw.println("Threads (" + _fifos.length + ") Queue");
         for (int i = 0; i < _fifos.length; i++) {
-            pw.println("    [" + i + "] " + _fifos[i].size());
+            pw.println("    [" + i + "] " + _fifos[i].size() + " (" + _fifos[i].attached()
+                  + " attached)");
         }
         pw.println();
         pw.println("Threads: "
-              + Arrays.stream(_fifos).mapToInt(BlockingQueue::size).sum());
+              + Arrays.stream(_fifos).mapToInt(FoldingQueue::size).sum());
         pw.println();
 
         pw.println("Statistics:");
         pw.println(_gauges.toString());
         pw.println(_foldedCounters.toString());
+        pw.println();
+        pw.println(getFoldHitRates());
+    }
+
+    /**
+     * Returns the fraction of requests per message type that were answered by folding rather
+     * than by processing them.
+     */
+    private String getFoldHitRates() {
+        StringBuilder sb = new StringBuilder();
+        try (Formatter formatter = new Formatter(sb)) {
+            formatter.format("%-36s %9s %9s %9s", "PnfsManagerV3.FoldHitRate", "folded",
+                  "processed", "hit rate");
+            for (Class<?> type : _foldedCounters.keySet()) {
+                long folded = _foldedCounters.getCounterRequests(type);
+                long processed = _gauges.keySet().contains(type)
+                      ? _gauges.getGauge(type.asSubclass(PnfsMessage.class)).getUpdateNum()
+                      : 0;
+                formatter.format("\n  %-34s %9d %9d %8.1f%%", type.getSimpleName(), folded,
+                      processed, folded + processed == 0
+                            ? 0.0 : 100.0 * folded / (folded + processed));
+            }
+        }
+        return sb.toString();
     }
 
     @Command(name = "reset stats", hint="reset statistics",
@@ -1514,7 +1533,7 @@ public class PnfsManagerV3
 
             if (!_listQueue.isEmpty()) {
                 writer.section("QUEUED REQUESTS");
-                _listQueue.forEach(e -> addRow(writer.row(), e));
+                _listQueue.toList().forEach(e -> addRow(writer.row(), e));
             }
 
             List<ActivityReport> activity = _listProcessThreads.stream()
@@ -1597,8 +1616,8 @@ public class PnfsManagerV3
         if (queueId < 0 || queueId >= _fifos.length) {
             throw new IllegalArgumentException(" illegal queue #" + queueId);
         }
-        BlockingQueue<CellMessage> fifo = _fifos[queueId];
-        Object[] fifoContent = fifo.toArray();
+        FoldingQueue fifo = _fifos[queueId];
+        Object[] fifoContent = fifo.toList().toArray();
 
         LOGGER.warn("PnfsManager thread #{} queue dump ({}):", queueId, fifoContent.length);
 
@@ -2219,6 +2238,14 @@ public class PnfsManagerV3
                       msg.getRequestedAttributes(),
                       handler);
 
+            } else if (msg.getAfter() != null) {
+                msg.setOrdered(true);
+                _nameSpaceProvider.listAfter(msg.getSubject(), path,
+                      msg.getPattern(),
+                      msg.getAfter(),
+                      msg.getRange(),
+                      msg.getRequestedAttributes(),
+                      handler);
             } else {
                 _nameSpaceProvider.list(msg.getSubject(), path,
                       msg.getPattern(),
@@ -2252,12 +2279,12 @@ public class PnfsManagerV3
 
     private class ProcessThread implements Runnable {
 
-        private final BlockingQueue<CellMessage> _fifo;
+        private final FoldingQueue _fifo;
 
         private volatile CellMessage _activeMessage;
         private volatile Instant _whenStarted;
 
-        private ProcessThread(BlockingQueue<CellMessage> fifo) {
+        private ProcessThread(FoldingQueue fifo) {
             _fifo = fifo;
         }
 
@@ -2283,9 +2310,11 @@ public class PnfsManagerV3
         @Override
         public void run() {
             try {
-                for (CellMessage message = _fifo.take(); message != SHUTDOWN_SENTINEL;
-                      message = _fifo.take()) {
+                for (FoldingQueue.Entry entry = _fifo.take();
+                      entry.getEnvelope() != SHUTDOWN_SENTINEL; entry = _fifo.take()) {
+                    CellMessage message = entry.getEnvelope();
                     CDC.setMessageContext(message);
+                    boolean isSuccessful = false;
                     try {
                         recordActivity(message);
 
@@ -2303,11 +2332,12 @@ public class PnfsManagerV3
                         }
 
                         processPnfsMessage(message, pnfs);
-                        fold(pnfs);
+                        isSuccessful = pnfs.getReturnCode() == 0;
                     } catch (Throwable e) {
                         LOGGER.warn("processPnfsMessage: {} : {}", Thread.currentThread().getName(),
                               e);
                     } finally {
+                        fold(entry, isSuccessful);
                         clearActivity();
                         CDC.clearMessageContext();
                     }
@@ -2317,29 +2347,18 @@ public class PnfsManagerV3
             }
         }
 
-        protected void fold(PnfsMessage message) {
-            if (_canFold && message.getReturnCode() == 0) {
-                Iterator<CellMessage> i = _fifo.iterator();
-                while (i.hasNext()) {
-                    CellMessage envelope = i.next();
-                    PnfsMessage other =
-                          (PnfsMessage) envelope.getMessageObject();
-
-                    if (other.invalidates(message)) {
-                        break;
-                    }
-
-                    if (other.fold(message)) {
-                        LOGGER.info("Folded {}", other.getClass().getSimpleName());
-                        _foldedCounters.incrementRequests(message.getClass());
-
-                        i.remove();
-                        envelope.revertDirection();
-
-                        sendMessage(envelope);
-                    }
-                }
-            }
+        /**
+         * Answers queued and attached requests that can be folded into the processed request.
+         * Attached requests that cannot be folded are queued again, so this must be called for
+         * every request taken from the queue, whether it was processed successfully or not.
+         */
+        protected void fold(FoldingQueue.Entry entry, boolean isSuccessful) {
+            _fifo.fold(entry, _canFold && isSuccessful, envelope -> {
+                Object folded = envelope.getMessageObject();
+                LOGGER.info("Folded {}", folded.getClass().getSimpleName());
+                _foldedCounters.incrementRequests(folded.getClass());
+                sendMessage(envelope);
+            });
         }
     }
 
@@ -2547,7 +2566,7 @@ public class PnfsManagerV3
         if (path == null) {
             throw new InvalidMessageCacheException("Missing PNFS id and path");
         }
-        if (!_listQueue.offer(envelope)) {
+        if (!_listQueue.offer(envelope, false)) {
             throw new MissingResourceCacheException("PnfsManager queue limit exceeded");
         }
     }
@@ -2573,7 +2592,7 @@ public class PnfsManagerV3
          * try to add a message into queue.
          * tell requester, that queue is full
          */
-        if (!_fifos[index].offer(envelope)) {
+        if (!_fifos[index].offer(envelope, _canFold)) {
             throw new MissingResourceCacheException("PnfsManager queue limit exceeded");
         }
     }
@@ -13,7 +13,7 @@ import dmg.cells.nucleus.CellSetupProvider;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -21,6 +21,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import org.dcache.poolmanager.PoolInfo;
@@ -40,10 +42,17 @@ public class CostModuleV1
 
     private static final long serialVersionUID = -267023006449629909L;
 
-    private final Map<String, Entry> _hash = new HashMap<>();
-    private boolean _cachedPercentileCostCutIsValid;
-    private double _cachedPercentileCostCut;
-    private double _cachedPercentileFraction;
+    /**
+     * Cost entries by pool name. Entries are immutable (except for the faked CPU cost, which is
+     * only informational), so readers get a consistent view of each pool without locking.
+     */
+    private final Map<String, Entry> _hash = new ConcurrentHashMap<>();
+
+    /**
+     * Performance costs of all entries in {@link #_hash}. Writers update both under the write
+     * lock of the distribution.
+     */
+    private transient CostDistribution _costs = new CostDistribution();
 
     /**
      * Information about some specific pool.
@@ -54,7 +63,7 @@ public class CostModuleV1
 
         private final long timestamp;
         private final PoolCostInfo _info;
-        private double _fakeCpu = -1.0;
+        private volatile double _fakeCpu = -1.0;
         private final ImmutableMap<String, String> _tagMap;
         private final CellAddressCore _address;
 
@@ -85,65 +94,101 @@ public class CostModuleV1
         }
     }
 
-    public synchronized void messageArrived(CellMessage envelope, PoolManagerPoolUpMessage msg) {
-        CellAddressCore poolAddress = envelope.getSourceAddress();
-        String poolName = msg.getPoolName();
-        PoolV2Mode poolMode = msg.getPoolMode();
-        PoolCostInfo newInfo = msg.getPoolCostInfo();
-        Entry poolEntry = _hash.get(poolName);
-        boolean isNewPool = poolEntry == null;
+    /**
+     * Sorted multiset of pool performance costs.
+     * <p>
+     * Costs are kept in a sorted array that is updated in place, so a percentile is a single
+     * array access rather than a sort of all pools. Updates are serialized by a write lock, while
+     * readers use optimistic reads and only fall back to the read lock if a concurrent update
+     * was detected.
+     */
+    private static class CostDistribution {
 
-        /* Whether the pool mentioned in the message should be removed */
-        boolean shouldRemovePool = poolMode.getMode() == PoolV2Mode.DISABLED ||
-              poolMode.isDisabled(PoolV2Mode.DISABLED_STRICT) ||
-              poolMode.isDisabled(PoolV2Mode.DISABLED_DEAD);
+        private final StampedLock lock = new StampedLock();
+        private double[] costs = new double[16];
+        private int size;
 
-        if (isNewPool || shouldRemovePool) {
-            _cachedPercentileCostCutIsValid = false;
-        } else {
-            PoolCostInfo currentInfo = poolEntry.getPoolCostInfo();
-            considerInvalidatingCache(currentInfo, newInfo);
+        long writeLock() {
+            return lock.writeLock();
         }
 
-        if (shouldRemovePool) {
-            _hash.remove(poolName);
-        } else if (newInfo != null) {
-            _hash.put(poolName, new Entry(poolAddress, newInfo, msg.getTagMap()));
+        void unlockWrite(long stamp) {
+            lock.unlockWrite(stamp);
         }
-    }
 
-    private void considerInvalidatingCache(PoolCostInfo currentInfo, PoolCostInfo newInfo) {
-        if (!_cachedPercentileCostCutIsValid) {
-            return;
+        /* Must be called with the write lock held. */
+        void add(double cost) {
+            if (size == costs.length) {
+                costs = Arrays.copyOf(costs, size * 2);
+            }
+            int index = Arrays.binarySearch(costs, 0, size, cost);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            System.arraycopy(costs, index, costs, index + 1, size - index);
+            costs[index] = cost;
+            size++;
         }
 
-        double currentCost = getPerformanceCost(currentInfo);
-        double newCost = getPerformanceCost(newInfo);
-        considerInvalidatingCache(currentCost, newCost);
-    }
+        /* Must be called with the write lock held. */
+        void remove(double cost) {
+            int index = Arrays.binarySearch(costs, 0, size, cost);
+            if (index >= 0) {
+                System.arraycopy(costs, index + 1, costs, index, size - index - 1);
+                size--;
+            }
+        }
 
-    private void considerInvalidatingCache(double currentCost, PoolCostInfo newInfo) {
-        if (!_cachedPercentileCostCutIsValid) {
-            return;
+        double percentile(double fraction) {
+            long stamp = lock.tryOptimisticRead();
+            double cost = percentileOf(costs, size, fraction);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    cost = percentileOf(costs, size, fraction);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return cost;
         }
 
-        double newCost = getPerformanceCost(newInfo);
-        considerInvalidatingCache(currentCost, newCost);
+        private static double percentileOf(double[] costs, int size, double fraction) {
+            if (size == 0) {
+                return 0;
+            }
+            int index = (int) Math.floor(fraction * size);
+            return index < costs.length ? costs[index] : 0;
+        }
     }
 
-    /* Check whether we should invalidate the cached.  We must do this when
-     * a pool changes its relationship to the cost threshold:
-     *       o  a pool with cost less than the cached value assumes a cost greater
-     *                  than the cached value,
-     *       o  a pool with cost greater than the cached value assumes a cost less
-     *                  than the cached value.
-     *       o  a pool with cost equal to the cached value assumes a cost less
-     *                  than or greater than the cached value.
-     */
-    private void considerInvalidatingCache(double currentCost, double newCost) {
-        if (Math.signum(currentCost - _cachedPercentileCostCut) !=
-              Math.signum(newCost - _cachedPercentileCostCut)) {
-            _cachedPercentileCostCutIsValid = false;
+    public void messageArrived(CellMessage envelope, PoolManagerPoolUpMessage msg) {
+        CellAddressCore poolAddress = envelope.getSourceAddress();
+        String poolName = msg.getPoolName();
+        PoolV2Mode poolMode = msg.getPoolMode();
+        PoolCostInfo newInfo = msg.getPoolCostInfo();
+
+        /* Whether the pool mentioned in the message should be removed */
+        boolean shouldRemovePool = poolMode.getMode() == PoolV2Mode.DISABLED ||
+              poolMode.isDisabled(PoolV2Mode.DISABLED_STRICT) ||
+              poolMode.isDisabled(PoolV2Mode.DISABLED_DEAD);
+
+        Entry oldEntry;
+        long stamp = _costs.writeLock();
+        try {
+            if (shouldRemovePool) {
+                oldEntry = _hash.remove(poolName);
+            } else if (newInfo != null) {
+                oldEntry = _hash.put(poolName, new Entry(poolAddress, newInfo, msg.getTagMap()));
+                _costs.add(getPerformanceCost(newInfo));
+            } else {
+                return;
+            }
+            if (oldEntry != null) {
+                _costs.remove(getPerformanceCost(oldEntry.getPoolCostInfo()));
+            }
+        } finally {
+            _costs.unlockWrite(stamp);
         }
     }
 
@@ -152,41 +197,14 @@ public class CostModuleV1
     }
 
     @Override
-    public synchronized double getPoolsPercentilePerformanceCost(double fraction) {
+    public double getPoolsPercentilePerformanceCost(double fraction) {
 
         if (fraction <= 0 || fraction >= 1) {
             throw new IllegalArgumentException(
                   "supplied fraction (" + Double.toString(fraction) + ") not between 0 and 1");
         }
 
-        if (!_cachedPercentileCostCutIsValid || _cachedPercentileFraction != fraction) {
-            _cachedPercentileCostCut = calculatePercentileCostCut(fraction);
-            _cachedPercentileFraction = fraction;
-            _cachedPercentileCostCutIsValid = true;
-        }
-
-        return _cachedPercentileCostCut;
-    }
-
-    private double calculatePercentileCostCut(double fraction) {
-        if (_hash.isEmpty()) {
-            LOGGER.debug("no pools available");
-            return 0;
-        }
-
-        LOGGER.debug("{} pools available", _hash.size());
-
-        double[] poolCosts = new double[_hash.size()];
-
-        int idx = 0;
-        for (Entry poolInfo : _hash.values()) {
-            poolCosts[idx] = getPerformanceCost(poolInfo.getPoolCostInfo());
-            idx++;
-        }
-
-        Arrays.sort(poolCosts);
-
-        return poolCosts[(int) Math.floor(fraction * _hash.size())];
+        return _costs.percentile(fraction);
     }
 
     @Command(name = "cm set debug")
@@ -243,7 +261,7 @@ public class CostModuleV1
 
     public static final String hh_cm_fake = "<poolName> [off] | [-cpu=<cpuCost>|off]";
 
-    public synchronized String ac_cm_fake_$_1_2(Args args) {
+    public String ac_cm_fake_$_1_2(Args args) {
         String poolName = args.argv(0);
         Entry e = _hash.get(poolName);
         if (e == null) {
@@ -270,7 +288,7 @@ public class CostModuleV1
 
     public static final String hh_xcm_ls = "";
 
-    public synchronized Object ac_xcm_ls_$_0(Args args) {
+    public Object ac_xcm_ls_$_0(Args args) {
         CostModulePoolInfoTable reply = new CostModulePoolInfoTable();
         for (Entry e : _hash.values()) {
             reply.addPoolCostInfo(e.getPoolCostInfo().getPoolName(), e.getPoolCostInfo());
@@ -280,7 +298,7 @@ public class CostModuleV1
 
     public static final String hh_cm_ls = " -t | -r <pattern> # list all pools";
 
-    public synchronized String ac_cm_ls_$_0_1(Args args) {
+    public String ac_cm_ls_$_0_1(Args args) {
         StringBuilder sb = new StringBuilder();
         boolean useTime = args.hasOption("t");
         boolean useReal = args.hasOption("r");
@@ -310,7 +328,7 @@ public class CostModuleV1
     }
 
     @Override
-    public synchronized Collection<PoolCostInfo> getPoolCostInfos() {
+    public Collection<PoolCostInfo> getPoolCostInfos() {
         Collection<PoolCostInfo> costInfos = new ArrayList<>();
         for (Entry entry : _hash.values()) {
             if (entry.isValid()) {
@@ -322,7 +340,7 @@ public class CostModuleV1
 
     @Override
     @Nullable
-    public synchronized PoolCostInfo getPoolCostInfo(String poolName) {
+    public PoolCostInfo getPoolCostInfo(String poolName) {
         Entry entry = _hash.get(poolName);
         if (entry != null && entry.isValid()) {
             return entry.getPoolCostInfo();
@@ -332,7 +350,7 @@ public class CostModuleV1
 
     @Override
     @Nullable
-    public synchronized PoolInfo getPoolInfo(String pool) {
+    public PoolInfo getPoolInfo(String pool) {
         Entry entry = _hash.get(pool);
         if (entry != null && entry.isValid()) {
             return entry.getPoolInfo();
@@ -341,7 +359,7 @@ public class CostModuleV1
     }
 
     @Override
-    public synchronized Map<String, PoolInfo> getPoolInfoAsMap(Iterable<String> pools) {
+    public Map<String, PoolInfo> getPoolInfoAsMap(Iterable<String> pools) {
         Map<String, PoolInfo> map = new HashMap<>();
         for (String pool : pools) {
             Entry entry = _hash.get(pool);
@@ -352,7 +370,17 @@ public class CostModuleV1
         return map;
     }
 
-    private synchronized void writeObject(ObjectOutputStream stream) throws IOException {
-        stream.defaultWriteObject();
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        CostDistribution costs = new CostDistribution();
+        long stamp = costs.writeLock();
+        try {
+            for (Entry entry : _hash.values()) {
+                costs.add(getPerformanceCost(entry.getPoolCostInfo()));
+            }
+        } finally {
+            costs.unlockWrite(stamp);
+        }
+        _costs = costs;
     }
 }
\ No newline at end of file
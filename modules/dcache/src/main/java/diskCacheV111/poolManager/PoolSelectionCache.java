@@ -0,0 +1,153 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package diskCacheV111.poolManager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import diskCacheV111.poolManager.PoolSelectionUnit.DirectionType;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bounded cache of the configuration dependent part of pool selection.
+ * <p>
+ * For a given combination of direction, units and link group, the links matched by
+ * {@link PoolSelectionUnitV2#match} and the pools they point to only depend on the configuration
+ * of the pool selection unit. This cache maps such a combination to the preference levels of
+ * candidate pools, with pool groups already resolved to their pools. Whether a candidate pool
+ * may actually be used depends on its current state and on the file, and is therefore decided
+ * on every selection. Client addresses are keyed by the net unit they resolve to, so that all
+ * clients of a net unit share entries.
+ * <p>
+ * The cache must be cleared whenever the configuration changes. Entries must only be added while
+ * holding the read lock of the pool selection unit, so that an entry computed from an old
+ * configuration cannot be added after the cache has been cleared.
+ */
+class PoolSelectionCache {
+
+    /**
+     * Preference level of candidate pools.
+     */
+    static class Level {
+
+        private final List<Pool> pools;
+        private final String tag;
+
+        Level(List<Pool> pools, String tag) {
+            this.pools = ImmutableList.copyOf(pools);
+            this.tag = tag;
+        }
+
+        List<Pool> getPools() {
+            return pools;
+        }
+
+        String getTag() {
+            return tag;
+        }
+    }
+
+    static class Key {
+
+        private final DirectionType type;
+        private final String storeUnit;
+        private final String cacheClass;
+        private final String netUnit;
+        private final String protocolUnit;
+        private final String linkGroup;
+
+        Key(DirectionType type, String storeUnit, String cacheClass, String netUnit,
+              String protocolUnit, String linkGroup) {
+            this.type = type;
+            this.storeUnit = storeUnit;
+            this.cacheClass = cacheClass;
+            this.netUnit = netUnit;
+            this.protocolUnit = protocolUnit;
+            this.linkGroup = linkGroup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type
+                  && storeUnit.equals(other.storeUnit)
+                  && Objects.equals(cacheClass, other.cacheClass)
+                  && Objects.equals(netUnit, other.netUnit)
+                  && Objects.equals(protocolUnit, other.protocolUnit)
+                  && Objects.equals(linkGroup, other.linkGroup);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, storeUnit, cacheClass, netUnit, protocolUnit, linkGroup);
+        }
+    }
+
+    private final long size;
+
+    private final Cache<Key, Level[]> cache;
+
+    /**
+     * @param size maximum number of cached entries; zero disables the cache
+     */
+    PoolSelectionCache(long size) {
+        this.size = size;
+        this.cache = size > 0
+              ? CacheBuilder.newBuilder().maximumSize(size).recordStats().build()
+              : null;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the cached preference levels, or null if not cached.
+     */
+    Level[] get(Key key) {
+        return cache == null ? null : cache.getIfPresent(key);
+    }
+
+    void put(Key key, Level[] levels) {
+        if (cache != null) {
+            cache.put(key, levels);
+        }
+    }
+
+    void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    long entries() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    CacheStats stats() {
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+}
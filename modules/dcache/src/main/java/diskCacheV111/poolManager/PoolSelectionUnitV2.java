@@ -11,6 +11,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -19,6 +20,7 @@ import diskCacheV111.vehicles.GenericStorageInfo;
 import diskCacheV111.vehicles.StorageInfo;
 import dmg.cells.nucleus.CellAddressCore;
 import dmg.cells.nucleus.CellCommandListener;
+import dmg.cells.nucleus.CellInfoProvider;
 import dmg.cells.nucleus.CellLifeCycleAware;
 import dmg.cells.nucleus.CellSetupProvider;
 import dmg.util.CommandException;
@@ -27,6 +29,7 @@ import dmg.util.command.Argument;
 import dmg.util.command.Command;
 import dmg.util.command.Option;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.Serializable;
@@ -59,7 +62,7 @@ import org.slf4j.LoggerFactory;
 
 public class PoolSelectionUnitV2
       implements Serializable, PoolSelectionUnit, PoolSelectionUnitAccess, CellSetupProvider,
-      CellCommandListener, CellLifeCycleAware {
+      CellCommandListener, CellLifeCycleAware, CellInfoProvider {
 
     private static final String __version = "$Id: PoolSelectionUnitV2.java,v 1.42 2007-10-25 14:03:54 tigran Exp $";
     private static final Logger LOGGER = LoggerFactory.getLogger(PoolSelectionUnitV2.class);
@@ -80,7 +83,7 @@ public class PoolSelectionUnitV2
     private final Map<String, UGroup> _uGroups = new HashMap<>();
     private final Map<String, Unit> _units = new HashMap<>();
     private boolean _useRegex;
-    private boolean _allPoolsActive;
+    private volatile boolean _allPoolsActive;
 
     /**
      * Ok, this is the critical part of PoolManager, but (!!!) the whole select path is READ-ONLY,
@@ -94,6 +97,29 @@ public class PoolSelectionUnitV2
 
     private final NetHandler _netHandler = new NetHandler();
 
+    private long _matchCacheSize = 10000;
+
+    /**
+     * Cache of the configuration dependent part of {@link #match}. Cleared whenever the write
+     * lock is released.
+     */
+    private transient volatile PoolSelectionCache _matchCache =
+          new PoolSelectionCache(_matchCacheSize);
+
+    /**
+     * Sets the maximum number of cached pool selection decisions. Zero disables the cache.
+     */
+    public void setMatchCacheSize(long size) {
+        Preconditions.checkArgument(size >= 0, "Cache size must not be negative");
+        wlock();
+        try {
+            _matchCacheSize = size;
+            _matchCache = new PoolSelectionCache(size);
+        } finally {
+            wunlock();
+        }
+    }
+
     @Override
     public Map<String, SelectionLink> getLinks() {
         rlock();
@@ -216,6 +242,17 @@ public class PoolSelectionUnitV2
         wunlock();
     }
 
+    @Override
+    public void getInfo(PrintWriter pw) {
+        PoolSelectionCache cache = _matchCache;
+        CacheStats stats = cache.stats();
+        pw.println("Selection cache:");
+        pw.println("    Max entries : " + cache.getSize());
+        pw.println("    Entries     : " + cache.entries());
+        pw.println("    Hit rate    : "
+              + String.format("%.1f%% of %d", stats.hitRate() * 100, stats.requestCount()));
+    }
+
     @Override
     public void printSetup(PrintWriter pw) {
         rlock();
@@ -581,300 +618,309 @@ public class PoolSelectionUnitV2
               type, storeUnitName, dCacheUnitName, netUnitName, protocolUnitName,
               variableMap, storageInfo.locations(), linkGroupName);
 
-        PoolPreferenceLevel[] result = null;
+        /* Clients share cache entries with all other clients of the same
+         * net unit, so the address is resolved before the lookup.
+         */
+        PoolSelectionCache.Level[] levels;
         rlock();
         try {
-            //
-            // resolve the unit from the unitname (or net unit mask)
-            //
-            // regexp code added by rw2 12/5/02
-            // original code is in the else
-            //
-            List<Unit> list = new ArrayList<>();
-            if (_useRegex) {
-                Unit universalCoverage = null;
-                Unit classCoverage = null;
-
-                for (Unit unit : _units.values()) {
-                    if (unit.getType() != STORE) {
-                        continue;
-                    }
+            Unit netUnit = (netUnitName == null) ? null : matchNetUnit(netUnitName);
+            PoolSelectionCache.Key key = new PoolSelectionCache.Key(type, storeUnitName,
+                  dCacheUnitName, (netUnit == null) ? null : netUnit.getName(),
+                  protocolUnitName, linkGroupName);
+            levels = _matchCache.get(key);
+            if (levels == null) {
+                levels = matchLevels(type, storeUnitName, dCacheUnitName, netUnit,
+                      protocolUnitName, linkGroupName);
+                _matchCache.put(key, levels);
+            }
+        } finally {
+            runlock();
+        }
 
-                    if (unit.getName().equals("*@*")) {
-                        universalCoverage = unit;
-                    } else if (unit.getName().equals("*@" + storeUnitName)) {
-                        classCoverage = unit;
+        //
+        // resolve the links to the pools
+        //
+        PoolPreferenceLevel[] result = new PoolPreferenceLevel[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            List<String> resultList = new ArrayList<>();
+            for (Pool pool : levels[i].getPools()) {
+                LOGGER.debug("Pool: {} can read from tape? : {}", pool, pool.canReadFromTape());
+                if (((type == DirectionType.READ && pool.canRead())
+                      || (type == DirectionType.CACHE && pool.canReadFromTape()
+                      && poolCanStageFile(pool, fileAttributes))
+                      || (type == DirectionType.WRITE && pool.canWrite())
+                      || (type == DirectionType.P2P && pool.canWriteForP2P()))
+                      && (_allPoolsActive || pool.isActive())) {
+                    if (exclude.test(pool.getName())) {
+                        LOGGER.debug("Qualifying pool {} is on excluded host {}; skipping.",
+                              pool.getName(), pool.getCanonicalHostName());
                     } else {
-                        if (Pattern.matches(unit.getName(), storeUnitName)) {
-                            list.add(unit);
-                            break;
-                        }
-                    }
-                }
-                //
-                // If a pattern matches then use it, fail over to a class,
-                // then universal. If nothing, throw exception
-                //
-                if (list.isEmpty()) {
-                    if (classCoverage != null) {
-                        list.add(classCoverage);
-                    } else if (universalCoverage != null) {
-                        list.add(universalCoverage);
-                    } else {
-                        throw new IllegalArgumentException(
-                              "Unit not found : " + storeUnitName);
+                        resultList.add(pool.getName());
                     }
                 }
+            }
+            result[i] = new PoolPreferenceLevel(resultList, levels[i].getTag());
+        }
 
-            } else {
-                Unit unit = _units.get(storeUnitName);
-                if (unit == null) {
-                    int ind = storeUnitName.lastIndexOf('@');
-                    if ((ind > 0) && (ind < (storeUnitName.length() - 1))) {
-                        String template = "*@"
-                              + storeUnitName.substring(ind + 1);
-                        if ((unit = _units.get(template)) == null) {
-
-                            if ((unit = _units.get("*@*")) == null) {
-                                LOGGER.debug("no matching storage unit found for: {}",
-                                      storeUnitName);
-                                throw new IllegalArgumentException(
-                                      "Unit not found : " + storeUnitName);
-                            }
-                        }
-                    } else {
-                        throw new IllegalArgumentException(
-                              "IllegalUnitFormat : " + storeUnitName);
-                    }
+        if (LOGGER.isDebugEnabled()) {
+
+            StringBuilder sb = new StringBuilder("match done: ");
+
+            for (int i = 0; i < result.length; i++) {
+                sb.append("[").append(i).append("] :");
+                for (String poolName : result[i].getPoolList()) {
+                    sb.append(" ").append(poolName);
                 }
-                LOGGER.debug("matching storage unit found for: {}", storeUnitName);
-                list.add(unit);
             }
-            if (protocolUnitName != null) {
+            LOGGER.debug(sb.toString());
+        }
+        return result;
+    }
 
-                Unit unit = findProtocolUnit(protocolUnitName);
-                //
-                if (unit == null) {
-                    LOGGER.debug("no matching protocol unit found for: {}", protocolUnitName);
-                    throw new IllegalArgumentException("Unit not found : "
-                          + protocolUnitName);
+    /**
+     * Returns the net unit matching the given address. Must be called with the read lock held.
+     */
+    private Unit matchNetUnit(String netUnitName) {
+        try {
+            Unit unit = _netHandler.match(netUnitName);
+            if (unit == null) {
+                LOGGER.debug("no matching net unit found for: {}", netUnitName);
+                throw new IllegalArgumentException(
+                      "Unit not matched : " + netUnitName);
+            }
+            LOGGER.debug("matching net unit found: {}", unit);
+            return unit;
+        } catch (UnknownHostException uhe) {
+            throw new IllegalArgumentException(
+                  "NetUnit not resolved : " + netUnitName);
+        }
+    }
+
+    /**
+     * Returns the preference levels of candidate pools for the given units and link group.
+     * Candidate pools have not been checked for whether they can currently serve the request.
+     * Must be called with the read lock held.
+     */
+    private PoolSelectionCache.Level[] matchLevels(DirectionType type, String storeUnitName,
+          String dCacheUnitName, Unit netUnit, String protocolUnitName,
+          String linkGroupName) {
+        //
+        // resolve the unit from the unitname (or net unit mask)
+        //
+        // regexp code added by rw2 12/5/02
+        // original code is in the else
+        //
+        List<Unit> list = new ArrayList<>();
+        if (_useRegex) {
+            Unit universalCoverage = null;
+            Unit classCoverage = null;
+
+            for (Unit unit : _units.values()) {
+                if (unit.getType() != STORE) {
+                    continue;
+                }
+
+                if (unit.getName().equals("*@*")) {
+                    universalCoverage = unit;
+                } else if (unit.getName().equals("*@" + storeUnitName)) {
+                    classCoverage = unit;
+                } else {
+                    if (unit.getPattern().matcher(storeUnitName).matches()) {
+                        list.add(unit);
+                        break;
+                    }
                 }
-                LOGGER.debug("matching protocol unit found: {}", unit);
-                list.add(unit);
             }
-            if (dCacheUnitName != null) {
-                Unit unit = _units.get(dCacheUnitName);
-                if (unit == null) {
-                    LOGGER.debug("no matching dCache unit found for: {}", dCacheUnitName);
-                    throw new IllegalArgumentException("Unit not found : "
-                          + dCacheUnitName);
+            //
+            // If a pattern matches then use it, fail over to a class,
+            // then universal. If nothing, throw exception
+            //
+            if (list.isEmpty()) {
+                if (classCoverage != null) {
+                    list.add(classCoverage);
+                } else if (universalCoverage != null) {
+                    list.add(universalCoverage);
+                } else {
+                    throw new IllegalArgumentException(
+                          "Unit not found : " + storeUnitName);
                 }
-                LOGGER.debug("matching dCache unit found: {}", unit);
-                list.add(unit);
             }
-            if (netUnitName != null) {
-                try {
-                    Unit unit = _netHandler.match(netUnitName);
-                    if (unit == null) {
-                        LOGGER.debug("no matching net unit found for: {}", netUnitName);
-                        throw new IllegalArgumentException(
-                              "Unit not matched : " + netUnitName);
+
+        } else {
+            Unit unit = _units.get(storeUnitName);
+            if (unit == null) {
+                int ind = storeUnitName.lastIndexOf('@');
+                if ((ind > 0) && (ind < (storeUnitName.length() - 1))) {
+                    String template = "*@"
+                          + storeUnitName.substring(ind + 1);
+                    if ((unit = _units.get(template)) == null) {
+
+                        if ((unit = _units.get("*@*")) == null) {
+                            LOGGER.debug("no matching storage unit found for: {}",
+                                  storeUnitName);
+                            throw new IllegalArgumentException(
+                                  "Unit not found : " + storeUnitName);
+                        }
                     }
-                    LOGGER.debug("matching net unit found: {}", unit);
-                    list.add(unit);
-                } catch (UnknownHostException uhe) {
+                } else {
                     throw new IllegalArgumentException(
-                          "NetUnit not resolved : " + netUnitName);
+                          "IllegalUnitFormat : " + storeUnitName);
                 }
             }
-            //
-            // match the requests ( logical AND )
-            //
-            //
-            // Map map = null ;
-            // while( units.hasNext() )map = match( map , (Unit)units.next() ) ;
-            // Iterator links = map.values().iterator() ;
-            //
+            LOGGER.debug("matching storage unit found for: {}", storeUnitName);
+            list.add(unit);
+        }
+        if (protocolUnitName != null) {
 
+            Unit unit = findProtocolUnit(protocolUnitName);
             //
-            // i) sort according to the type (read,write,cache)
-            // ii) the and is only OK if we have at least as many
-            // units (from the arguments) as required by the
-            // number of uGroupList(s).
-            // iii) check for the hashtable if required.
-            //
-            int fitCount = list.size();
-            Set<Link> sortedSet = new TreeSet<>(new LinkComparator(type));
+            if (unit == null) {
+                LOGGER.debug("no matching protocol unit found for: {}", protocolUnitName);
+                throw new IllegalArgumentException("Unit not found : "
+                      + protocolUnitName);
+            }
+            LOGGER.debug("matching protocol unit found: {}", unit);
+            list.add(unit);
+        }
+        if (dCacheUnitName != null) {
+            Unit unit = _units.get(dCacheUnitName);
+            if (unit == null) {
+                LOGGER.debug("no matching dCache unit found for: {}", dCacheUnitName);
+                throw new IllegalArgumentException("Unit not found : "
+                      + dCacheUnitName);
+            }
+            LOGGER.debug("matching dCache unit found: {}", unit);
+            list.add(unit);
+        }
+        if (netUnit != null) {
+            list.add(netUnit);
+        }
+        //
+        // match the requests ( logical AND )
+        //
+        //
+        // Map map = null ;
+        // while( units.hasNext() )map = match( map , (Unit)units.next() ) ;
+        // Iterator links = map.values().iterator() ;
+        //
 
-            //
-            // use subset on links if it's defined
-            //
+        //
+        // i) sort according to the type (read,write,cache)
+        // ii) the and is only OK if we have at least as many
+        // units (from the arguments) as required by the
+        // number of uGroupList(s).
+        // iii) check for the hashtable if required.
+        //
+        int fitCount = list.size();
+        Set<Link> sortedSet = new TreeSet<>(new LinkComparator(type));
 
-            LinkGroup linkGroup = null;
-            if (linkGroupName != null) {
-                linkGroup = _linkGroups.get(linkGroupName);
-                if (linkGroup == null) {
-                    LOGGER.debug("LinkGroup not found : {}", linkGroupName);
-                    throw new IllegalArgumentException("LinkGroup not found : "
-                          + linkGroupName);
-                }
+        //
+        // use subset on links if it's defined
+        //
+
+        LinkGroup linkGroup = null;
+        if (linkGroupName != null) {
+            linkGroup = _linkGroups.get(linkGroupName);
+            if (linkGroup == null) {
+                LOGGER.debug("LinkGroup not found : {}", linkGroupName);
+                throw new IllegalArgumentException("LinkGroup not found : "
+                      + linkGroupName);
             }
+        }
 
-            //
-            // find all links that matches the specified list of units
-            //
+        //
+        // find all links that matches the specified list of units
+        //
 
-            LinkMap matchingLinks = new LinkMap();
-            for (Unit unit : list) {
-                matchingLinks = match(matchingLinks, unit, linkGroup, type);
-            }
+        LinkMap matchingLinks = new LinkMap();
+        for (Unit unit : list) {
+            matchingLinks = match(matchingLinks, unit, linkGroup, type);
+        }
 
-            Iterator<Link> linkIterator = matchingLinks.iterator();
-            while (linkIterator.hasNext()) {
+        Iterator<Link> linkIterator = matchingLinks.iterator();
+        while (linkIterator.hasNext()) {
 
-                Link link = linkIterator.next();
-                if (link._uGroupList.size() <= fitCount) {
-                    sortedSet.add(link);
-                }
+            Link link = linkIterator.next();
+            if (link._uGroupList.size() <= fitCount) {
+                sortedSet.add(link);
             }
-            int pref = -1;
-            List<List<Link>> listList = new ArrayList<>();
-            List<Link> current = null;
+        }
+        int pref = -1;
+        List<List<Link>> listList = new ArrayList<>();
+        List<Link> current = null;
 
-            switch (type) {
+        switch (type) {
 
-                case READ:
-                    for (Link link : sortedSet) {
-                        if (link.getReadPref() < 1) {
-                            continue;
-                        }
-                        if (link.getReadPref() != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = link.getReadPref();
-                        }
-                        current.add(link);
+            case READ:
+                for (Link link : sortedSet) {
+                    if (link.getReadPref() < 1) {
+                        continue;
                     }
-                    break;
-                case CACHE:
-                    for (Link link : sortedSet) {
-                        if (link.getCachePref() < 1) {
-                            continue;
-                        }
-                        if (link.getCachePref() != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = link.getCachePref();
-                        }
-                        current.add(link);
+                    if (link.getReadPref() != pref) {
+                        listList.add(current = new ArrayList<>());
+                        pref = link.getReadPref();
                     }
-                    break;
-                case P2P:
-                    for (Link link : sortedSet) {
-                        int tmpPref = link.getP2pPref() < 0 ? link.getReadPref()
-                              : link.getP2pPref();
-                        if (tmpPref < 1) {
-                            continue;
-                        }
-                        if (tmpPref != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = tmpPref;
-                        }
-                        current.add(link);
+                    current.add(link);
+                }
+                break;
+            case CACHE:
+                for (Link link : sortedSet) {
+                    if (link.getCachePref() < 1) {
+                        continue;
                     }
-                    break;
-                case WRITE:
-                    for (Link link : sortedSet) {
-                        if (link.getWritePref() < 1) {
-                            continue;
-                        }
-                        if (link.getWritePref() != pref) {
-                            listList.add(current = new ArrayList<>());
-                            pref = link.getWritePref();
-                        }
-                        current.add(link);
+                    if (link.getCachePref() != pref) {
+                        listList.add(current = new ArrayList<>());
+                        pref = link.getCachePref();
                     }
-            }
-            List<Link>[] x = listList.toArray(List[]::new);
-            result = new PoolPreferenceLevel[x.length];
-            //
-            // resolve the links to the pools
-            //
-            for (int i = 0; i < x.length; i++) {
-
-                List<Link> linkList = x[i];
-                List<String> resultList = new ArrayList<>();
-                String tag = null;
-
-                for (Link link : linkList) {
-                    //
-                    // get the link if available
-                    //
-                    if ((tag == null) && (link.getTag() != null)) {
-                        tag = link.getTag();
+                    current.add(link);
+                }
+                break;
+            case P2P:
+                for (Link link : sortedSet) {
+                    int tmpPref = link.getP2pPref() < 0 ? link.getReadPref()
+                          : link.getP2pPref();
+                    if (tmpPref < 1) {
+                        continue;
                     }
-
-                    for (PoolCore poolCore : link._poolList.values()) {
-                        if (poolCore instanceof Pool) {
-                            Pool pool = (Pool) poolCore;
-                            LOGGER.debug("Pool: {} can read from tape? : {}", pool,
-                                  pool.canReadFromTape());
-                            if (((type == DirectionType.READ && pool.canRead())
-                                  || (type == DirectionType.CACHE && pool.canReadFromTape()
-                                  && poolCanStageFile(pool, fileAttributes))
-                                  || (type == DirectionType.WRITE && pool.canWrite())
-                                  || (type == DirectionType.P2P && pool.canWriteForP2P()))
-                                  && (_allPoolsActive || pool.isActive())) {
-                                if (exclude.test(pool.getName())) {
-                                    LOGGER.debug(
-                                          "Qualifying pool {} is on excluded host {}; skipping.",
-                                          pool.getName(),
-                                          pool.getCanonicalHostName());
-                                } else {
-                                    resultList.add(pool.getName());
-                                }
-                            }
-                        } else {
-                            for (Pool pool : ((PGroup) poolCore)._poolList.values()) {
-                                LOGGER.debug("Pool: {} can read from tape? : {}", pool,
-                                      pool.canReadFromTape());
-                                if (((type == DirectionType.READ && pool.canRead())
-                                      || (type == DirectionType.CACHE && pool.canReadFromTape()
-                                      && poolCanStageFile(pool, fileAttributes))
-                                      || (type == DirectionType.WRITE && pool.canWrite())
-                                      || (type == DirectionType.P2P && pool.canWriteForP2P()))
-                                      && (_allPoolsActive || pool.isActive())) {
-                                    if (exclude.test(pool.getName())) {
-                                        LOGGER.debug(
-                                              "Qualifying pool {} is on excluded host {}; skipping.",
-                                              pool.getName(),
-                                              pool.getCanonicalHostName());
-                                    } else {
-                                        resultList.add(pool.getName());
-                                    }
-                                }
-                            }
-                        }
+                    if (tmpPref != pref) {
+                        listList.add(current = new ArrayList<>());
+                        pref = tmpPref;
                     }
+                    current.add(link);
+                }
+                break;
+            case WRITE:
+                for (Link link : sortedSet) {
+                    if (link.getWritePref() < 1) {
+                        continue;
+                    }
+                    if (link.getWritePref() != pref) {
+                        listList.add(current = new ArrayList<>());
+                        pref = link.getWritePref();
+                    }
+                    current.add(link);
                 }
-                result[i] = new PoolPreferenceLevel(resultList, tag);
-            }
-
-        } finally {
-            runlock();
         }
-
-        if (LOGGER.isDebugEnabled()) {
-
-            StringBuilder sb = new StringBuilder("match done: ");
-
-            for (int i = 0; i < result.length; i++) {
-                sb.append("[").append(i).append("] :");
-                for (String poolName : result[i].getPoolList()) {
-                    sb.append(" ").append(poolName);
+        PoolSelectionCache.Level[] levels = new PoolSelectionCache.Level[listList.size()];
+        for (int i = 0; i < levels.length; i++) {
+            List<Pool> pools = new ArrayList<>();
+            String tag = null;
+            for (Link link : listList.get(i)) {
+                if ((tag == null) && (link.getTag() != null)) {
+                    tag = link.getTag();
+                }
+                for (PoolCore poolCore : link._poolList.values()) {
+                    if (poolCore instanceof Pool) {
+                        pools.add((Pool) poolCore);
+                    } else {
+                        pools.addAll(((PGroup) poolCore)._poolList.values());
+                    }
                 }
             }
-            LOGGER.debug(sb.toString());
+            levels[i] = new PoolSelectionCache.Level(pools, tag);
         }
-        return result;
+        return levels;
     }
 
     @Override
@@ -1161,18 +1207,23 @@ public class PoolSelectionUnitV2
 
     public String setRegex(String onOff) {
         String retVal;
-        switch (onOff) {
-            case "on":
-                _useRegex = true;
-                retVal = "regex turned on";
-                break;
-            case "off":
-                _useRegex = false;
-                retVal = "regex turned off";
-                break;
-            default:
-                throw new IllegalArgumentException(
-                      "please set regex either on or off");
+        wlock();
+        try {
+            switch (onOff) {
+                case "on":
+                    _useRegex = true;
+                    retVal = "regex turned on";
+                    break;
+                case "off":
+                    _useRegex = false;
+                    retVal = "regex turned off";
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                          "please set regex either on or off");
+            }
+        } finally {
+            wunlock();
         }
         return retVal;
     }
@@ -2503,6 +2554,9 @@ public class PoolSelectionUnitV2
     }
 
     protected void wunlock() {
+        if (_psuReadWriteLock.getWriteHoldCount() == 1) {
+            _matchCache.clear();
+        }
         _psuWriteLock.unlock();
     }
 
@@ -3058,4 +3112,9 @@ public class PoolSelectionUnitV2
             runlock();
         }
     }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        _matchCache = new PoolSelectionCache(_matchCacheSize);
+    }
 }
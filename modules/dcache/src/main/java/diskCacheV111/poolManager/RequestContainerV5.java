@@ -1,23 +1,29 @@
 package diskCacheV111.poolManager;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static diskCacheV111.poolManager.RequestContainerV5.StateType.TRANSITORY;
 import static diskCacheV111.poolManager.RequestContainerV5.StateType.WAITING;
 import static dmg.util.CommandException.checkCommand;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 import static org.dcache.util.MathUtils.addWithInfinity;
+import static org.dcache.util.MathUtils.subWithInfinity;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.CheckStagePermission;
 import diskCacheV111.util.DestinationCostException;
+import diskCacheV111.util.FileIsNewCacheException;
 import diskCacheV111.util.FileNotInCacheException;
 import diskCacheV111.util.MissingResourceCacheException;
+import diskCacheV111.util.NotFileCacheException;
 import diskCacheV111.util.PermissionDeniedCacheException;
 import diskCacheV111.util.PnfsHandler;
 import diskCacheV111.util.PnfsId;
@@ -28,6 +34,7 @@ import diskCacheV111.vehicles.Message;
 import diskCacheV111.vehicles.Pool2PoolTransferMsg;
 import diskCacheV111.vehicles.PoolFetchFileMessage;
 import diskCacheV111.vehicles.PoolHitInfoMessage;
+import diskCacheV111.vehicles.PoolMgrOpenReadMsg;
 import diskCacheV111.vehicles.PoolMgrReplicateFileMsg;
 import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
 import diskCacheV111.vehicles.PoolStatusChangedMessage;
@@ -78,6 +85,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import org.dcache.cells.CellStub;
+import org.dcache.namespace.FileType;
 import org.dcache.poolmanager.CostException;
 import org.dcache.poolmanager.Partition;
 import org.dcache.poolmanager.PartitionManager;
@@ -88,6 +96,7 @@ import org.dcache.poolmanager.SelectedPool;
 import org.dcache.util.Args;
 import org.dcache.util.FireAndForgetTask;
 import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Required;
@@ -778,7 +787,9 @@ public class RequestContainerV5
 
         String canonicalName =
               pnfsId + "@" + netName + "-" + protocolName + (enforceP2P ? "-p2p" : "")
-                    + (poolGroup == null ? "" : ("-pg-" + poolGroup));
+                    + (poolGroup == null ? "" : ("-pg-" + poolGroup))
+                    + (allowedStates.equals(allStates) ? ""
+                    : ("-no" + EnumSet.complementOf(allowedStates)));
 
         LOGGER.info("Adding request for : {}", canonicalName);
         synchronized (_handlerHash) {
@@ -796,6 +807,87 @@ public class RequestContainerV5
         }
     }
 
+    /**
+     * Opens a file for reading: the file attributes are fetched from PnfsManager and a read pool
+     * is selected by sending a pool selection request to this cell.  The door receives a single
+     * reply for both steps.
+     */
+    public void messageArrived(CellMessage envelope, PoolMgrOpenReadMsg request) {
+        long deadline = addWithInfinity(System.currentTimeMillis(),
+              subWithInfinity(envelope.getAdjustedTtl(), envelope.getLocalAge()));
+
+        ListenableFuture<PnfsGetFileAttributes> lookup =
+              _pnfsHandler.requestAsync(request.getNameSpaceRequest(),
+                    timeoutFor(deadline));
+        ListenableFuture<PoolMgrSelectReadPoolMsg> selection = Futures.transformAsync(lookup,
+              reply -> {
+                  FileAttributes attributes = reply.getFileAttributes();
+                  FileType type = attributes.getFileType();
+                  if (type == FileType.DIR || type == FileType.SPECIAL) {
+                      throw new NotFileCacheException("Not a regular file");
+                  }
+                  if (attributes.getStorageInfo().isCreatedOnly()) {
+                      throw new FileIsNewCacheException();
+                  }
+                  request.setFileAttributes(attributes);
+
+                  PoolMgrSelectReadPoolMsg select =
+                        new PoolMgrSelectReadPoolMsg(attributes,
+                              request.getProtocolInfo(),
+                              request.getContext(),
+                              EnumSet.copyOf(PoolMgrOpenReadMsg.ALLOWED_STATES));
+                  select.setId(request.getId());
+                  select.setSubject(request.getSubject());
+                  String path = attributes.getStorageInfo().getKey("path");
+                  select.setBillingPath(path != null ? path : request.getTransferPath());
+                  select.setTransferPath(request.getTransferPath());
+                  select.setIoQueueName(request.getIoQueueName());
+                  select.setExcludedHosts(request.getExcludedHosts());
+                  return new CellStub(getCellEndpoint(), new CellPath(getCellAddress()))
+                        .send(select, timeoutFor(deadline));
+              }, directExecutor());
+
+        Futures.addCallback(selection, new FutureCallback<PoolMgrSelectReadPoolMsg>() {
+            @Override
+            public void onSuccess(PoolMgrSelectReadPoolMsg select) {
+                request.setFileAttributes(select.getFileAttributes());
+                request.setPool(select.getPool());
+                request.setContext(select.getContext());
+                request.setSucceeded();
+                reply();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (request.getFileAttributes() != null) {
+                    /* The door falls back to a regular pool selection, which may
+                     * stage or replicate the file.
+                     */
+                    LOGGER.debug("No online replica of {} could be selected: {}",
+                          request.getFileAttributes().getPnfsId(), t.getMessage());
+                    request.setSucceeded();
+                } else if (t instanceof CacheException) {
+                    CacheException e = (CacheException) t;
+                    request.setFailed(e.getRc(), e.getMessage());
+                } else if (t instanceof NoRouteToCellException) {
+                    request.setFailed(CacheException.TIMEOUT, t.getMessage());
+                } else {
+                    request.setFailed(CacheException.UNEXPECTED_SYSTEM_EXCEPTION, t.toString());
+                }
+                reply();
+            }
+
+            private void reply() {
+                envelope.revertDirection();
+                sendMessage(envelope);
+            }
+        }, directExecutor());
+    }
+
+    private static long timeoutFor(long deadline) {
+        return Math.max(0, subWithInfinity(deadline, System.currentTimeMillis()));
+    }
+
     // replicate a file
     public static final String hh_replicate = " <pnfsid> <client IP>";
 
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 class Unit implements Serializable, SelectionUnit {
 
@@ -15,6 +16,7 @@ class Unit implements Serializable, SelectionUnit {
     private final String _name;
     private final UnitType _type;
     final Map<String, UGroup> _uGroupList = new ConcurrentHashMap<>();
+    private transient volatile Pattern _pattern;
 
     Unit(String name, UnitType type) {
         _name = name;
@@ -34,6 +36,18 @@ class Unit implements Serializable, SelectionUnit {
         return _type;
     }
 
+    /**
+     * Returns the name of this unit compiled as a regular expression.
+     */
+    Pattern getPattern() {
+        Pattern pattern = _pattern;
+        if (pattern == null) {
+            pattern = Pattern.compile(_name);
+            _pattern = pattern;
+        }
+        return pattern;
+    }
+
     @Override
     public Collection<SelectionUnitGroup> getMemberOfUnitGroups() {
         return new ArrayList(_uGroupList.values());
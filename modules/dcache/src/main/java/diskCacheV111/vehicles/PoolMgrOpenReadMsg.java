@@ -0,0 +1,149 @@
+package diskCacheV111.vehicles;
+
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.poolManager.RequestContainerV5;
+import java.util.EnumSet;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+
+/**
+ * Requests pool manager to open a file for reading in a single round trip.
+ * <p>
+ * Pool manager forwards the embedded name space request to PnfsManager and, if the file may be
+ * read, selects a read pool for it.  Only pools that already hold an online replica are
+ * considered: neither staging nor pool to pool transfers are initiated on behalf of this message,
+ * and the selection fails rather than being suspended.
+ * <p>
+ * If the name space lookup fails, the message fails with the error of the lookup.  Otherwise the
+ * reply carries the file attributes and, if a pool could be selected, that pool.  A reply without a
+ * pool is not an error: the door should select a pool with {@link PoolMgrSelectReadPoolMsg}, which
+ * may stage or replicate the file.
+ */
+public class PoolMgrOpenReadMsg extends PoolManagerMessage {
+
+    private static final long serialVersionUID = 2866203851146318291L;
+
+    /**
+     * The states a pool selection initiated by this message may enter. Without ST_SUSPENDED, a
+     * selection that would be suspended fails at once and the door falls back to a regular
+     * selection.
+     */
+    public static final EnumSet<RequestContainerV5.RequestState> ALLOWED_STATES =
+          EnumSet.complementOf(EnumSet.of(RequestContainerV5.RequestState.ST_STAGE,
+                RequestContainerV5.RequestState.ST_POOL_2_POOL,
+                RequestContainerV5.RequestState.ST_SUSPENDED));
+
+    private final PnfsGetFileAttributes _nameSpaceRequest;
+    private final ProtocolInfo _protocolInfo;
+    private String _transferPath;
+    private String _ioQueueName;
+    private Set<String> _excludedHosts;
+    private PoolMgrSelectReadPoolMsg.Context _context;
+
+    private FileAttributes _fileAttributes;
+    private Pool _pool;
+
+    /**
+     * @param nameSpaceRequest request for the attributes of the file, including the subject,
+     *                         restriction and access mask to apply
+     * @param protocolInfo     ProtocolInfo describing the transfer
+     */
+    public PoolMgrOpenReadMsg(PnfsGetFileAttributes nameSpaceRequest, ProtocolInfo protocolInfo) {
+        _nameSpaceRequest = requireNonNull(nameSpaceRequest);
+        _protocolInfo = requireNonNull(protocolInfo);
+        setReplyRequired(true);
+    }
+
+    @Nonnull
+    public PnfsGetFileAttributes getNameSpaceRequest() {
+        return _nameSpaceRequest;
+    }
+
+    @Nonnull
+    public ProtocolInfo getProtocolInfo() {
+        return _protocolInfo;
+    }
+
+    public String getTransferPath() {
+        return _transferPath;
+    }
+
+    public void setTransferPath(String path) {
+        _transferPath = path;
+    }
+
+    public String getIoQueueName() {
+        return _ioQueueName;
+    }
+
+    public void setIoQueueName(String ioQueueName) {
+        _ioQueueName = ioQueueName;
+    }
+
+    public Set<String> getExcludedHosts() {
+        return _excludedHosts;
+    }
+
+    public void setExcludedHosts(Set<String> excludedHosts) {
+        _excludedHosts = excludedHosts;
+    }
+
+    public PoolMgrSelectReadPoolMsg.Context getContext() {
+        return _context;
+    }
+
+    public void setContext(PoolMgrSelectReadPoolMsg.Context context) {
+        _context = context;
+    }
+
+    /**
+     * Returns the attributes of the file, or null if the name space lookup has not completed.
+     */
+    @Nullable
+    public FileAttributes getFileAttributes() {
+        return _fileAttributes;
+    }
+
+    public void setFileAttributes(FileAttributes fileAttributes) {
+        _fileAttributes = fileAttributes;
+    }
+
+    /**
+     * Returns the selected pool, or null if no pool with an online replica could be selected.
+     */
+    @Nullable
+    public Pool getPool() {
+        return _pool;
+    }
+
+    public void setPool(Pool pool) {
+        _pool = pool;
+    }
+
+    @Override
+    public boolean requiresAffinity() {
+        // without stage and p2p, any pool manager instance may serve the request.
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        if (getReturnCode() == 0 && _fileAttributes != null) {
+            return "PnfsId=" + _fileAttributes.getPnfsId() + ";"
+                  + ((_pool == null) ? "" : _pool);
+        } else {
+            return super.toString();
+        }
+    }
+
+    @Override
+    public String getDiagnosticContext() {
+        String path = _nameSpaceRequest.getPnfsPath();
+        return super.getDiagnosticContext() + ' '
+              + (path != null ? path : _nameSpaceRequest.getPnfsId());
+    }
+}
@@ -200,6 +200,23 @@ public class RemoteNameSpaceProvider implements NameSpaceProvider {
         }
     }
 
+    @Override
+    public void listAfter(Subject subject, String path, Glob glob, String after,
+          Range<Integer> range, Set<FileAttribute> attrs, ListHandler handler)
+          throws CacheException {
+        try (ListDirectoryHandler.Stream stream = _handler.listAfter(subject,
+              Restrictions.none(), FsPath.create(path), glob, after, range, attrs)) {
+            if (!stream.isOrdered()) {
+                throw new CacheException("PnfsManager does not support ordered listing.");
+            }
+            for (DirectoryEntry entry : stream) {
+                handler.addEntry(entry.getName(), entry.getFileAttributes());
+            }
+        } catch (InterruptedException e) {
+            throw new TimeoutCacheException(e.getMessage());
+        }
+    }
+
     @Override
     public void listVirtualDirectory(Subject subject, String path,
                      Range<Integer> range, Set<FileAttribute> attrs, ListHandler handler)
@@ -54,7 +54,7 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
-import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import java.io.IOException;
@@ -72,7 +72,10 @@ import java.util.OptionalLong;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.dcache.namespace.FileAttribute;
+import org.dcache.pool.movers.ChecksumChannel;
+import org.dcache.pool.movers.NettyMover.ReadPath;
 import org.dcache.pool.movers.NettyTransferService;
+import org.dcache.pool.repository.FileRepositoryChannel;
 import org.dcache.pool.repository.OutOfDiskException;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
@@ -120,6 +123,12 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
 
     private final int _chunkSize;
 
+    /**
+     * Whether file content may be sent using {@link RepositoryChannelFileRegion} rather than
+     * through {@link ReusableChunkedNioFile}.
+     */
+    private final boolean _isZeroCopyEnabled;
+
     /**
      * The file being uploaded. Even though we only keep the file open for the processing of a
      * single HTTP message, that one message may have been split into several chunks. Hence we have
@@ -150,8 +159,14 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
     }
 
     public HttpPoolRequestHandler(NettyTransferService<HttpProtocolInfo> server, int chunkSize) {
+        this(server, chunkSize, false);
+    }
+
+    public HttpPoolRequestHandler(NettyTransferService<HttpProtocolInfo> server, int chunkSize,
+          boolean isZeroCopyEnabled) {
         _server = server;
         _chunkSize = chunkSize;
+        _isZeroCopyEnabled = isZeroCopyEnabled;
     }
 
     private static Optional<String> wantDigest(HttpRequest request) {
@@ -426,14 +441,18 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
              */
             context.write(new HttpGetResponse(fileSize, file, digest))
                   .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-            context.write(read(file, 0, fileSize - 1))
+            context.write(read(context, file, 0, fileSize - 1, true))
                   .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             ChannelFuture writeAndFlush = context.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
 
             // Release the file immediately after supplying all of the file's content.  We're
             // assuming that the client will not make further requests against this URL.  This is
-            // done to send the DoorTransferFinishedMessage in a timely fashion.
-            writeAndFlush.addListener(f -> file.release());
+            // done to send the DoorTransferFinishedMessage in a timely fashion.  The file is
+            // forgotten so that a kept-alive connection does not accumulate released files.
+            writeAndFlush.addListener(f -> {
+                _files.remove(file);
+                file.release();
+            });
 
             return writeAndFlush;
         } else if (ranges.size() == 1) {
@@ -444,7 +463,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
             context.write(new HttpPartialContentResponse(range.getLower(), range.getUpper(),
                         fileSize, digest))
                   .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-            context.write(read(file, range.getLower(), range.getUpper()))
+            context.write(read(context, file, range.getLower(), range.getUpper(), true))
                   .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
 
             // File is released when the client disconnects.  We're assuming that, after this, the
@@ -476,7 +495,7 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
                 HttpByteRange range = ranges.get(i);
                 context.write(fragmentMarkers[i])
                       .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
-                context.write(read(file, range.getLower(), range.getUpper()))
+                context.write(read(context, file, range.getLower(), range.getUpper(), false))
                       .addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
             }
 
@@ -771,26 +790,49 @@ public class HttpPoolRequestHandler extends HttpRequestHandler {
     }
 
     /**
-     * Read the resources requested in HTTP-request from the pool. Return a ChunkedInput pointing to
-     * the requested portions of the file.
+     * Read the resources requested in HTTP-request from the pool. Return either a ChunkedInput or,
+     * if zero-copy transfers are possible, a FileRegion pointing to the requested portions of the
+     * file.
      * <p>
      * Renew the keep-alive heartbeat, meaning that the last transferred time will be updated,
      * resetting the keep-alive timeout.
      *
+     * @param context    the context of the channel the data is written to
      * @param file       the mover channel to read from
      * @param lowerRange The lower delimiter of the requested byte range of the file
      * @param upperRange The upper delimiter of the requested byte range of the file
-     * @return ChunkedInput View upon the file suitable for sending with netty and representing the
-     * requested parts.
+     * @param allowZeroCopy Whether the caller accepts a FileRegion as response
+     * @return View upon the file suitable for sending with netty and representing the requested
+     * parts.
      */
-    private ChunkedInput read(NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
-          long lowerRange, long upperRange) {
+    private Object read(ChannelHandlerContext context,
+          NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file,
+          long lowerRange, long upperRange, boolean allowZeroCopy) {
         /* need to count position 0 as well */
         long length = (upperRange - lowerRange) + 1;
 
+        if (allowZeroCopy && isZeroCopyPossible(context, file)) {
+            file.recordReadPath(ReadPath.ZERO_COPY);
+            return new RepositoryChannelFileRegion(file, lowerRange, length);
+        }
+
+        file.recordReadPath(ReadPath.CHUNKED);
         return new ReusableChunkedNioFile(file, lowerRange, length, _chunkSize);
     }
 
+    /**
+     * Zero-copy transfers require the replica to be a plain file and the data to reach the socket
+     * unmodified.  Therefore the chunked path is used for TLS connections, for back-ends other than
+     * the local file system and whenever checksums are calculated on the fly.
+     */
+    private boolean isZeroCopyPossible(ChannelHandlerContext context,
+          NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file) {
+        return _isZeroCopyEnabled
+              && context.pipeline().get(SslHandler.class) == null
+              && !file.optionallyAs(ChecksumChannel.class).isPresent()
+              && file.optionallyAs(FileRepositoryChannel.class).isPresent();
+    }
+
     private static String buildDigest(
           NettyTransferService<HttpProtocolInfo>.NettyMoverChannel file) {
         FileAttributes attributes = file.getFileAttributes();
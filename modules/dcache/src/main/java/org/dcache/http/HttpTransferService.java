@@ -73,6 +73,7 @@ public class HttpTransferService extends NettyTransferService<HttpProtocolInfo>
     private static final String PROTOCOL_HTTP = "http";
 
     private int chunkSize;
+    private boolean zeroCopy;
     private ImmutableMap<String, String> customHeaders;
 
     public HttpTransferService() {
@@ -96,6 +97,19 @@ public class HttpTransferService extends NettyTransferService<HttpProtocolInfo>
         this.chunkSize = chunkSize;
     }
 
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Whether downloads may be sent directly from the file system to the socket, bypassing the
+     * chunked copy through Netty buffers.  Only applies to unencrypted transfers of replicas
+     * stored on a local file system.
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+
     @Required
     public void setCustomHeaders(ImmutableMap<String, String> headers) {
         customHeaders = headers;
@@ -175,6 +189,6 @@ public class HttpTransferService extends NettyTransferService<HttpProtocolInfo>
 
         pipeline.addLast("cors", new CorsHandler(corsConfigBuilder().build()));
 
-        pipeline.addLast("transfer", new HttpPoolRequestHandler(this, chunkSize));
+        pipeline.addLast("transfer", new HttpPoolRequestHandler(this, chunkSize, zeroCopy));
     }
 }
@@ -0,0 +1,538 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.classic;
+
+import com.google.common.base.Preconditions;
+import diskCacheV111.util.CacheException;
+import diskCacheV111.util.FileNotInCacheException;
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.StorageInfos;
+import dmg.cells.nucleus.CellCommandListener;
+import dmg.cells.nucleus.CellSetupProvider;
+import dmg.util.Formats;
+import dmg.util.command.Argument;
+import dmg.util.command.Command;
+import dmg.util.command.DelayedCommand;
+import dmg.util.command.Option;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.pool.PoolDataBeanProvider;
+import org.dcache.pool.classic.json.SweeperData;
+import org.dcache.pool.repository.Account;
+import org.dcache.pool.repository.CacheEntry;
+import org.dcache.pool.repository.IllegalTransitionException;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.Repository;
+import org.dcache.pool.repository.SpaceSweeperPolicy;
+import org.dcache.pool.repository.StateChangeEvent;
+import org.dcache.pool.repository.StateChangeListener;
+import org.dcache.pool.repository.StickyChangeEvent;
+import org.dcache.util.histograms.CountingHistogram;
+import org.dcache.vehicles.FileAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+/**
+ * Base class of space sweepers that remove cached replicas in the order of a queue.
+ * <p>
+ * Subclasses maintain the queue of removable replicas and define the order in which they are
+ * removed. This class tracks which replicas are removable, reclaims space when the pool runs out
+ * of it and provides the admin commands.
+ */
+public abstract class AbstractSpaceSweeper
+      implements Runnable, CellCommandListener, StateChangeListener, CellSetupProvider,
+      SpaceSweeperPolicy, PoolDataBeanProvider<SweeperData> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSpaceSweeper.class);
+
+    private static final DateTimeFormatter ISO8601_FORMAT =
+          DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * Signals the sweeper thread that new replicas became removable.
+     */
+    private final Semaphore _added = new Semaphore(0);
+
+    private Repository _repository;
+
+    private Account _account;
+    private Thread _thread;
+    private volatile double _margin = 0.0;
+    private volatile boolean _isIdle;
+
+    @Override
+    public void printSetup(PrintWriter pw) {
+        pw.println("sweeper reclaim margin " + _margin);
+    }
+
+    @Required
+    public void setRepository(Repository repository) {
+        _repository = repository;
+        _repository.addListener(this);
+    }
+
+    @Required
+    public void setAccount(Account account) {
+        _account = account;
+    }
+
+    @Required
+    public void setMargin(double margin) {
+        Preconditions.checkArgument(margin >= 0 && margin <= 1,
+              String.format("margin percentage must be a "
+                    + "value between 0.0 and 1.0, "
+                    + "was given %s.", margin));
+        _margin = margin;
+    }
+
+    public void start() {
+        _thread = new Thread(this, "sweeper");
+        _thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        _thread.interrupt();
+        _thread.join(1000);
+    }
+
+    /**
+     * Returns true if this file is removable. This is the case if the file is not sticky and is
+     * cached (which under normal circumstances implies that it is ready and not precious).
+     */
+    @Override
+    public boolean isRemovable(CacheEntry entry) {
+        return entry.getState() == ReplicaState.CACHED && !entry.isSticky();
+    }
+
+    @Override
+    public double getMargin() {
+        return _margin;
+    }
+
+    /**
+     * Adds a removable entry to the queue unless it is already on the queue.
+     *
+     * @return true if the entry was added
+     */
+    protected abstract boolean add(CacheEntry entry);
+
+    /**
+     * Removes an entry from the queue.
+     *
+     * @return true if the entry was on the queue
+     */
+    protected abstract boolean remove(CacheEntry entry);
+
+    /**
+     * Returns the queued replicas in the order in which they are removed.
+     */
+    protected abstract Iterable<PnfsId> values();
+
+    /**
+     * Returns the number of queued replicas.
+     */
+    protected abstract int size();
+
+    /**
+     * Returns the access time by which a queued replica is ordered.
+     */
+    protected abstract OptionalLong timeOf(PnfsId id);
+
+    /**
+     * Returns the label of the sweeper in the pool info.
+     */
+    protected abstract String getLabel();
+
+    private void addRemovable(CacheEntry entry) {
+        if (add(entry)) {
+            LOGGER.debug("Added {} to sweeper", entry.getPnfsId());
+            /* The sweeper thread may be waiting for more files to
+             * delete.
+             */
+            if (_isIdle) {
+                _added.release();
+            }
+        }
+    }
+
+    private void removeFromQueue(CacheEntry entry) {
+        if (remove(entry)) {
+            LOGGER.debug("Removed {} from sweeper", entry.getPnfsId());
+        }
+    }
+
+    @Override
+    public void stateChanged(StateChangeEvent event) {
+        CacheEntry entry = event.getNewEntry();
+        switch (event.getNewState()) {
+            case REMOVED:
+            case DESTROYED:
+                removeFromQueue(entry);
+                break;
+
+            default:
+                if (isRemovable(entry)) {
+                    addRemovable(entry);
+                } else {
+                    removeFromQueue(entry);
+                }
+                break;
+        }
+    }
+
+    @Override
+    public void stickyChanged(StickyChangeEvent event) {
+        CacheEntry entry = event.getNewEntry();
+        if (isRemovable(entry)) {
+            addRemovable(entry);
+        } else {
+            removeFromQueue(entry);
+        }
+    }
+
+    @AffectsSetup
+    @Command(name = "sweeper reclaim margin",
+          hint = "greedily reclaim removable space",
+          description = "When the sweeper is triggered to reclaim "
+                + "space, require free space after the "
+                + "call to be at least this percentage "
+                + "of total space.")
+    public class SweeperReclaimMargin implements Callable<String> {
+
+        @Argument
+        double margin = 0.0;
+
+        @Override
+        public String call() {
+            setMargin(margin);
+            return "Reclaim margin is now set to " + margin * 100 + "% of total space.";
+        }
+    }
+
+    @Command(name = "sweeper purge", hint = "Purges all removable files from pool",
+          description = "Initiate a sweeper thread (in this pool) to delete " +
+                "all marked removable files from the pool. Note that, if a " +
+                "file is currently in used, this file will not be deleted " +
+                "even if it has been marked for removal.")
+    public class SweeperPurgeCommand implements Callable<String> {
+
+        @Override
+        public String call() {
+            new Thread("sweeper-purge") {
+                @Override
+                public void run() {
+                    try {
+                        long bytes = reclaim(Long.MAX_VALUE, "'sweeper purge' command");
+                        LOGGER.info("'sweeper purge' reclaimed {} bytes.", bytes);
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }.start();
+            return "Purging all removable files from pool.";
+        }
+    }
+
+    @Command(name = "sweeper free", hint = "reclaim space",
+          description = "A sweeper thread is created to reclaim the specified " +
+                "number of bytes by deleting removable files.")
+    public class SweeperFreeCommand implements Callable<String> {
+
+        @Argument(usage = "Specify amount of space in bytes.")
+        long bytesToFree;
+
+        @Override
+        public String call() {
+            new Thread("sweeper-free") {
+                @Override
+                public void run() {
+                    try {
+                        long bytes = reclaim(bytesToFree, "'sweeper free' command");
+                        LOGGER.info("'sweeper free {}' reclaimed {} bytes.", bytesToFree, bytes);
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }.start();
+
+            return String.format("Reclaiming %d bytes", bytesToFree);
+        }
+    }
+
+    @Command(name = "sweeper ls", hint = "list sweeper queue",
+          description = "Lists removable files in the order in which they are "
+                + "removed.")
+    public class SweeperLsCommand extends DelayedCommand<String> {
+
+        @Option(name = "l", usage = "Show creation and last access times.")
+        boolean showVerbose;
+
+        @Option(name = "s", usage = "Show storage info of each entry.")
+        boolean showStorageInfo;
+
+        @Override
+        protected String execute()
+              throws CacheException, InterruptedException {
+            StringBuilder sb = new StringBuilder();
+            int i = 0;
+            for (PnfsId id : values()) {
+                try {
+                    CacheEntry entry = _repository.getEntry(id);
+                    if (showVerbose) {
+                        sb.append(Formats.field(String.valueOf(i), 3, Formats.RIGHT)).append(" ");
+                        sb.append(id.toString()).append("  ");
+                        sb.append(entry.getState()).append("  ");
+                        sb.append(Formats.field(String.valueOf(entry.getReplicaSize()), 11,
+                              Formats.RIGHT));
+                        sb.append(" ");
+                        sb.append(
+                                    ISO8601_FORMAT.format(Instant.ofEpochMilli(entry.getCreationTime())))
+                              .append(" ");
+                        sb.append(ISO8601_FORMAT.format(
+                              Instant.ofEpochMilli(entry.getLastAccessTime()))).append(" ");
+                        if (showStorageInfo) {
+                            FileAttributes attributes = entry.getFileAttributes();
+                            if (attributes.isDefined(FileAttribute.STORAGEINFO)) {
+                                sb.append("\n    ").append(StorageInfos.extractFrom(attributes));
+                            }
+                        }
+                        sb.append("\n");
+                    } else {
+                        sb.append(entry.toString()).append("\n");
+                    }
+                    i++;
+                } catch (FileNotInCacheException e) {
+                    // Ignored
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    @Override
+    public SweeperData getDataObject() {
+        CountingHistogram histogram =
+              SweeperData.createUnconfiguredLastAccessHistogram();
+
+        SweeperData info = new SweeperData(histogram);
+        info.setLabel(getLabel());
+        info.setMargin(_margin);
+        info.setLruQueueSize(size());
+        info.setLruTimestamp(System.currentTimeMillis() - getLru());
+
+        List<Double> fileLifetime = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (PnfsId id : values()) {
+            OptionalLong lastAccess = timeOf(id);
+            if (!lastAccess.isPresent()) {
+                continue;
+            }
+            long lvalue = now - lastAccess.getAsLong();
+            if (lvalue < 0L) {
+                now = System.currentTimeMillis();
+                lvalue = now - lastAccess.getAsLong();
+                if (lvalue < 0L) {
+                    LOGGER.warn("repository last access time for {}"
+                                + " is later than current "
+                                + "system time - now {}, "
+                                + "last access {}",
+                          id, now, lastAccess.getAsLong());
+                }
+            }
+            fileLifetime.add((double) lvalue);
+        }
+
+        histogram.setData(fileLifetime);
+        histogram.configure();
+
+        return info;
+    }
+
+    static String getTimeString(long secin) {
+        int sec = Math.max(0, (int) secin);
+        int min = sec / 60;
+        sec = sec % 60;
+        int hour = min / 60;
+        min = min % 60;
+        int day = hour / 24;
+        hour = hour % 24;
+
+        String sS = Integer.toString(sec);
+        String mS = Integer.toString(min);
+        String hS = Integer.toString(hour);
+
+        StringBuilder sb = new StringBuilder();
+        if (day > 0) {
+            sb.append(day).append(" d ");
+        }
+        sb.append(hS.length() < 2 ? ("0" + hS) : hS).append(":");
+        sb.append(mS.length() < 2 ? ("0" + mS) : mS).append(":");
+        sb.append(sS.length() < 2 ? ("0" + sS) : sS);
+
+        return sb.toString();
+    }
+
+    @Command(name = "sweeper get lru", hint = "get lru file time",
+          description = "Return last access time (in seconds) of the least recently " +
+                "used (lsu) file on the pool.")
+    public class SweeperGetLruCommand implements Callable<String> {
+
+        @Option(name = "f", usage = "Show a returned time in this format: day hour:minutes:seconds")
+        boolean f;
+
+        @Override
+        public String call() {
+            long lru = (System.currentTimeMillis() - getLru()) / 1000L;
+            return f ? getTimeString(lru) : (String.valueOf(lru));
+        }
+    }
+
+    /**
+     * Selects the next batch of replicas to remove. Replicas are taken in queue order until their
+     * combined size reaches {@code amount}. Replicas in use are skipped, as removing them would not
+     * free any space until they are closed.
+     */
+    private List<CacheEntry> selectBatch(long amount) throws InterruptedException {
+        List<CacheEntry> batch = new ArrayList<>();
+        long selected = 0;
+        for (PnfsId id : values()) {
+            try {
+                CacheEntry entry = _repository.getEntry(id);
+                if (entry.getLinkCount() > 0) {
+                    LOGGER.debug("File skipped by sweeper (in use): {}", entry);
+                    continue;
+                }
+                if (!isRemovable(entry)) {
+                    LOGGER.debug("File skipped by sweeper (not removable): {}", entry);
+                    continue;
+                }
+                batch.add(entry);
+                selected += entry.getReplicaSize();
+                if (selected >= amount) {
+                    break;
+                }
+            } catch (FileNotInCacheException e) {
+                /* Removed concurrently.
+                 */
+            } catch (CacheException e) {
+                LOGGER.error(e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Removes replicas in queue order until at least {@code amount} bytes have been freed or no
+     * further replica can be removed.
+     *
+     * @return the number of bytes freed
+     */
+    long reclaim(long amount, String why)
+          throws InterruptedException {
+        LOGGER.debug("Sweeper tries to reclaim {} bytes.", amount);
+
+        long deleted = 0;
+        while (deleted < amount) {
+            List<CacheEntry> batch = selectBatch(amount - deleted);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            long deletedInBatch = 0;
+            for (CacheEntry entry : batch) {
+                PnfsId id = entry.getPnfsId();
+                try {
+                    LOGGER.debug("Sweeper removes {}.", id);
+                    _repository.setState(id, ReplicaState.REMOVED, why);
+                    deletedInBatch += entry.getReplicaSize();
+                } catch (IllegalTransitionException | FileNotInCacheException e) {
+                    /* Normal if file got removed just as we wanted to
+                     * remove it ourselves.
+                     */
+                } catch (CacheException e) {
+                    LOGGER.error(e.getMessage());
+                }
+            }
+            if (deletedInBatch == 0) {
+                break;
+            }
+            deleted += deletedInBatch;
+        }
+
+        return deleted;
+    }
+
+    private long getMarginalBytes() {
+        double reclaim = _repository.getSpaceRecord().getTotalSpace() * _margin;
+        LOGGER.debug("sweeper margin is {}, marginal space to reclaim is {} bytes.",
+              _margin, reclaim);
+        return (long) (reclaim);
+    }
+
+    /**
+     * Blocks until the requested space is larger than the free space and removable space exists.
+     * Returns the number of requested space exceeding the amount of free space.
+     */
+    public long waitForRequests()
+          throws InterruptedException {
+        Account account = _account;
+        synchronized (account) {
+            while (account.getRequested() <= account.getFree() ||
+                  account.getRemovable() == 0) {
+                account.wait();
+            }
+            return getMarginalBytes() + account.getRequested() - account.getFree();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                if (reclaim(waitForRequests(), "sweeper making space for new data") == 0) {
+                    /* The queue may contain entries in use that cannot
+                     * be removed. To avoid a busy wait we sleep until
+                     * new entries become removable, but at most 10
+                     * seconds.
+                     */
+                    _added.drainPermits();
+                    _isIdle = true;
+                    try {
+                        _added.tryAcquire(10, TimeUnit.SECONDS);
+                    } finally {
+                        _isIdle = false;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            /* Signals that the sweeper should quit.
+             */
+        } finally {
+            _repository.removeListener(this);
+        }
+    }
+}
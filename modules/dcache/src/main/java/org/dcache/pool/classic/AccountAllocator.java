@@ -20,20 +20,48 @@ package org.dcache.pool.classic;
 import static java.util.Objects.requireNonNull;
 
 import diskCacheV111.util.PnfsId;
+import javax.annotation.Nullable;
 import org.dcache.pool.repository.Account;
 import org.dcache.pool.repository.Allocator;
+import org.dcache.pool.repository.OutOfDiskException;
 
 /**
  * An Allocator that is based on some Account object.
+ * <p>
+ * If a {@link StripedSpaceReserve} is given, allocations are served through it and subclasses
+ * only provide the behaviour for when the pool is near full.
  */
 public abstract class AccountAllocator implements Allocator {
 
     protected final Account _account;
 
+    @Nullable
+    protected final StripedSpaceReserve _reserve;
+
     public AccountAllocator(Account account) {
+        this(account, null);
+    }
+
+    public AccountAllocator(Account account, @Nullable StripedSpaceReserve reserve) {
         _account = requireNonNull(account);
+        _reserve = reserve;
     }
 
+    @Override
+    public void allocate(PnfsId id, long size) throws InterruptedException, OutOfDiskException {
+        if (_reserve == null) {
+            allocateFromAccount(id, size);
+        } else {
+            _reserve.allocate(id, size, this::allocateFromAccount);
+        }
+    }
+
+    /**
+     * Allocates space directly from the account.
+     */
+    protected abstract void allocateFromAccount(PnfsId id, long size)
+          throws InterruptedException, OutOfDiskException;
+
     @Override
     public void free(PnfsId id, long space) {
         _account.free(id, space);
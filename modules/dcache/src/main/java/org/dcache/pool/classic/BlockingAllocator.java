@@ -30,8 +30,12 @@ public class BlockingAllocator extends AccountAllocator {
         super(account);
     }
 
+    public BlockingAllocator(Account account, StripedSpaceReserve reserve) {
+        super(account, reserve);
+    }
+
     @Override
-    public void allocate(PnfsId id, long size) throws InterruptedException {
+    protected void allocateFromAccount(PnfsId id, long size) throws InterruptedException {
         _account.allocate(id, size);
     }
 }
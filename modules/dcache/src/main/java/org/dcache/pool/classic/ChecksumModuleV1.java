@@ -41,6 +41,9 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import diskCacheV111.util.Adler32;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileCorruptedCacheException;
 import dmg.cells.nucleus.CellCommandListener;
@@ -69,6 +72,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import org.dcache.pool.PoolDataBeanProvider;
 import org.dcache.pool.classic.json.ChecksumModuleData;
@@ -76,6 +80,7 @@ import org.dcache.pool.repository.FileStore;
 import org.dcache.pool.repository.ReplicaDescriptor;
 import org.dcache.pool.repository.ReplicaRecord;
 import org.dcache.pool.repository.RepositoryChannel;
+import org.dcache.util.BoundedCachedExecutor;
 import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 import org.slf4j.Logger;
@@ -94,6 +99,11 @@ public class ChecksumModuleV1
           SHA512, "sha512");
     private static final long MILLISECONDS_IN_SECOND = 1000;
 
+    /**
+     * Files are only striped if each stripe is at least this large.
+     */
+    private static final long MIN_STRIPE_SIZE = MiB.toBytes(64);
+
     /**
      * The policy implemented by a ChecksumModule is determined by these policy flags.
      */
@@ -147,6 +157,36 @@ public class ChecksumModuleV1
 
     private final CopyOnWriteArrayList<Runnable> listeners = new CopyOnWriteArrayList<>();
 
+    private int _stripes = 1;
+    private BoundedCachedExecutor _stripeExecutor;
+
+    /**
+     * Sets the number of threads used to compute the adler32 checksum of a single large file when
+     * no throughput limit applies.  One disables striping.
+     */
+    public synchronized void setStripes(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Number of stripes must be positive: " + stripes);
+        }
+        shutdown();
+        _stripes = stripes;
+        if (stripes > 1) {
+            _stripeExecutor = new BoundedCachedExecutor(
+                  new ThreadFactoryBuilder().setNameFormat("checksum-stripe-%d").build(), stripes);
+        }
+    }
+
+    public synchronized int getStripes() {
+        return _stripes;
+    }
+
+    public synchronized void shutdown() {
+        if (_stripeExecutor != null) {
+            _stripeExecutor.shutdown();
+            _stripeExecutor = null;
+        }
+    }
+
     public void addListener(Runnable listener) {
         listeners.add(listener);
     }
@@ -530,19 +570,23 @@ public class ChecksumModuleV1
     public Iterable<Checksum> verifyChecksum(ReplicaDescriptor handle)
           throws NoSuchAlgorithmException, IOException, InterruptedException, CacheException {
         try (RepositoryChannel channel = handle.createChannel()) {
-            return verifyChecksum(channel, handle.getChecksums(), Double.POSITIVE_INFINITY);
+            return verifyChecksum(channel, handle.getChecksums(), null);
         }
     }
 
-    public Iterable<Checksum> verifyChecksumWithThroughputLimit(ReplicaDescriptor handle)
+    /**
+     * Verifies the checksum of a replica, reading no faster than permitted by the rate limiter.
+     * The limiter is in bytes per second and may be shared by several concurrent verifications.
+     */
+    public Iterable<Checksum> verifyChecksum(ReplicaDescriptor handle, RateLimiter limiter)
           throws IOException, InterruptedException, NoSuchAlgorithmException, CacheException {
         try (RepositoryChannel channel = handle.createChannel()) {
-            return verifyChecksum(channel, handle.getChecksums(), getThroughputLimit());
+            return verifyChecksum(channel, handle.getChecksums(), limiter);
         }
     }
 
     private Iterable<Checksum> verifyChecksum(RepositoryChannel channel,
-          Iterable<Checksum> expectedChecksums, double throughputLimit)
+          Iterable<Checksum> expectedChecksums, @Nullable RateLimiter limiter)
           throws NoSuchAlgorithmException, IOException, InterruptedException, CacheException {
         /*
          * REVISIT:
@@ -558,7 +602,7 @@ public class ChecksumModuleV1
               .map(ChecksumType::createMessageDigest)
               .collect(Collectors.toList());
 
-        Set<Checksum> actualChecksums = computeChecksums(channel, digests, throughputLimit);
+        Set<Checksum> actualChecksums = computeChecksums(channel, digests, limiter);
         compareChecksums(expectedChecksums, actualChecksums);
         return actualChecksums;
     }
@@ -579,41 +623,53 @@ public class ChecksumModuleV1
     private Set<Checksum> computeChecksums(RepositoryChannel channel,
           Collection<MessageDigest> digests) throws IOException,
           InterruptedException {
-        return computeChecksums(channel, digests, Double.POSITIVE_INFINITY);
+        return computeChecksums(channel, digests, null);
     }
 
     /**
-     * Compute the checksum for a file with a limit on how many bytes/second to checksum.
+     * Compute the checksum for a file with an optional limit on how many bytes/second to
+     * checksum.
      *
-     * @param file            the file to compute a checksum for.
-     * @param digests         the digests to update with the file's content
-     * @param throughputLimit a limit on how many bytes/second that may be checksummed.
+     * @param file    the file to compute a checksum for.
+     * @param digests the digests to update with the file's content
+     * @param limiter a limit on how many bytes/second that may be checksummed, or null.
      * @return the computed checksum.
      * @throws IOException
      * @throws InterruptedException
      */
     private Set<Checksum> computeChecksums(RepositoryChannel channel,
-          Collection<MessageDigest> digests, double throughputLimit)
+          Collection<MessageDigest> digests, @Nullable RateLimiter limiter)
           throws IOException, InterruptedException {
         long start = System.currentTimeMillis();
+
+        if (limiter == null && digests.size() == 1
+              && digests.iterator().next() instanceof Adler32) {
+            Set<Checksum> checksums = computeStripedAdler32(channel);
+            if (checksums != null) {
+                LOGGER.debug("Computed striped checksum {} in {} ms", checksums,
+                      System.currentTimeMillis() - start);
+                return checksums;
+            }
+        }
+
         long pos = 0L;
-        ByteBuffer buffer = ByteBuffer.allocate(KiB.toBytes(64));
+        /* Adler32 reads direct buffers without copying; other digests copy
+         * them in small chunks, which costs no more than reading into a heap
+         * buffer.
+         */
+        ByteBuffer buffer = ByteBuffer.allocateDirect(KiB.toBytes(256));
 
         int rc;
         while ((rc = channel.read(buffer, pos)) > 0) {
             pos += rc;
             buffer.flip();
-            digests.forEach(d -> d.update(buffer.asReadOnlyBuffer()));
+            digests.forEach(d -> d.update(buffer.duplicate()));
             buffer.clear();
             if (Thread.interrupted()) {
                 throw new InterruptedException();
             }
-            long adjust
-                  = throughputAdjustment(throughputLimit,
-                  pos,
-                  System.currentTimeMillis() - start);
-            if (adjust > 0) {
-                Thread.sleep(adjust);
+            if (limiter != null) {
+                limiter.acquire(rc);
             }
         }
 
@@ -626,42 +682,37 @@ public class ChecksumModuleV1
                     : ", throughput " +
                           throughputAsString(pos, System.currentTimeMillis() - start) +
                           " MiB/s" +
-                          (Double.isInfinite(throughputLimit)
+                          (limiter == null
                                 ? ""
-                                : " (limit " + BYTES.toMiB(throughputLimit) + " MiB/s)"));
+                                : " (limit " + BYTES.toMiB(limiter.getRate()) + " MiB/s)"));
         return checksums;
     }
 
     /**
-     * Compute how much to sleep for current throughput not to exceed
-     * <code>throughputLimit</code> given how many bytes read/written for a
-     * certain amount of time.
-     * <h3>Formula</h3>
-     * <p><code>throughputLimit = numBytes/(elapsedTime + adjust)</code>
-     * <p>gives:<p>
-     * <code>adjust = numBytes/throughputLimit - elapsedTime</code>
+     * Computes the adler32 checksum of a large file using several threads.
      *
-     * @param throughputLimit max throughput (bytes/second). Must not be <= 0.
-     * @param numBytes        no. of bytes read/written for <code>elapsedTime
-     *                        </code> milliseconds. If 0, adjust will be 0.
-     * @param elapsedTime     elapsed time (milliseconds) when <code>numBytes
-     *                        </code> bytes were read/written.
-     * @return how much to sleep (milliseconds) for throughput not to exceed
-     * <code>throughputLimit</code>.
-     * Guaranteed to be >= 0.
+     * @return the checksum, or null if the file is too small or striping is disabled
      */
-    private long throughputAdjustment(double throughputLimit, long numBytes,
-          long elapsedTime) {
-        assert throughputLimit > 0 && numBytes >= 0 && elapsedTime >= 0;
-        /**
-         * Adjust is < 0 when numBytes/elapsedTime < throughputLimit
-         * (-elapsedTime when throughputLimit is ∞). Adjust is 0 when numBytes
-         * is 0.
-         */
-        long desiredDuration = (long) Math.ceil(MILLISECONDS_IN_SECOND *
-              (numBytes / throughputLimit));
-        long adjust = desiredDuration - elapsedTime;
-        return Math.max(0, adjust);
+    private Set<Checksum> computeStripedAdler32(RepositoryChannel channel)
+          throws IOException, InterruptedException {
+        StripedAdler32 striped;
+        int stripes;
+        synchronized (this) {
+            if (_stripeExecutor == null) {
+                return null;
+            }
+            striped = new StripedAdler32(_stripeExecutor);
+            stripes = _stripes;
+        }
+
+        long size = channel.size();
+        stripes = (int) Math.min(stripes, size / MIN_STRIPE_SIZE);
+        if (stripes < 2) {
+            return null;
+        }
+
+        long adler = striped.compute(channel, size, stripes);
+        return Collections.singleton(new Checksum(ADLER32, Adler32.toBytes(adler)));
     }
 
     /**
@@ -4,31 +4,48 @@ import static dmg.util.CommandException.checkCommand;
 import static java.util.Objects.requireNonNull;
 import static org.dcache.util.Exceptions.messageOrClassName;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FileCorruptedCacheException;
 import diskCacheV111.util.FileNotInCacheException;
 import diskCacheV111.util.PnfsId;
 import dmg.cells.nucleus.CellCommandListener;
+import dmg.cells.nucleus.CellInfoProvider;
 import dmg.cells.nucleus.CellLifeCycleAware;
 import dmg.util.CommandException;
 import dmg.util.command.Argument;
 import dmg.util.command.Command;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.OpenOption;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.concurrent.GuardedBy;
 import org.dcache.alarms.AlarmMarkerFactory;
 import org.dcache.alarms.PredefinedAlarm;
 import org.dcache.pool.repository.ReplicaDescriptor;
@@ -36,11 +53,12 @@ import org.dcache.pool.repository.ReplicaState;
 import org.dcache.pool.repository.Repository;
 import org.dcache.pool.repository.Repository.OpenFlags;
 import org.dcache.util.Checksum;
+import org.dcache.util.TimeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class ChecksumScanner
-      implements CellCommandListener, CellLifeCycleAware {
+      implements CellCommandListener, CellLifeCycleAware, CellInfoProvider {
 
     private static final Logger LOGGER =
           LoggerFactory.getLogger(ChecksumScanner.class);
@@ -57,7 +75,9 @@ public class ChecksumScanner
 
     private Repository _repository;
     private ChecksumModuleV1 _csm;
+    private IoQueueManager _ioQueueManager;
     private String poolName;
+    private int _scrubberThreads = 1;
 
     private File _scrubberStateFile;
 
@@ -101,6 +121,24 @@ public class ChecksumScanner
         this.poolName = poolName;
     }
 
+    /**
+     * Sets the queue manager whose mover queues are checked before the scrubber verifies a file.
+     * The scrubber pauses while movers are waiting to be scheduled.
+     */
+    public void setIoQueueManager(IoQueueManager ioQueueManager) {
+        _ioQueueManager = ioQueueManager;
+    }
+
+    /**
+     * Sets the number of files the scrubber verifies concurrently.
+     */
+    public void setScrubberThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of scrubber threads must be positive");
+        }
+        _scrubberThreads = threads;
+    }
+
     private class FullScan extends Singleton {
 
         private volatile int _totalCount;
@@ -218,15 +256,33 @@ public class ChecksumScanner
         private final long CHECKPOINT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
         private final long FAILURE_RATELIMIT_DELAY =
               TimeUnit.SECONDS.toMillis(10);
+        private final long IO_BUSY_DELAY = TimeUnit.SECONDS.toMillis(5);
 
-        private volatile int _badCount;
+        private final AtomicInteger _badCount = new AtomicInteger();
         private volatile int _numFiles;
-        private volatile int _totalCount;
-        private volatile int _unableCount;
+        private final AtomicInteger _totalCount = new AtomicInteger();
+        private final AtomicInteger _unableCount = new AtomicInteger();
+        private final AtomicLong _bytesVerified = new AtomicLong();
+        private volatile long _runStart;
+        private volatile boolean _isPausedForIo;
+
+        /**
+         * Files handed to workers, in the order they were handed out.  Used to determine the last
+         * file before which all files have been verified.
+         */
+        @GuardedBy("this")
+        private final Queue<PnfsId> _dispatched = new ArrayDeque<>();
+
+        /**
+         * Files that have been verified but are still in {@code _dispatched} because an earlier
+         * file is still being verified.
+         */
+        @GuardedBy("this")
+        private final Set<PnfsId> _completed = new HashSet<>();
 
-        private PnfsId _lastFileChecked;
+        private volatile PnfsId _lastFileChecked;
         private long _lastCheckpoint;
-        private long _lastStart;
+        private volatile long _lastStart;
 
         public Scrubber() {
             super("Scrubber");
@@ -346,13 +402,15 @@ public class ChecksumScanner
                     try {
                         PnfsId[] toScan = getFilesToVerify();
                         _numFiles = toScan.length;
-                        _badCount = 0;
-                        _totalCount = 0;
-                        _unableCount = 0;
+                        _badCount.set(0);
+                        _totalCount.set(0);
+                        _unableCount.set(0);
+                        _bytesVerified.set(0);
+                        _runStart = System.currentTimeMillis();
                         scanFiles(toScan);
-                        if (_badCount > 0) {
+                        if (_badCount.get() > 0) {
                             LOGGER.warn("Finished scrubbing. Found {} bad files of {}",
-                                  _badCount, _numFiles);
+                                  _badCount.get(), _numFiles);
                         }
                         isFinished = true;
                     } catch (IOException e) {
@@ -409,53 +467,183 @@ public class ChecksumScanner
         /**
          * Save state information only every <code>CHECKPOINT_INTERVAL</code> period.
          */
-        private void checkpointIfNeeded() {
+        private synchronized void checkpointIfNeeded() {
             if (System.currentTimeMillis() - _lastCheckpoint > CHECKPOINT_INTERVAL) {
                 saveState();
                 _lastCheckpoint = System.currentTimeMillis();
             }
         }
 
+        private synchronized void dispatched(PnfsId id) {
+            _dispatched.add(id);
+        }
+
+        /**
+         * Records that a file has been verified.  The checkpoint only advances past files for
+         * which all preceding files have been verified too, so that a restart never skips a file
+         * that was still being verified by another worker.
+         */
+        private synchronized void completed(PnfsId id) {
+            _completed.add(id);
+            while (!_dispatched.isEmpty() && _completed.remove(_dispatched.peek())) {
+                _lastFileChecked = _dispatched.remove();
+            }
+            _totalCount.incrementAndGet();
+            checkpointIfNeeded();
+        }
+
+        /**
+         * Returns true if movers are waiting for a free slot in any of the mover queues.
+         */
+        private boolean isIoBusy() {
+            return _ioQueueManager != null
+                  && _ioQueueManager.queues().stream().anyMatch(q -> q.getQueueSize() > 0);
+        }
+
+        private void awaitIdleIo() throws InterruptedException {
+            while (isIoBusy()) {
+                _isPausedForIo = true;
+                Thread.sleep(IO_BUSY_DELAY);
+            }
+            _isPausedForIo = false;
+        }
+
+        /**
+         * Keeps the rate of the limiter in sync with the configured throughput limit, which may
+         * be changed while the scrubber is running.
+         */
+        private RateLimiter updateLimiter(RateLimiter limiter) {
+            double limit = _csm.getThroughputLimit();
+            if (Double.isInfinite(limit)) {
+                return null;
+            }
+            if (limiter == null) {
+                return RateLimiter.create(limit);
+            }
+            if (limiter.getRate() != limit) {
+                limiter.setRate(limit);
+            }
+            return limiter;
+        }
+
         private void scanFiles(PnfsId[] repository)
               throws InterruptedException, NoSuchAlgorithmException, IOException {
-            for (PnfsId id : repository) {
-                try {
-                    if (_repository.getState(id) == ReplicaState.CACHED ||
-                          _repository.getState(id) == ReplicaState.PRECIOUS) {
-                        ReplicaDescriptor handle =
-                              _repository.openEntry(id, SCANNER_OPEN_OPTIONS);
+            int threads = _scrubberThreads;
+            ExecutorService workers = Executors.newFixedThreadPool(threads,
+                  new ThreadFactoryBuilder().setNameFormat("scrubber-%d").build());
+            Semaphore idle = new Semaphore(threads);
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            RateLimiter limiter = null;
+            try {
+                for (PnfsId id : repository) {
+                    awaitIdleIo();
+                    idle.acquire();
+                    rethrow(failure.get());
+                    limiter = updateLimiter(limiter);
+
+                    RateLimiter rateLimiter = limiter;
+                    dispatched(id);
+                    workers.execute(() -> {
                         try {
-                            _csm.verifyChecksumWithThroughputLimit(handle);
+                            verify(id, rateLimiter);
+                            completed(id);
+                        } catch (IOException | NoSuchAlgorithmException | InterruptedException e) {
+                            failure.compareAndSet(null, e);
                         } finally {
-                            handle.close();
+                            idle.release();
                         }
-                    }
-                } catch (FileCorruptedCacheException e) {
-                    _badCount++;
-                    invalidateCacheEntryAndSendAlarm(id, e);
-                } catch (IOException e) {
-                    _unableCount++;
-                    throw new IOException("Unable to read " + id + ": " + messageOrClassName(e), e);
-                } catch (FileNotInCacheException e) {
-                    /* It was removed before we could get it. No problem.
-                     */
-                } catch (CacheException e) {
-                    LOGGER.warn("Scrubber unable to verify {}: {}", id, e.getMessage());
-                    _unableCount++;
+                    });
                 }
-                _lastFileChecked = id;
-                _totalCount++;
-                checkpointIfNeeded();
+                idle.acquire(threads);
+                rethrow(failure.get());
+            } finally {
+                workers.shutdownNow();
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            synchronized (this) {
+                _dispatched.clear();
+                _completed.clear();
             }
             _lastFileChecked = null;
         }
 
+        private void rethrow(Exception e)
+              throws InterruptedException, NoSuchAlgorithmException, IOException {
+            if (e != null) {
+                Throwables.throwIfInstanceOf(e, InterruptedException.class);
+                Throwables.throwIfInstanceOf(e, NoSuchAlgorithmException.class);
+                Throwables.throwIfInstanceOf(e, IOException.class);
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void verify(PnfsId id, RateLimiter limiter)
+              throws InterruptedException, NoSuchAlgorithmException, IOException {
+            try {
+                ReplicaState state = _repository.getState(id);
+                if (state == ReplicaState.CACHED || state == ReplicaState.PRECIOUS) {
+                    try (ReplicaDescriptor handle =
+                          _repository.openEntry(id, SCANNER_OPEN_OPTIONS)) {
+                        if (limiter == null) {
+                            _csm.verifyChecksum(handle);
+                        } else {
+                            _csm.verifyChecksum(handle, limiter);
+                        }
+                        _bytesVerified.addAndGet(handle.getReplicaSize());
+                    }
+                }
+            } catch (FileCorruptedCacheException e) {
+                _badCount.incrementAndGet();
+                invalidateCacheEntryAndSendAlarm(id, e);
+            } catch (IOException e) {
+                _unableCount.incrementAndGet();
+                throw new IOException("Unable to read " + id + ": " + messageOrClassName(e), e);
+            } catch (FileNotInCacheException e) {
+                /* It was removed before we could get it. No problem.
+                 */
+            } catch (CacheException e) {
+                LOGGER.warn("Scrubber unable to verify {}: {}", id, e.getMessage());
+                _unableCount.incrementAndGet();
+            }
+        }
+
+        /**
+         * Returns the estimated time until the current run completes, or null if unknown.
+         */
+        private Duration getEstimatedTimeRemaining() {
+            int done = _totalCount.get();
+            int total = _numFiles;
+            if (!isActive() || done == 0 || done >= total) {
+                return null;
+            }
+            long elapsed = System.currentTimeMillis() - _runStart;
+            return Duration.ofMillis((long) (elapsed * ((double) (total - done) / done)));
+        }
+
+        public void getInfo(PrintWriter pw) {
+            pw.println("Files verified   : " + _totalCount.get() + " of " + _numFiles);
+            pw.println("Bytes verified   : " + _bytesVerified.get());
+            pw.println("Corrupt files    : " + _badCount.get());
+            pw.println("Unable to check  : " + _unableCount.get());
+            Duration eta = getEstimatedTimeRemaining();
+            if (eta != null) {
+                pw.println("Time remaining   : " + TimeUtils.describe(eta).orElse("-"));
+            }
+            if (_isPausedForIo) {
+                pw.println("Paused           : movers are queued");
+            }
+        }
+
         @Override
         public String toString() {
+            Duration eta = getEstimatedTimeRemaining();
             return super.toString() + " processed "
-                  + _totalCount + " of " + _numFiles + " files: "
-                  + _badCount + " corrupt, "
-                  + _unableCount + " unable to check";
+                  + _totalCount.get() + " of " + _numFiles + " files ("
+                  + _bytesVerified.get() + " bytes): "
+                  + _badCount.get() + " corrupt, "
+                  + _unableCount.get() + " unable to check"
+                  + (_isPausedForIo ? ", paused while movers are queued" : "")
+                  + (eta == null ? "" : ", " + TimeUtils.describe(eta).orElse("-") + " remaining");
         }
     }
 
@@ -611,6 +799,11 @@ public class ChecksumScanner
         }
     }
 
+    @Override
+    public void getInfo(PrintWriter pw) {
+        pw.println("Scrubber : " + _scrubber);
+    }
+
     @Override
     public void afterStart() {
         _csm.addListener(listener);
@@ -0,0 +1,124 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.classic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate access frequency of keys, as used by the TinyLFU admission policy.
+ * <p>
+ * The sketch is a count-min sketch of depth four with 4-bit counters, sixteen counters to a
+ * {@code long}.  Once the number of recorded accesses reaches ten times the capacity, all counters
+ * are halved so that the sketch ages and reflects recent popularity.  Updates are lock-free; an
+ * update racing with aging may be lost, which only affects the accuracy of the estimate.
+ */
+class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final long[] SEEDS = {
+          0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int capacity;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param capacity the expected number of distinct keys
+     */
+    FrequencySketch(int capacity) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 24)) - 1) << 1;
+        this.table = new AtomicLongArray(length);
+        this.mask = length - 1;
+        this.capacity = capacity;
+        this.sampleSize = Math.max(10, (int) Math.min(10L * capacity, Integer.MAX_VALUE));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the estimated number of recent accesses of the key, up to 15.
+     */
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = hash(hash, i);
+            long value = table.get(indexOf(h));
+            frequency = Math.min(frequency, (int) ((value >>> offsetOf(h)) & 0xfL));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access of the key.
+     */
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = hash(hash, i);
+            added |= incrementAt(indexOf(h), offsetOf(h));
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int offset) {
+        long mask = 0xfL << offset;
+        while (true) {
+            long value = table.get(index);
+            if ((value & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, value, value + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void reset() {
+        if (additions.get() < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.getAndUpdate(i, v -> (v >>> 1) & RESET_MASK);
+        }
+        additions.set(additions.get() / 2);
+    }
+
+    private static long hash(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return h ^ (h >>> 32);
+    }
+
+    private int indexOf(long h) {
+        return (int) h & mask;
+    }
+
+    private static int offsetOf(long h) {
+        return (int) (h >>> 60) << 2;
+    }
+}
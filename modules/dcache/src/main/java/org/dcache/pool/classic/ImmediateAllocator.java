@@ -32,8 +32,25 @@ public class ImmediateAllocator extends AccountAllocator {
         super(account);
     }
 
+    public ImmediateAllocator(Account account, StripedSpaceReserve reserve) {
+        super(account, reserve);
+    }
+
+    /**
+     * Allocations that cannot be served at once fail without queueing behind blocked
+     * allocations of the space reserve.
+     */
     @Override
     public void allocate(PnfsId id, long size) throws InterruptedException, OutOfDiskException {
+        if (_reserve == null) {
+            allocateFromAccount(id, size);
+        } else if (!_reserve.allocateNow(id, size)) {
+            throw new OutOfDiskException("Out of space");
+        }
+    }
+
+    @Override
+    protected void allocateFromAccount(PnfsId id, long size) throws InterruptedException, OutOfDiskException {
         if (!_account.allocateNow(id, size)) {
             throw new OutOfDiskException("Out of space");
         }
@@ -39,8 +39,12 @@ import org.dcache.pool.FaultAction;
 import org.dcache.pool.FaultEvent;
 import org.dcache.pool.FaultListener;
 import org.dcache.pool.movers.Mover;
+import org.dcache.pool.movers.json.IoStatisticsData;
 import org.dcache.pool.movers.json.MoverData;
 import org.dcache.pool.repository.FileStore;
+import org.dcache.pool.statistics.HistogramSummary;
+import org.dcache.pool.statistics.IoStatisticsChannel;
+import org.dcache.pool.statistics.SnapshotStatistics;
 import org.dcache.util.AdjustableSemaphore;
 import org.dcache.util.IoPrioritizable;
 import org.dcache.util.IoPriority;
@@ -721,9 +725,46 @@ public class MoverRequestScheduler {
             data.setSubmitTime(_submitTime);
             data.setLastModified(_mover.getLastTransferred());
             data.setMoverId(_id);
+            _mover.getChannel()
+                  .flatMap(c -> c.optionallyAs(IoStatisticsChannel.class))
+                  .map(IoStatisticsChannel::getStatistics)
+                  .ifPresent(s -> {
+                      if (s.hasReads()) {
+                          data.setReads(toIoStatisticsData(s.reads().statistics()));
+                      }
+                      if (s.hasWrites()) {
+                          data.setWrites(toIoStatisticsData(s.writes().statistics()));
+                      }
+                  });
             return data;
         }
 
+        private static IoStatisticsData toIoStatisticsData(SnapshotStatistics statistics) {
+            IoStatisticsData data = new IoStatisticsData();
+            data.setBandwidth(toDistribution(statistics.instantaneousBandwidth()));
+            data.setIoTime(toDistribution(statistics.IOTime()));
+            data.setRequestedBytes(toDistribution(statistics.requestedBytes()));
+            data.setTransferredBytes(toDistribution(statistics.transferredBytes()));
+            data.setConcurrency(toDistribution(statistics.concurrency()));
+            return data;
+        }
+
+        @Nullable
+        private static IoStatisticsData.Distribution toDistribution(HistogramSummary summary) {
+            if (summary.getN() == 0) {
+                return null;
+            }
+            IoStatisticsData.Distribution distribution = new IoStatisticsData.Distribution();
+            distribution.setCount(summary.getN());
+            distribution.setMin(summary.getMin());
+            distribution.setMean(summary.getMean());
+            distribution.setMax(summary.getMax());
+            distribution.setP50(summary.getQuantile(0.5));
+            distribution.setP99(summary.getQuantile(0.99));
+            distribution.setP999(summary.getQuantile(0.999));
+            return distribution;
+        }
+
         public synchronized boolean queue() {
             if (_state == NEW) {
                 _state = QUEUED;
@@ -0,0 +1,292 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.classic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.Iterables;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of keys ordered by a timestamp and split into a probation and a protected segment.
+ * <p>
+ * Keys enter the probation segment.  Depending on the policy, a key that is accessed again while
+ * on the queue is promoted to the protected segment.  If the protected segment grows beyond its
+ * share of the queue, its eldest keys are demoted back to probation.  Eviction order is the
+ * probation segment followed by the protected segment, each ordered by time.  Thus files that
+ * were only read once are removed before the working set.
+ * <p>
+ * Both segments are lock-free skip lists and the per-key bookkeeping relies on the atomicity of
+ * {@link ConcurrentHashMap#compute}, so updates of different keys do not contend on a common
+ * lock.  Iteration is weakly consistent and does not copy the queue.
+ */
+class SegmentedLruQueue<K extends Comparable<K>> {
+
+    enum Policy {
+        /**
+         * Keys are never promoted; the queue is ordered by time only.
+         */
+        LRU,
+
+        /**
+         * Keys are promoted on their first access while on the queue.
+         */
+        SLRU,
+
+        /**
+         * Keys are promoted on access if the protected segment has room or if they are accessed
+         * more frequently than the protected key they would displace.
+         */
+        TINYLFU
+    }
+
+    private static final int MIN_SKETCH_CAPACITY = 1024;
+
+    private static class Node<K extends Comparable<K>> {
+
+        private final K key;
+        private final long time;
+        private final boolean isProtected;
+
+        Node(K key, long time, boolean isProtected) {
+            this.key = key;
+            this.time = time;
+            this.isProtected = isProtected;
+        }
+    }
+
+    private final Comparator<Node<K>> order =
+          Comparator.<Node<K>>comparingLong(n -> n.time).thenComparing(n -> n.key);
+
+    private final ConcurrentMap<K, Node<K>> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Node<K>> probation = new ConcurrentSkipListSet<>(order);
+    private final ConcurrentSkipListSet<Node<K>> protectedSegment =
+          new ConcurrentSkipListSet<>(order);
+    private final AtomicInteger protectedSize = new AtomicInteger();
+
+    private volatile Policy policy;
+    private volatile double protectedShare;
+    private volatile FrequencySketch sketch = new FrequencySketch(MIN_SKETCH_CAPACITY);
+
+    SegmentedLruQueue(Policy policy, double protectedShare) {
+        setPolicy(policy, protectedShare);
+    }
+
+    void setPolicy(Policy policy, double protectedShare) {
+        checkArgument(protectedShare >= 0 && protectedShare <= 1,
+              "protected share must be between 0.0 and 1.0");
+        this.policy = requireNonNull(policy);
+        this.protectedShare = protectedShare;
+        rebalance();
+    }
+
+    Policy getPolicy() {
+        return policy;
+    }
+
+    double getProtectedShare() {
+        return protectedShare;
+    }
+
+    /**
+     * Adds the key to the probation segment unless it is already on the queue.
+     *
+     * @return true if the key was added
+     */
+    boolean add(K key, long time) {
+        boolean[] added = new boolean[1];
+        index.computeIfAbsent(key, k -> {
+            Node<K> node = new Node<>(k, time, false);
+            probation.add(node);
+            added[0] = true;
+            return node;
+        });
+        if (added[0] && policy == Policy.TINYLFU) {
+            recordAccess(key);
+        }
+        return added[0];
+    }
+
+    /**
+     * Removes the key from the queue.
+     *
+     * @return true if the key was on the queue
+     */
+    boolean remove(K key) {
+        boolean[] removed = new boolean[1];
+        index.computeIfPresent(key, (k, node) -> {
+            unlink(node);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            rebalance();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Updates the time of a key on the queue and, depending on the policy, promotes it to the
+     * protected segment.
+     *
+     * @return true if the key was on the queue
+     */
+    boolean access(K key, long time) {
+        Policy policy = this.policy;
+        if (policy == Policy.TINYLFU) {
+            recordAccess(key);
+        }
+        boolean[] found = new boolean[1];
+        index.computeIfPresent(key, (k, node) -> {
+            unlink(node);
+            Node<K> updated = new Node<>(k, time, shouldPromote(policy, node));
+            link(updated);
+            found[0] = true;
+            return updated;
+        });
+        if (found[0]) {
+            rebalance();
+        }
+        return found[0];
+    }
+
+    private boolean shouldPromote(Policy policy, Node<K> node) {
+        switch (policy) {
+            case SLRU:
+                return true;
+            case TINYLFU:
+                if (node.isProtected || protectedSize.get() < maxProtectedSize()) {
+                    return true;
+                }
+                Node<K> victim = first(protectedSegment);
+                return victim == null
+                      || sketch.frequency(node.key) > sketch.frequency(victim.key);
+            default:
+                return false;
+        }
+    }
+
+    private void recordAccess(K key) {
+        FrequencySketch sketch = this.sketch;
+        if (index.size() > 2 * sketch.capacity()) {
+            sketch = new FrequencySketch(2 * index.size());
+            this.sketch = sketch;
+        }
+        sketch.increment(key);
+    }
+
+    private int maxProtectedSize() {
+        return policy == Policy.LRU ? 0 : (int) (index.size() * protectedShare);
+    }
+
+    /**
+     * Demotes the eldest keys of the protected segment until it is within its share of the queue.
+     */
+    private void rebalance() {
+        Node<K> eldest;
+        while (protectedSize.get() > maxProtectedSize()
+              && (eldest = first(protectedSegment)) != null) {
+            Node<K> victim = eldest;
+            index.computeIfPresent(victim.key, (k, node) -> {
+                if (node != victim) {
+                    return node;
+                }
+                unlink(node);
+                Node<K> demoted = new Node<>(k, node.time, false);
+                link(demoted);
+                return demoted;
+            });
+        }
+    }
+
+    private void link(Node<K> node) {
+        if (node.isProtected) {
+            protectedSegment.add(node);
+            protectedSize.incrementAndGet();
+        } else {
+            probation.add(node);
+        }
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.isProtected) {
+            if (protectedSegment.remove(node)) {
+                protectedSize.decrementAndGet();
+            }
+        } else {
+            probation.remove(node);
+        }
+    }
+
+    private static <K extends Comparable<K>> Node<K> first(ConcurrentSkipListSet<Node<K>> set) {
+        try {
+            return set.first();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the time of the key, if on the queue.
+     */
+    OptionalLong timeOf(K key) {
+        Node<K> node = index.get(key);
+        return node == null ? OptionalLong.empty() : OptionalLong.of(node.time);
+    }
+
+    /**
+     * Returns the earliest time of any key on the queue, or zero if the queue is empty.
+     */
+    long getEldestTime() {
+        Node<K> probationHead = first(probation);
+        Node<K> protectedHead = first(protectedSegment);
+        if (probationHead == null) {
+            return protectedHead == null ? 0 : protectedHead.time;
+        }
+        return protectedHead == null
+              ? probationHead.time
+              : Math.min(probationHead.time, protectedHead.time);
+    }
+
+    /**
+     * Returns the keys in eviction order.  The view is weakly consistent.
+     */
+    Iterable<K> values() {
+        return Iterables.concat(Iterables.transform(probation, n -> n.key),
+              Iterables.transform(protectedSegment, n -> n.key));
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    int probationSize() {
+        return index.size() - protectedSize.get();
+    }
+
+    int protectedSize() {
+        return protectedSize.get();
+    }
+}
@@ -0,0 +1,142 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.classic;
+
+import diskCacheV111.util.PnfsId;
+import dmg.cells.nucleus.CellInfoProvider;
+import dmg.util.command.Argument;
+import dmg.util.command.Command;
+import dmg.util.command.Option;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import org.dcache.pool.classic.SegmentedLruQueue.Policy;
+import org.dcache.pool.repository.CacheEntry;
+import org.dcache.pool.repository.EntryChangeEvent;
+
+/**
+ * Space sweeper that keeps removable replicas on a segmented LRU queue.
+ * <p>
+ * Unlike {@link SpaceSweeper2}, repository events do not serialize on the sweeper: the queue is
+ * lock-free and updating it is independent of the number of replicas on the pool.  Replicas that
+ * have been read while cached are kept in a protected segment and are only removed once all
+ * replicas on probation are gone, so that a large one-shot read does not flush the working set.
+ * With the {@code tinylfu} policy, a replica is only protected if it is read more often than the
+ * protected replica it would displace.
+ */
+public class SegmentedLruSpaceSweeper extends AbstractSpaceSweeper implements CellInfoProvider {
+
+    private static final double DEFAULT_PROTECTED_SHARE = 0.8;
+
+    private final SegmentedLruQueue<PnfsId> _queue =
+          new SegmentedLruQueue<>(Policy.SLRU, DEFAULT_PROTECTED_SHARE);
+
+    @Override
+    public void printSetup(PrintWriter pw) {
+        super.printSetup(pw);
+        pw.println("sweeper set policy " + _queue.getPolicy().name().toLowerCase(Locale.ROOT)
+              + " -protected=" + _queue.getProtectedShare());
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw) {
+        pw.println("Policy    : " + _queue.getPolicy().name().toLowerCase(Locale.ROOT));
+        pw.println("Protected : " + _queue.protectedSize() + " replicas (max "
+              + _queue.getProtectedShare() * 100 + "%)");
+        pw.println("Probation : " + _queue.probationSize() + " replicas");
+    }
+
+    /**
+     * Returns the last access time of the eldest removable entry.
+     */
+    @Override
+    public long getLru() {
+        return _queue.getEldestTime();
+    }
+
+    @Override
+    protected boolean add(CacheEntry entry) {
+        return _queue.add(entry.getPnfsId(), entry.getLastAccessTime());
+    }
+
+    @Override
+    protected boolean remove(CacheEntry entry) {
+        return _queue.remove(entry.getPnfsId());
+    }
+
+    @Override
+    public void accessTimeChanged(EntryChangeEvent event) {
+        CacheEntry entry = event.getNewEntry();
+        _queue.access(entry.getPnfsId(), entry.getLastAccessTime());
+    }
+
+    /**
+     * Returns the queued replicas in eviction order: replicas on probation before protected ones.
+     */
+    @Override
+    protected Iterable<PnfsId> values() {
+        return _queue.values();
+    }
+
+    @Override
+    protected int size() {
+        return _queue.size();
+    }
+
+    @Override
+    protected OptionalLong timeOf(PnfsId id) {
+        return _queue.timeOf(id);
+    }
+
+    @Override
+    protected String getLabel() {
+        return "Segmented LRU Space Sweeper";
+    }
+
+    @AffectsSetup
+    @Command(name = "sweeper set policy", hint = "set replacement policy",
+          description = "Sets how the sweeper orders removable files.\n\n"
+                + "With the lru policy files are removed in order of their "
+                + "last access. With the slru policy, files that are read "
+                + "while cached are protected and only removed once no "
+                + "other removable files are left. The tinylfu policy "
+                + "protects a file only if it is read more often than the "
+                + "protected file it would displace.\n\n"
+                + "The protected share limits the fraction of removable "
+                + "files that may be protected.")
+    public class SweeperSetPolicyCommand implements Callable<String> {
+
+        @Argument(valueSpec = "lru|slru|tinylfu")
+        String policy;
+
+        @Option(name = "protected", metaVar = "share",
+              usage = "Fraction of removable files that may be protected, "
+                    + "between 0.0 and 1.0.")
+        Double share;
+
+        @Override
+        public String call() {
+            Policy newPolicy = Policy.valueOf(policy.toUpperCase(Locale.ROOT));
+            double newShare = (share == null) ? _queue.getProtectedShare() : share;
+            _queue.setPolicy(newPolicy, newShare);
+            return "Sweeper policy is now " + policy + " with up to " + newShare * 100
+                  + "% of removable files protected.";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.classic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.dcache.util.ByteUnit.KiB;
+
+import com.google.common.base.Throwables;
+import diskCacheV111.util.Adler32;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.dcache.pool.repository.RepositoryChannel;
+
+/**
+ * Computes the adler32 checksum of a file by splitting it into consecutive stripes that are
+ * checksummed concurrently.  The partial values are then combined with {@link Adler32#combine}.
+ */
+class StripedAdler32 {
+
+    private static final int BUFFER_SIZE = KiB.toBytes(256);
+
+    private final Executor executor;
+
+    StripedAdler32(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the adler32 value of the first {@code size} bytes of the channel.
+     *
+     * @param channel the channel to read
+     * @param size    the number of bytes to checksum
+     * @param stripes the number of stripes to compute concurrently
+     * @throws IOException          if reading fails or the file is shorter than {@code size}
+     * @throws InterruptedException if interrupted while waiting for the stripes
+     */
+    long compute(RepositoryChannel channel, long size, int stripes)
+          throws IOException, InterruptedException {
+        checkArgument(stripes > 0, "Number of stripes must be positive");
+
+        long stripeSize = (size + stripes - 1) / stripes;
+        List<Future<Long>> futures = new ArrayList<>(stripes);
+        List<Long> lengths = new ArrayList<>(stripes);
+        try {
+            for (long offset = 0; offset < size; offset += stripeSize) {
+                long start = offset;
+                long length = Math.min(stripeSize, size - offset);
+                FutureTask<Long> task = new FutureTask<>(() -> checksum(channel, start, length));
+                executor.execute(task);
+                futures.add(task);
+                lengths.add(length);
+            }
+
+            long adler = 1L;
+            for (int i = 0; i < futures.size(); i++) {
+                adler = Adler32.combine(adler, futures.get(i).get(), lengths.get(i));
+            }
+            return adler;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new RuntimeException(cause);
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private static long checksum(RepositoryChannel channel, long position, long length)
+          throws IOException, InterruptedException {
+        java.util.zip.Adler32 adler = new java.util.zip.Adler32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(BUFFER_SIZE, length));
+        long end = position + length;
+        while (position < end) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file at position " + position);
+            }
+            buffer.flip();
+            adler.update(buffer);
+            position += n;
+        }
+        return adler.getValue();
+    }
+}
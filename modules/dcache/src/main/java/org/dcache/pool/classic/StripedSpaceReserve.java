@@ -0,0 +1,304 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.classic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import diskCacheV111.util.PnfsId;
+import dmg.cells.nucleus.CellInfoProvider;
+import java.io.PrintWriter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.dcache.pool.repository.Account;
+import org.dcache.pool.repository.OutOfDiskException;
+import org.dcache.util.PowerOfTwoHistogram;
+import org.dcache.util.Strings;
+
+/**
+ * Pool wide front end to an {@link Account} that serves most allocations without touching the
+ * account.
+ * <p>
+ * Space is leased from the account in chunks of at least the lease size and kept in a small number
+ * of stripes.  An allocation is served by atomically taking space from the reserve of the stripe of
+ * the calling thread, and only a thread finding its stripe exhausted leases a new chunk from the
+ * account.  Leases are only taken while the account has plenty of free space, i.e., more than one
+ * lease for each stripe remains free afterwards.
+ * <p>
+ * Once the pool is near full, allocations take the slow path: threads line up in a FIFO queue and
+ * are served one at a time by the account allocation passed by the caller, which may block until
+ * the sweeper has reclaimed space.  Before doing so, any space held in the stripes is returned to
+ * the account.  While threads are queued, the fast path is disabled so that newcomers cannot
+ * overtake waiting threads.
+ * <p>
+ * Allocations that must not block use {@link #allocateNow} instead. They never join the queue, as
+ * the thread at its head may wait indefinitely for the sweeper, and fail as soon as neither the
+ * stripes nor the account can serve them.
+ * <p>
+ * Space held in the stripes is accounted as used.  So that a pool which never nears full does not
+ * keep reporting leased but unwritten space as used, a periodic task returns the space of every
+ * stripe that has not been touched for the idle time.  Freed space is always returned directly to
+ * the account.
+ */
+public class StripedSpaceReserve implements CellInfoProvider {
+
+    /**
+     * Allocation from the account used on the slow path.
+     */
+    @FunctionalInterface
+    public interface Allocation {
+
+        void allocate(PnfsId id, long size) throws InterruptedException, OutOfDiskException;
+    }
+
+    /**
+     * Distance between stripes in the reserve array; keeps stripes on separate cache lines.
+     */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES =
+          Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    private final Account _account;
+    private final AtomicLongArray _reserves = new AtomicLongArray(STRIPES * PADDING);
+    private final Queue<Thread> _waiters = new ConcurrentLinkedQueue<>();
+    private volatile long _leaseSize;
+
+    /**
+     * Stripe reserves as seen by the last run of {@link #releaseIdle}.
+     */
+    private final long[] _lastSeen = new long[STRIPES];
+
+    private ScheduledExecutorService _executor;
+    private ScheduledFuture<?> _idleRelease;
+    private long _idleTime = 10;
+    private TimeUnit _idleTimeUnit = TimeUnit.SECONDS;
+
+    private final long _createdAt = System.nanoTime();
+    private final LongAdder _fastAllocations = new LongAdder();
+    private final LongAdder _slowAllocations = new LongAdder();
+    private final LongAdder _allocatedBytes = new LongAdder();
+    private final PowerOfTwoHistogram _leases = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram _waitTimes = new PowerOfTwoHistogram();
+
+    public StripedSpaceReserve(Account account) {
+        _account = requireNonNull(account);
+    }
+
+    /**
+     * Sets the minimum amount of space leased from the account at a time. Zero disables leasing,
+     * in which case the fast path allocates directly from the account.
+     */
+    public void setLeaseSize(long size) {
+        checkArgument(size >= 0, "Lease size must not be negative.");
+        _leaseSize = size;
+    }
+
+    public long getLeaseSize() {
+        return _leaseSize;
+    }
+
+    /**
+     * Sets the executor on which idle leases are returned to the account. Without an executor,
+     * leases are only returned once the pool is near full.
+     */
+    public void setExecutor(ScheduledExecutorService executor) {
+        _executor = executor;
+    }
+
+    public void setIdleTime(long time) {
+        checkArgument(time > 0, "Idle time must be positive.");
+        _idleTime = time;
+    }
+
+    public void setIdleTimeUnit(TimeUnit unit) {
+        _idleTimeUnit = requireNonNull(unit);
+    }
+
+    public synchronized void start() {
+        if (_executor != null) {
+            _idleRelease = _executor.scheduleWithFixedDelay(this::releaseIdle,
+                  _idleTime, _idleTime, _idleTimeUnit);
+        }
+    }
+
+    public synchronized void stop() {
+        if (_idleRelease != null) {
+            _idleRelease.cancel(false);
+            _idleRelease = null;
+        }
+        release();
+    }
+
+    /**
+     * Allocates space, using <code>slowPath</code> if the space cannot be served from the stripes
+     * or the free space of the account.
+     */
+    public void allocate(PnfsId id, long size, Allocation slowPath)
+          throws InterruptedException, OutOfDiskException {
+        checkArgument(size >= 0, "Cannot allocate negative space.");
+
+        if (_waiters.isEmpty() && tryAllocate(id, size)) {
+            _fastAllocations.increment();
+            _allocatedBytes.add(size);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Thread self = Thread.currentThread();
+        _waiters.add(self);
+        try {
+            while (_waiters.peek() != self) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (!tryAllocate(id, size)) {
+                release();
+                slowPath.allocate(id, size);
+            }
+            _slowAllocations.increment();
+            _allocatedBytes.add(size);
+        } finally {
+            _waiters.remove(self);
+            LockSupport.unpark(_waiters.peek());
+            _waitTimes.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Allocates space without waiting, bypassing the queue of blocked allocations.
+     *
+     * @return true if the space was allocated, false if the pool is out of space
+     */
+    public boolean allocateNow(PnfsId id, long size) throws InterruptedException {
+        checkArgument(size >= 0, "Cannot allocate negative space.");
+
+        if (!tryAllocate(id, size)) {
+            release();
+            if (!_account.allocateNow(id, size)) {
+                return false;
+            }
+            _slowAllocations.increment();
+        } else {
+            _fastAllocations.increment();
+        }
+        _allocatedBytes.add(size);
+        return true;
+    }
+
+    public void free(PnfsId id, long size) {
+        _account.free(id, size);
+    }
+
+    /**
+     * Returns all space held in the stripes to the account.
+     */
+    public void release() {
+        long released = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            released += _reserves.getAndSet(i * PADDING, 0);
+        }
+        if (released > 0) {
+            _account.free(null, released);
+        }
+    }
+
+    /**
+     * Returns the space of every stripe that has not changed since the previous call to the
+     * account.
+     */
+    public synchronized void releaseIdle() {
+        long released = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            long reserve = _reserves.get(i * PADDING);
+            if (reserve > 0 && reserve == _lastSeen[i]
+                  && _reserves.compareAndSet(i * PADDING, reserve, 0)) {
+                released += reserve;
+            }
+            _lastSeen[i] = _reserves.get(i * PADDING);
+        }
+        if (released > 0) {
+            _account.free(null, released);
+        }
+    }
+
+    /**
+     * Returns the amount of space currently held in the stripes.
+     */
+    public long getReserved() {
+        long reserved = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            reserved += _reserves.get(i * PADDING);
+        }
+        return reserved;
+    }
+
+    private boolean tryAllocate(PnfsId id, long size) {
+        int index = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+        long reserve = _reserves.get(index);
+        while (reserve >= size) {
+            if (_reserves.compareAndSet(index, reserve, reserve - size)) {
+                return true;
+            }
+            reserve = _reserves.get(index);
+        }
+
+        long leaseSize = _leaseSize;
+        long lease = Math.max(leaseSize, size);
+        if (!_account.allocateIfFree(id, lease, leaseSize * STRIPES)) {
+            return false;
+        }
+        if (lease > size) {
+            _leases.add(lease);
+            _reserves.addAndGet(index, lease - size);
+        }
+        return true;
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw) {
+        long fast = _fastAllocations.sum();
+        long slow = _slowAllocations.sum();
+        double seconds = (System.nanoTime() - _createdAt) / 1e9;
+        pw.println("Space allocation:");
+        pw.println("    Lease size    : " + Strings.humanReadableSize(_leaseSize));
+        pw.println("    Idle time     : " + _idleTime + " " + _idleTimeUnit);
+        pw.println("    Reserved      : " + Strings.humanReadableSize(getReserved())
+              + " in " + STRIPES + " stripes");
+        pw.println("    Allocations   : " + (fast + slow) + " (" + slow + " queued), "
+              + String.format("%.1f/s", (fast + slow) / seconds));
+        pw.println("    Allocated     : " + Strings.humanReadableSize(_allocatedBytes.sum()));
+        pw.println("    Waiting       : " + _waiters.size());
+        if (_leases.getCount() > 0) {
+            pw.println("    Leases:");
+            _leases.print(pw, "        ", " bytes");
+        }
+        if (_waitTimes.getCount() > 0) {
+            pw.println("    Queued allocation time:");
+            _waitTimes.print(pw, "        ", " us");
+        }
+    }
+}
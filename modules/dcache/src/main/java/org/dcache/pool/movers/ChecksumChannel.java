@@ -20,9 +20,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import org.dcache.pool.repository.ForwardingRepositoryChannel;
 import org.dcache.pool.repository.RepositoryChannel;
@@ -34,6 +36,10 @@ import org.slf4j.LoggerFactory;
 /**
  * A wrapper for RepositoryChannel that computes a digest on the fly during write as long as all
  * writes are sequential.
+ * <p>
+ * By default the digests are updated by the writing thread.  If a digest executor is supplied,
+ * the data is instead handed to a {@link DigestPipeline} that updates all digests concurrently on
+ * that executor, blocking the writer only if too much data is waiting to be digested.
  */
 public class ChecksumChannel extends ForwardingRepositoryChannel {
 
@@ -51,6 +57,12 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
      */
     private final List<MessageDigest> _digests;
 
+    /**
+     * Pipeline used to update the digests, or null if digests are updated inline.
+     */
+    @Nullable
+    private final DigestPipeline _pipeline;
+
     /**
      * Cached checksum after getChecksums is called the first time.
      */
@@ -106,11 +118,28 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
     @VisibleForTesting
     ByteBuffer _zerosBuffer = ZERO_BUFFER.duplicate();
 
+    /**
+     * Number of chunks a pipelined channel may have in flight.
+     */
+    private static final int PIPELINE_CHUNKS = 8;
+
     public ChecksumChannel(RepositoryChannel inner, Set<ChecksumType> types) {
+        this(inner, types, null);
+    }
+
+    /**
+     * @param digestExecutor executor on which to update the digests, or null to update them on
+     *                       the writing thread
+     */
+    public ChecksumChannel(RepositoryChannel inner, Set<ChecksumType> types,
+          @Nullable Executor digestExecutor) {
         _channel = inner;
         _digests = types.stream()
               .map(t -> t.createMessageDigest())
               .collect(Collectors.toList());
+        _pipeline = digestExecutor == null
+              ? null
+              : new DigestPipeline(digestExecutor, _readBackBuffer.capacity(), PIPELINE_CHUNKS);
     }
 
     /**
@@ -157,9 +186,9 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
 
             int bytes;
             if (_isChecksumViable) {
-                ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+                ByteBuffer view = buffer.duplicate();
                 bytes = _channel.write(buffer, position);
-                updateChecksum(readOnly, position, bytes);
+                updateChecksum(view, position, bytes);
             } else {
                 bytes = _channel.write(buffer, position);
             }
@@ -259,6 +288,10 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
                         feedZerosToDigesterForRangeGaps();
                     }
 
+                    if (_pipeline != null) {
+                        _pipeline.await();
+                    }
+
                     return _digests.stream()
                           .map(Checksum::new)
                           .collect(Collectors.toSet());
@@ -295,10 +328,10 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
 
     private int writeWithChecksumUpdate(ByteBuffer src) throws IOException {
         int writtenBytes;
-        ByteBuffer readOnly = src.asReadOnlyBuffer();
+        ByteBuffer view = src.duplicate();
         long updatePosition = position();
         writtenBytes = _channel.write(src);
-        updateChecksum(readOnly, updatePosition, writtenBytes);
+        updateChecksum(view, updatePosition, writtenBytes);
 
         return writtenBytes;
     }
@@ -367,10 +400,14 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
             // update offset prior digest calculation as digests#update will update position in the buffer
             _nextChecksumOffset += buffer.remaining();
 
-            _digests.forEach(d -> d.update(buffer.duplicate()));
-
             long expectedOffsetAfterRead = _nextChecksumOffset + bytesToRead;
             try {
+                try {
+                    updateDigests(_digests, buffer);
+                } catch (IOException | RuntimeException e) {
+                    _isChecksumViable = false;
+                    throw e;
+                }
                 updateFromChannel(_digests, _nextChecksumOffset, bytesToRead);
             } finally {
                 _nextChecksumOffset = expectedOffsetAfterRead;
@@ -395,7 +432,7 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
 
                 _readBackBuffer.flip();
 
-                digests.forEach(d -> d.update(_readBackBuffer.asReadOnlyBuffer()));
+                updateDigests(digests, _readBackBuffer);
 
                 bytesToRead -= bytesRead;
                 offset += bytesRead;
@@ -405,4 +442,17 @@ public class ChecksumChannel extends ForwardingRepositoryChannel {
             throw e;
         }
     }
+
+    /**
+     * Updates the digests with the remaining bytes of the buffer without modifying its position.
+     */
+    @GuardedBy("_digests")
+    private void updateDigests(Collection<MessageDigest> digests, ByteBuffer buffer)
+          throws IOException {
+        if (_pipeline == null) {
+            digests.forEach(d -> d.update(buffer.duplicate()));
+        } else {
+            _pipeline.update(digests, buffer);
+        }
+    }
 }
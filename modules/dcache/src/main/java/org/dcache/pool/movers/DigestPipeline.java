@@ -0,0 +1,180 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.movers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Feeds data to a set of message digests on a shared executor.
+ * <p>
+ * The data is copied into one of a fixed number of chunk buffers, after which the caller may
+ * reuse its own buffer.  Each digest has its own lane on the executor in which the chunks are
+ * processed in submission order, while different digests are updated concurrently.  A chunk buffer
+ * is recycled once all digests have consumed it.  If all chunks are in use, {@link #update} blocks
+ * until a chunk becomes available, limiting the memory used by a single channel.
+ * <p>
+ * The caller is responsible for submitting data in file order.
+ */
+class DigestPipeline {
+
+    private final Executor executor;
+
+    private final int chunkSize;
+
+    private final int chunks;
+
+    private final Semaphore available;
+
+    private final Queue<ByteBuffer> freeChunks = new ConcurrentLinkedQueue<>();
+
+    @GuardedBy("lanes")
+    private final Map<MessageDigest, Executor> lanes = new IdentityHashMap<>();
+
+    private volatile Throwable failure;
+
+    /**
+     * @param executor  the executor on which digests are updated
+     * @param chunkSize the size of each chunk buffer
+     * @param chunks    the maximum number of chunks in flight
+     */
+    DigestPipeline(Executor executor, int chunkSize, int chunks) {
+        checkArgument(chunkSize > 0, "Chunk size must be positive");
+        checkArgument(chunks > 0, "Number of chunks must be positive");
+        this.executor = requireNonNull(executor);
+        this.chunkSize = chunkSize;
+        this.chunks = chunks;
+        this.available = new Semaphore(chunks);
+    }
+
+    /**
+     * Submits the remaining bytes of {@code data} to the given digests.  The position of {@code
+     * data} is not modified.
+     *
+     * @throws InterruptedIOException if interrupted while waiting for a free chunk
+     * @throws IOException            if an earlier update failed
+     */
+    void update(Collection<MessageDigest> digests, ByteBuffer data) throws IOException {
+        ByteBuffer source = data.duplicate();
+        while (source.hasRemaining()) {
+            checkFailure();
+
+            try {
+                available.acquire();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+
+            ByteBuffer chunk = freeChunks.poll();
+            if (chunk == null) {
+                chunk = ByteBuffer.allocate(chunkSize);
+            }
+            chunk.clear();
+            int length = Math.min(chunk.remaining(), source.remaining());
+            ByteBuffer slice = source.duplicate();
+            slice.limit(slice.position() + length);
+            chunk.put(slice).flip();
+            source.position(source.position() + length);
+
+            submit(digests, chunk);
+        }
+    }
+
+    private void submit(Collection<MessageDigest> digests, ByteBuffer chunk) {
+        if (digests.isEmpty()) {
+            recycle(chunk);
+            return;
+        }
+
+        AtomicInteger pending = new AtomicInteger(digests.size());
+        for (MessageDigest digest : digests) {
+            Runnable task = () -> {
+                try {
+                    if (failure == null) {
+                        digest.update(chunk.duplicate());
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        recycle(chunk);
+                    }
+                }
+            };
+            try {
+                lane(digest).execute(task);
+            } catch (RejectedExecutionException e) {
+                failure = e;
+                if (pending.decrementAndGet() == 0) {
+                    recycle(chunk);
+                }
+            }
+        }
+    }
+
+    private Executor lane(MessageDigest digest) {
+        synchronized (lanes) {
+            return lanes.computeIfAbsent(digest,
+                  d -> MoreExecutors.newSequentialExecutor(executor));
+        }
+    }
+
+    private void recycle(ByteBuffer chunk) {
+        freeChunks.add(chunk);
+        available.release();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            throw new IOException("Digest update failed: " + t, t);
+        }
+    }
+
+    /**
+     * Waits until all submitted data has been processed by all digests.
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     * @throws IOException            if any update failed
+     */
+    void await() throws IOException {
+        try {
+            available.acquire(chunks);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        available.release(chunks);
+        checkFailure();
+    }
+}
@@ -21,6 +21,7 @@ import diskCacheV111.vehicles.PoolIoFileMessage;
 import diskCacheV111.vehicles.ProtocolInfo;
 import dmg.cells.nucleus.CellPath;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.dcache.pool.classic.TransferService;
 import org.dcache.pool.repository.ReplicaDescriptor;
 
@@ -29,8 +30,26 @@ import org.dcache.pool.repository.ReplicaDescriptor;
  */
 public class NettyMover<P extends ProtocolInfo> extends MoverChannelMover<P, NettyMover<P>> {
 
+    /**
+     * The way in which data of a read request was sent to the client.
+     */
+    public enum ReadPath {
+        /**
+         * File content was copied into buffers before being written to the socket.
+         */
+        CHUNKED,
+
+        /**
+         * File content was sent directly from the file to the socket.
+         */
+        ZERO_COPY
+    }
+
     private final UUID uuid;
 
+    private final AtomicInteger chunkedReads = new AtomicInteger();
+
+    private final AtomicInteger zeroCopyReads = new AtomicInteger();
 
     public NettyMover(ReplicaDescriptor handle,
           PoolIoFileMessage message,
@@ -44,4 +63,40 @@ public class NettyMover<P extends ProtocolInfo> extends MoverChannelMover<P, Net
     public UUID getUuid() {
         return uuid;
     }
+
+    /**
+     * Record which path was used to serve a read request of this mover.
+     */
+    public void recordReadPath(ReadPath path) {
+        switch (path) {
+            case CHUNKED:
+                chunkedReads.incrementAndGet();
+                break;
+            case ZERO_COPY:
+                zeroCopyReads.incrementAndGet();
+                break;
+        }
+    }
+
+    public int getChunkedReads() {
+        return chunkedReads.get();
+    }
+
+    public int getZeroCopyReads() {
+        return zeroCopyReads.get();
+    }
+
+    @Override
+    protected String getStatus() {
+        StringBuilder s = new StringBuilder(super.getStatus());
+        int chunked = chunkedReads.get();
+        int zeroCopy = zeroCopyReads.get();
+        if (chunked > 0) {
+            s.append(":chunked=").append(chunked);
+        }
+        if (zeroCopy > 0) {
+            s.append(":zero-copy=").append(zeroCopy);
+        }
+        return s.toString();
+    }
 }
@@ -38,10 +38,9 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -68,6 +67,7 @@ import org.dcache.util.Checksum;
 import org.dcache.util.ChecksumType;
 import org.dcache.util.FireAndForgetTask;
 import org.dcache.util.NettyPortRange;
+import org.dcache.util.NettyTransport;
 import org.dcache.util.TryCatchTemplate;
 import org.dcache.vehicles.FileAttributes;
 import org.slf4j.Logger;
@@ -97,12 +97,17 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
     /**
      * Event loop for the server channel.
      */
-    private NioEventLoopGroup acceptGroup;
+    private EventLoopGroup acceptGroup;
 
     /**
      * Event loop for the child channels.
      */
-    private NioEventLoopGroup socketGroup;
+    private EventLoopGroup socketGroup;
+
+    /**
+     * Netty transport used for the server and child channels.
+     */
+    private NettyTransport transport = new NettyTransport();
 
     /**
      * Shared Netty server channel.
@@ -235,6 +240,14 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
         return portRange;
     }
 
+    public void setTransport(NettyTransport transport) {
+        this.transport = transport;
+    }
+
+    public NettyTransport getTransport() {
+        return transport;
+    }
+
     protected void initChannel(Channel ch) throws Exception {
         ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
             @Override
@@ -259,9 +272,8 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
      */
     protected synchronized void startServer() throws IOException {
         if (serverChannel == null) {
-            ServerBootstrap bootstrap = new ServerBootstrap()
+            ServerBootstrap bootstrap = transport.configure(new ServerBootstrap())
                   .group(acceptGroup, socketGroup)
-                  .channel(NioServerSocketChannel.class)
                   .childOption(ChannelOption.TCP_NODELAY, false)
                   .childOption(ChannelOption.SO_KEEPALIVE, true)
                   .childHandler(new ChannelInitializer<Channel>() {
@@ -275,7 +287,8 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
 
             serverChannel = portRange.bind(bootstrap);
             lastServerAddress = (InetSocketAddress) serverChannel.localAddress();
-            LOGGER.debug("Started {} on {}", getClass().getSimpleName(), lastServerAddress);
+            LOGGER.debug("Started {} on {} using {} transport", getClass().getSimpleName(),
+                  lastServerAddress, transport);
         }
     }
 
@@ -298,9 +311,9 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
         timeoutScheduler =
               Executors.newSingleThreadScheduledExecutor(
                     new ThreadFactoryBuilder().setNameFormat(name + "-connect-timeout").build());
-        acceptGroup = new NioEventLoopGroup(0, new CDCThreadFactory(
+        acceptGroup = transport.newEventLoopGroup(0, new CDCThreadFactory(
               new ThreadFactoryBuilder().setNameFormat(name + "-listen-%d").build()));
-        socketGroup = new NioEventLoopGroup(threads,
+        socketGroup = transport.newEventLoopGroup(threads,
               new CDCThreadFactory(new ThreadFactoryBuilder().setNameFormat(
                     name + "-net-%d").build()));
     }
@@ -353,7 +366,7 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
         shutdownGracefully(socketGroup);
     }
 
-    protected void shutdownGracefully(NioEventLoopGroup group) {
+    protected void shutdownGracefully(EventLoopGroup group) {
         io.netty.util.concurrent.Future<?> terminationFuture = group.shutdownGracefully(1, 3,
               TimeUnit.SECONDS);
         shutdownFutures.add(terminationFuture);
@@ -417,7 +430,8 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
                             mover.open(),
                             connectTimeoutUnit.toMillis(connectTimeout), this,
                             mover::addChecksumType,
-                            mover::addExpectedChecksum));
+                            mover::addExpectedChecksum,
+                            mover::recordReadPath));
                 if (uuids.putIfAbsent(uuid, channel) != null) {
                     throw new IllegalStateException("UUID conflict");
                 }
@@ -480,6 +494,7 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
         private final SettableFuture<Void> closeFuture = SettableFuture.create();
         private final Consumer<ChecksumType> checksumCalculation;
         private final Consumer<Checksum> integrityChecker;
+        private final Consumer<NettyMover.ReadPath> readPathRecorder;
         private final UUID moverUuid;
 
         public NettyMoverChannel(UUID moverUuid,
@@ -487,12 +502,14 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
               long connectTimeout,
               CompletionHandler<Void, Void> completionHandler,
               Consumer<ChecksumType> checksumCalculation,
-              Consumer<Checksum> integrityChecker) {
+              Consumer<Checksum> integrityChecker,
+              Consumer<NettyMover.ReadPath> readPathRecorder) {
             super(file);
             this.moverUuid = moverUuid;
             this.completionHandler = completionHandler;
             this.checksumCalculation = checksumCalculation;
             this.integrityChecker = integrityChecker;
+            this.readPathRecorder = readPathRecorder;
             timeout = timeoutScheduler.schedule(() -> {
                 try (CDC ignored = cdc.restore()) {
                     if (sync.onTimeout()) {
@@ -514,6 +531,10 @@ public abstract class NettyTransferService<P extends ProtocolInfo>
             integrityChecker.accept(value);
         }
 
+        public void recordReadPath(NettyMover.ReadPath path) {
+            readPathRecorder.accept(path);
+        }
+
         public UUID getMoverUuid() {
             return moverUuid;
         }
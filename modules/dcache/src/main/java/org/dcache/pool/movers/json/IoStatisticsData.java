@@ -0,0 +1,155 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.movers.json;
+
+import java.io.Serializable;
+
+/**
+ * <p>Distribution of the IO operations of a mover in one direction,
+ * derived from {@link org.dcache.pool.statistics.SnapshotStatistics}.</p>
+ */
+public class IoStatisticsData implements Serializable {
+
+    private static final long serialVersionUID = -3507244270719306112L;
+
+    /**
+     * <p>Summary and percentiles of one quantity.</p>
+     */
+    public static class Distribution implements Serializable {
+
+        private static final long serialVersionUID = 6092785541316411744L;
+
+        private Long count;
+        private Double min;
+        private Double mean;
+        private Double max;
+        private Double p50;
+        private Double p99;
+        private Double p999;
+
+        public Long getCount() {
+            return count;
+        }
+
+        public Double getMax() {
+            return max;
+        }
+
+        public Double getMean() {
+            return mean;
+        }
+
+        public Double getMin() {
+            return min;
+        }
+
+        public Double getP50() {
+            return p50;
+        }
+
+        public Double getP99() {
+            return p99;
+        }
+
+        public Double getP999() {
+            return p999;
+        }
+
+        public void setCount(Long count) {
+            this.count = count;
+        }
+
+        public void setMax(Double max) {
+            this.max = max;
+        }
+
+        public void setMean(Double mean) {
+            this.mean = mean;
+        }
+
+        public void setMin(Double min) {
+            this.min = min;
+        }
+
+        public void setP50(Double p50) {
+            this.p50 = p50;
+        }
+
+        public void setP99(Double p99) {
+            this.p99 = p99;
+        }
+
+        public void setP999(Double p999) {
+            this.p999 = p999;
+        }
+    }
+
+    /**
+     * Bytes per second of individual IO operations.
+     */
+    private Distribution bandwidth;
+
+    /**
+     * Nanoseconds spent in individual IO operations.
+     */
+    private Distribution ioTime;
+
+    private Distribution requestedBytes;
+    private Distribution transferredBytes;
+    private Distribution concurrency;
+
+    public Distribution getBandwidth() {
+        return bandwidth;
+    }
+
+    public Distribution getConcurrency() {
+        return concurrency;
+    }
+
+    public Distribution getIoTime() {
+        return ioTime;
+    }
+
+    public Distribution getRequestedBytes() {
+        return requestedBytes;
+    }
+
+    public Distribution getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public void setBandwidth(Distribution bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    public void setConcurrency(Distribution concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public void setIoTime(Distribution ioTime) {
+        this.ioTime = ioTime;
+    }
+
+    public void setRequestedBytes(Distribution requestedBytes) {
+        this.requestedBytes = requestedBytes;
+    }
+
+    public void setTransferredBytes(Distribution transferredBytes) {
+        this.transferredBytes = transferredBytes;
+    }
+}
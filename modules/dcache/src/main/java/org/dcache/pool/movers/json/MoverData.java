@@ -81,6 +81,8 @@ public class MoverData implements Comparable<MoverData>, Serializable {
     private Long submitTime;
     private Long lastModified;
     private Integer moverId;
+    private IoStatisticsData reads;
+    private IoStatisticsData writes;
 
     @Override
     public int compareTo(MoverData o) {
@@ -113,6 +115,14 @@ public class MoverData implements Comparable<MoverData>, Serializable {
         return moverId;
     }
 
+    public IoStatisticsData getReads() {
+        return reads;
+    }
+
+    public IoStatisticsData getWrites() {
+        return writes;
+    }
+
     public String getPnfsId() {
         return pnfsId;
     }
@@ -161,6 +171,14 @@ public class MoverData implements Comparable<MoverData>, Serializable {
         this.moverId = moverId;
     }
 
+    public void setReads(IoStatisticsData reads) {
+        this.reads = reads;
+    }
+
+    public void setWrites(IoStatisticsData writes) {
+        this.writes = writes;
+    }
+
     public void setPnfsId(String pnfsId) {
         this.pnfsId = pnfsId;
     }
@@ -0,0 +1,38 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline;
+
+import java.util.List;
+import org.dcache.pool.nearline.spi.NearlineStorage;
+import org.dcache.pool.nearline.spi.StageRequest;
+
+/**
+ * Stage policy passing requests to the nearline storage in arrival order.
+ */
+public class FifoStagePolicy implements StagePolicy {
+
+    @Override
+    public void submit(NearlineStorage storage, List<StageRequest> requests) {
+        storage.stage(requests);
+    }
+
+    @Override
+    public boolean cancel(StageRequest request) {
+        return false;
+    }
+}
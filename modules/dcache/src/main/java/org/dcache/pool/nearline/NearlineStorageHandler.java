@@ -190,6 +190,11 @@ public class NearlineStorageHandler
      */
     private Allocator allocator;
 
+    /**
+     * Decides when stage requests are passed to the nearline storage.
+     */
+    private StagePolicy stagePolicy = new FifoStagePolicy();
+
     private CellAddressCore cellAddress;
 
     private Consumer<StorageInfoMessage> _kafkaSender = (s) -> {
@@ -254,6 +259,10 @@ public class NearlineStorageHandler
         this.fileStore = fileStore;
     }
 
+    public void setStagePolicy(StagePolicy stagePolicy) {
+        this.stagePolicy = requireNonNull(stagePolicy);
+    }
+
     @PostConstruct
     public void init() {
         timeoutFuture = scheduledExecutor.scheduleWithFixedDelay(new TimeoutTask(), 30, 30,
@@ -918,7 +927,11 @@ public class NearlineStorageHandler
 
         @Override
         protected void submit(NearlineStorage storage, Iterable<StageRequestImpl> requests) {
-            storage.stage(transform(requests, Functions.<StageRequest>identity()));
+            List<StageRequest> list = new ArrayList<>();
+            requests.forEach(list::add);
+            if (!list.isEmpty()) {
+                stagePolicy.submit(storage, list);
+            }
         }
     }
 
@@ -1274,6 +1287,15 @@ public class NearlineStorageHandler
             return super.activate();
         }
 
+        @Override
+        public void cancel() {
+            super.cancel();
+            /* The nearline storage doesn't know requests held back by the stage policy. */
+            if (stagePolicy.cancel(this)) {
+                failed(new CancellationException());
+            }
+        }
+
         @Override
         public File getFile() {
             return Paths.get(descriptor.getReplicaFile()).toFile();
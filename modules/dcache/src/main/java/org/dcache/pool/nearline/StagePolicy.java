@@ -0,0 +1,45 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline;
+
+import java.util.List;
+import org.dcache.pool.nearline.spi.NearlineStorage;
+import org.dcache.pool.nearline.spi.StageRequest;
+
+/**
+ * Decides when and in which order stage requests are passed to a nearline storage.
+ * <p>
+ * A policy may hold back requests, e.g. to group requests for files on the same tape. A request
+ * held back by the policy is still queued from the point of view of the pool.
+ */
+public interface StagePolicy {
+
+    /**
+     * Submits new stage requests. The policy must eventually pass each request to {@code storage}
+     * unless it is cancelled first.
+     */
+    void submit(NearlineStorage storage, List<StageRequest> requests);
+
+    /**
+     * Cancels a request held back by the policy.
+     *
+     * @return true if the request was held back by the policy and has been removed, false if the
+     * request has already been passed to the nearline storage
+     */
+    boolean cancel(StageRequest request);
+}
@@ -0,0 +1,712 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.coprocess;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import diskCacheV111.util.CacheException;
+import diskCacheV111.vehicles.StorageInfo;
+import diskCacheV111.vehicles.StorageInfos;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.dcache.pool.nearline.spi.FlushRequest;
+import org.dcache.pool.nearline.spi.NearlineRequest;
+import org.dcache.pool.nearline.spi.NearlineStorage;
+import org.dcache.pool.nearline.spi.RemoveRequest;
+import org.dcache.pool.nearline.spi.StageRequest;
+import org.dcache.util.CDCExecutorServiceDecorator;
+import org.dcache.util.Checksum;
+import org.dcache.util.ChecksumType;
+import org.dcache.vehicles.FileAttributes;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * NearlineStorage implementation talking to a long-lived HSM helper process.
+ * <p>
+ * Unlike {@link org.dcache.pool.nearline.script.ScriptNearlineStorage}, which forks the HSM
+ * integration script once per file, the helper is launched once and receives requests as newline
+ * delimited JSON objects on its standard input. It answers each request by writing a JSON object
+ * carrying the id of the request to its standard output. Responses may be written in any order,
+ * thus allowing the helper to process many requests concurrently and to reorder them as it sees
+ * fit. Anything written to standard error is logged.
+ * <p>
+ * A request has the fields {@code id} and {@code action}, the latter being one of {@code flush},
+ * {@code stage}, {@code remove} and {@code cancel}. Flush and stage requests in addition have the
+ * fields {@code pnfsid}, {@code file}, {@code si}, {@code hsm}, {@code storageclass}, {@code size}
+ * and {@code deadline}; stage requests have the known tape locations in {@code locations}. Remove
+ * requests carry the location to delete in {@code uri}. A cancel request refers to a previously
+ * sent request with the same id.
+ * <p>
+ * A response has the fields {@code id} and {@code status}, the latter being one of {@code ok},
+ * {@code error} and {@code cancelled}. A successful flush lists the tape locations in {@code
+ * locations}, while a successful stage may list checksums as objects with {@code type} and {@code
+ * value} fields in {@code checksums}. An error response carries a return code in {@code rc} and an
+ * explanation in {@code message}; the return code has the same meaning as the exit code of an HSM
+ * script.
+ * <p>
+ * At most {@code c:window} requests are sent to the helper without having been answered. Should
+ * the helper terminate, all requests sent to it fail and the helper is restarted on the next
+ * request. Any property other than {@code command} and {@code c:window} is passed as an option
+ * to the helper when it is launched.
+ */
+public class CoprocessNearlineStorage implements NearlineStorage {
+
+    private static final Logger LOGGER =
+          LoggerFactory.getLogger(CoprocessNearlineStorage.class);
+
+    public static final String COMMAND = "command";
+    public static final String WINDOW = "c:window";
+
+    private static final int DEFAULT_WINDOW = 100;
+    private static final Collection<String> PROPERTIES = asList(COMMAND, WINDOW);
+
+    private enum State {
+        QUEUED, ACTIVATING, SENT, DONE
+    }
+
+    private final String type;
+    private final String name;
+
+    /**
+     * Single thread writing to and launching the helper. Requests to send are collected in {@code
+     * outbox} so that the thread writes all of them before flushing the output stream.
+     */
+    private final CDCExecutorServiceDecorator<?> writer;
+    private final Queue<JSONObject> outbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * All queued and active requests, guarded by this.
+     */
+    private final Map<UUID, Task<?>> tasks = new HashMap<>();
+    private final Deque<Task<?>> queue = new ArrayDeque<>();
+    private int active;
+    private int window = DEFAULT_WINDOW;
+    private boolean isShutdown;
+
+    private volatile List<String> command;
+
+    /**
+     * The running helper; only modified by the writer thread.
+     */
+    private volatile Helper helper;
+
+    public CoprocessNearlineStorage(String type, String name) {
+        this.type = type;
+        this.name = name;
+        this.writer = new CDCExecutorServiceDecorator<>(Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder().setNameFormat("coprocess-" + name + "-writer")
+                    .setDaemon(true).build()));
+    }
+
+    @Override
+    public void flush(Iterable<FlushRequest> requests) {
+        for (FlushRequest request : requests) {
+            enqueue(new FlushTask(request));
+        }
+        pump();
+    }
+
+    @Override
+    public void stage(Iterable<StageRequest> requests) {
+        for (StageRequest request : requests) {
+            enqueue(new StageTask(request));
+        }
+        pump();
+    }
+
+    @Override
+    public void remove(Iterable<RemoveRequest> requests) {
+        for (RemoveRequest request : requests) {
+            enqueue(new RemoveTask(request));
+        }
+        pump();
+    }
+
+    @Override
+    public void cancel(UUID uuid) {
+        Task<?> cancelled = null;
+        synchronized (this) {
+            Task<?> task = tasks.get(uuid);
+            if (task == null) {
+                return;
+            }
+            switch (task.state) {
+                case QUEUED:
+                    queue.remove(task);
+                    tasks.remove(uuid);
+                    task.state = State.DONE;
+                    cancelled = task;
+                    break;
+                case ACTIVATING:
+                    task.isCancelled = true;
+                    break;
+                case SENT:
+                    send(new JSONObject().put("id", uuid.toString()).put("action", "cancel"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (cancelled != null) {
+            cancelled.request.failed(new CancellationException());
+        }
+    }
+
+    @Override
+    public void configure(Map<String, String> properties) throws IllegalArgumentException {
+        if (!properties.containsKey(COMMAND)) {
+            throw new IllegalArgumentException("command option must be defined");
+        }
+        String value = properties.get(WINDOW);
+        int newWindow = (value != null) ? Integer.parseInt(value) : DEFAULT_WINDOW;
+        if (newWindow < 1) {
+            throw new IllegalArgumentException(WINDOW + " must be positive");
+        }
+
+        List<String> newCommand = buildCommand(properties);
+        List<String> oldCommand = command;
+        command = newCommand;
+        if (oldCommand != null && !oldCommand.equals(newCommand)) {
+            /* Let the current helper answer the requests it already has, but
+             * launch a new helper for subsequent requests.
+             */
+            execute(this::retireHelper);
+        }
+
+        synchronized (this) {
+            window = newWindow;
+        }
+        pump();
+    }
+
+    @Override
+    public void start() throws IOException {
+        execute(() -> {
+            try {
+                getHelper();
+            } catch (IOException e) {
+                LOGGER.error("Failed to launch HSM helper {}: {}", command, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        List<Task<?>> cancelled;
+        synchronized (this) {
+            isShutdown = true;
+            cancelled = new ArrayList<>(tasks.values());
+            cancelled.forEach(task -> task.state = State.DONE);
+            tasks.clear();
+            queue.clear();
+            active = 0;
+        }
+        cancelled.forEach(task -> task.request.failed(new CancellationException()));
+        writer.shutdown();
+        Helper current = helper;
+        if (current != null) {
+            current.process.destroy();
+        }
+    }
+
+    @VisibleForTesting
+    List<String> getCommand() {
+        return command;
+    }
+
+    private List<String> buildCommand(Map<String, String> properties) {
+        return Stream.concat(Stream.of(properties.get(COMMAND)),
+                    properties.entrySet().stream()
+                          .filter(entry -> !PROPERTIES.contains(entry.getKey()))
+                          .map(entry -> "-" + entry.getKey()
+                                + (Strings.isNullOrEmpty(entry.getValue()) ? ""
+                                : "=" + entry.getValue())))
+              .collect(Collectors.toList());
+    }
+
+    private synchronized void enqueue(Task<?> task) {
+        if (isShutdown) {
+            task.request.failed(new CancellationException());
+            return;
+        }
+        tasks.put(task.id, task);
+        queue.add(task);
+    }
+
+    /**
+     * Activates queued requests as long as the window permits.
+     */
+    private void pump() {
+        List<Task<?>> activated = new ArrayList<>();
+        synchronized (this) {
+            while (active < window && !queue.isEmpty()) {
+                Task<?> task = queue.poll();
+                task.state = State.ACTIVATING;
+                active++;
+                activated.add(task);
+            }
+        }
+        for (Task<?> task : activated) {
+            Futures.addCallback(task.prepare(), new FutureCallback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    sent(task);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    fail(task, t);
+                }
+            }, directExecutor());
+        }
+    }
+
+    private void sent(Task<?> task) {
+        synchronized (this) {
+            if (task.state != State.ACTIVATING) {
+                return;
+            }
+            if (!task.isCancelled) {
+                task.state = State.SENT;
+                send(task.toJson());
+                return;
+            }
+        }
+        fail(task, new CancellationException());
+    }
+
+    private void send(JSONObject json) {
+        outbox.add(json);
+        execute(this::drain);
+    }
+
+    private void execute(Runnable runnable) {
+        try {
+            writer.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Nearline storage {} is shut down.", name);
+        }
+    }
+
+    /**
+     * Writes all pending requests to the helper, launching it if necessary. Called on the writer
+     * thread.
+     */
+    private void drain() {
+        if (outbox.isEmpty() || isShutdown()) {
+            return;
+        }
+        Helper current;
+        try {
+            current = getHelper();
+        } catch (IOException e) {
+            if (isShutdown()) {
+                return;
+            }
+            LOGGER.error("Failed to launch HSM helper {}: {}", command, e.getMessage());
+            failOutbox(new CacheException(CacheException.UNEXPECTED_SYSTEM_EXCEPTION,
+                  "Failed to launch HSM helper: " + e.getMessage(), e));
+            return;
+        }
+        try {
+            JSONObject json;
+            while ((json = outbox.poll()) != null) {
+                if (!json.getString("action").equals("cancel")) {
+                    Task<?> task = getTask(json.getString("id"));
+                    if (task == null) {
+                        continue;
+                    }
+                    task.helper = current;
+                }
+                current.stdin.write(json.toString());
+                current.stdin.write('\n');
+            }
+            current.stdin.flush();
+        } catch (IOException e) {
+            LOGGER.error("Failed to write to HSM helper: {}", e.getMessage());
+            current.process.destroy();
+            retireHelper();
+            failOutbox(new CacheException(CacheException.UNEXPECTED_SYSTEM_EXCEPTION,
+                  "Failed to write to HSM helper: " + e.getMessage(), e));
+        }
+    }
+
+    private void failOutbox(CacheException e) {
+        JSONObject json;
+        while ((json = outbox.poll()) != null) {
+            if (!json.getString("action").equals("cancel")) {
+                Task<?> task = getTask(json.getString("id"));
+                if (task != null) {
+                    fail(task, e);
+                }
+            }
+        }
+    }
+
+    private Helper getHelper() throws IOException {
+        if (helper == null || !helper.process.isAlive()) {
+            retireHelper();
+            helper = new Helper(new ProcessBuilder(command).start());
+            if (isShutdown()) {
+                /* Shutdown raced with the launch. */
+                helper.process.destroy();
+            } else {
+                LOGGER.info("Launched HSM helper {}", command);
+            }
+        }
+        return helper;
+    }
+
+    private void retireHelper() {
+        if (helper != null) {
+            try {
+                helper.stdin.close();
+            } catch (IOException e) {
+                LOGGER.debug("Failed to close HSM helper input: {}", e.getMessage());
+            }
+            helper = null;
+        }
+    }
+
+    private synchronized boolean isShutdown() {
+        return isShutdown;
+    }
+
+    private synchronized Task<?> getTask(String id) {
+        try {
+            return tasks.get(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Removes a task, returning true if it was still active. A task is only completed by the
+     * caller that removed it.
+     */
+    private synchronized boolean finish(Task<?> task) {
+        if (task.state == State.DONE) {
+            return false;
+        }
+        if (task.state != State.QUEUED) {
+            active--;
+        }
+        task.state = State.DONE;
+        tasks.remove(task.id);
+        return true;
+    }
+
+    private void fail(Task<?> task, Throwable t) {
+        if (finish(task)) {
+            if (t instanceof CancellationException) {
+                task.request.failed((CancellationException) t);
+            } else if (t instanceof Exception) {
+                task.request.failed((Exception) t);
+            } else {
+                task.request.failed(new CacheException(CacheException.UNEXPECTED_SYSTEM_EXCEPTION,
+                      t.toString(), t));
+            }
+            pump();
+        }
+    }
+
+    private void onResponse(String line) {
+        JSONObject response;
+        Task<?> task;
+        try {
+            response = new JSONObject(line);
+            task = getTask(response.getString("id"));
+        } catch (JSONException e) {
+            LOGGER.warn("HSM helper produced malformed response: {}", line);
+            return;
+        }
+        if (task == null || !finish(task)) {
+            return;
+        }
+        task.complete(response);
+        pump();
+    }
+
+    private void onTermination(Helper terminated) {
+        int rc;
+        try {
+            rc = terminated.process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rc = -1;
+        }
+        if (rc != 0 && !isShutdown()) {
+            LOGGER.error("HSM helper {} terminated with exit code {}", command, rc);
+        }
+        CacheException e = new CacheException(CacheException.UNEXPECTED_SYSTEM_EXCEPTION,
+              "HSM helper terminated with exit code " + rc);
+        List<Task<?>> lost;
+        synchronized (this) {
+            lost = tasks.values().stream()
+                  .filter(task -> task.helper == terminated)
+                  .collect(Collectors.toList());
+        }
+        lost.forEach(task -> fail(task, e));
+    }
+
+    /**
+     * A launched helper process.
+     */
+    private class Helper {
+
+        final Process process;
+        final Writer stdin;
+
+        Helper(Process process) {
+            this.process = process;
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(),
+                  UTF_8));
+            Thread reader = new Thread(this::read, "coprocess-" + name + "-reader");
+            reader.setDaemon(true);
+            reader.start();
+            Thread logger = new Thread(this::log, "coprocess-" + name + "-stderr");
+            logger.setDaemon(true);
+            logger.start();
+        }
+
+        private void read() {
+            try (BufferedReader in = new BufferedReader(
+                  new InputStreamReader(process.getInputStream(), UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        onResponse(line);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to read from HSM helper: {}", e.getMessage());
+            } finally {
+                onTermination(this);
+            }
+        }
+
+        private void log() {
+            try (BufferedReader in = new BufferedReader(
+                  new InputStreamReader(process.getErrorStream(), UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    LOGGER.warn("HSM helper: {}", line);
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to read from HSM helper: {}", e.getMessage());
+            }
+        }
+    }
+
+    private abstract class Task<R extends NearlineRequest<?>> {
+
+        protected final R request;
+        protected final UUID id;
+
+        /**
+         * Guarded by the nearline storage.
+         */
+        State state = State.QUEUED;
+        boolean isCancelled;
+
+        /**
+         * The helper the request was written to.
+         */
+        volatile Helper helper;
+
+        Task(R request) {
+            this.request = request;
+            this.id = request.getId();
+        }
+
+        /**
+         * Activates the request, returning a future that completes once the request can be sent
+         * to the helper.
+         */
+        ListenableFuture<?> prepare() {
+            return request.activate();
+        }
+
+        JSONObject toJson() {
+            return new JSONObject()
+                  .put("id", id.toString())
+                  .put("deadline", request.getDeadline());
+        }
+
+        void complete(JSONObject response) {
+            try {
+                switch (response.optString("status")) {
+                    case "ok":
+                        completed(response);
+                        break;
+                    case "cancelled":
+                        request.failed(new CancellationException());
+                        break;
+                    default:
+                        request.failed(response.optInt("rc", 1),
+                              response.optString("message", "HSM helper reported an error"));
+                        break;
+                }
+            } catch (JSONException | CacheException e) {
+                request.failed(e);
+            }
+        }
+
+        abstract void completed(JSONObject response) throws CacheException;
+    }
+
+    private JSONObject describe(JSONObject json, URI replica, FileAttributes attributes) {
+        StorageInfo storageInfo = StorageInfos.extractFrom(attributes);
+        return json.put("pnfsid", attributes.getPnfsId().toString())
+              .put("file", "file".equalsIgnoreCase(replica.getScheme())
+                    ? replica.getPath() : replica.toASCIIString())
+              .put("si", storageInfo.toString())
+              .put("hsm", storageInfo.getHsm())
+              .put("storageclass", storageInfo.getStorageClass())
+              .put("size", attributes.getSize());
+    }
+
+    private class FlushTask extends Task<FlushRequest> {
+
+        FlushTask(FlushRequest request) {
+            super(request);
+        }
+
+        @Override
+        JSONObject toJson() {
+            return describe(super.toJson().put("action", "flush"),
+                  request.getReplicaUri(), request.getFileAttributes());
+        }
+
+        @Override
+        void completed(JSONObject response) throws CacheException {
+            Set<URI> locations = new HashSet<>();
+            JSONArray array = response.optJSONArray("locations");
+            if (array != null) {
+                for (int i = 0; i < array.length(); i++) {
+                    try {
+                        locations.add(new URI(array.getString(i)));
+                    } catch (URISyntaxException e) {
+                        throw new CacheException(2,
+                              "HSM helper produced bad URI: " + e.getMessage(), e);
+                    }
+                }
+            }
+            request.completed(locations);
+        }
+    }
+
+    private class StageTask extends Task<StageRequest> {
+
+        StageTask(StageRequest request) {
+            super(request);
+        }
+
+        @Override
+        ListenableFuture<?> prepare() {
+            return Futures.transformAsync(request.activate(), ignored -> request.allocate(),
+                  directExecutor());
+        }
+
+        @Override
+        JSONObject toJson() {
+            FileAttributes attributes = request.getFileAttributes();
+            return describe(super.toJson().put("action", "stage"),
+                  request.getReplicaUri(), attributes)
+                  .put("locations", new JSONArray(attributes.getStorageInfo().locations().stream()
+                        .filter(uri -> uri.getScheme().equals(type))
+                        .filter(uri -> uri.getAuthority().equals(name))
+                        .map(URI::toString)
+                        .collect(Collectors.toList())));
+        }
+
+        @Override
+        void completed(JSONObject response) throws CacheException {
+            Set<Checksum> checksums = new HashSet<>();
+            JSONArray array = response.optJSONArray("checksums");
+            if (array != null) {
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject checksum = array.getJSONObject(i);
+                    try {
+                        checksums.add(new Checksum(
+                              ChecksumType.getChecksumType(checksum.getString("type")),
+                              checksum.getString("value")));
+                    } catch (IllegalArgumentException e) {
+                        throw new CacheException(2,
+                              "HSM helper produced bad checksum: " + e.getMessage(), e);
+                    }
+                }
+            }
+            request.completed(checksums);
+        }
+    }
+
+    private class RemoveTask extends Task<RemoveRequest> {
+
+        RemoveTask(RemoveRequest request) {
+            super(request);
+        }
+
+        @Override
+        JSONObject toJson() {
+            return super.toJson()
+                  .put("action", "remove")
+                  .put("uri", request.getUri().toString());
+        }
+
+        @Override
+        void completed(JSONObject response) {
+            request.completed(null);
+        }
+    }
+}
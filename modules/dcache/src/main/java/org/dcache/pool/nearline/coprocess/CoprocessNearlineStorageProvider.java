@@ -0,0 +1,39 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.coprocess;
+
+import org.dcache.pool.nearline.spi.NearlineStorage;
+import org.dcache.pool.nearline.spi.NearlineStorageProvider;
+
+public class CoprocessNearlineStorageProvider implements NearlineStorageProvider {
+
+    @Override
+    public String getName() {
+        return "coprocess";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Streams requests as JSON to a long-lived HSM helper process.";
+    }
+
+    @Override
+    public NearlineStorage createNearlineStorage(String type, String name) {
+        return new CoprocessNearlineStorage(type, name);
+    }
+}
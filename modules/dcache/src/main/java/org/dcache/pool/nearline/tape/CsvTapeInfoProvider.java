@@ -0,0 +1,133 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.tape;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import diskCacheV111.util.PnfsId;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.dcache.vehicles.FileAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tape info provider reading file positions from a CSV file.
+ * <p>
+ * The file {@code tapefiles.csv} contains lines of the form {@code <pnfsid>,<volume>,<position>}.
+ * Empty lines and lines starting with {@code #} are ignored. The file is read again when its
+ * modification time changes, so that it may be regenerated from the tape system's catalogue at any
+ * time.
+ */
+public class CsvTapeInfoProvider implements TapeInfoProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CsvTapeInfoProvider.class);
+
+    public static final String FILENAME = "tapefiles.csv";
+
+    private final Path file;
+
+    private Map<PnfsId, TapeFileLocation> locations = Collections.emptyMap();
+    private FileTime lastModified;
+
+    public CsvTapeInfoProvider(Path directory) {
+        this.file = directory.resolve(FILENAME);
+    }
+
+    @Override
+    public synchronized Map<PnfsId, TapeFileLocation> getLocations(
+          Collection<FileAttributes> files) {
+        refresh();
+        Map<PnfsId, TapeFileLocation> result = new HashMap<>();
+        for (FileAttributes attributes : files) {
+            TapeFileLocation location = locations.get(attributes.getPnfsId());
+            if (location != null) {
+                result.put(attributes.getPnfsId(), location);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized String describe() {
+        return "CSV tape info provider:\n"
+              + "  File: " + file + "\n"
+              + "  Cached tapefile infos: " + locations.size() + "\n";
+    }
+
+    @Override
+    public synchronized void reload() {
+        lastModified = null;
+    }
+
+    private void refresh() {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            if (lastModified != null || !locations.isEmpty()) {
+                LOGGER.warn("Tape info file {} does not exist.", file);
+            }
+            locations = Collections.emptyMap();
+            lastModified = null;
+            return;
+        } catch (IOException e) {
+            LOGGER.error("Failed to access tape info file {}: {}", file, e.getMessage());
+            return;
+        }
+        if (modified.equals(lastModified)) {
+            return;
+        }
+
+        Map<PnfsId, TapeFileLocation> parsed = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 3) {
+                    LOGGER.error("Tape info file line incomplete: '{}'", line);
+                    continue;
+                }
+                try {
+                    parsed.put(new PnfsId(parts[0].trim()),
+                          new TapeFileLocation(parts[1].trim(), Long.parseLong(parts[2].trim())));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.error("Tape info file line malformed: '{}'", line);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to read tape info file {}: {}", file, e.getMessage());
+            return;
+        }
+        locations = parsed;
+        lastModified = modified;
+        LOGGER.info("Loaded {} tape file locations from {}.", parsed.size(), file);
+    }
+}
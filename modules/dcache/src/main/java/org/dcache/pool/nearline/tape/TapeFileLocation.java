@@ -0,0 +1,53 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.tape;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Position of a file on tape.
+ */
+public class TapeFileLocation {
+
+    private final String volume;
+    private final long position;
+
+    /**
+     * @param volume   name of the tape volume holding the file
+     * @param position position of the file on the volume; only used to order files on the same
+     *                 volume, so any monotonic measure like a file sequence number or a block
+     *                 offset will do
+     */
+    public TapeFileLocation(String volume, long position) {
+        this.volume = requireNonNull(volume);
+        this.position = position;
+    }
+
+    public String getVolume() {
+        return volume;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return volume + ':' + position;
+    }
+}
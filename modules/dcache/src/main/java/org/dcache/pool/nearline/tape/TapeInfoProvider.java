@@ -0,0 +1,44 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.tape;
+
+import diskCacheV111.util.PnfsId;
+import java.util.Collection;
+import java.util.Map;
+import org.dcache.vehicles.FileAttributes;
+
+/**
+ * Provides the location of files on tape.
+ */
+public interface TapeInfoProvider {
+
+    /**
+     * Returns the tape locations of those of the given files known to the provider.
+     */
+    Map<PnfsId, TapeFileLocation> getLocations(Collection<FileAttributes> files);
+
+    /**
+     * Returns a description of the provider, including its configuration and state.
+     */
+    String describe();
+
+    /**
+     * Discards any cached tape information.
+     */
+    void reload();
+}
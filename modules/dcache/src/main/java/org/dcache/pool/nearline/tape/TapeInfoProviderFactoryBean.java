@@ -0,0 +1,65 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.tape;
+
+import java.nio.file.FileSystems;
+import java.util.NoSuchElementException;
+import java.util.ServiceLoader;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Required;
+
+public class TapeInfoProviderFactoryBean implements FactoryBean<TapeInfoProvider> {
+
+    private static final ServiceLoader<TapeInfoProviderProvider> PROVIDERS =
+          ServiceLoader.load(TapeInfoProviderProvider.class);
+
+    private String name;
+    private String directory;
+
+    @Required
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Required
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public TapeInfoProvider getObject() throws Exception {
+        synchronized (PROVIDERS) {
+            for (TapeInfoProviderProvider provider : PROVIDERS) {
+                if (provider.getName().equals(name)) {
+                    return provider.createProvider(FileSystems.getDefault().getPath(directory));
+                }
+            }
+        }
+        throw new NoSuchElementException("No such tape info provider: " + name);
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return TapeInfoProvider.class;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
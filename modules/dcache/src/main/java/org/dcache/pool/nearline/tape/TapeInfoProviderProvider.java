@@ -0,0 +1,40 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.tape;
+
+import java.nio.file.Path;
+
+/**
+ * Service provider interface for tape info providers.
+ * <p>
+ * Implementations are discovered through {@link java.util.ServiceLoader}.
+ */
+public interface TapeInfoProviderProvider {
+
+    /**
+     * The name an admin uses to identify the tape info provider.
+     */
+    String getName();
+
+    /**
+     * Creates a new tape info provider.
+     *
+     * @param directory directory containing tape information files
+     */
+    TapeInfoProvider createProvider(Path directory);
+}
@@ -0,0 +1,330 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.nearline.tape;
+
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.annotations.VisibleForTesting;
+import diskCacheV111.util.PnfsId;
+import dmg.cells.nucleus.CellCommandListener;
+import dmg.cells.nucleus.CellInfoProvider;
+import dmg.util.command.Argument;
+import dmg.util.command.Command;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.dcache.pool.nearline.StagePolicy;
+import org.dcache.pool.nearline.spi.NearlineStorage;
+import org.dcache.pool.nearline.spi.StageRequest;
+import org.dcache.vehicles.FileAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+/**
+ * Stage policy grouping requests by tape volume.
+ * <p>
+ * Requests for files with a known tape location are held back and grouped by the volume holding
+ * the file. All requests for a volume are passed to the nearline storage as one batch, ordered by
+ * their position on tape, once no new request for the volume has arrived for the quiet period, or
+ * once the oldest request of the volume has been held back for the maximum hold time. Thus a burst
+ * of recalls for the same tape results in a single mount and a sequential read, rather than in
+ * files being read in arrival order.
+ * <p>
+ * Requests for files without a known tape location are passed on immediately.
+ */
+public class TapeStagePolicy implements StagePolicy, CellInfoProvider, CellCommandListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TapeStagePolicy.class);
+
+    private static final long CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private TapeInfoProvider tapeInfoProvider;
+    private ScheduledExecutorService executor;
+    private long quietPeriod = 30;
+    private TimeUnit quietPeriodUnit = TimeUnit.SECONDS;
+    private long maxHoldTime = 5;
+    private TimeUnit maxHoldTimeUnit = TimeUnit.MINUTES;
+    private ScheduledFuture<?> future;
+
+    /**
+     * Volumes with held back requests per nearline storage, guarded by this.
+     */
+    private final Map<NearlineStorage, Map<String, Volume>> volumes = new IdentityHashMap<>();
+
+    /**
+     * The volume of each held back request, guarded by this.
+     */
+    private final Map<UUID, Volume> held = new HashMap<>();
+
+    @Required
+    public void setTapeInfoProvider(TapeInfoProvider tapeInfoProvider) {
+        this.tapeInfoProvider = tapeInfoProvider;
+    }
+
+    @Required
+    public void setExecutor(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public synchronized void setQuietPeriod(long period) {
+        quietPeriod = period;
+    }
+
+    public synchronized void setQuietPeriodUnit(TimeUnit unit) {
+        quietPeriodUnit = unit;
+    }
+
+    public synchronized void setMaxHoldTime(long time) {
+        maxHoldTime = time;
+    }
+
+    public synchronized void setMaxHoldTimeUnit(TimeUnit unit) {
+        maxHoldTimeUnit = unit;
+    }
+
+    @PostConstruct
+    public void start() {
+        future = executor.scheduleWithFixedDelay(() -> release(System.currentTimeMillis()),
+              CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    @Override
+    public void submit(NearlineStorage storage, List<StageRequest> requests) {
+        List<FileAttributes> files = requests.stream()
+              .map(StageRequest::getFileAttributes)
+              .collect(toList());
+        Map<PnfsId, TapeFileLocation> locations;
+        try {
+            locations = tapeInfoProvider.getLocations(files);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to look up tape locations: {}", e.toString());
+            locations = new HashMap<>();
+        }
+
+        List<StageRequest> unknown = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (StageRequest request : requests) {
+                TapeFileLocation location =
+                      locations.get(request.getFileAttributes().getPnfsId());
+                if (location == null) {
+                    unknown.add(request);
+                } else {
+                    Volume volume = volumes
+                          .computeIfAbsent(storage, s -> new HashMap<>())
+                          .computeIfAbsent(location.getVolume(),
+                                name -> new Volume(storage, name, now));
+                    volume.add(request, location.getPosition(), now);
+                    held.put(request.getId(), volume);
+                }
+            }
+        }
+        if (!unknown.isEmpty()) {
+            storage.stage(unknown);
+        }
+    }
+
+    @Override
+    public synchronized boolean cancel(StageRequest request) {
+        Volume volume = held.remove(request.getId());
+        if (volume == null) {
+            return false;
+        }
+        volume.remove(request);
+        if (volume.isEmpty()) {
+            removeVolume(volume);
+        }
+        return true;
+    }
+
+    /**
+     * Passes the requests of all volumes due at time {@code now} to the nearline storage.
+     */
+    @VisibleForTesting
+    void release(long now) {
+        List<Volume> due = new ArrayList<>();
+        synchronized (this) {
+            long quiet = quietPeriodUnit.toMillis(quietPeriod);
+            long hold = maxHoldTimeUnit.toMillis(maxHoldTime);
+            for (Map<String, Volume> byName : volumes.values()) {
+                for (Volume volume : byName.values()) {
+                    if (now - volume.lastArrival >= quiet || now - volume.firstArrival >= hold) {
+                        due.add(volume);
+                    }
+                }
+            }
+            due.forEach(this::takeVolume);
+        }
+        for (Volume volume : due) {
+            LOGGER.debug("Releasing {} stage requests for volume {}.",
+                  volume.requests.size(), volume.name);
+            volume.storage.stage(volume.sorted());
+        }
+    }
+
+    private boolean releaseVolume(String name) {
+        List<Volume> due = new ArrayList<>();
+        synchronized (this) {
+            for (Map<String, Volume> byName : volumes.values()) {
+                Volume volume = byName.get(name);
+                if (volume != null) {
+                    due.add(volume);
+                }
+            }
+            due.forEach(this::takeVolume);
+        }
+        due.forEach(volume -> volume.storage.stage(volume.sorted()));
+        return !due.isEmpty();
+    }
+
+    private void takeVolume(Volume volume) {
+        removeVolume(volume);
+        volume.requests.keySet().forEach(request -> held.remove(request.getId()));
+    }
+
+    private void removeVolume(Volume volume) {
+        Map<String, Volume> byName = volumes.get(volume.storage);
+        byName.remove(volume.name);
+        if (byName.isEmpty()) {
+            volumes.remove(volume.storage);
+        }
+    }
+
+    @Override
+    public synchronized void getInfo(PrintWriter pw) {
+        pw.println("Stage policy: tape");
+        pw.println("  Quiet period       : " + quietPeriod + " " + quietPeriodUnit);
+        pw.println("  Max hold time      : " + maxHoldTime + " " + maxHoldTimeUnit);
+        pw.println("  Held requests      : " + held.size());
+        pw.println("  Volumes            : " + volumes.values().stream().mapToInt(Map::size).sum());
+        pw.print(tapeInfoProvider.describe());
+    }
+
+    private synchronized String list() {
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        volumes.values().stream()
+              .flatMap(byName -> byName.values().stream())
+              .sorted(Comparator.comparingLong(volume -> volume.firstArrival))
+              .forEach(volume -> sb.append(volume.name)
+                    .append(' ').append(volume.requests.size())
+                    .append(' ').append(TimeUnit.MILLISECONDS.toSeconds(now - volume.firstArrival))
+                    .append(' ').append(TimeUnit.MILLISECONDS.toSeconds(now - volume.lastArrival))
+                    .append('\n'));
+        return sb.toString();
+    }
+
+    @Command(name = "rh tape ls",
+          hint = "list held back stage requests by tape volume",
+          description = "Lists the tape volumes for which stage requests are held back. For "
+                + "each volume, the number of requests, and the seconds since the first and "
+                + "since the last request arrived are shown.")
+    class ListCommand implements Callable<String> {
+
+        @Override
+        public String call() {
+            return list();
+        }
+    }
+
+    @Command(name = "rh tape release",
+          hint = "pass held back stage requests of a volume to the nearline storage",
+          description = "Passes all stage requests held back for the given tape volume to the "
+                + "nearline storage immediately.")
+    class ReleaseCommand implements Callable<String> {
+
+        @Argument(usage = "Name of the tape volume.")
+        String volume;
+
+        @Override
+        public String call() {
+            return releaseVolume(volume) ? "" : "No requests held back for " + volume + ".";
+        }
+    }
+
+    @Command(name = "rh tape reload",
+          hint = "reload tape information",
+          description = "Discards cached tape locations; they are read again on the next "
+                + "stage request.")
+    class ReloadCommand implements Callable<String> {
+
+        @Override
+        public String call() {
+            tapeInfoProvider.reload();
+            return "";
+        }
+    }
+
+    /**
+     * Held back requests for a tape volume.
+     */
+    private static class Volume {
+
+        final NearlineStorage storage;
+        final String name;
+        final long firstArrival;
+        long lastArrival;
+        final Map<StageRequest, Long> requests = new IdentityHashMap<>();
+
+        Volume(NearlineStorage storage, String name, long now) {
+            this.storage = storage;
+            this.name = name;
+            this.firstArrival = now;
+            this.lastArrival = now;
+        }
+
+        void add(StageRequest request, long position, long now) {
+            requests.put(request, position);
+            lastArrival = now;
+        }
+
+        void remove(StageRequest request) {
+            requests.remove(request);
+        }
+
+        boolean isEmpty() {
+            return requests.isEmpty();
+        }
+
+        List<StageRequest> sorted() {
+            return requests.entrySet().stream()
+                  .sorted(Map.Entry.comparingByValue())
+                  .map(Map.Entry::getKey)
+                  .collect(toList());
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package org.dcache.pool.p2p;
 
 import static java.util.Objects.requireNonNull;
-import static org.dcache.util.ByteUnit.KiB;
+import static org.dcache.util.ByteUnit.MiB;
 
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.CacheFileAvailable;
 import diskCacheV111.util.FileInCacheException;
@@ -22,12 +24,13 @@ import dmg.cells.nucleus.CellPath;
 import dmg.cells.nucleus.NoRouteToCellException;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.SyncFailedException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
@@ -35,6 +38,10 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -43,6 +50,7 @@ import java.util.function.Supplier;
 import javax.net.ssl.SSLContext;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
@@ -50,7 +58,6 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.protocol.HTTP;
 import org.dcache.cells.AbstractMessageCallback;
 import org.dcache.cells.CellStub;
@@ -65,7 +72,6 @@ import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.pool.repository.StickyRecord;
 import org.dcache.util.Checksum;
 import org.dcache.util.FireAndForgetTask;
-import org.dcache.util.Version;
 import org.dcache.vehicles.FileAttributes;
 import org.dcache.vehicles.PnfsGetFileAttributes;
 import org.slf4j.Logger;
@@ -85,7 +91,19 @@ class Companion {
     private static final Logger LOGGER = LoggerFactory.getLogger(Companion.class);
 
     private static final long PING_PERIOD = TimeUnit.MINUTES.toMillis(5);
-    private static final int BUFFER_SIZE = KiB.toBytes(64);
+
+    /**
+     * Size of the buffer through which each stream writes to the replica.
+     */
+    private static final int BUFFER_SIZE = MiB.toBytes(1);
+
+    /**
+     * Buffers of the threads running transfers and streams. The threads are pooled, so the
+     * buffers are reused by later transfers.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+          ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
     private static final String PROTOCOL_INFO_NAME = "Http";
     private static final String PROTOCOL_INFO_SSL_NAME = "Https";
     private static final int PROTOCOL_INFO_MAJOR_VERSION = 1;
@@ -95,8 +113,6 @@ class Companion {
     private static final long CONNECT_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
     private static final long READ_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
 
-    private static final String USER_AGENT = "dCache/" + Version.of(Companion.class).getVersion();
-
     private final InetAddress _address;
     private final Repository _repository;
     private final ChecksumModule _checksumModule;
@@ -111,6 +127,11 @@ class Companion {
     private final CellStub _pool;
     private final boolean _forceSourceMode;
     private final PnfsId _pnfsId;
+    private final CloseableHttpClient _client;
+    private final ConnectionPermits _permits;
+    private final ExecutorService _streamExecutor;
+    private final int _streams;
+    private final long _minStreamedFileSize;
 
     /**
      * State machine driving the transfer.
@@ -151,7 +172,11 @@ class Companion {
      * ID of the mover on the source pool.
      */
     private int _moverId;
-    private HttpGet _request;
+
+    /**
+     * Requests of the ongoing file transfer.
+     */
+    private final List<HttpGet> _requests = new ArrayList<>();
 
     private SSLContext _sslContext;
 
@@ -173,6 +198,11 @@ class Companion {
      * @param callback                      Callback to which success or failure is reported
      * @param forceSourceMode               Ignores disabled state of pools
      * @param atime                         Last access time for the new replica
+     * @param client                        HTTP client with keep-alive connections to source pools
+     * @param permits                       Limits the connections used by transfers
+     * @param streamExecutor                Executor running the additional streams of a transfer
+     * @param streams                       Number of concurrent range requests for large files
+     * @param minStreamedFileSize           Minimum size of files copied with several streams
      */
     Companion(ScheduledExecutorService executor,
           InetAddress address,
@@ -189,7 +219,12 @@ class Companion {
           CacheFileAvailable callback,
           boolean forceSourceMode,
           Long atime,
-          Supplier<SSLContext> getContextIfNeeded) {
+          Supplier<SSLContext> getContextIfNeeded,
+          CloseableHttpClient client,
+          ConnectionPermits permits,
+          ExecutorService streamExecutor,
+          int streams,
+          long minStreamedFileSize) {
         _fsm = new CompanionContext(this);
 
         _executor = executor;
@@ -207,6 +242,11 @@ class Companion {
         _fileAttributes = requireNonNull(fileAttributes, "File attributes is missing.");
 
         _sslContext = getContextIfNeeded.get();
+        _client = requireNonNull(client);
+        _permits = requireNonNull(permits);
+        _streamExecutor = requireNonNull(streamExecutor);
+        _streams = streams;
+        _minStreamedFileSize = minStreamedFileSize;
 
         if (!_fileAttributes.isDefined(FileAttribute.PNFSID)) {
             throw new IllegalArgumentException(
@@ -281,11 +321,16 @@ class Companion {
         _thread = thread;
     }
 
-    /**
-     * Sets the request used for the file transfer.
-     */
-    private synchronized void setRequest(HttpGet request) {
-        _request = request;
+    private synchronized void addRequest(HttpGet request) {
+        _requests.add(request);
+    }
+
+    private synchronized void removeRequest(HttpGet request) {
+        _requests.remove(request);
+    }
+
+    private synchronized void abortRequests() {
+        _requests.forEach(HttpGet::abort);
     }
 
     private void transfer(String uri) {
@@ -326,64 +371,269 @@ class Companion {
         }
     }
 
+    /**
+     * Copies the file using as many streams as connection permits are available, or a single
+     * stream once a permit becomes available.
+     */
     private Set<Checksum> copy(String uri, ReplicaDescriptor handle)
           throws IOException, InterruptedException {
+        long size = _fileAttributes.getSize();
+        int streams = (_streams > 1 && size >= _minStreamedFileSize)
+              ? _permits.tryAcquire(_sourcePoolName, (int) Math.min(_streams, size))
+              : 0;
+        if (streams == 0) {
+            if (!_permits.acquire(_sourcePoolName, CONNECT_TIMEOUT)) {
+                throw new IOException("No connection to " + _sourcePoolName + " available.");
+            }
+            streams = 1;
+        }
+        try {
+            return copy(uri, handle, size, streams);
+        } finally {
+            _permits.release(_sourcePoolName, streams);
+        }
+    }
+
+    private Set<Checksum> copy(String uri, ReplicaDescriptor handle, long size, int streams)
+          throws IOException, InterruptedException {
         RepositoryChannel channel = handle.createChannel();
         try {
-            HttpGet get = new HttpGet(uri);
+            if (streams > 1) {
+                copyRanges(uri, channel, size, streams);
+            } else {
+                copyFile(uri, channel, size);
+            }
+
+            try {
+                channel.sync();
+            } catch (SyncFailedException e) {
+                /* Data is not guaranteed to be on disk. Not a fatal
+                 * problem, but better generate a warning.
+                 */
+                LOGGER.warn("Failed to synchronize file with storage device: {}",
+                      e.getMessage());
+            }
+            return channel.optionallyAs(ChecksumChannel.class)
+                  .map(ChecksumChannel::getChecksums)
+                  .orElseThrow(() -> new IllegalStateException("Missing ChecksumChannel"));
+        } catch (ClosedChannelException | InterruptedIOException e) {
+            // clear interrupted status
+            Thread.interrupted();
+            throw new InterruptedException();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private HttpGet newRequest(String uri) {
+        HttpGet get = new HttpGet(uri);
+        get.setConfig(RequestConfig.custom()
+              .setConnectTimeout((int) CONNECT_TIMEOUT)
+              .setConnectionRequestTimeout((int) CONNECT_TIMEOUT)
+              .setSocketTimeout((int) READ_TIMEOUT)
+              .build());
+        return get;
+    }
+
+    /**
+     * Copies the file with a single request. The connection is returned to the pool of the HTTP
+     * client afterwards, allowing the next transfer from the same source pool to skip the TCP and
+     * TLS handshake.
+     */
+    private void copyFile(String uri, RepositoryChannel channel, long size) throws IOException {
+        HttpGet get = newRequest(uri);
+        addRequest(get);
+        try (CloseableHttpResponse response = _client.execute(get)) {
+            StatusLine statusLine = response.getStatusLine();
+            if (statusLine.getStatusCode() >= 300) {
+                throw new HttpResponseException(statusLine.getStatusCode(),
+                      statusLine.getReasonPhrase());
+            }
+
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new ClientProtocolException("Response contains no content");
+            }
+
+            long contentLength = entity.getContentLength();
+            if (contentLength >= 0 && contentLength != size) {
+                /* Fail fast if the response is incomplete.
+                 */
+                throw new EOFException("Received file does not match expected file size.");
+            }
+
+            try (InputStream in = entity.getContent()) {
+                receive(in, channel, 0);
+            }
+        } finally {
+            removeRequest(get);
+        }
+    }
+
+    /**
+     * Copies the file with concurrent range requests, each written to the replica at its offset.
+     * The checksum channel of the replica computes the checksum of the data written out of order.
+     * The caller holds a connection permit for every stream.
+     */
+    private void copyRanges(String uri, RepositoryChannel channel, long size, int streams)
+          throws IOException, InterruptedException {
+        long rangeSize = (size + streams - 1) / streams;
+        RangeCopy copy = new RangeCopy(channel, streams);
+
+        List<HttpGet> requests = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            long lower = i * rangeSize;
+            long upper = Math.min(lower + rangeSize, size) - 1;
+            HttpGet get = newRequest(uri);
+            get.addHeader(HttpHeaders.RANGE, "bytes=" + lower + "-" + upper);
             get.addHeader(HttpHeaders.CONNECTION, HTTP.CONN_CLOSE);
-            get.setConfig(RequestConfig.custom()
-                  .setConnectTimeout((int) CONNECT_TIMEOUT)
-                  .setSocketTimeout((int) READ_TIMEOUT)
-                  .build());
-            setRequest(get);
-
-            try (CloseableHttpClient client = HttpClients.custom()
-                  .setSSLContext(_sslContext)
-                  .setUserAgent(USER_AGENT).build();
-                  CloseableHttpResponse response = client.execute(get)) {
+            addRequest(get);
+            requests.add(get);
+        }
+
+        List<Future<?>> futures = new ArrayList<>(streams - 1);
+        try {
+            for (int i = 1; i < streams; i++) {
+                HttpGet get = requests.get(i);
+                long lower = i * rangeSize;
+                long upper = Math.min(lower + rangeSize, size) - 1;
+                futures.add(_streamExecutor.submit(() -> copy.copy(get, lower, upper)));
+            }
+            copy.copy(requests.get(0), 0, Math.min(rangeSize, size) - 1);
+        } finally {
+            for (Future<?> future : futures) {
+                try {
+                    Uninterruptibles.getUninterruptibly(future);
+                } catch (ExecutionException e) {
+                    copy.failed(e.getCause());
+                }
+            }
+            requests.forEach(this::removeRequest);
+        }
+        copy.checkFailure();
+    }
+
+    /**
+     * State shared by the streams of a transfer using range requests.
+     */
+    private class RangeCopy {
+
+        private final RepositoryChannel _channel;
+
+        /**
+         * Counts the streams that have not yet opened the file on the source pool.
+         */
+        private final CountDownLatch _opened;
+
+        /**
+         * The first failure of any stream.
+         */
+        private Throwable _failure;
+
+        RangeCopy(RepositoryChannel channel, int streams) {
+            _channel = channel;
+            _opened = new CountDownLatch(streams);
+        }
+
+        void copy(HttpGet get, long lower, long upper) {
+            boolean isOpened = false;
+            try (CloseableHttpResponse response = _client.execute(get)) {
                 StatusLine statusLine = response.getStatusLine();
                 if (statusLine.getStatusCode() >= 300) {
                     throw new HttpResponseException(statusLine.getStatusCode(),
                           statusLine.getReasonPhrase());
                 }
+                if (statusLine.getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT) {
+                    throw new ClientProtocolException("Source pool ignored range request");
+                }
 
                 HttpEntity entity = response.getEntity();
                 if (entity == null) {
                     throw new ClientProtocolException("Response contains no content");
                 }
 
-                long contentLength = entity.getContentLength();
-                if (contentLength >= 0 && contentLength != _fileAttributes.getSize()) {
-                    /* Fail fast if the response is incomplete.
-                     */
-                    throw new EOFException("Received file does not match expected file size.");
+                /* The source pool completes the transfer once all
+                 * connections that opened the file are closed. Wait until
+                 * every stream has opened the file before any stream may
+                 * finish.
+                 */
+                isOpened = true;
+                _opened.countDown();
+                _opened.await();
+                checkFailure();
+
+                try (InputStream in = entity.getContent()) {
+                    if (receive(in, _channel, lower) != upper - lower + 1) {
+                        throw new EOFException("Received range does not match expected size.");
+                    }
                 }
+            } catch (Throwable t) {
+                failed(t);
+            } finally {
+                if (!isOpened) {
+                    _opened.countDown();
+                }
+            }
+        }
 
-                entity.getContent().transferTo(Channels.newOutputStream(channel));
-
-                try {
-                    channel.sync();
-                } catch (SyncFailedException e) {
-                    /* Data is not guaranteed to be on disk. Not a fatal
-                     * problem, but better generate a warning.
-                     */
-                    LOGGER.warn("Failed to synchronize file with storage device: {}",
-                          e.getMessage());
+        /**
+         * Records the failure of a stream and aborts all other streams.
+         */
+        void failed(Throwable t) {
+            synchronized (this) {
+                if (_failure != null) {
+                    return;
                 }
-            } finally {
-                setRequest(null);
+                _failure = t;
+            }
+            abortRequests();
+            while (_opened.getCount() > 0) {
+                _opened.countDown();
             }
-            return channel.optionallyAs(ChecksumChannel.class)
-                  .map(ChecksumChannel::getChecksums)
-                  .orElseThrow(() -> new IllegalStateException("Missing ChecksumChannel"));
-        } catch (ClosedChannelException | InterruptedIOException e) {
-            // clear interrupted status
-            Thread.interrupted();
-            throw new InterruptedException();
-        } finally {
-            channel.close();
         }
+
+        synchronized void checkFailure() throws IOException, InterruptedException {
+            if (_failure != null) {
+                Throwables.throwIfInstanceOf(_failure, IOException.class);
+                Throwables.throwIfInstanceOf(_failure, InterruptedException.class);
+                Throwables.throwIfUnchecked(_failure);
+                throw new RuntimeException(_failure);
+            }
+        }
+    }
+
+    /**
+     * Writes the content of the input stream to the replica starting at the given position.
+     *
+     * @return the number of bytes written
+     */
+    private static long receive(InputStream in, RepositoryChannel channel, long position)
+          throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        byte[] array = buffer.array();
+        long total = 0;
+        int n;
+        while ((n = in.read(array, buffer.position(), buffer.remaining())) != -1) {
+            buffer.position(buffer.position() + n);
+            if (!buffer.hasRemaining()) {
+                total += write(channel, buffer, position + total);
+            }
+        }
+        total += write(channel, buffer, position + total);
+        return total;
+    }
+
+    private static int write(RepositoryChannel channel, ByteBuffer buffer, long position)
+          throws IOException {
+        buffer.flip();
+        int count = buffer.remaining();
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+        buffer.clear();
+        return count;
     }
 
     private ReplicaDescriptor createReplicaEntry()
@@ -620,9 +870,7 @@ class Companion {
         if (_thread != null) {
             _thread.interrupt();
         }
-        if (_request != null) {
-            _request.abort();
-        }
+        abortRequests();
     }
 
     /**
@@ -0,0 +1,98 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.p2p;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the number of connections of pool to pool transfers, in total and per source pool.
+ * <p>
+ * Transfers take a permit for every connection before requesting connections from the HTTP
+ * client, so that connection requests never wait for the connection pool. The streams of a
+ * transfer with range requests wait for each other to open the file; if several such transfers
+ * each held only some of the connections they need, they would stall each other until the
+ * connection requests time out. A transfer therefore takes the permits for all of its streams at
+ * once, or fewer streams if not enough permits are available.
+ */
+class ConnectionPermits {
+
+    private int _maxTotal;
+    private int _maxPerSource;
+    private int _total;
+    private final Map<String, Integer> _bySource = new HashMap<>();
+
+    ConnectionPermits(int maxTotal, int maxPerSource) {
+        setLimits(maxTotal, maxPerSource);
+    }
+
+    synchronized void setLimits(int maxTotal, int maxPerSource) {
+        checkArgument(maxTotal > 0 && maxPerSource > 0, "Limits must be positive.");
+        _maxTotal = maxTotal;
+        _maxPerSource = maxPerSource;
+        notifyAll();
+    }
+
+    /**
+     * Takes up to {@code count} permits for connections to the source pool without waiting.
+     *
+     * @return the number of permits taken, possibly zero
+     */
+    synchronized int tryAcquire(String source, int count) {
+        int used = _bySource.getOrDefault(source, 0);
+        int available = Math.min(_maxTotal - _total, _maxPerSource - used);
+        int n = Math.min(count, available);
+        if (n <= 0) {
+            return 0;
+        }
+        _total += n;
+        _bySource.put(source, used + n);
+        return n;
+    }
+
+    /**
+     * Takes a single permit for a connection to the source pool, waiting until one is available.
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return true if the permit was taken, false if the timeout elapsed
+     */
+    synchronized boolean acquire(String source, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (tryAcquire(source, 1) == 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    synchronized void release(String source, int count) {
+        _total -= count;
+        int used = _bySource.get(source) - count;
+        if (used == 0) {
+            _bySource.remove(source);
+        } else {
+            _bySource.put(source, used);
+        }
+        notifyAll();
+    }
+}
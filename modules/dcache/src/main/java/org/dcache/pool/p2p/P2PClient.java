@@ -4,6 +4,7 @@ package org.dcache.pool.p2p;
 
 import static java.util.stream.Collectors.joining;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.CacheFileAvailable;
 import diskCacheV111.util.PnfsId;
@@ -26,9 +27,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import javax.net.ssl.SSLContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.dcache.cells.CellStub;
 import org.dcache.pool.PoolDataBeanProvider;
 import org.dcache.pool.classic.ChecksumModule;
@@ -36,7 +49,11 @@ import org.dcache.pool.p2p.json.P2PData;
 import org.dcache.pool.repository.ReplicaState;
 import org.dcache.pool.repository.Repository;
 import org.dcache.pool.repository.StickyRecord;
+import org.dcache.util.CDCExecutorServiceDecorator;
+import org.dcache.util.Version;
 import org.dcache.vehicles.FileAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 enum TlsMode {
     NEVER,
@@ -50,6 +67,10 @@ public class P2PClient
       implements CellMessageReceiver, CellCommandListener, CellSetupProvider, CellInfoProvider,
       PoolDataBeanProvider<P2PData> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(P2PClient.class);
+
+    private static final String USER_AGENT = "dCache/" + Version.of(P2PClient.class).getVersion();
+
     private final Map<Integer, Companion> _companions = new HashMap<>();
     private ScheduledExecutorService _executor;
     private Repository _repository;
@@ -62,6 +83,29 @@ public class P2PClient
 
     private SSLContext _sslContext;
 
+    private int _streams = 1;
+    private long _minStreamedFileSize = Long.MAX_VALUE;
+    private int _maxConnections = 256;
+    private int _maxConnectionsPerSource = 64;
+    private long _connectionIdleTimeout = 30;
+    private TimeUnit _connectionIdleTimeoutUnit = TimeUnit.SECONDS;
+
+    /**
+     * Pool of keep-alive connections, one route per source pool. Created on first use.
+     */
+    private PoolingHttpClientConnectionManager _connectionManager;
+    private CloseableHttpClient _httpClient;
+
+    private final ConnectionPermits _permits =
+          new ConnectionPermits(_maxConnections, _maxConnectionsPerSource);
+
+    /**
+     * Runs the additional streams of transfers copying files with several range requests.
+     */
+    private final ExecutorService _streamExecutor = new CDCExecutorServiceDecorator<>(
+          Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("p2p-stream-%d").build()));
+
     // TODO: cross zone behaves as ALYWAYS as long as we can't distinct zones
     private Supplier<SSLContext> getContextIfNeeded = () -> {
 
@@ -102,6 +146,88 @@ public class P2PClient
 
     }
 
+    /**
+     * Sets the number of concurrent range requests used to copy large files.
+     */
+    public synchronized void setStreams(int streams) {
+        if (streams < 1) {
+            throw new IllegalArgumentException("Number of streams must be positive.");
+        }
+        _streams = streams;
+    }
+
+    /**
+     * Sets the minimum size of files copied with several streams.
+     */
+    public synchronized void setMinStreamedFileSize(long size) {
+        _minStreamedFileSize = size;
+    }
+
+    /**
+     * Sets the maximum number of connections to all source pools.
+     */
+    public synchronized void setMaxConnections(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Maximum number of connections must be positive.");
+        }
+        _maxConnections = max;
+        updateConnectionLimits();
+    }
+
+    /**
+     * Sets the maximum number of connections to a single source pool. Transfers use fewer
+     * streams if not enough connections are available.
+     */
+    public synchronized void setMaxConnectionsPerSource(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Maximum number of connections must be positive.");
+        }
+        _maxConnectionsPerSource = max;
+        updateConnectionLimits();
+    }
+
+    public synchronized void setConnectionIdleTimeout(long timeout) {
+        _connectionIdleTimeout = timeout;
+    }
+
+    public synchronized void setConnectionIdleTimeoutUnit(TimeUnit unit) {
+        _connectionIdleTimeoutUnit = unit;
+    }
+
+    private void updateConnectionLimits() {
+        _permits.setLimits(_maxConnections, _maxConnectionsPerSource);
+        if (_connectionManager != null) {
+            _connectionManager.setMaxTotal(_maxConnections);
+            _connectionManager.setDefaultMaxPerRoute(_maxConnectionsPerSource);
+        }
+    }
+
+    private synchronized CloseableHttpClient getHttpClient() {
+        if (_httpClient == null) {
+            SSLContext context = getContextIfNeeded.get();
+            Registry<ConnectionSocketFactory> registry =
+                  RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", context == null
+                              ? SSLConnectionSocketFactory.getSocketFactory()
+                              : new SSLConnectionSocketFactory(context))
+                        .build();
+            /* Transfers take a ConnectionPermits permit for every
+             * connection, so connection requests never wait for the pool.
+             */
+            _connectionManager = new PoolingHttpClientConnectionManager(registry);
+            _connectionManager.setMaxTotal(_maxConnections);
+            _connectionManager.setDefaultMaxPerRoute(_maxConnectionsPerSource);
+            _httpClient = HttpClients.custom()
+                  .setConnectionManager(_connectionManager)
+                  .evictIdleConnections(_connectionIdleTimeout, _connectionIdleTimeoutUnit)
+                  .evictExpiredConnections()
+                  .setUserAgent(USER_AGENT)
+                  .build();
+        }
+        return _httpClient;
+    }
+
     public synchronized void messageArrived(DoorTransferFinishedMessage message) {
         HttpProtocolInfo pinfo = (HttpProtocolInfo) message.getProtocolInfo();
         int sessionId = pinfo.getSessionId();
@@ -254,7 +380,12 @@ public class P2PClient
                     targetState, stickyRecords,
                     cb, forceSourceMode,
                     atime,
-                    getContextIfNeeded
+                    getContextIfNeeded,
+                    getHttpClient(),
+                    _permits,
+                    _streamExecutor,
+                    _streams,
+                    _minStreamedFileSize
               );
 
         int id = addCompanion(companion);
@@ -282,6 +413,14 @@ public class P2PClient
         while (!_companions.isEmpty()) {
             wait();
         }
+        _streamExecutor.shutdown();
+        if (_httpClient != null) {
+            try {
+                _httpClient.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close connections to source pools: {}", e.toString());
+            }
+        }
     }
 
     @Override
@@ -294,6 +433,14 @@ public class P2PClient
         P2PData info = new P2PData();
         info.setLabel("Pool to Pool");
         info.setPpInterface(_interface);
+        info.setStreams(_streams);
+        info.setMinStreamedFileSize(_minStreamedFileSize);
+        if (_connectionManager != null) {
+            PoolStats stats = _connectionManager.getTotalStats();
+            info.setLeasedConnections(stats.getLeased());
+            info.setIdleConnections(stats.getAvailable());
+            info.setMaxConnections(stats.getMax());
+        }
         return info;
     }
 
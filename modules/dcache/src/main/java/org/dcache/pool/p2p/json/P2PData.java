@@ -72,6 +72,11 @@ public class P2PData implements Serializable {
     private static final long serialVersionUID = -2748477589482721104L;
     private String label;
     private InetAddress ppInterface;
+    private int streams;
+    private long minStreamedFileSize;
+    private Integer leasedConnections;
+    private Integer idleConnections;
+    private Integer maxConnections;
 
     public String getLabel() {
         return label;
@@ -81,10 +86,38 @@ public class P2PData implements Serializable {
         return ppInterface;
     }
 
+    public int getStreams() {
+        return streams;
+    }
+
+    public long getMinStreamedFileSize() {
+        return minStreamedFileSize;
+    }
+
+    public Integer getLeasedConnections() {
+        return leasedConnections;
+    }
+
+    public Integer getIdleConnections() {
+        return idleConnections;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
     public void print(PrintWriter pw) {
         if (ppInterface != null) {
             pw.println("  Interface  : " + ppInterface);
         }
+        if (streams > 1) {
+            pw.println("  Streams    : " + streams + " for files of at least "
+                  + minStreamedFileSize + " bytes");
+        }
+        if (leasedConnections != null) {
+            pw.println("  Connections: " + leasedConnections + " active, "
+                  + idleConnections + " idle, " + maxConnections + " max");
+        }
     }
 
     public void setLabel(String label) {
@@ -94,4 +127,24 @@ public class P2PData implements Serializable {
     public void setPpInterface(InetAddress ppInterface) {
         this.ppInterface = ppInterface;
     }
+
+    public void setStreams(int streams) {
+        this.streams = streams;
+    }
+
+    public void setMinStreamedFileSize(long minStreamedFileSize) {
+        this.minStreamedFileSize = minStreamedFileSize;
+    }
+
+    public void setLeasedConnections(Integer leasedConnections) {
+        this.leasedConnections = leasedConnections;
+    }
+
+    public void setIdleConnections(Integer idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
 }
@@ -100,6 +100,25 @@ public class Account {
         return true;
     }
 
+    /**
+     * Allocates <code>request</code> bytes if at least <code>headroom</code> bytes remain free
+     * afterwards. Unlike {@link #allocateNow}, this method never waits for removable space to be
+     * reclaimed.
+     *
+     * @return true if and only if the request was served
+     */
+    public synchronized boolean allocateIfFree(PnfsId id, long request, long headroom) {
+        if (request < 0) {
+            throw new IllegalArgumentException("Cannot allocate negative space.");
+        }
+        if (request > getFree() - headroom) {
+            return false;
+        }
+        _used += request;
+        notifyAll();
+        return true;
+    }
+
     /**
      * Allocates <code>request</code> bytes. If less space is available, the request is added to the
      * request pool and the call blocks. Space is not allocated until the complete request can be
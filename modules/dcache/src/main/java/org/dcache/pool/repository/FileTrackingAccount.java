@@ -296,6 +296,15 @@ public class FileTrackingAccount extends Account {
         return result;
     }
 
+    @Override
+    public synchronized boolean allocateIfFree(PnfsId id, long request, long headroom) {
+        boolean result = super.allocateIfFree(id, request, headroom);
+        if (result) {
+            adjustFileUsed(id, request);
+        }
+        return result;
+    }
+
     @Override
     public synchronized void allocate(PnfsId id, long request)
           throws InterruptedException {
@@ -17,6 +17,7 @@
  */
 package org.dcache.pool.repository.checksums;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PnfsId;
 import java.nio.file.OpenOption;
@@ -26,6 +27,7 @@ import org.dcache.pool.repository.DuplicateEntryException;
 import org.dcache.pool.repository.ForwardingReplicaStore;
 import org.dcache.pool.repository.ReplicaRecord;
 import org.dcache.pool.repository.ReplicaStore;
+import org.dcache.util.BoundedCachedExecutor;
 
 /**
  * This class wraps some existing ReplicaStore and adds support for on-the-fly checksum
@@ -35,12 +37,32 @@ public class ChecksumReplicaStore extends ForwardingReplicaStore {
 
     private final ReplicaStore inner;
     private final ChecksumModuleV1 csm;
+    private volatile BoundedCachedExecutor digestExecutor;
 
     public ChecksumReplicaStore(ReplicaStore inner, ChecksumModuleV1 csm) {
         this.inner = inner;
         this.csm = csm;
     }
 
+    /**
+     * Sets the number of threads shared by all uploads to compute on-transfer checksums.  If zero,
+     * checksums are computed by the thread writing the data.
+     */
+    public synchronized void setDigestThreads(int threads) {
+        shutdown();
+        if (threads > 0) {
+            digestExecutor = new BoundedCachedExecutor(
+                  new ThreadFactoryBuilder().setNameFormat("checksum-digest-%d").build(), threads);
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (digestExecutor != null) {
+            digestExecutor.shutdown();
+            digestExecutor = null;
+        }
+    }
+
     @Override
     protected ReplicaStore delegate() {
         return inner;
@@ -49,6 +71,7 @@ public class ChecksumReplicaStore extends ForwardingReplicaStore {
     @Override
     public ReplicaRecord create(PnfsId id, Set<? extends OpenOption> flags)
           throws DuplicateEntryException, CacheException {
-        return new ChecksumReplicaRecord(super.create(id, flags), csm.getDefaultChecksumTypes());
+        return new ChecksumReplicaRecord(super.create(id, flags), csm.getDefaultChecksumTypes(),
+              digestExecutor);
     }
 }
@@ -28,9 +28,11 @@ import com.sleepycat.je.EnvironmentFailureException;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.PnfsId;
 import diskCacheV111.vehicles.StorageInfo;
+import dmg.cells.nucleus.CellInfoProvider;
 import dmg.cells.nucleus.EnvironmentAware;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
@@ -38,6 +40,7 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.dcache.pool.repository.ReplicaStore;
 import org.dcache.pool.repository.RepositoryChannel;
 import org.dcache.util.configuration.ConfigurationMapFactoryBean;
@@ -52,12 +55,27 @@ import org.slf4j.LoggerFactory;
  * The cache repository entries generated by this store fetch storage info from the database on
  * demand.
  */
-public abstract class AbstractBerkeleyDBReplicaStore implements ReplicaStore, EnvironmentAware {
+public abstract class AbstractBerkeleyDBReplicaStore
+      implements ReplicaStore, EnvironmentAware, CellInfoProvider {
 
     protected static final Logger LOGGER =
           LoggerFactory.getLogger(AbstractBerkeleyDBReplicaStore.class);
     protected static final String DIRECTORY_NAME = "meta";
 
+    private static final String GROUP_COMMIT_ENABLE = "pool.plugins.meta.db.group-commit.enable";
+    private static final String GROUP_COMMIT_BATCH_SIZE =
+          "pool.plugins.meta.db.group-commit.max-batch-size";
+    private static final String GROUP_COMMIT_LATENCY =
+          "pool.plugins.meta.db.group-commit.max-latency";
+    private static final String GROUP_COMMIT_LATENCY_UNIT =
+          "pool.plugins.meta.db.group-commit.max-latency.unit";
+    private static final String ACCESS_TIME_WRITE_BACK =
+          "pool.plugins.meta.db.access-time.write-back";
+    private static final String ACCESS_TIME_FLUSH_INTERVAL =
+          "pool.plugins.meta.db.access-time.flush-interval";
+    private static final String ACCESS_TIME_FLUSH_INTERVAL_UNIT =
+          "pool.plugins.meta.db.access-time.flush-interval.unit";
+
     protected final boolean readOnly;
 
     /**
@@ -80,6 +98,17 @@ public abstract class AbstractBerkeleyDBReplicaStore implements ReplicaStore, En
      */
     protected ReplicaStoreView views;
 
+    private boolean isGroupCommitEnabled;
+    private int groupCommitBatchSize = 256;
+    private long groupCommitLatency = 2;
+    private TimeUnit groupCommitLatencyUnit = TimeUnit.MILLISECONDS;
+
+    /**
+     * Whether access time updates are buffered in memory and written periodically.
+     */
+    protected boolean isAccessTimeWriteBackLazy;
+    protected long accessTimeFlushInterval = 60;
+    protected TimeUnit accessTimeFlushIntervalUnit = TimeUnit.SECONDS;
 
     public AbstractBerkeleyDBReplicaStore(Path directory, boolean readOnly) throws IOException {
         this.readOnly = readOnly;
@@ -100,6 +129,35 @@ public abstract class AbstractBerkeleyDBReplicaStore implements ReplicaStore, En
         factory.buildMap();
         properties.clear();
         properties.putAll(factory.getObject());
+
+        Object enable = environment.get(GROUP_COMMIT_ENABLE);
+        if (enable != null) {
+            isGroupCommitEnabled = Boolean.parseBoolean(enable.toString());
+        }
+        Object batchSize = environment.get(GROUP_COMMIT_BATCH_SIZE);
+        if (batchSize != null) {
+            groupCommitBatchSize = Integer.parseInt(batchSize.toString());
+        }
+        Object latency = environment.get(GROUP_COMMIT_LATENCY);
+        if (latency != null) {
+            groupCommitLatency = Long.parseLong(latency.toString());
+        }
+        Object latencyUnit = environment.get(GROUP_COMMIT_LATENCY_UNIT);
+        if (latencyUnit != null) {
+            groupCommitLatencyUnit = TimeUnit.valueOf(latencyUnit.toString());
+        }
+        Object writeBack = environment.get(ACCESS_TIME_WRITE_BACK);
+        if (writeBack != null) {
+            isAccessTimeWriteBackLazy = writeBack.toString().equals("lazy");
+        }
+        Object flushInterval = environment.get(ACCESS_TIME_FLUSH_INTERVAL);
+        if (flushInterval != null) {
+            accessTimeFlushInterval = Long.parseLong(flushInterval.toString());
+        }
+        Object flushIntervalUnit = environment.get(ACCESS_TIME_FLUSH_INTERVAL_UNIT);
+        if (flushIntervalUnit != null) {
+            accessTimeFlushIntervalUnit = TimeUnit.valueOf(flushIntervalUnit.toString());
+        }
     }
 
     @Override
@@ -107,6 +165,10 @@ public abstract class AbstractBerkeleyDBReplicaStore implements ReplicaStore, En
         try {
             database = new ReplicaStoreDatabase(properties, dir.toFile(), readOnly);
             views = new ReplicaStoreView(database);
+            if (isGroupCommitEnabled && !readOnly) {
+                database.enableGroupCommit(groupCommitBatchSize, groupCommitLatency,
+                      groupCommitLatencyUnit);
+            }
         } catch (EnvironmentFailureException e) {
             throw new CacheException(CacheException.PANIC,
                   "Failed to open Berkeley DB database: " + e.getMessage(), e);
@@ -176,6 +238,22 @@ public abstract class AbstractBerkeleyDBReplicaStore implements ReplicaStore, En
         database.run(worker);
     }
 
+    /**
+     * Executes a worker that only writes to the database and returns once the write is durable.
+     * With group commit enabled the write may share its transaction with concurrent writes.
+     */
+    public void commit(TransactionWorker worker) throws Exception {
+        database.commit(worker);
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw) {
+        ReplicaStoreDatabase database = this.database;
+        if (database != null) {
+            database.getInfo(pw);
+        }
+    }
+
     public abstract void setLastModifiedTime(PnfsId pnfsId, long time) throws IOException;
 
     public abstract long getFileSize(PnfsId pnfsId) throws IOException;
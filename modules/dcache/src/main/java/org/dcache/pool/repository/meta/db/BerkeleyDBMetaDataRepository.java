@@ -4,6 +4,7 @@ import static java.util.Arrays.asList;
 import static org.dcache.util.Exceptions.messageOrClassName;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.EnvironmentFailureException;
 import com.sleepycat.je.OperationFailureException;
@@ -13,13 +14,20 @@ import diskCacheV111.util.PnfsId;
 import diskCacheV111.vehicles.StorageInfo;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URI;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.dcache.pool.repository.DuplicateEntryException;
 import org.dcache.pool.repository.FileStore;
@@ -38,6 +46,18 @@ public class BerkeleyDBMetaDataRepository extends AbstractBerkeleyDBReplicaStore
      */
     private final FileStore _fileStore;
 
+    /**
+     * Maximum number of access times written in one transaction when flushing.
+     */
+    private static final int ACCESS_TIME_FLUSH_BATCH_SIZE = 1000;
+
+    /**
+     * Access times not yet written to the database when access times are written back lazily.
+     */
+    private final Map<String, Long> _dirtyAccessTimes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService _accessTimeFlusher;
+
 
     /**
      * Opens a BerkeleyDB based meta data repository. If the database does not exist yet, then it is
@@ -55,6 +75,85 @@ public class BerkeleyDBMetaDataRepository extends AbstractBerkeleyDBReplicaStore
         _fileStore = fileStore;
     }
 
+    @Override
+    public void init() throws CacheException {
+        super.init();
+        if (isAccessTimeWriteBackLazy && !readOnly) {
+            _accessTimeFlusher = Executors.newSingleThreadScheduledExecutor(
+                  new ThreadFactoryBuilder().setNameFormat("meta-access-time-flush").build());
+            _accessTimeFlusher.scheduleWithFixedDelay(this::flushAccessTimes,
+                  accessTimeFlushInterval, accessTimeFlushInterval, accessTimeFlushIntervalUnit);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (_accessTimeFlusher != null) {
+            _accessTimeFlusher.shutdown();
+            try {
+                _accessTimeFlusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushAccessTimes();
+        }
+        super.close();
+    }
+
+    /**
+     * Writes buffered access times to the database. Access times of replicas that have been
+     * removed in the meantime are dropped.
+     */
+    private void flushAccessTimes() {
+        List<Map.Entry<String, Long>> batch = new ArrayList<>(ACCESS_TIME_FLUSH_BATCH_SIZE);
+        for (String id : _dirtyAccessTimes.keySet()) {
+            Long time = _dirtyAccessTimes.remove(id);
+            if (time != null) {
+                batch.add(Map.entry(id, time));
+                if (batch.size() == ACCESS_TIME_FLUSH_BATCH_SIZE) {
+                    writeAccessTimes(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeAccessTimes(batch);
+        }
+    }
+
+    private void writeAccessTimes(List<Map.Entry<String, Long>> batch) {
+        try {
+            run(() -> {
+                for (Map.Entry<String, Long> entry : batch) {
+                    String id = entry.getKey();
+                    if (views.getStateMap().containsKey(id)) {
+                        AccessTimeInfo accessTime = views.getAccessTimeInfo().get(id);
+                        if (accessTime == null) {
+                            accessTime = new AccessTimeInfo(entry.getValue());
+                        }
+                        accessTime.setLastAccessTime(entry.getValue());
+                        views.getAccessTimeInfo().put(id, accessTime);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Failed to write access times: {}", messageOrClassName(e));
+            for (Map.Entry<String, Long> entry : batch) {
+                _dirtyAccessTimes.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+        }
+    }
+
+    @Override
+    public void getInfo(PrintWriter pw) {
+        super.getInfo(pw);
+        if (_accessTimeFlusher != null) {
+            pw.println("Access time write-back : lazy, every " + accessTimeFlushInterval + " "
+                  + accessTimeFlushIntervalUnit);
+            pw.println("Pending access times   : " + _dirtyAccessTimes.size());
+        }
+    }
+
     @Override
     public Set<PnfsId> index(IndexOption... options) throws CacheException {
         try {
@@ -132,6 +231,7 @@ public class BerkeleyDBMetaDataRepository extends AbstractBerkeleyDBReplicaStore
             if (_fileStore.contains(id)) {
                 throw new DuplicateEntryException(id);
             }
+            _dirtyAccessTimes.remove(id.toString());
             views.getStorageInfoMap().remove(id.toString());
             views.getStateMap().remove(id.toString());
             views.getAccessTimeInfo().remove(id.toString());
@@ -149,6 +249,7 @@ public class BerkeleyDBMetaDataRepository extends AbstractBerkeleyDBReplicaStore
     @Override
     public void remove(PnfsId id) throws CacheException {
 
+        _dirtyAccessTimes.remove(id.toString());
         try {
             _fileStore.remove(id);
         } catch (IOException e) {
@@ -216,6 +317,10 @@ public class BerkeleyDBMetaDataRepository extends AbstractBerkeleyDBReplicaStore
 
     @Override
     public void setLastModifiedTime(PnfsId pnfsId, long time) throws IOException {
+        if (_accessTimeFlusher != null) {
+            _dirtyAccessTimes.put(pnfsId.toString(), time);
+            return;
+        }
 
         AccessTimeInfo accessTime = views.getAccessTimeInfo()
               .computeIfAbsent(pnfsId.toString(), k -> new AccessTimeInfo(time));
@@ -12,6 +12,7 @@ import static org.dcache.pool.repository.ReplicaState.REMOVED;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.sleepycat.collections.TransactionWorker;
 import com.sleepycat.je.EnvironmentFailureException;
 import com.sleepycat.je.OperationFailureException;
 import com.sleepycat.util.RuntimeExceptionWrapper;
@@ -24,10 +25,10 @@ import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.nio.file.OpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import org.dcache.namespace.FileAttribute;
 import org.dcache.pool.repository.FileStore;
@@ -258,45 +259,6 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
         }
     }
 
-    private Void setFileAttributes(FileAttributes attributes) throws CacheException {
-        try {
-            String id = _pnfsId.toString();
-            // invalidate cached value
-            _storageInfoCache.clear();
-
-            //TODO to check the case when STORAGEINFO size=0
-            if (attributes.isDefined(FileAttribute.STORAGEINFO)) {
-                _repository.getStorageInfoMap().put(id, StorageInfos.extractFrom(attributes));
-
-            } else {
-                _repository.getStorageInfoMap().remove(id);
-            }
-
-            //TODO check should there be separate methods
-            if (attributes.isDefined(FileAttribute.ACCESS_TIME) && attributes.isDefined(
-                  FileAttribute.CREATION_TIME)) {
-                AccessTimeInfo accessTimeInfo = new AccessTimeInfo();
-                accessTimeInfo.setLastAccessTime(attributes.getAccessTime());
-                accessTimeInfo.setCreationTime(attributes.getCreationTime());
-                _repository.getAccessTimeInfo().put(id, accessTimeInfo);
-
-            } else {
-                _repository.getAccessTimeInfo().remove(id);
-            }
-
-        } catch (EnvironmentFailureException e) {
-            if (!_repository.isValid()) {
-                throw new DiskErrorCacheException(
-                      "Meta data update failed and a pool restart is required: " + e.getMessage(),
-                      e);
-            }
-            throw new CacheException("Meta data update failed: " + e.getMessage(), e);
-        } catch (OperationFailureException e) {
-            throw new CacheException("Meta data update failed: " + e.getMessage(), e);
-        }
-        return null;
-    }
-
     @Override
     public synchronized PnfsId getPnfsId() {
         return _pnfsId;
@@ -339,17 +301,23 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
         return _sticky;
     }
 
+    /**
+     * Applies the update to the in-memory record and writes the resulting changes to the database
+     * in a single transaction. The update itself runs outside the transaction, so that the write
+     * may share a transaction with writes of other records when group commit is enabled.
+     */
     @Override
     public synchronized <T> T update(String why, Update<T> update) throws CacheException {
-        AtomicReference<T> result = new AtomicReference<>();
         ReplicaState state = _state;
         ImmutableList<StickyRecord> sticky = _sticky;
         try {
-            _repository.run(() -> {
-                UpdatableRecordImpl record = new UpdatableRecordImpl();
-                result.set(update.apply(record));
-                record.save();
-            });
+            UpdatableRecordImpl record = new UpdatableRecordImpl();
+            T result = update.apply(record);
+            TransactionWorker writes = record.writes();
+            if (writes != null) {
+                _repository.commit(writes);
+            }
+            return result;
         } catch (Exception e) {
             _state = state;
             _sticky = sticky;
@@ -361,24 +329,6 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
             Throwables.propagateIfPossible(e, CacheException.class);
             throw new CacheException("Meta data update failed: " + e.getMessage(), e);
         }
-        return result.get();
-    }
-
-    private synchronized void storeState() throws CacheException {
-        try {
-
-            _repository.getStateMap()
-                  .put(_pnfsId.toString(), new CacheRepositoryEntryState(_state, _sticky));
-        } catch (EnvironmentFailureException e) {
-            if (!_repository.isValid()) {
-                throw new DiskErrorCacheException(
-                      "Meta data update failed and a pool restart is required: " + e.getMessage(),
-                      e);
-            }
-            throw new CacheException("Meta data update failed: " + e.getMessage(), e);
-        } catch (OperationFailureException e) {
-            throw new CacheException("Meta data update failed: " + e.getMessage(), e);
-        }
     }
 
     static CacheRepositoryEntryImpl load(BerkeleyDBMetaDataRepository repository, PnfsId pnfsId,
@@ -416,6 +366,8 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
 
     private class UpdatableRecordImpl implements UpdatableRecord {
 
+        private final List<TransactionWorker> _writes = new ArrayList<>();
+
         private boolean _stateModified;
 
         @Override
@@ -457,7 +409,38 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
 
         @Override
         public Void setFileAttributes(FileAttributes attributes) throws CacheException {
-            return CacheRepositoryEntryImpl.this.setFileAttributes(attributes);
+            String id = _pnfsId.toString();
+            // invalidate cached value
+            _storageInfoCache.clear();
+
+            //TODO to check the case when STORAGEINFO size=0
+            StorageInfo storageInfo = attributes.isDefined(FileAttribute.STORAGEINFO)
+                  ? StorageInfos.extractFrom(attributes) : null;
+
+            //TODO check should there be separate methods
+            AccessTimeInfo accessTimeInfo;
+            if (attributes.isDefined(FileAttribute.ACCESS_TIME) && attributes.isDefined(
+                  FileAttribute.CREATION_TIME)) {
+                accessTimeInfo = new AccessTimeInfo();
+                accessTimeInfo.setLastAccessTime(attributes.getAccessTime());
+                accessTimeInfo.setCreationTime(attributes.getCreationTime());
+            } else {
+                accessTimeInfo = null;
+            }
+
+            _writes.add(() -> {
+                if (storageInfo != null) {
+                    _repository.getStorageInfoMap().put(id, storageInfo);
+                } else {
+                    _repository.getStorageInfoMap().remove(id);
+                }
+                if (accessTimeInfo != null) {
+                    _repository.getAccessTimeInfo().put(id, accessTimeInfo);
+                } else {
+                    _repository.getAccessTimeInfo().remove(id);
+                }
+            });
+            return null;
         }
 
         @Override
@@ -475,10 +458,26 @@ public class CacheRepositoryEntryImpl implements ReplicaRecord {
             return CacheRepositoryEntryImpl.this.getLinkCount();
         }
 
-        public void save() throws CacheException {
+        /**
+         * Returns a worker writing the modifications of this record to the database, or null if
+         * nothing was modified. The worker only captures immutable values, so it can be executed
+         * by a thread other than the one holding the lock on the record.
+         */
+        TransactionWorker writes() {
+            List<TransactionWorker> writes = new ArrayList<>(_writes);
             if (_stateModified) {
-                storeState();
+                String id = _pnfsId.toString();
+                CacheRepositoryEntryState state = new CacheRepositoryEntryState(_state, _sticky);
+                writes.add(() -> _repository.getStateMap().put(id, state));
             }
+            if (writes.isEmpty()) {
+                return null;
+            }
+            return () -> {
+                for (TransactionWorker write : writes) {
+                    write.doWork();
+                }
+            };
         }
     }
 }
@@ -0,0 +1,217 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.repository.meta.db;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.sleepycat.collections.TransactionRunner;
+import com.sleepycat.collections.TransactionWorker;
+import com.sleepycat.je.EnvironmentFailureException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.dcache.util.PowerOfTwoHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces concurrent meta data updates into shared transactions.
+ * <p>
+ * Callers submit a {@link TransactionWorker} and block until the transaction containing it has
+ * been committed, so an update is as durable as if it had been committed in a transaction of its
+ * own.  A single committer thread collects updates for up to the configured latency window, or
+ * until the batch is full, and commits them in one transaction.  This amortizes the cost of the
+ * synchronous log write over all updates in the batch.
+ * <p>
+ * Workers must only write to the database and must be idempotent: if a batch fails, each of its
+ * workers is retried in a transaction of its own, so that a single failing update does not fail
+ * unrelated updates.
+ */
+class GroupCommitter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private static class Request {
+
+        private final TransactionWorker worker;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final long enqueued = System.nanoTime();
+
+        Request(TransactionWorker worker) {
+            this.worker = worker;
+        }
+    }
+
+    /**
+     * Marks the end of the queue. The committer thread is not interrupted on shutdown, as
+     * Berkeley DB invalidates the environment if a thread is interrupted during IO.
+     */
+    private static final Request SHUTDOWN = new Request(null);
+
+    private final TransactionRunner runner;
+    private final int maxBatchSize;
+    private final long maxLatency;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    private final PowerOfTwoHistogram batchSizes = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram commitLatency = new PowerOfTwoHistogram();
+
+    private boolean isClosed;
+
+    /**
+     * @param runner       runner used to execute transactions
+     * @param maxBatchSize maximum number of updates committed in one transaction
+     * @param maxLatency   maximum time the first update of a batch waits for further updates
+     * @param unit         unit of {@code maxLatency}
+     */
+    GroupCommitter(TransactionRunner runner, int maxBatchSize, long maxLatency, TimeUnit unit) {
+        checkArgument(maxBatchSize > 0, "Batch size must be positive");
+        checkArgument(maxLatency >= 0, "Latency must not be negative");
+        this.runner = runner;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = unit.toNanos(maxLatency);
+        this.thread = new Thread(this::run, "meta-group-commit");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops accepting updates, commits the updates already submitted and waits for the committer
+     * thread to terminate.
+     */
+    void close() {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            queue.add(SHUTDOWN);
+        }
+        Uninterruptibles.joinUninterruptibly(thread);
+    }
+
+    /**
+     * Executes the worker in a transaction and returns once that transaction is committed.
+     */
+    void commit(TransactionWorker worker) throws Exception {
+        Request request = new Request(worker);
+        synchronized (this) {
+            if (isClosed) {
+                throw new IllegalStateException("Meta data store is closed");
+            }
+            queue.add(request);
+        }
+        try {
+            Uninterruptibles.getUninterruptibly(request.done);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, Exception.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private void run() {
+        boolean isShutdown = false;
+        while (!isShutdown) {
+            Request first = Uninterruptibles.takeUninterruptibly(queue);
+            List<Request> batch = new ArrayList<>(maxBatchSize);
+            batch.add(first);
+            long deadline = first.enqueued + maxLatency;
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            while (batch.size() < maxBatchSize && !batch.contains(SHUTDOWN)) {
+                long timeout = deadline - System.nanoTime();
+                Request next = poll(timeout);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            isShutdown = batch.remove(SHUTDOWN);
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+        }
+    }
+
+    /**
+     * Polls the queue. The committer thread is never interrupted, so an interrupt is simply
+     * treated as an expired timeout.
+     */
+    private Request poll(long timeout) {
+        try {
+            return timeout > 0 ? queue.poll(timeout, TimeUnit.NANOSECONDS) : queue.poll();
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    private void commit(List<Request> batch) {
+        try {
+            runner.run(() -> {
+                for (Request request : batch) {
+                    request.worker.doWork();
+                }
+            });
+            batch.forEach(r -> r.done.complete(null));
+        } catch (Throwable e) {
+            if (batch.size() == 1 || e instanceof EnvironmentFailureException) {
+                batch.forEach(r -> r.done.completeExceptionally(e));
+            } else {
+                LOGGER.debug("Group commit of {} updates failed, retrying individually: {}",
+                      batch.size(), e.toString());
+                for (Request request : batch) {
+                    try {
+                        runner.run(request.worker);
+                        request.done.complete(null);
+                    } catch (Throwable individual) {
+                        request.done.completeExceptionally(individual);
+                    }
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        batchSizes.add(batch.size());
+        for (Request request : batch) {
+            commitLatency.add(TimeUnit.NANOSECONDS.toMicros(now - request.enqueued));
+        }
+    }
+
+    void getInfo(PrintWriter pw) {
+        pw.println("Group commit:");
+        pw.println("    Max batch size : " + maxBatchSize);
+        pw.println("    Max latency    : " + TimeUnit.NANOSECONDS.toMicros(maxLatency) + " us");
+        pw.println("    Batch size     :");
+        batchSizes.print(pw, "        ", "");
+        pw.println("    Commit latency :");
+        commitLatency.print(pw, "        ", " us");
+    }
+}
@@ -12,7 +12,9 @@ import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentConfig;
 import com.sleepycat.je.EnvironmentFailureException;
 import java.io.File;
+import java.io.PrintWriter;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +43,8 @@ public class ReplicaStoreDatabase {
 
     private final TransactionRunner transactionRunner;
 
+    private volatile GroupCommitter groupCommitter;
+
     private boolean _failed;
     private boolean _closed;
 
@@ -87,9 +91,28 @@ public class ReplicaStoreDatabase {
         return _failed;
     }
 
+    /**
+     * Enables coalescing of updates submitted through {@link #commit} into shared transactions.
+     *
+     * @param maxBatchSize maximum number of updates in one transaction
+     * @param maxLatency   maximum time an update waits for other updates to share a transaction
+     * @param unit         unit of {@code maxLatency}
+     */
+    public synchronized void enableGroupCommit(int maxBatchSize, long maxLatency, TimeUnit unit) {
+        if (groupCommitter == null && !_closed) {
+            GroupCommitter committer =
+                  new GroupCommitter(transactionRunner, maxBatchSize, maxLatency, unit);
+            committer.start();
+            groupCommitter = committer;
+        }
+    }
+
     public synchronized void close()
           throws DatabaseException {
         if (!_closed) {
+            if (groupCommitter != null) {
+                groupCommitter.close();
+            }
             accessInfoStore.close();
             stateDatabase.close();
             storageInfoDatabase.close();
@@ -107,6 +130,27 @@ public class ReplicaStoreDatabase {
         transactionRunner.run(worker);
     }
 
+    /**
+     * Executes the worker in a transaction and returns once it is committed. With group commit
+     * enabled, the worker may share the transaction with concurrent updates; the worker must then
+     * only write to the database and be safe to execute more than once.
+     */
+    public void commit(TransactionWorker worker) throws Exception {
+        GroupCommitter committer = groupCommitter;
+        if (committer != null) {
+            committer.commit(worker);
+        } else {
+            transactionRunner.run(worker);
+        }
+    }
+
+    public void getInfo(PrintWriter pw) {
+        GroupCommitter committer = groupCommitter;
+        if (committer != null) {
+            committer.getInfo(pw);
+        }
+    }
+
     public final StoredClassCatalog getClassCatalog() {
         return javaCatalog;
     }
@@ -63,8 +63,8 @@ import org.dcache.pool.FaultEvent;
 import org.dcache.pool.FaultListener;
 import org.dcache.pool.PoolDataBeanProvider;
 import org.dcache.pool.classic.BlockingAllocator;
-import org.dcache.pool.classic.FairQueueAllocator;
 import org.dcache.pool.classic.ImmediateAllocator;
+import org.dcache.pool.classic.StripedSpaceReserve;
 import org.dcache.pool.repository.Account;
 import org.dcache.pool.repository.Allocator;
 import org.dcache.pool.repository.CacheEntry;
@@ -204,6 +204,8 @@ public class ReplicaRepository
     @GuardedBy("_stateLock")
     private Account _account;
 
+    private StripedSpaceReserve _spaceReserve;
+
     /**
      * Policy defining which files may be garbage collected.
      */
@@ -365,6 +367,20 @@ public class ReplicaRepository
         }
     }
 
+    /**
+     * The reserve through which space for new replicas is allocated. If not set, space is
+     * allocated directly from the account.
+     */
+    public void setSpaceReserve(StripedSpaceReserve reserve) {
+        _stateLock.readLock().lock();
+        try {
+            checkUninitialized();
+            _spaceReserve = reserve;
+        } finally {
+            _stateLock.readLock().unlock();
+        }
+    }
+
     public void setReplicaStore(ReplicaStore store) {
         _stateLock.readLock().lock();
         try {
@@ -690,11 +706,12 @@ public class ReplicaRepository
     private Allocator buildAllocator(Set<? extends OpenOption> flags,
           OptionalLong maximumSize) {
         Allocator allocator = flags.contains(OpenFlags.NONBLOCK_SPACE_ALLOCATION)
-              ? new ImmediateAllocator(_account) : new BlockingAllocator(_account);
+              ? new ImmediateAllocator(_account, _spaceReserve)
+              : new BlockingAllocator(_account, _spaceReserve);
         if (maximumSize.isPresent()) {
             allocator = new LimitedAllocator(allocator, maximumSize.getAsLong());
         }
-        return new FairQueueAllocator(allocator);
+        return allocator;
     }
 
     @Override
@@ -0,0 +1,143 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.statistics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+
+/**
+ * An immutable summary of the values recorded by one or more {@link LogHistogram}s.
+ * <p>
+ * In addition to the usual summary statistics, the summary provides quantiles estimated from the
+ * bucket counts.  Summaries of the same quantity may be combined with {@link #merge}, e.g., to
+ * aggregate the statistics of several recorders.
+ */
+public class HistogramSummary implements StatisticalSummary {
+
+    public static final HistogramSummary EMPTY = new HistogramSummary(
+          new long[LogHistogram.BUCKETS], 0, 0, Double.POSITIVE_INFINITY,
+          Double.NEGATIVE_INFINITY);
+
+    private final long[] _counts;
+    private final long _n;
+    private final double _sum;
+    private final double _sumOfSquares;
+    private final double _min;
+    private final double _max;
+
+    HistogramSummary(long[] counts, double sum, double sumOfSquares, double min, double max) {
+        long n = 0;
+        for (long count : counts) {
+            n += count;
+        }
+        _counts = counts;
+        _n = n;
+        _sum = sum;
+        _sumOfSquares = sumOfSquares;
+        _min = min;
+        _max = max;
+    }
+
+    /**
+     * Returns a summary of the values of this and the other summary.
+     */
+    public HistogramSummary merge(HistogramSummary other) {
+        if (other._n == 0) {
+            return this;
+        }
+        if (_n == 0) {
+            return other;
+        }
+        long[] counts = new long[_counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = _counts[i] + other._counts[i];
+        }
+        return new HistogramSummary(counts, _sum + other._sum,
+              _sumOfSquares + other._sumOfSquares, Math.min(_min, other._min),
+              Math.max(_max, other._max));
+    }
+
+    /**
+     * Returns an estimate of the given quantile of the recorded values, or NaN if no values were
+     * recorded.  The estimate is the midpoint of the bucket containing the quantile, limited to
+     * the observed minimum and maximum, and is accurate to within about 12.5%.
+     *
+     * @param quantile a value between 0 and 1, e.g. 0.99 for the 99th percentile
+     */
+    public double getQuantile(double quantile) {
+        checkArgument(quantile >= 0 && quantile <= 1, "Quantile must be between 0 and 1.");
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * _n));
+        long seen = 0;
+        for (int i = 0; i < _counts.length; i++) {
+            seen += _counts[i];
+            if (seen >= rank) {
+                long lower = LogHistogram.lowerBound(i);
+                double upper = i == _counts.length - 1 ? _max : LogHistogram.upperBound(i);
+                double midpoint = lower + (upper - lower) / 2;
+                return Math.max(_min, Math.min(_max, midpoint));
+            }
+        }
+        return _max;
+    }
+
+    @Override
+    public double getMean() {
+        return _n == 0 ? Double.NaN : _sum / _n;
+    }
+
+    @Override
+    public double getVariance() {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        if (_n == 1) {
+            return 0;
+        }
+        double variance = (_sumOfSquares - _sum * _sum / _n) / (_n - 1);
+        return Math.max(0, variance);
+    }
+
+    @Override
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public double getMax() {
+        return _n == 0 ? Double.NaN : _max;
+    }
+
+    @Override
+    public double getMin() {
+        return _n == 0 ? Double.NaN : _min;
+    }
+
+    @Override
+    public long getN() {
+        return _n;
+    }
+
+    @Override
+    public double getSum() {
+        return _sum;
+    }
+}
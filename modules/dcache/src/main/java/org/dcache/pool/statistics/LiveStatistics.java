@@ -20,36 +20,49 @@ package org.dcache.pool.statistics;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.time.temporal.ChronoUnit.SECONDS;
 
-import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Storage for the mutable statistics.  These gathered statistics are intended for a single IO
- * direction: either for read operations or for write operations.  The {@code #accept} method
- * updates the statistics based on the observed behaviour of an IO operation (either read or write)
- * and the getter methods provide immutable snapshots of various metrics.
+ * Statistics about IO operations of one type, updated on the data path.
  * <p>
- * This class protects against concurrent updates and obtaining a snapshot of a metric's statistics.
- *  External synchronisation is needed if multiple snapshot statistics are desired without any
- * intermediate updates.
+ * IO operations are recorded without locking into one of several stripes, selected by the
+ * recording thread, so that concurrent IO operations of a transfer do not contend on a single
+ * monitor.  Stripes are only created when used.  The stripes are combined when a snapshot is
+ * requested.
  */
 public class LiveStatistics {
 
-    private final SummaryStatistics _instantaneousBandwidth = new SummaryStatistics();
-    private final SummaryStatistics _requestedBytes = new SummaryStatistics();
-    private final SummaryStatistics _transferredBytes = new SummaryStatistics();
-    private final SummaryStatistics _duration = new SummaryStatistics();
-    private final SummaryStatistics _concurrency = new SummaryStatistics();
+    private static final int STRIPES = Integer.highestOneBit(
+          Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    private final AtomicReferenceArray<Recorder> _stripes = new AtomicReferenceArray<>(STRIPES);
 
     /**
      * Provide a snapshot of current state of the monitored statistics.
      */
-    public synchronized SnapshotStatistics snapshot() {
+    public SnapshotStatistics snapshot() {
+        HistogramSummary instantaneousBandwidth = HistogramSummary.EMPTY;
+        HistogramSummary duration = HistogramSummary.EMPTY;
+        HistogramSummary requestedBytes = HistogramSummary.EMPTY;
+        HistogramSummary transferredBytes = HistogramSummary.EMPTY;
+        HistogramSummary concurrency = HistogramSummary.EMPTY;
+        for (int i = 0; i < STRIPES; i++) {
+            Recorder recorder = _stripes.get(i);
+            if (recorder != null) {
+                instantaneousBandwidth = instantaneousBandwidth.merge(
+                      recorder._instantaneousBandwidth.snapshot());
+                duration = duration.merge(recorder._duration.snapshot());
+                requestedBytes = requestedBytes.merge(recorder._requestedBytes.snapshot());
+                transferredBytes = transferredBytes.merge(recorder._transferredBytes.snapshot());
+                concurrency = concurrency.merge(recorder._concurrency.snapshot());
+            }
+        }
         return new SnapshotStatistics(
-              _instantaneousBandwidth,
-              _duration,
-              _requestedBytes,
-              _transferredBytes,
-              _concurrency);
+              instantaneousBandwidth,
+              duration,
+              requestedBytes,
+              transferredBytes,
+              concurrency);
     }
 
     /**
@@ -62,7 +75,7 @@ public class LiveStatistics {
      * @param startedAt        the value of System.nanoTime() immediately before starting the IO
      *                         operation.
      */
-    public synchronized void accept(int concurrency, long requestedBytes,
+    public void accept(int concurrency, long requestedBytes,
           long transferredBytes, long startedAt) {
         checkArgument(concurrency > 0);
         checkArgument(requestedBytes >= 0);
@@ -70,14 +83,37 @@ public class LiveStatistics {
 
         long duration = System.nanoTime() - startedAt;
 
-        double instantaneousBandwidth = SECONDS.getDuration().toNanos()
-              * (double) transferredBytes / duration;
+        Recorder recorder = stripe();
+        recorder._duration.record(duration);
+        recorder._transferredBytes.record(transferredBytes);
+        recorder._requestedBytes.record(requestedBytes);
+        if (duration > 0) {
+            double instantaneousBandwidth = SECONDS.getDuration().toNanos()
+                  * (double) transferredBytes / duration;
+            recorder._instantaneousBandwidth.record(instantaneousBandwidth);
+        }
+        recorder._concurrency.record(concurrency);
+    }
 
-        _duration.addValue(duration);
-        _transferredBytes.addValue(transferredBytes);
-        _requestedBytes.addValue(requestedBytes);
-        _instantaneousBandwidth.addValue(instantaneousBandwidth);
-        _concurrency.addValue(concurrency);
+    private Recorder stripe() {
+        int index = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        Recorder recorder = _stripes.get(index);
+        if (recorder == null) {
+            _stripes.compareAndSet(index, null, new Recorder());
+            recorder = _stripes.get(index);
+        }
+        return recorder;
     }
-}
 
+    /**
+     * The histograms of one stripe.
+     */
+    private static class Recorder {
+
+        private final LogHistogram _instantaneousBandwidth = new LogHistogram();
+        private final LogHistogram _requestedBytes = new LogHistogram();
+        private final LogHistogram _transferredBytes = new LogHistogram();
+        private final LogHistogram _duration = new LogHistogram();
+        private final LogHistogram _concurrency = new LogHistogram();
+    }
+}
@@ -0,0 +1,117 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.pool.statistics;
+
+import static java.lang.Double.doubleToRawLongBits;
+import static java.lang.Double.longBitsToDouble;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A lock-free recorder for the distribution of non-negative values.
+ * <p>
+ * Values are counted in logarithmic buckets: each power of two is divided into {@literal
+ * 2^SUB_BUCKET_BITS} equally wide buckets, so the width of a bucket is at most 25% of its lower
+ * bound.  Values below four are counted exactly and values above {@link #MAX_VALUE} are counted in
+ * the last bucket.  In addition, the exact sum, sum of squares, minimum and maximum are kept, so
+ * that the mean and variance are not affected by the bucketing.
+ * <p>
+ * Recording is a handful of uncontended atomic operations.  The recorded values are read by
+ * {@link #snapshot}, which may run concurrently with recording; a value recorded concurrently with
+ * a snapshot may be partially reflected in it.
+ */
+class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest value with a bucket of its own.
+     */
+    static final long MAX_VALUE = (1L << 48) - 1;
+
+    static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong _sum = new AtomicLong(doubleToRawLongBits(0));
+    private final AtomicLong _sumOfSquares = new AtomicLong(doubleToRawLongBits(0));
+    private final AtomicLong _min = new AtomicLong(doubleToRawLongBits(Double.POSITIVE_INFINITY));
+    private final AtomicLong _max = new AtomicLong(doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the smallest value counted in the given bucket.
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Returns the largest value counted in the given bucket.
+     */
+    static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+    }
+
+    /**
+     * Record a value.  Negative values and NaN are recorded as zero.
+     */
+    void record(double value) {
+        double v = value > 0 ? value : 0;
+        _counts.incrementAndGet(bucketOf(Math.min(Math.round(v), MAX_VALUE)));
+        accumulate(_sum, v, Double::sum);
+        accumulate(_sumOfSquares, v * v, Double::sum);
+        accumulate(_min, v, Math::min);
+        accumulate(_max, v, Math::max);
+    }
+
+    private static void accumulate(AtomicLong target, double value, DoubleBinaryOperator op) {
+        long current;
+        long updated;
+        do {
+            current = target.get();
+            updated = doubleToRawLongBits(op.applyAsDouble(longBitsToDouble(current), value));
+        } while (current != updated && !target.compareAndSet(current, updated));
+    }
+
+    HistogramSummary snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = _counts.get(i);
+        }
+        return new HistogramSummary(counts,
+              longBitsToDouble(_sum.get()),
+              longBitsToDouble(_sumOfSquares.get()),
+              longBitsToDouble(_min.get()),
+              longBitsToDouble(_max.get()));
+    }
+}
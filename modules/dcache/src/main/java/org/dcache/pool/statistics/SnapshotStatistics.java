@@ -24,34 +24,34 @@ import static org.dcache.util.Strings.describeSize;
 import static org.dcache.util.TimeUtils.describeDuration;
 
 import java.io.PrintWriter;
+import java.util.function.DoubleFunction;
 import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
-import org.apache.commons.math3.stat.descriptive.StatisticalSummaryValues;
+import org.dcache.util.Strings;
 
 /**
- * Provides a snapshot of the information maintained within LiveStatistics. This class makes use of
- * Apache Commons Math StatisticalSummary class to hold statistics on certain metrics.
+ * Provides a snapshot of the information maintained within LiveStatistics. Each metric is held as
+ * a {@link HistogramSummary}, which provides the Apache Commons Math StatisticalSummary values
+ * together with percentiles.
  */
 public class SnapshotStatistics {
 
-    private static final StatisticalSummary NO_RESULTS = new StatisticalSummaryValues(
-          Double.NaN, Double.NaN, 0L, Double.NaN, Double.NaN, Double.NaN);
-
-    private final StatisticalSummary _instantaneousBandwidth;
-    private final StatisticalSummary _duration;
-    private final StatisticalSummary _requestedBytes;
-    private final StatisticalSummary _transferredBytes;
-    private final StatisticalSummary _concurrency;
+    private final HistogramSummary _instantaneousBandwidth;
+    private final HistogramSummary _duration;
+    private final HistogramSummary _requestedBytes;
+    private final HistogramSummary _transferredBytes;
+    private final HistogramSummary _concurrency;
 
     public SnapshotStatistics() {
-        this(NO_RESULTS, NO_RESULTS, NO_RESULTS, NO_RESULTS, NO_RESULTS);
+        this(HistogramSummary.EMPTY, HistogramSummary.EMPTY, HistogramSummary.EMPTY,
+              HistogramSummary.EMPTY, HistogramSummary.EMPTY);
     }
 
     public SnapshotStatistics(
-          StatisticalSummary instantaneousBandwidth,
-          StatisticalSummary duration,
-          StatisticalSummary requestedBytes,
-          StatisticalSummary transferredBytes,
-          StatisticalSummary concurrency) {
+          HistogramSummary instantaneousBandwidth,
+          HistogramSummary duration,
+          HistogramSummary requestedBytes,
+          HistogramSummary transferredBytes,
+          HistogramSummary concurrency) {
         _instantaneousBandwidth = instantaneousBandwidth;
         _duration = duration;
         _requestedBytes = requestedBytes;
@@ -62,14 +62,14 @@ public class SnapshotStatistics {
     /**
      * Statistics about the requested bytes.
      */
-    public StatisticalSummary requestedBytes() {
+    public HistogramSummary requestedBytes() {
         return _requestedBytes;
     }
 
     /**
      * Statistics about the bytes actually transferred.
      */
-    public StatisticalSummary transferredBytes() {
+    public HistogramSummary transferredBytes() {
         return _transferredBytes;
     }
 
@@ -82,7 +82,7 @@ public class SnapshotStatistics {
      * does not contribute to the instanteneous bandwidth statistics, which results in fewer
      * observations ({@link StatisticalSummary#getN}) than for other metrics.
      */
-    public StatisticalSummary instantaneousBandwidth() {
+    public HistogramSummary instantaneousBandwidth() {
         return _instantaneousBandwidth;
     }
 
@@ -90,7 +90,7 @@ public class SnapshotStatistics {
      * Statistics about the concurrency, as mesured at the start of each IO request of this type.  A
      * maximum value of 1 indicates that there was no overlapping IO requests of this type.
      */
-    public StatisticalSummary concurrency() {
+    public HistogramSummary concurrency() {
         return _concurrency;
     }
 
@@ -98,25 +98,42 @@ public class SnapshotStatistics {
      * Statistics about the time spend processing IO requests of this type. Numerical values are in
      * nanoseconds.
      */
-    public StatisticalSummary IOTime() {
+    public HistogramSummary IOTime() {
         return _duration;
     }
 
     public void getInfo(PrintWriter pw) {
         if (_instantaneousBandwidth.getN() > 0) {
             pw.println("Instantaneous bandwidth: " + describeBandwidth(_instantaneousBandwidth));
+            pw.println("    " + describePercentiles(_instantaneousBandwidth,
+                  Strings::describeBandwidth));
         }
         if (_duration.getN() > 0) {
             pw.println("IO wait time: " + describeDuration(_duration, NANOSECONDS));
+            pw.println("    " + describePercentiles(_duration,
+                  d -> describeDuration(d, NANOSECONDS)));
         }
         if (_requestedBytes.getN() > 0) {
             pw.println("IO requested size: " + describeSize(_requestedBytes));
+            pw.println("    " + describePercentiles(_requestedBytes,
+                  s -> describeSize(Math.round(s))));
         }
         if (_transferredBytes.getN() > 0) {
             pw.println("IO transferred size: " + describeSize(_transferredBytes));
+            pw.println("    " + describePercentiles(_transferredBytes,
+                  s -> describeSize(Math.round(s))));
         }
         if (_concurrency.getN() > 0) {
             pw.println("Concurrency: " + describeInteger(_concurrency));
+            pw.println("    " + describePercentiles(_concurrency,
+                  c -> String.valueOf(Math.round(c))));
         }
     }
+
+    private static String describePercentiles(HistogramSummary summary,
+          DoubleFunction<String> describe) {
+        return "p50 " + describe.apply(summary.getQuantile(0.5))
+              + ", p99 " + describe.apply(summary.getQuantile(0.99))
+              + ", p99.9 " + describe.apply(summary.getQuantile(0.999));
+    }
 }
@@ -0,0 +1,39 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.poolmanager;
+
+import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
+import diskCacheV111.vehicles.PoolMgrSelectWritePoolMsg;
+import dmg.cells.nucleus.CompactSchemaProvider;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Registers the pool selection messages with the compact message serializer.
+ */
+public class PoolManagerSchemaProvider implements CompactSchemaProvider {
+
+    @Override
+    public Collection<Class<? extends Serializable>> getClasses() {
+        return List.of(
+              PoolMgrSelectReadPoolMsg.class,
+              PoolMgrSelectReadPoolMsg.Context.class,
+              PoolMgrSelectWritePoolMsg.class);
+    }
+}
@@ -0,0 +1,245 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.util;
+
+import static java.util.Objects.requireNonNull;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the Netty transport used by a service and applies transport specific socket options.
+ * <p>
+ * The native transports avoid the overhead of the JDK selector but are only available on Linux.
+ * If the requested transport is not available then the portable NIO transport is used instead.
+ * Options that the selected transport does not support are silently ignored.
+ */
+public class NettyTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyTransport.class);
+
+    public enum Type {
+        /**
+         * Use epoll if available, otherwise NIO.
+         */
+        AUTO,
+
+        /**
+         * The portable, JDK selector based transport.
+         */
+        NIO,
+
+        /**
+         * The native Linux epoll transport.
+         */
+        EPOLL,
+
+        /**
+         * The native Linux io_uring transport.  Requires a recent kernel.
+         */
+        IO_URING
+    }
+
+    private Type type = Type.NIO;
+
+    private boolean isEdgeTriggered = true;
+
+    private boolean isTcpCork;
+
+    private long tcpNotSentLowAt;
+
+    private int busyPoll;
+
+    /**
+     * Sets the requested transport.  The effective transport may differ if the requested one is not
+     * available on this host.
+     */
+    public void setType(Type type) {
+        Type effective = resolve(requireNonNull(type));
+        if (type != Type.AUTO && effective != type) {
+            LOGGER.warn("Netty {} transport is not available on this host; using {}.", type,
+                  effective);
+        }
+        this.type = effective;
+    }
+
+    /**
+     * Returns the effective transport.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Whether epoll should use edge-triggered rather than level-triggered mode.  Only used by the
+     * epoll transport.
+     */
+    public void setEdgeTriggered(boolean isEdgeTriggered) {
+        this.isEdgeTriggered = isEdgeTriggered;
+    }
+
+    public boolean isEdgeTriggered() {
+        return isEdgeTriggered;
+    }
+
+    /**
+     * Whether to set TCP_CORK on accepted connections, which delays sending partial frames.  Only
+     * used by the native transports.
+     */
+    public void setTcpCork(boolean isTcpCork) {
+        this.isTcpCork = isTcpCork;
+    }
+
+    public boolean isTcpCork() {
+        return isTcpCork;
+    }
+
+    /**
+     * Sets TCP_NOTSENT_LOWAT on accepted connections, limiting the amount of unsent data kept in
+     * the kernel.  Zero leaves the system default.  Only used by the native transports.
+     */
+    public void setTcpNotSentLowAt(long tcpNotSentLowAt) {
+        this.tcpNotSentLowAt = tcpNotSentLowAt;
+    }
+
+    public long getTcpNotSentLowAt() {
+        return tcpNotSentLowAt;
+    }
+
+    /**
+     * Sets SO_BUSY_POLL, in microseconds, on accepted connections.  Zero disables busy polling.
+     * Only used by the epoll transport.
+     */
+    public void setBusyPoll(int busyPoll) {
+        this.busyPoll = busyPoll;
+    }
+
+    public int getBusyPoll() {
+        return busyPoll;
+    }
+
+    /**
+     * Creates an event loop group for the effective transport.
+     *
+     * @param threads the number of threads, or zero for Netty's default
+     * @param factory the factory for the event loop threads
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory factory) {
+        switch (type) {
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, factory);
+            case IO_URING:
+                return new IOUringEventLoopGroup(threads, factory);
+            default:
+                return new NioEventLoopGroup(threads, factory);
+        }
+    }
+
+    public Class<? extends ServerChannel> getServerChannelClass() {
+        switch (type) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            case IO_URING:
+                return IOUringServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    public Class<? extends SocketChannel> getSocketChannelClass() {
+        switch (type) {
+            case EPOLL:
+                return EpollSocketChannel.class;
+            case IO_URING:
+                return IOUringSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    /**
+     * Sets the server channel class and any transport specific child options on the bootstrap.
+     */
+    public ServerBootstrap configure(ServerBootstrap bootstrap) {
+        bootstrap.channel(getServerChannelClass());
+        switch (type) {
+            case EPOLL:
+                bootstrap.childOption(EpollChannelOption.EPOLL_MODE, isEdgeTriggered
+                      ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED);
+                if (isTcpCork) {
+                    bootstrap.childOption(EpollChannelOption.TCP_CORK, true);
+                }
+                if (tcpNotSentLowAt > 0) {
+                    bootstrap.childOption(EpollChannelOption.TCP_NOTSENT_LOWAT, tcpNotSentLowAt);
+                }
+                if (busyPoll > 0) {
+                    bootstrap.childOption(EpollChannelOption.SO_BUSY_POLL, busyPoll);
+                }
+                break;
+            case IO_URING:
+                if (isTcpCork) {
+                    bootstrap.childOption(IOUringChannelOption.TCP_CORK, true);
+                }
+                if (tcpNotSentLowAt > 0) {
+                    bootstrap.childOption(IOUringChannelOption.TCP_NOTSENT_LOWAT,
+                          tcpNotSentLowAt);
+                }
+                break;
+            default:
+                break;
+        }
+        return bootstrap;
+    }
+
+    private static Type resolve(Type type) {
+        switch (type) {
+            case AUTO:
+            case EPOLL:
+                return Epoll.isAvailable() ? Type.EPOLL : Type.NIO;
+            case IO_URING:
+                return IOUring.isAvailable() ? Type.IO_URING
+                      : Epoll.isAvailable() ? Type.EPOLL : Type.NIO;
+            default:
+                return Type.NIO;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type.toString().toLowerCase();
+    }
+}
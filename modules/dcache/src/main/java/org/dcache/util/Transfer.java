@@ -45,6 +45,7 @@ import diskCacheV111.vehicles.Pool;
 import diskCacheV111.vehicles.PoolAcceptFileMessage;
 import diskCacheV111.vehicles.PoolDeliverFileMessage;
 import diskCacheV111.vehicles.PoolIoFileMessage;
+import diskCacheV111.vehicles.PoolMgrOpenReadMsg;
 import diskCacheV111.vehicles.PoolMgrSelectPoolMsg;
 import diskCacheV111.vehicles.PoolMgrSelectReadPoolMsg;
 import diskCacheV111.vehicles.PoolMgrSelectWritePoolMsg;
@@ -136,6 +137,9 @@ public class Transfer implements Comparable<Transfer> {
     private OptionalLong _maximumSize = OptionalLong.empty();
 
     private PoolMgrSelectReadPoolMsg.Context _readPoolSelectionContext;
+    private final Subject _namespaceSubject;
+    private final Restriction _namespaceRestriction;
+    private TransferLatencies _latencies;
     private boolean _isBillingNotified;
     protected boolean _isOverwriteAllowed;
 
@@ -176,6 +180,8 @@ public class Transfer implements Comparable<Transfer> {
     public Transfer(PnfsHandler pnfs, Subject namespaceSubject,
           Restriction namespaceRestriction, Subject ioSubject, FsPath path) {
         _pnfs = new PnfsHandler(pnfs, namespaceSubject, namespaceRestriction);
+        _namespaceSubject = namespaceSubject;
+        _namespaceRestriction = namespaceRestriction;
         _subject = ioSubject;
         _path = path;
         _startedAt = System.currentTimeMillis();
@@ -279,6 +285,30 @@ public class Transfer implements Comparable<Transfer> {
         _billing = requireNonNull(stub, "Billing stub can't be null");
     }
 
+    /**
+     * Sets the histograms in which the latencies of name space, pool manager and pool round trips
+     * of this transfer are recorded.
+     */
+    public synchronized void setLatencies(TransferLatencies latencies) {
+        _latencies = latencies;
+    }
+
+    private synchronized TransferLatencies getLatencies() {
+        return _latencies;
+    }
+
+    /**
+     * Records the time until the future completes in the latency histogram of the given phase.
+     */
+    private void recordLatency(TransferLatencies.Phase phase, ListenableFuture<?> future) {
+        TransferLatencies latencies = getLatencies();
+        if (latencies != null) {
+            long started = System.nanoTime();
+            future.addListener(() -> latencies.record(phase, System.nanoTime() - started),
+                  MoreExecutors.directExecutor());
+        }
+    }
+
     public synchronized void setKafkaSender(Consumer<DoorRequestInfoMessage> kafkaSender) {
         _kafkaSender = kafkaSender;
     }
@@ -744,6 +774,20 @@ public class Transfer implements Comparable<Transfer> {
     }
 
     private ListenableFuture<Void> readNameSpaceEntryAsync(boolean allowWrite, long timeout) {
+        PnfsGetFileAttributes request = createNameSpaceRequest(allowWrite);
+        ListenableFuture<PnfsGetFileAttributes> reply = _pnfs.requestAsync(request, timeout);
+
+        setStatusUntil("PnfsManager: Fetching storage info", reply);
+        recordLatency(TransferLatencies.Phase.NAME_SPACE, reply);
+
+        return CellStub.transformAsync(reply,
+              msg -> {
+                  setNameSpaceEntry(msg.getFileAttributes(), allowWrite);
+                  return immediateFuture(null);
+              });
+    }
+
+    private PnfsGetFileAttributes createNameSpaceRequest(boolean allowWrite) {
         Set<FileAttribute> attr = EnumSet.of(PNFSID, TYPE, STORAGEINFO, SIZE);
         attr.addAll(_additionalAttributes);
         attr.addAll(PoolMgrSelectReadPoolMsg.getRequiredAttributes());
@@ -766,33 +810,94 @@ public class Transfer implements Comparable<Transfer> {
         }
         request.setAccessMask(mask);
         request.setUpdateAtime(true);
-        ListenableFuture<PnfsGetFileAttributes> reply = _pnfs.requestAsync(request, timeout);
+        return request;
+    }
 
-        setStatusUntil("PnfsManager: Fetching storage info", reply);
+    private void setNameSpaceEntry(FileAttributes attributes, boolean allowWrite)
+          throws CacheException {
+        /* We can only transfer regular files.
+         */
+        FileType type = attributes.getFileType();
+        if (type == FileType.DIR || type == FileType.SPECIAL) {
+            throw new NotFileCacheException("Not a regular file");
+        }
 
-        return CellStub.transformAsync(reply,
-              msg -> {
-                  FileAttributes attributes = msg.getFileAttributes();
-                  /* We can only transfer regular files.
-                   */
-                  FileType type = attributes.getFileType();
-                  if (type == FileType.DIR || type == FileType.SPECIAL) {
-                      throw new NotFileCacheException("Not a regular file");
-                  }
+        /* I/O mode must match completeness of the file.
+         */
+        if (!attributes.getStorageInfo().isCreatedOnly()) {
+            setWrite(false);
+        } else if (allowWrite) {
+            setWrite(true);
+        } else {
+            throw new FileIsNewCacheException();
+        }
 
-                  /* I/O mode must match completeness of the file.
-                   */
-                  if (!attributes.getStorageInfo().isCreatedOnly()) {
-                      setWrite(false);
-                  } else if (allowWrite) {
-                      setWrite(true);
-                  } else {
-                      throw new FileIsNewCacheException();
-                  }
+        setFileAttributes(attributes);
+    }
+
+    /**
+     * Opens the file for reading: reads the name space entry, selects a pool and starts a mover.
+     * <p>
+     * Name space lookup and pool selection are combined into a single round trip to pool manager,
+     * which selects a pool if one already has an online replica of the file.  Otherwise, a regular
+     * pool selection follows, which may stage or replicate the file.  Failed attempts are handled
+     * according to the {@link TransferRetryPolicy}.
+     *
+     * @param policy to handle error cases
+     * @throws PermissionDeniedCacheException if permission to read the file is denied
+     * @throws NotFileCacheException          if the file is not a regular file
+     * @throws FileIsNewCacheException        when attempting to download an incomplete file
+     * @throws CacheException                 if opening the file failed
+     * @throws InterruptedException           if the thread is interrupted
+     */
+    public void openForRead(TransferRetryPolicy policy)
+          throws CacheException, InterruptedException {
+        policy.checkValid();
+
+        try {
+            getCancellable(openForReadAsync(policy));
+        } catch (NoRouteToCellException e) {
+            throw new TimeoutCacheException(e.getMessage(), e);
+        }
+    }
 
-                  setFileAttributes(attributes);
+    public ListenableFuture<Void> openForReadAsync(TransferRetryPolicy policy) {
+        long deadLine = addWithInfinity(System.currentTimeMillis(), policy.getTimeout());
+
+        PoolMgrOpenReadMsg request =
+              new PoolMgrOpenReadMsg(createNameSpaceRequest(false),
+                    getProtocolInfoForPoolManager());
+        PnfsGetFileAttributes nameSpaceRequest = request.getNameSpaceRequest();
+        if (_namespaceSubject != null) {
+            nameSpaceRequest.setSubject(_namespaceSubject);
+        }
+        if (_namespaceRestriction != null) {
+            nameSpaceRequest.setRestriction(_namespaceRestriction);
+        }
+        request.setId(_id);
+        request.setSubject(_subject);
+        request.setTransferPath(getTransferPath());
+        request.setIoQueueName(getIoQueue());
+        request.setExcludedHosts(_tried);
+        request.setContext(getReadPoolSelectionContext());
+
+        ListenableFuture<PoolMgrOpenReadMsg> reply =
+              _poolManager.sendAsync(request, getTimeoutFor(deadLine));
+        setStatusUntil("PoolManager: Opening file", reply);
+        recordLatency(TransferLatencies.Phase.READ_OPEN, reply);
+
+        ListenableFuture<Void> opened = CellStub.transformAsync(reply,
+              msg -> {
+                  setNameSpaceEntry(msg.getFileAttributes(), false);
+                  if (msg.getPool() != null) {
+                      setReadPoolSelectionContext(msg.getContext());
+                      setPool(msg.getPool());
+                  }
                   return immediateFuture(null);
               });
+
+        return transformAsync(opened, ignored -> selectPoolAndStartMoverAsync(policy),
+              MoreExecutors.directExecutor());
     }
 
     /**
@@ -978,6 +1083,7 @@ public class Transfer implements Comparable<Transfer> {
         }
 
         setStatusUntil("PoolManager: Selecting pool", reply);
+        recordLatency(TransferLatencies.Phase.POOL_SELECTION, reply);
         return CellStub.transform(reply,
               (PoolMgrSelectPoolMsg msg) -> {
                   setPool(msg.getPool());
@@ -1037,6 +1143,7 @@ public class Transfer implements Comparable<Transfer> {
         });
 
         setStatusUntil("Pool " + pool + ": Creating mover", reply);
+        recordLatency(TransferLatencies.Phase.MOVER_START, reply);
         return CellStub.transformAsync(reply, msg -> {
             setMoverId(msg.getMoverId());
             return immediateFuture(null);
@@ -0,0 +1,82 @@
+/* dCache - http://www.dcache.org/
+ *
+ * Copyright (C) 2026 Deutsches Elektronen-Synchrotron
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.dcache.util;
+
+import java.io.PrintWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of the round trips a door makes to set up a {@link Transfer}.
+ * <p>
+ * A door typically shares a single instance among all its transfers.  Both successful and failed
+ * round trips are recorded.
+ */
+public class TransferLatencies {
+
+    public enum Phase {
+        NAME_SPACE("Name space lookup"),
+        POOL_SELECTION("Pool selection"),
+        READ_OPEN("Read open (lookup and selection)"),
+        MOVER_START("Mover creation");
+
+        private final String _description;
+
+        Phase(String description) {
+            _description = description;
+        }
+
+        public String getDescription() {
+            return _description;
+        }
+    }
+
+    private final Map<Phase, PowerOfTwoHistogram> _histograms = new EnumMap<>(Phase.class);
+
+    public TransferLatencies() {
+        for (Phase phase : Phase.values()) {
+            _histograms.put(phase, new PowerOfTwoHistogram());
+        }
+    }
+
+    /**
+     * Records the duration of a round trip.
+     *
+     * @param phase the phase of the transfer set up
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        _histograms.get(phase).add(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void reset() {
+        _histograms.values().forEach(PowerOfTwoHistogram::reset);
+    }
+
+    public void getInfo(PrintWriter pw) {
+        pw.println("Transfer set up latencies:");
+        for (Phase phase : Phase.values()) {
+            PowerOfTwoHistogram histogram = _histograms.get(phase);
+            if (histogram.getCount() > 0) {
+                pw.println("    " + phase.getDescription() + ":");
+                histogram.print(pw, "        ", " us");
+            }
+        }
+    }
+}
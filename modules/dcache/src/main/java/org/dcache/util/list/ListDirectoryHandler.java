@@ -1,5 +1,7 @@
 package org.dcache.util.list;
 
+import static java.util.Objects.requireNonNull;
+
 import com.google.common.collect.Range;
 import diskCacheV111.util.CacheException;
 import diskCacheV111.util.FsPath;
@@ -86,9 +88,38 @@ public class ListDirectoryHandler
     list(Subject subject, Restriction restriction, FsPath path, Glob pattern,
           Range<Integer> range, Set<FileAttribute> attributes)
           throws InterruptedException, CacheException {
+        return list(subject, restriction, path, pattern, null, range, attributes);
+    }
+
+    /**
+     * Sends a directory list request to PnfsManager for the entries following {@code after} in
+     * lexicographic order of their names. The result is provided as a stream of directory
+     * entries.
+     * <p>
+     * Unlike the unordered listing, a large directory may be listed in pages by passing the name
+     * of the last entry of a page as {@code after} of the next request.
+     * <p>
+     * PnfsManager versions that do not support ordered listings ignore {@code after} and list
+     * the directory from the start, in no particular order.  Callers relying on the order must
+     * check {@link Stream#isOrdered}.
+     *
+     * @see diskCacheV111.namespace.NameSpaceProvider#listAfter
+     */
+    public Stream
+    listAfter(Subject subject, Restriction restriction, FsPath path, Glob pattern, String after,
+          Range<Integer> range, Set<FileAttribute> attributes)
+          throws InterruptedException, CacheException {
+        return list(subject, restriction, path, pattern, requireNonNull(after), range, attributes);
+    }
+
+    private Stream
+    list(Subject subject, Restriction restriction, FsPath path, Glob pattern, String after,
+          Range<Integer> range, Set<FileAttribute> attributes)
+          throws InterruptedException, CacheException {
         String dir = path.toString();
         PnfsListDirectoryMessage msg =
               new PnfsListDirectoryMessage(dir, pattern, range, attributes);
+        msg.setAfter(after);
         UUID uuid = msg.getUUID();
         boolean success = false;
         Stream stream = new Stream(dir, uuid);
@@ -223,6 +254,7 @@ public class ListDirectoryHandler
         private final UUID _uuid;
         private final String _path;
         private boolean _isFinal;
+        private boolean _isOrdered;
         private Iterator<DirectoryEntry> _iterator;
         private int _count;
         private int _total;
@@ -268,6 +300,7 @@ public class ListDirectoryHandler
                 throw CacheExceptionFactory.exceptionOf(msg);
             }
 
+            _isOrdered = msg.isOrdered();
             _iterator = msg.getEntries().iterator();
 
             /* If the message is empty, then the iterator has no next
@@ -279,6 +312,14 @@ public class ListDirectoryHandler
             }
         }
 
+        /**
+         * Returns whether PnfsManager confirmed that the entries are ordered by name.  Only
+         * meaningful for streams returned by {@link #listAfter}.
+         */
+        public boolean isOrdered() {
+            return _isOrdered;
+        }
+
         @Override
         public Iterator<DirectoryEntry> iterator() {
             return this;
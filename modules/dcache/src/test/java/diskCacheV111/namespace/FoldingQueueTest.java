@@ -0,0 +1,143 @@
+package diskCacheV111.namespace;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import diskCacheV111.util.PnfsId;
+import diskCacheV111.vehicles.PnfsMessage;
+import dmg.cells.nucleus.CellAddressCore;
+import dmg.cells.nucleus.CellMessage;
+import dmg.cells.nucleus.CellPath;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import javax.security.auth.Subject;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsGetFileAttributes;
+import org.dcache.vehicles.PnfsSetFileAttributes;
+import org.junit.Test;
+
+public class FoldingQueueTest {
+
+    private static final PnfsId PNFSID = new PnfsId("000000000000000000000000000000000001");
+    private static final PnfsId OTHER_PNFSID =
+          new PnfsId("000000000000000000000000000000000002");
+
+    private final FoldingQueue queue = new FoldingQueue(0);
+    private final List<CellMessage> replies = new ArrayList<>();
+
+    private static CellMessage envelope(PnfsMessage message) {
+        CellMessage envelope = new CellMessage(new CellPath("PnfsManager"), message);
+        envelope.addSourceAddress(new CellAddressCore("door", "domain"));
+        return envelope;
+    }
+
+    private static CellMessage getAttributes(PnfsId pnfsId) {
+        return envelope(new PnfsGetFileAttributes(pnfsId, EnumSet.of(FileAttribute.SIZE)));
+    }
+
+    private static FoldingQueue.Entry process(FoldingQueue.Entry entry) {
+        PnfsGetFileAttributes message =
+              (PnfsGetFileAttributes) entry.getEnvelope().getMessageObject();
+        message.setFileAttributes(FileAttributes.ofSize(1));
+        message.setSucceeded();
+        return entry;
+    }
+
+    @Test
+    public void shouldFoldQueuedIdenticalRequest() throws Exception {
+        CellMessage first = getAttributes(PNFSID);
+        CellMessage second = getAttributes(PNFSID);
+        CellMessage other = getAttributes(OTHER_PNFSID);
+        queue.offer(first, false);
+        queue.offer(second, false);
+        queue.offer(other, false);
+
+        FoldingQueue.Entry entry = process(queue.take());
+        queue.fold(entry, true, replies::add);
+
+        assertThat(replies, contains(sameInstance(second)));
+        assertThat(queue.size(), equalTo(1));
+        assertThat(queue.take().getEnvelope(), sameInstance(other));
+    }
+
+    @Test
+    public void shouldAttachIdenticalRequestToQueuedRequest() throws Exception {
+        CellMessage first = getAttributes(PNFSID);
+        CellMessage second = getAttributes(PNFSID);
+        queue.offer(first, true);
+        queue.offer(second, true);
+
+        assertThat(queue.size(), equalTo(1));
+        assertThat(queue.attached(), equalTo(1));
+
+        FoldingQueue.Entry entry = process(queue.take());
+        queue.fold(entry, true, replies::add);
+
+        assertThat(replies, contains(sameInstance(second)));
+        assertThat(queue.isEmpty(), equalTo(true));
+        assertThat(queue.attached(), equalTo(0));
+    }
+
+    @Test
+    public void shouldRequeueAttachedRequestIfProcessingFailed() throws Exception {
+        CellMessage first = getAttributes(PNFSID);
+        CellMessage second = getAttributes(PNFSID);
+        queue.offer(first, true);
+        queue.offer(second, true);
+
+        FoldingQueue.Entry entry = queue.take();
+        queue.fold(entry, false, replies::add);
+
+        assertThat(replies, empty());
+        assertThat(queue.take().getEnvelope(), sameInstance(second));
+    }
+
+    @Test
+    public void shouldNotFoldAcrossInvalidatingRequest() throws Exception {
+        CellMessage first = getAttributes(PNFSID);
+        CellMessage update = envelope(new PnfsSetFileAttributes(PNFSID, FileAttributes.ofSize(2)));
+        CellMessage second = getAttributes(PNFSID);
+        queue.offer(first, true);
+        queue.offer(update, true);
+        queue.offer(second, true);
+
+        assertThat(queue.attached(), equalTo(0));
+
+        FoldingQueue.Entry entry = process(queue.take());
+        queue.fold(entry, true, replies::add);
+
+        assertThat(replies, empty());
+        assertThat(queue.take().getEnvelope(), sameInstance(update));
+        assertThat(queue.take().getEnvelope(), sameInstance(second));
+    }
+
+    @Test
+    public void shouldNotFoldRequestsOfDifferentSubjects() throws Exception {
+        CellMessage first = getAttributes(PNFSID);
+        CellMessage second = getAttributes(PNFSID);
+        ((PnfsMessage) second.getMessageObject()).setSubject(new Subject());
+        queue.offer(first, true);
+        queue.offer(second, true);
+
+        FoldingQueue.Entry entry = process(queue.take());
+        queue.fold(entry, true, replies::add);
+
+        assertThat(replies, empty());
+        assertThat(queue.take().getEnvelope(), sameInstance(second));
+    }
+
+    @Test
+    public void shouldRejectWhenFull() {
+        FoldingQueue bounded = new FoldingQueue(1);
+
+        assertThat(bounded.offer(getAttributes(PNFSID), false), equalTo(true));
+        assertThat(bounded.offer(getAttributes(OTHER_PNFSID), false), equalTo(false));
+        assertThat(bounded.offer(getAttributes(PNFSID), true), equalTo(true));
+        assertThat(bounded.toList().size(), equalTo(2));
+    }
+}
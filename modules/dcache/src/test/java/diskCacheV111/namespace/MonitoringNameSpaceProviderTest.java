@@ -281,6 +281,37 @@ public class MonitoringNameSpaceProviderTest {
         verify(receiver, never()).notifyMovedEvent(any(), any(), any(), any(), any());
     }
 
+    @Test
+    public void shouldNotifyOnListAfter() throws Exception {
+        ListHandler handler = mock(ListHandler.class);
+        PnfsId parent = new PnfsId("000000000000000000000000000000000001");
+        PnfsId target = new PnfsId("000000000000000000000000000000000002");
+        given(inner.pathToPnfsid(any(), eq("/foo"), anyBoolean())).willReturn(target);
+        willAnswer(i -> {
+            ListHandler h = i.getArgument(6, ListHandler.class);
+            h.addEntry("bar-2", new FileAttributes());
+            return null;
+        }).given(inner).listAfter(any(), eq("/foo"), any(), any(), any(), any(), any());
+        given(inner.find(any(), eq(target))).willReturn(singleLink(parent, "foo"));
+
+        monitor.listAfter(TEST_USER, "/foo", null, "bar-1", Range.all(),
+              EnumSet.noneOf(FileAttribute.class), handler);
+
+        verify(inner).listAfter(eq(TEST_USER), eq("/foo"), eq(null), eq("bar-1"), eq(Range.all()),
+              any(), any());
+        verify(handler).addEntry(eq("bar-2"), any());
+        InOrder childEvents = inOrder(receiver);
+        childEvents.verify(receiver)
+              .notifyChildEvent(EventType.IN_OPEN, parent, "foo", FileType.DIR);
+        childEvents.verify(receiver)
+              .notifyChildEvent(EventType.IN_CLOSE_NOWRITE, parent, "foo", FileType.DIR);
+        InOrder dirEvents = inOrder(receiver);
+        dirEvents.verify(receiver).notifySelfEvent(EventType.IN_OPEN, target, FileType.DIR);
+        dirEvents.verify(receiver)
+              .notifySelfEvent(EventType.IN_CLOSE_NOWRITE, target, FileType.DIR);
+        verify(receiver, never()).notifyMovedEvent(any(), any(), any(), any(), any());
+    }
+
     @Test
     public void shouldNotNotifyOnUnsuccessfulList() throws Exception {
         ListHandler handler = mock(ListHandler.class);
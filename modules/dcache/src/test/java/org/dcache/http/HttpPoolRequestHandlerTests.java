@@ -329,6 +329,75 @@ public class HttpPoolRequestHandlerTests {
         assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
     }
 
+    @Test
+    public void shouldDeliverCompleteFileAsFileRegionIfZeroCopyEnabled() throws Exception {
+        givenZeroCopyEnabled();
+        givenPoolHas(file("/path/to/file").withSize(100));
+        givenDoorHasOrganisedReadOf(file("/path/to/file").with(SOME_UUID));
+        givenReplicaIsOnLocalFileSystem(SOME_UUID);
+
+        whenClientMakes(a(GET).
+              forUri("/path/to/file?dcache-http-uuid=" + SOME_UUID));
+
+        assertThat(_response.status(), is(OK));
+        assertThat(_response, hasHeader(CONTENT_LENGTH, "100"));
+
+        assertThat(_additionalWrites, hasSize(2));
+        assertThat(_additionalWrites.get(0), isFileRegion("/path/to/file", 0, 99));
+        assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
+    }
+
+    @Test
+    public void shouldDeliverPartialFileAsFileRegionIfZeroCopyEnabled() throws Exception {
+        givenZeroCopyEnabled();
+        givenPoolHas(file("/path/to/file").withSize(1024));
+        givenDoorHasOrganisedReadOf(file("/path/to/file").with(SOME_UUID));
+        givenReplicaIsOnLocalFileSystem(SOME_UUID);
+
+        whenClientMakes(a(GET).withHeader("Range", "bytes=100-499").
+              forUri("/path/to/file?dcache-http-uuid=" + SOME_UUID));
+
+        assertThat(_response.status(), is(PARTIAL_CONTENT));
+        assertThat(_response, hasHeader(CONTENT_LENGTH, "400"));
+
+        assertThat(_additionalWrites, hasSize(2));
+        assertThat(_additionalWrites.get(0), isFileRegion("/path/to/file", 100, 499));
+        assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
+    }
+
+    @Test
+    public void shouldDeliverChunkedIfZeroCopyEnabledButReplicaNotOnLocalFileSystem()
+          throws Exception {
+        givenZeroCopyEnabled();
+        givenPoolHas(file("/path/to/file").withSize(100));
+        givenDoorHasOrganisedReadOf(file("/path/to/file").with(SOME_UUID));
+
+        whenClientMakes(a(GET).
+              forUri("/path/to/file?dcache-http-uuid=" + SOME_UUID));
+
+        assertThat(_response.status(), is(OK));
+
+        assertThat(_additionalWrites, hasSize(2));
+        assertThat(_additionalWrites.get(0), isCompleteRead("/path/to/file"));
+        assertThat(_additionalWrites.get(1), instanceOf(LastHttpContent.class));
+    }
+
+    @Test
+    public void shouldDeliverChunkedIfZeroCopyEnabledButMultipleRanges() throws Exception {
+        givenZeroCopyEnabled();
+        givenPoolHas(file("/path/to/file").withSize(1024));
+        givenDoorHasOrganisedReadOf(file("/path/to/file").with(SOME_UUID));
+        givenReplicaIsOnLocalFileSystem(SOME_UUID);
+
+        whenClientMakes(a(GET).withHeader("Range", "bytes=0-0,-1").
+              forUri("/path/to/file?dcache-http-uuid=" + SOME_UUID));
+
+        assertThat(_response.status(), is(PARTIAL_CONTENT));
+        assertThat(_additionalWrites, hasSize(5));
+        assertThat(_additionalWrites.get(1), isPartialRead("/path/to/file", 0, 0));
+        assertThat(_additionalWrites.get(3), isPartialRead("/path/to/file", 1023, 1023));
+    }
+
     @Test
     public void shouldDeliverAvailableDataIfReceivesRequestWithSingleRangeButTooBig()
           throws Exception {
@@ -524,6 +593,18 @@ public class HttpPoolRequestHandlerTests {
         given(_server.openFile(eq(file.getUuid()), anyBoolean())).willReturn(channel);
     }
 
+    private void givenZeroCopyEnabled() {
+        _handler = new HttpPoolRequestHandler(_server, SOME_CHUNK_SIZE, true);
+        _channel = new EmbeddedChannel(_handler);
+    }
+
+    private void givenReplicaIsOnLocalFileSystem(UUID uuid) {
+        NettyTransferService<HttpProtocolInfo>.NettyMoverChannel channel =
+              _server.openFile(uuid, false);
+        given(channel.optionallyAs(FileRepositoryChannel.class))
+              .willReturn(Optional.of(mock(FileRepositoryChannel.class)));
+    }
+
     private void givenDoorHasOrganisedWriteOf(final FileInfo file)
           throws URISyntaxException, IOException {
         String path = file.getPath();
@@ -860,6 +941,53 @@ public class HttpPoolRequestHandlerTests {
         }
     }
 
+    private FileRegionMatcher isFileRegion(String path, long lower, long upper) {
+        return new FileRegionMatcher(path, lower, upper);
+    }
+
+    /**
+     * This class provides a Matcher for assertThat statements.  It checks whether one of the
+     * written objects is a zero-copy region of the specified file.
+     */
+    private static class FileRegionMatcher extends BaseMatcher<Object> {
+
+        private final long _lower;
+        private final long _upper;
+        private final String _path;
+
+        public FileRegionMatcher(String path, long lower, long upper) {
+            _lower = lower;
+            _upper = upper;
+            _path = path;
+        }
+
+        @Override
+        public boolean matches(Object o) {
+            if (!(o instanceof RepositoryChannelFileRegion)) {
+                return false;
+            }
+
+            RepositoryChannelFileRegion region = (RepositoryChannelFileRegion) o;
+
+            NettyTransferService<HttpProtocolInfo>.NettyMoverChannel channel =
+                  (NettyTransferService<HttpProtocolInfo>.NettyMoverChannel) region.getChannel();
+
+            if (!_path.equals(channel.getProtocolInfo().getPath())) {
+                return false;
+            }
+
+            return region.position() == _lower && region.count() == _upper - _lower + 1;
+        }
+
+        @Override
+        public void describeTo(Description d) {
+            d.appendText("match a file region from ");
+            d.appendValue(_lower);
+            d.appendText(" to ");
+            d.appendValue(_upper);
+        }
+    }
+
     private MultipartMatcher isMultipart() {
         return new MultipartMatcher();
     }
@@ -0,0 +1,157 @@
+package org.dcache.pool.classic;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.util.concurrent.RateLimiter;
+import diskCacheV111.util.PnfsId;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.dcache.pool.repository.ReplicaDescriptor;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChecksumScannerTest {
+
+    private static final long FILE_SIZE = 2500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<PnfsId> verified = Collections.synchronizedList(new ArrayList<>());
+    private final List<RateLimiter> limiters = Collections.synchronizedList(new ArrayList<>());
+    private final Map<ReplicaDescriptor, PnfsId> handles = new ConcurrentHashMap<>();
+
+    private Repository repository;
+    private ChecksumModuleV1 csm;
+    private ChecksumScanner scanner;
+    private File stateFile;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = mock(Repository.class);
+        given(repository.waitForLoad()).willReturn(CompletableFuture.completedFuture(null));
+
+        csm = mock(ChecksumModuleV1.class);
+        given(csm.isScrubEnabled()).willReturn(true);
+        given(csm.getScrubPeriod()).willReturn(TimeUnit.DAYS.toMillis(1));
+        given(csm.getThroughputLimit()).willReturn(Double.POSITIVE_INFINITY);
+        given(csm.verifyChecksum(any(ReplicaDescriptor.class))).willAnswer(invocation -> {
+            verified.add(handles.get(invocation.<ReplicaDescriptor>getArgument(0)));
+            return Collections.emptyList();
+        });
+        given(csm.verifyChecksum(any(ReplicaDescriptor.class), any(RateLimiter.class)))
+              .willAnswer(invocation -> {
+                  ReplicaDescriptor handle = invocation.getArgument(0);
+                  RateLimiter limiter = invocation.getArgument(1);
+                  limiters.add(limiter);
+                  limiter.acquire((int) handle.getReplicaSize());
+                  verified.add(handles.get(handle));
+                  return Collections.emptyList();
+              });
+
+        stateFile = new File(folder.getRoot(), "scrubber.state");
+        scanner = new ChecksumScanner();
+        scanner.setRepository(repository);
+        scanner.setChecksumModule(csm);
+        scanner.setScrubberStateFile(stateFile);
+        scanner.setPoolName("pool");
+    }
+
+    @After
+    public void tearDown() {
+        scanner.beforeStop();
+    }
+
+    @Test
+    public void shouldResumeAfterCheckpointedFile() throws Exception {
+        PnfsId[] ids = givenReplicas(4);
+        Files.write(stateFile.toPath(),
+              (System.currentTimeMillis() + " " + ids[1]).getBytes(StandardCharsets.UTF_8));
+
+        scanner.afterStart();
+
+        verify(csm, timeout(5000).times(2)).verifyChecksum(any(ReplicaDescriptor.class));
+        assertThat(verified, contains(ids[2], ids[3]));
+        verify(repository, never()).openEntry(eq(ids[0]), any());
+        verify(repository, never()).openEntry(eq(ids[1]), any());
+    }
+
+    @Test
+    public void shouldScanAllFilesWithoutCheckpoint() throws Exception {
+        PnfsId[] ids = givenReplicas(3);
+        scanner.setScrubberThreads(2);
+
+        scanner.afterStart();
+
+        verify(csm, timeout(5000).times(3)).verifyChecksum(any(ReplicaDescriptor.class));
+        assertThat(verified, containsInAnyOrder(ids));
+    }
+
+    @Test
+    public void shouldShareRateLimitAcrossThreads() throws Exception {
+        givenReplicas(8);
+        double bytesPerSecond = 4 * FILE_SIZE;
+        given(csm.getThroughputLimit()).willReturn(bytesPerSecond);
+        scanner.setScrubberThreads(4);
+
+        long start = System.nanoTime();
+        scanner.afterStart();
+
+        for (ReplicaDescriptor handle : handles.keySet()) {
+            verify(handle, timeout(10_000)).close();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        /* The first file is read without waiting; all other bytes are limited to the rate. */
+        long expected = (long) (7 * FILE_SIZE / bytesPerSecond * 1000);
+        assertThat(elapsed, is(greaterThanOrEqualTo(expected - 100)));
+        assertThat(limiters, hasSize(8));
+        for (RateLimiter limiter : limiters) {
+            assertThat(limiter, is(sameInstance(limiters.get(0))));
+        }
+        verify(csm, never()).verifyChecksum(any(ReplicaDescriptor.class));
+    }
+
+    private PnfsId[] givenReplicas(int count) throws Exception {
+        PnfsId[] ids = new PnfsId[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = new PnfsId(String.format("%036X", i + 1));
+            ReplicaDescriptor handle = mock(ReplicaDescriptor.class);
+            handles.put(handle, ids[i]);
+            given(handle.getReplicaSize()).willReturn(FILE_SIZE);
+            given(repository.getState(ids[i])).willReturn(ReplicaState.CACHED);
+            given(repository.openEntry(eq(ids[i]), any())).willReturn(handle);
+        }
+        List<PnfsId> shuffled = new ArrayList<>(Arrays.asList(ids));
+        Collections.reverse(shuffled);
+        given(repository.iterator()).willAnswer(invocation -> shuffled.iterator());
+        return ids;
+    }
+}
@@ -0,0 +1,183 @@
+package org.dcache.pool.classic;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.dcache.pool.classic.SegmentedLruQueue.Policy;
+import org.junit.Test;
+
+public class SegmentedLruQueueTest {
+
+    @Test
+    public void shouldOrderByTime() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.LRU, 0.8);
+
+        queue.add("b", 20);
+        queue.add("c", 30);
+        queue.add("a", 10);
+
+        assertThat(queue.values(), contains("a", "b", "c"));
+        assertThat(queue.getEldestTime(), is(10L));
+    }
+
+    @Test
+    public void shouldNotAddTwice() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.8);
+
+        assertThat(queue.add("a", 10), is(true));
+        assertThat(queue.add("a", 20), is(false));
+
+        assertThat(queue.size(), is(1));
+        assertThat(queue.timeOf("a").getAsLong(), is(10L));
+    }
+
+    @Test
+    public void shouldRemove() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.8);
+        queue.add("a", 10);
+        queue.add("b", 20);
+        queue.access("a", 30);
+
+        assertThat(queue.remove("a"), is(true));
+        assertThat(queue.remove("a"), is(false));
+
+        assertThat(queue.values(), contains("b"));
+        assertThat(queue.protectedSize(), is(0));
+    }
+
+    @Test
+    public void shouldReorderOnAccessWithLru() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.LRU, 0.8);
+        queue.add("a", 10);
+        queue.add("b", 20);
+
+        queue.access("a", 30);
+
+        assertThat(queue.values(), contains("b", "a"));
+        assertThat(queue.protectedSize(), is(0));
+    }
+
+    @Test
+    public void shouldIgnoreAccessOfUnknownKey() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.8);
+
+        assertThat(queue.access("a", 30), is(false));
+        assertThat(queue.values(), is(emptyIterable()));
+    }
+
+    @Test
+    public void shouldEvictProbationBeforeProtected() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.5);
+        queue.add("hot", 10);
+        queue.add("a", 20);
+        queue.add("b", 30);
+        queue.add("c", 40);
+
+        queue.access("hot", 50);
+        queue.add("oneshot", 60);
+
+        assertThat(queue.values(), contains("a", "b", "c", "oneshot", "hot"));
+        assertThat(queue.getEldestTime(), is(20L));
+    }
+
+    @Test
+    public void shouldDemoteEldestProtectedWhenFull() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.5);
+        queue.add("a", 10);
+        queue.add("b", 20);
+        queue.add("c", 30);
+        queue.add("d", 40);
+
+        queue.access("a", 50);
+        queue.access("b", 60);
+        queue.access("c", 70);
+
+        assertThat(queue.protectedSize(), is(2));
+        assertThat(queue.values(), contains("d", "a", "b", "c"));
+    }
+
+    @Test
+    public void shouldDemoteAllWhenSwitchingToLru() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.8);
+        queue.add("a", 10);
+        queue.add("b", 20);
+        queue.access("a", 30);
+
+        queue.setPolicy(Policy.LRU, 0.8);
+
+        assertThat(queue.protectedSize(), is(0));
+        assertThat(queue.values(), contains("b", "a"));
+    }
+
+    @Test
+    public void shouldOnlyDisplaceLessFrequentWithTinyLfu() {
+        SegmentedLruQueue<String> queue = new SegmentedLruQueue<>(Policy.TINYLFU, 0.25);
+        queue.add("hot", 10);
+        queue.add("a", 20);
+        queue.add("b", 30);
+        queue.add("c", 40);
+        for (int i = 0; i < 5; i++) {
+            queue.access("hot", 50 + i);
+        }
+
+        queue.access("a", 100);
+
+        assertThat(queue.protectedSize(), is(1));
+        assertThat(queue.values(), contains("b", "c", "a", "hot"));
+
+        for (int i = 0; i < 10; i++) {
+            queue.access("b", 200 + i);
+        }
+
+        assertThat(queue.protectedSize(), is(1));
+        assertThat(queue.values(), contains("c", "hot", "a", "b"));
+    }
+
+    @Test
+    public void shouldStayConsistentUnderConcurrentUpdates() throws Exception {
+        SegmentedLruQueue<Integer> queue = new SegmentedLruQueue<>(Policy.SLRU, 0.5);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        int key = (i * 4 + thread) % 1000;
+                        switch (i % 3) {
+                            case 0:
+                                queue.add(key, i);
+                                break;
+                            case 1:
+                                queue.access(key, i);
+                                break;
+                            default:
+                                queue.remove(key);
+                                break;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int count = 0;
+        for (Integer ignored : queue.values()) {
+            count++;
+        }
+        assertThat(count, equalTo(queue.size()));
+        assertThat(queue.probationSize() + queue.protectedSize(), equalTo(count));
+    }
+}
@@ -0,0 +1,108 @@
+package org.dcache.pool.classic;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import diskCacheV111.util.PnfsId;
+import org.dcache.pool.repository.CacheEntry;
+import org.dcache.pool.repository.EntryChangeEvent;
+import org.dcache.pool.repository.ReplicaState;
+import org.dcache.pool.repository.Repository;
+import org.dcache.pool.repository.StateChangeEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class SegmentedLruSpaceSweeperTest {
+
+    private static final PnfsId A = new PnfsId("000000000000000000000000000000000001");
+    private static final PnfsId B = new PnfsId("000000000000000000000000000000000002");
+    private static final PnfsId C = new PnfsId("000000000000000000000000000000000003");
+    private static final PnfsId D = new PnfsId("000000000000000000000000000000000004");
+
+    private Repository repository;
+    private SegmentedLruSpaceSweeper sweeper;
+
+    @Before
+    public void setUp() {
+        repository = mock(Repository.class);
+        sweeper = new SegmentedLruSpaceSweeper();
+        sweeper.setRepository(repository);
+    }
+
+    @Test
+    public void shouldEvictInOrderOfAccess() throws Exception {
+        cached(A, 10);
+        cached(B, 20);
+        cached(C, 30);
+
+        sweeper.reclaim(200, "test");
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).setState(eq(A), eq(ReplicaState.REMOVED), anyString());
+        order.verify(repository).setState(eq(B), eq(ReplicaState.REMOVED), anyString());
+        verify(repository, never()).setState(eq(C), any(), anyString());
+    }
+
+    @Test
+    public void shouldEvictPromotedReplicaLast() throws Exception {
+        CacheEntry a = cached(A, 10);
+        cached(B, 20);
+        cached(C, 30);
+
+        read(a, 40);
+        cached(D, 50);
+
+        assertThat(sweeper.values(), contains(B, C, D, A));
+        sweeper.reclaim(400, "test");
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).setState(eq(B), eq(ReplicaState.REMOVED), anyString());
+        order.verify(repository).setState(eq(C), eq(ReplicaState.REMOVED), anyString());
+        order.verify(repository).setState(eq(D), eq(ReplicaState.REMOVED), anyString());
+        order.verify(repository).setState(eq(A), eq(ReplicaState.REMOVED), anyString());
+    }
+
+    @Test
+    public void shouldSkipReplicasInUse() throws Exception {
+        CacheEntry a = cached(A, 10);
+        cached(B, 20);
+        given(a.getLinkCount()).willReturn(1);
+
+        assertThat(sweeper.reclaim(100, "test"), is(100L));
+
+        verify(repository, never()).setState(eq(A), any(), anyString());
+        verify(repository).setState(eq(B), eq(ReplicaState.REMOVED), anyString());
+    }
+
+    private CacheEntry cached(PnfsId id, long accessTime) throws Exception {
+        CacheEntry entry = entry(id, accessTime);
+        given(repository.getEntry(id)).willReturn(entry);
+        sweeper.stateChanged(new StateChangeEvent("test", entry, entry,
+              ReplicaState.FROM_CLIENT, ReplicaState.CACHED));
+        return entry;
+    }
+
+    private void read(CacheEntry entry, long accessTime) {
+        CacheEntry accessed = entry(entry.getPnfsId(), accessTime);
+        sweeper.accessTimeChanged(new EntryChangeEvent("test", entry, accessed));
+    }
+
+    private static CacheEntry entry(PnfsId id, long accessTime) {
+        CacheEntry entry = mock(CacheEntry.class);
+        given(entry.getPnfsId()).willReturn(id);
+        given(entry.getState()).willReturn(ReplicaState.CACHED);
+        given(entry.getLastAccessTime()).willReturn(accessTime);
+        given(entry.getReplicaSize()).willReturn(100L);
+        return entry;
+    }
+}
@@ -0,0 +1,71 @@
+package org.dcache.pool.classic;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.dcache.pool.repository.FileRepositoryChannel;
+import org.dcache.pool.repository.FileStore;
+import org.dcache.pool.repository.RepositoryChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedAdler32Test {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private Path file;
+    private byte[] data;
+    private RepositoryChannel channel;
+
+    @Before
+    public void setUp() throws IOException {
+        data = new byte[1_000_003];
+        new Random(7).nextBytes(data);
+        file = Files.createTempFile("StripedAdler32Test", ".tmp");
+        Files.write(file, data);
+        channel = new FileRepositoryChannel(file, FileStore.O_READ);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        channel.close();
+        Files.delete(file);
+    }
+
+    @Test
+    public void shouldMatchSequentialChecksum() throws Exception {
+        StripedAdler32 striped = new StripedAdler32(executor);
+
+        for (int stripes = 1; stripes <= 7; stripes++) {
+            assertThat(striped.compute(channel, data.length, stripes), equalTo(adler32(data)));
+        }
+    }
+
+    @Test
+    public void shouldHandleEmptyFile() throws Exception {
+        StripedAdler32 striped = new StripedAdler32(executor);
+
+        assertThat(striped.compute(channel, 0, 4), equalTo(1L));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfFileIsShorterThanExpected() throws Exception {
+        StripedAdler32 striped = new StripedAdler32(executor);
+
+        striped.compute(channel, data.length + 100, 4);
+    }
+
+    private static long adler32(byte[] data) {
+        java.util.zip.Adler32 adler = new java.util.zip.Adler32();
+        adler.update(data);
+        return adler.getValue();
+    }
+}
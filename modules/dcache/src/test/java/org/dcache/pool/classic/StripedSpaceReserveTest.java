@@ -0,0 +1,172 @@
+package org.dcache.pool.classic;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import diskCacheV111.util.PnfsId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.dcache.pool.repository.Account;
+import org.dcache.pool.repository.OutOfDiskException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedSpaceReserveTest {
+
+    private static final PnfsId ID = new PnfsId("000000000000000000000000000000000000");
+
+    private Account account;
+    private StripedSpaceReserve reserve;
+
+    @Before
+    public void setUp() {
+        account = new Account();
+        reserve = new StripedSpaceReserve(account);
+    }
+
+    @Test
+    public void shouldAllocateFromAccountWithoutLeases() throws Exception {
+        account.setTotal(1000);
+        reserve.setLeaseSize(0);
+
+        new BlockingAllocator(account, reserve).allocate(ID, 100);
+
+        assertThat(account.getUsed(), is(equalTo(100L)));
+        assertThat(reserve.getReserved(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void shouldServeAllocationsFromLease() throws Exception {
+        account.setTotal(1_000_000);
+        reserve.setLeaseSize(1000);
+        BlockingAllocator allocator = new BlockingAllocator(account, reserve);
+
+        allocator.allocate(ID, 100);
+        allocator.allocate(ID, 100);
+
+        assertThat(account.getUsed(), is(equalTo(1000L)));
+        assertThat(reserve.getReserved(), is(equalTo(800L)));
+    }
+
+    @Test
+    public void shouldReturnLeasesWhenNearFull() throws Exception {
+        account.setTotal(1000);
+        reserve.setLeaseSize(10);
+        BlockingAllocator allocator = new BlockingAllocator(account, reserve);
+
+        allocator.allocate(ID, 1);
+        allocator.allocate(ID, 990);
+
+        assertThat(reserve.getReserved(), is(equalTo(0L)));
+        assertThat(account.getUsed(), is(equalTo(991L)));
+    }
+
+    @Test
+    public void shouldReturnIdleLeases() throws Exception {
+        account.setTotal(1_000_000);
+        reserve.setLeaseSize(1000);
+        BlockingAllocator allocator = new BlockingAllocator(account, reserve);
+        allocator.allocate(ID, 100);
+
+        reserve.releaseIdle();
+        assertThat(reserve.getReserved(), is(equalTo(900L)));
+
+        reserve.releaseIdle();
+        assertThat(reserve.getReserved(), is(equalTo(0L)));
+        assertThat(account.getUsed(), is(equalTo(100L)));
+    }
+
+    @Test
+    public void shouldKeepLeasesInUse() throws Exception {
+        account.setTotal(1_000_000);
+        reserve.setLeaseSize(1000);
+        BlockingAllocator allocator = new BlockingAllocator(account, reserve);
+        allocator.allocate(ID, 100);
+
+        reserve.releaseIdle();
+        allocator.allocate(ID, 100);
+        reserve.releaseIdle();
+
+        assertThat(reserve.getReserved(), is(equalTo(800L)));
+        assertThat(account.getUsed(), is(equalTo(1000L)));
+    }
+
+    @Test
+    public void shouldFailImmediatelyWhenFull() throws Exception {
+        account.setTotal(1000);
+        reserve.setLeaseSize(10);
+
+        try {
+            new ImmediateAllocator(account, reserve).allocate(ID, 1001);
+            fail("OutOfDiskException expected");
+        } catch (OutOfDiskException expected) {
+        }
+        assertThat(account.getUsed(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void shouldFailImmediatelyBehindBlockedAllocation() throws Exception {
+        account.setTotal(1000);
+        reserve.setLeaseSize(0);
+        BlockingAllocator allocator = new BlockingAllocator(account, reserve);
+        allocator.allocate(ID, 1000);
+
+        Thread blocked = new Thread(() -> {
+            try {
+                allocator.allocate(ID, 100);
+            } catch (InterruptedException | OutOfDiskException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        blocked.start();
+        while (blocked.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+
+        try {
+            new ImmediateAllocator(account, reserve).allocate(ID, 1);
+            fail("OutOfDiskException expected");
+        } catch (OutOfDiskException expected) {
+        }
+
+        allocator.free(ID, 1000);
+        blocked.join();
+        assertThat(account.getUsed(), is(equalTo(100L)));
+    }
+
+    @Test
+    public void shouldServeQueuedAllocationsAfterFree() throws Exception {
+        account.setTotal(1000);
+        reserve.setLeaseSize(0);
+        BlockingAllocator allocator = new BlockingAllocator(account, reserve);
+        allocator.allocate(ID, 1000);
+
+        CountDownLatch done = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    allocator.allocate(ID, 250);
+                    done.countDown();
+                } catch (InterruptedException | OutOfDiskException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        assertThat(done.await(100, TimeUnit.MILLISECONDS), is(false));
+        allocator.free(ID, 1000);
+
+        assertThat(done.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(account.getUsed(), is(equalTo(1000L)));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
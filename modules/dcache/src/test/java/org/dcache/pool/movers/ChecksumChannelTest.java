@@ -7,6 +7,7 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -28,7 +29,10 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.dcache.pool.repository.FileRepositoryChannel;
 import org.dcache.pool.repository.FileStore;
 import org.dcache.pool.repository.RepositoryChannel;
@@ -52,6 +56,8 @@ public class ChecksumChannelTest {
 
     private Path testFile;
 
+    private final ExecutorService digestExecutor = Executors.newFixedThreadPool(2);
+
     @Before
     public void setUp() throws NoSuchAlgorithmException, IOException {
         testFile = Files.createTempFile("ChecksumChannelTest", ".tmp");
@@ -69,6 +75,7 @@ public class ChecksumChannelTest {
 
     @After
     public void tearDown() throws IOException {
+        digestExecutor.shutdown();
         chksumChannel.close();
         Files.delete(testFile);
     }
@@ -318,6 +325,72 @@ public class ChecksumChannelTest {
         assertThat(chksumChannel.getChecksums(), contains(expectedChecksum));
     }
 
+    @Test
+    public void shouldSucceedIfPipelinedAndWrittenInOrder() throws IOException {
+        givenPipelinedChannel(EnumSet.of(ChecksumType.MD5_TYPE));
+
+        for (int block = 0; block < blockcount; block++) {
+            chksumChannel.write(buffers[block], block * blocksize);
+        }
+
+        assertThat(chksumChannel.getChecksums(), contains(expectedChecksum));
+    }
+
+    @Test
+    public void shouldSucceedIfPipelinedAndWrittenOutOfOrder() throws IOException {
+        givenPipelinedChannel(EnumSet.of(ChecksumType.MD5_TYPE));
+
+        int[] blockorder = getRandomPermutationOfBlockOrder();
+        for (int i = 0; i < blockcount; i++) {
+            chksumChannel.write(buffers[blockorder[i]], blockorder[i] * blocksize);
+        }
+
+        assertThat(chksumChannel.getChecksums(), contains(expectedChecksum));
+    }
+
+    @Test
+    public void shouldComputeAllTypesIfPipelined() throws IOException {
+        givenPipelinedChannel(EnumSet.of(ChecksumType.MD5_TYPE, ChecksumType.ADLER32));
+
+        for (int block = 0; block < blockcount; block++) {
+            chksumChannel.write(buffers[block], block * blocksize);
+        }
+
+        assertThat(chksumChannel.getChecksums(), containsInAnyOrder(expectedChecksum,
+              ChecksumType.ADLER32.calculate(data)));
+    }
+
+    @Test
+    public void shouldFillUpRangeGapsWithZerosIfPipelined() throws IOException {
+        givenPipelinedChannel(EnumSet.of(ChecksumType.MD5_TYPE));
+
+        Map<Long, ByteBuffer> nonZeroBlocksFromByteArray = getNonZeroBlocksFromByteArray(data);
+        for (Long position : nonZeroBlocksFromByteArray.keySet()) {
+            chksumChannel.write(nonZeroBlocksFromByteArray.get(position), position);
+        }
+
+        assertThat(chksumChannel.getChecksums(), contains(expectedChecksum));
+    }
+
+    @Test
+    public void shouldNotUseCallerBufferAfterWriteIfPipelined() throws IOException {
+        givenPipelinedChannel(EnumSet.of(ChecksumType.MD5_TYPE));
+
+        ByteBuffer buffer = ByteBuffer.wrap(data.clone());
+        chksumChannel.write(buffer, 0);
+        Arrays.fill(buffer.array(), (byte) 0);
+
+        assertThat(chksumChannel.getChecksums(), contains(expectedChecksum));
+    }
+
+    private void givenPipelinedChannel(Set<ChecksumType> types) throws IOException {
+        chksumChannel.close();
+        RepositoryChannel repositoryChannel = new FileRepositoryChannel(testFile, FileStore.O_RW);
+        chksumChannel = new ChecksumChannel(repositoryChannel, types, digestExecutor);
+        chksumChannel._readBackBuffer = ByteBuffer.allocate(2);
+        chksumChannel._zerosBuffer = ByteBuffer.allocate(1);
+    }
+
     private Map<Long, ByteBuffer> getNonZeroBlocksFromByteArray(byte[] bytes) {
         Map<Long, ByteBuffer> result = new TreeMap<>();
         for (int position = 0; position < bytes.length; position++) {
@@ -0,0 +1,182 @@
+package org.dcache.pool.nearline.coprocess;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.Futures;
+import diskCacheV111.util.CacheException;
+import diskCacheV111.vehicles.GenericStorageInfo;
+import diskCacheV111.vehicles.StorageInfo;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import org.dcache.pool.nearline.spi.FlushRequest;
+import org.dcache.pool.nearline.spi.RemoveRequest;
+import org.dcache.vehicles.FileAttributes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoprocessNearlineStorageTest {
+
+    /**
+     * Helper answering every request except cancellations with a location derived from the id.
+     */
+    private static final String ECHO_HELPER = "#!/bin/sh\n"
+          + "while read line; do\n"
+          + "  id=$(echo \"$line\" | sed -n 's/.*\"id\":\"\\([^\"]*\\)\".*/\\1/p')\n"
+          + "  case \"$line\" in *'\"cancel\"'*) continue;; esac\n"
+          + "  echo \"{\\\"id\\\":\\\"$id\\\",\\\"status\\\":\\\"ok\\\","
+          + "\\\"locations\\\":[\\\"osm://osm/?bfid=$id\\\"]}\"\n"
+          + "done\n";
+
+    /**
+     * Helper that never answers.
+     */
+    private static final String SILENT_HELPER = "#!/bin/sh\nexec cat > /dev/null\n";
+
+    /**
+     * Helper that fails after reading one request.
+     */
+    private static final String CRASHING_HELPER = "#!/bin/sh\nread line\nexit 3\n";
+
+    private CoprocessNearlineStorage storage;
+    private Path script;
+
+    @Before
+    public void setup() throws IOException {
+        script = Files.createTempFile("coprocess", ".sh",
+              PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        storage = new CoprocessNearlineStorage("osm", "osm");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        storage.shutdown();
+        Files.deleteIfExists(script);
+    }
+
+    private void configure(String helper, String window) throws IOException {
+        Files.write(script, helper.getBytes(US_ASCII));
+        Map<String, String> properties = new HashMap<>();
+        properties.put("command", script.toString());
+        properties.put("c:window", window);
+        properties.put("tape", "lto9");
+        storage.configure(properties);
+    }
+
+    @Test
+    public void shouldPassOptionsToHelper() throws IOException {
+        configure(SILENT_HELPER, "10");
+
+        assertThat(storage.getCommand(), contains(script.toString(), "-tape=lto9"));
+    }
+
+    @Test
+    public void shouldCompleteFlushWithLocationsFromHelper() throws Exception {
+        configure(ECHO_HELPER, "10");
+        FlushRequest first = createFlushRequest();
+        FlushRequest second = createFlushRequest();
+
+        storage.flush(Arrays.asList(first, second));
+
+        verify(first, timeout(5000)).completed(
+              Collections.singleton(URI.create("osm://osm/?bfid=" + first.getId())));
+        verify(second, timeout(5000)).completed(
+              Collections.singleton(URI.create("osm://osm/?bfid=" + second.getId())));
+    }
+
+    @Test
+    public void shouldCompleteRemove() throws Exception {
+        configure(ECHO_HELPER, "10");
+        RemoveRequest request = mock(RemoveRequest.class);
+        when(request.getId()).thenReturn(UUID.randomUUID());
+        when(request.getDeadline()).thenReturn(Long.MAX_VALUE);
+        when(request.getUri()).thenReturn(URI.create("osm://osm/?bfid=1"));
+        when(request.activate()).thenReturn(Futures.immediateFuture(null));
+
+        storage.remove(Collections.singleton(request));
+
+        verify(request, timeout(5000)).completed(null);
+    }
+
+    @Test
+    public void shouldNotActivateMoreRequestsThanWindow() throws Exception {
+        configure(SILENT_HELPER, "1");
+        FlushRequest first = createFlushRequest();
+        FlushRequest second = createFlushRequest();
+
+        storage.flush(Arrays.asList(first, second));
+
+        verify(first).activate();
+        verify(second, never()).activate();
+    }
+
+    @Test
+    public void shouldCancelQueuedRequestWithoutActivatingIt() throws Exception {
+        configure(SILENT_HELPER, "1");
+        FlushRequest first = createFlushRequest();
+        FlushRequest second = createFlushRequest();
+        storage.flush(Arrays.asList(first, second));
+
+        storage.cancel(second.getId());
+
+        verify(second).failed(any(CancellationException.class));
+        verify(second, never()).activate();
+    }
+
+    @Test
+    public void shouldFailRequestsWhenHelperTerminates() throws Exception {
+        configure(CRASHING_HELPER, "10");
+        FlushRequest request = createFlushRequest();
+
+        storage.flush(Collections.singleton(request));
+
+        verify(request, timeout(5000)).failed(any(CacheException.class));
+    }
+
+    @Test
+    public void shouldCancelQueuedRequestsOnShutdown() throws Exception {
+        configure(SILENT_HELPER, "1");
+        FlushRequest first = createFlushRequest();
+        FlushRequest second = createFlushRequest();
+        storage.flush(Arrays.asList(first, second));
+
+        storage.shutdown();
+
+        verify(first).failed(any(CancellationException.class));
+        verify(second).failed(any(CancellationException.class));
+        verify(second, never()).completed(any());
+    }
+
+    private FlushRequest createFlushRequest() {
+        StorageInfo info = new GenericStorageInfo("osm", "test:disk");
+        FileAttributes attributes = FileAttributes.of()
+              .pnfsId("000019E436CD246146C1A47305309A50DC6E")
+              .storageInfo(info)
+              .size(0)
+              .build();
+        FlushRequest request = mock(FlushRequest.class);
+        when(request.getId()).thenReturn(UUID.randomUUID());
+        when(request.getDeadline()).thenReturn(Long.MAX_VALUE);
+        when(request.getReplicaUri()).thenReturn(URI.create("file:///pool/data/file"));
+        when(request.getFileAttributes()).thenReturn(attributes);
+        when(request.activate()).thenReturn(Futures.immediateFuture(null));
+        return request;
+    }
+}
@@ -0,0 +1,123 @@
+package org.dcache.pool.nearline.tape;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import diskCacheV111.util.PnfsId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.dcache.pool.nearline.spi.NearlineStorage;
+import org.dcache.pool.nearline.spi.StageRequest;
+import org.dcache.vehicles.FileAttributes;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class TapeStagePolicyTest {
+
+    private final Map<PnfsId, TapeFileLocation> locations = new HashMap<>();
+    private TapeStagePolicy policy;
+    private NearlineStorage storage;
+
+    @Before
+    public void setup() {
+        TapeInfoProvider provider = mock(TapeInfoProvider.class);
+        when(provider.getLocations(any())).thenReturn(locations);
+        storage = mock(NearlineStorage.class);
+        policy = new TapeStagePolicy();
+        policy.setTapeInfoProvider(provider);
+        policy.setExecutor(mock(ScheduledExecutorService.class));
+        policy.setQuietPeriod(30);
+        policy.setQuietPeriodUnit(TimeUnit.SECONDS);
+        policy.setMaxHoldTime(5);
+        policy.setMaxHoldTimeUnit(TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void shouldPassOnRequestsWithoutTapeLocation() {
+        StageRequest request = givenRequest("0000A1", null, 0);
+
+        policy.submit(storage, Collections.singletonList(request));
+
+        verify(storage).stage(Collections.singletonList(request));
+    }
+
+    @Test
+    public void shouldHoldRequestsDuringQuietPeriod() {
+        StageRequest request = givenRequest("0000A1", "VOL001", 1);
+
+        policy.submit(storage, Collections.singletonList(request));
+        policy.release(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10));
+
+        verify(storage, never()).stage(any());
+    }
+
+    @Test
+    public void shouldReleaseVolumeOrderedByPositionAfterQuietPeriod() {
+        StageRequest third = givenRequest("0000A3", "VOL001", 30);
+        StageRequest first = givenRequest("0000A1", "VOL001", 10);
+        StageRequest other = givenRequest("0000B1", "VOL002", 5);
+        StageRequest second = givenRequest("0000A2", "VOL001", 20);
+
+        policy.submit(storage, Arrays.asList(third, first));
+        policy.submit(storage, Arrays.asList(other, second));
+        policy.release(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(31));
+
+        ArgumentCaptor<List<StageRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(storage, times(2)).stage(captor.capture());
+        assertThat(captor.getAllValues(), containsInAnyOrder(
+              Arrays.asList(first, second, third), Collections.singletonList(other)));
+    }
+
+    @Test
+    public void shouldReleaseVolumeAfterMaxHoldTime() {
+        policy.setQuietPeriod(1);
+        policy.setQuietPeriodUnit(TimeUnit.HOURS);
+        StageRequest request = givenRequest("0000A1", "VOL001", 1);
+
+        policy.submit(storage, Collections.singletonList(request));
+        policy.release(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(6));
+
+        verify(storage).stage(Collections.singletonList(request));
+    }
+
+    @Test
+    public void shouldNotReleaseCancelledRequest() {
+        StageRequest cancelled = givenRequest("0000A1", "VOL001", 1);
+        StageRequest kept = givenRequest("0000A2", "VOL001", 2);
+        policy.submit(storage, Arrays.asList(cancelled, kept));
+
+        assertThat(policy.cancel(cancelled), is(true));
+        assertThat(policy.cancel(cancelled), is(false));
+        policy.release(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(31));
+
+        ArgumentCaptor<List<StageRequest>> captor = ArgumentCaptor.forClass(List.class);
+        verify(storage).stage(captor.capture());
+        assertThat(captor.getValue(), contains(kept));
+    }
+
+    private StageRequest givenRequest(String id, String volume, long position) {
+        PnfsId pnfsId = new PnfsId(id);
+        if (volume != null) {
+            locations.put(pnfsId, new TapeFileLocation(volume, position));
+        }
+        StageRequest request = mock(StageRequest.class);
+        when(request.getId()).thenReturn(UUID.randomUUID());
+        when(request.getFileAttributes()).thenReturn(FileAttributes.ofPnfsId(pnfsId));
+        return request;
+    }
+}
@@ -0,0 +1,64 @@
+package org.dcache.pool.p2p;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ConnectionPermitsTest {
+
+    @Test
+    public void shouldGrantFewerStreamsWhenSourceIsSaturated() {
+        ConnectionPermits permits = new ConnectionPermits(100, 6);
+
+        assertThat(permits.tryAcquire("pool1", 4), is(equalTo(4)));
+        assertThat(permits.tryAcquire("pool1", 4), is(equalTo(2)));
+        assertThat(permits.tryAcquire("pool1", 4), is(equalTo(0)));
+        assertThat(permits.tryAcquire("pool2", 4), is(equalTo(4)));
+    }
+
+    @Test
+    public void shouldLimitTotalConnections() {
+        ConnectionPermits permits = new ConnectionPermits(5, 4);
+
+        assertThat(permits.tryAcquire("pool1", 4), is(equalTo(4)));
+        assertThat(permits.tryAcquire("pool2", 4), is(equalTo(1)));
+    }
+
+    @Test
+    public void shouldTimeOutWithoutPermit() throws Exception {
+        ConnectionPermits permits = new ConnectionPermits(100, 1);
+        permits.tryAcquire("pool1", 1);
+
+        assertThat(permits.acquire("pool1", 10), is(false));
+    }
+
+    @Test
+    public void shouldWakeWaiterOnRelease() throws Exception {
+        ConnectionPermits permits = new ConnectionPermits(100, 2);
+        permits.tryAcquire("pool1", 2);
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return permits.acquire("pool1", TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        permits.release("pool1", 2);
+
+        assertThat(waiter.get(10, TimeUnit.SECONDS), is(true));
+        assertThat(permits.tryAcquire("pool1", 2), is(equalTo(1)));
+    }
+
+    @Test
+    public void shouldApplyNewLimits() {
+        ConnectionPermits permits = new ConnectionPermits(100, 2);
+        permits.setLimits(100, 8);
+
+        assertThat(permits.tryAcquire("pool1", 8), is(equalTo(8)));
+    }
+}
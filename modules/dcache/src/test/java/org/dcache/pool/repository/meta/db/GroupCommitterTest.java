@@ -0,0 +1,114 @@
+package org.dcache.pool.repository.meta.db;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupCommitterTest {
+
+    private Path dir;
+    private ReplicaStoreDatabase database;
+    private ReplicaStoreView views;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("GroupCommitterTest");
+        database = new ReplicaStoreDatabase(new Properties(), dir.toFile(), false);
+        views = new ReplicaStoreView(database);
+        database.enableGroupCommit(16, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        database.close();
+        MoreFiles.deleteRecursively(dir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    public void shouldCommitConcurrentUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String id = "id" + i;
+                futures.add(executor.submit(() -> {
+                    database.commit(() -> views.getAccessTimeInfo().put(id, new AccessTimeInfo(1L)));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(views.getAccessTimeInfo().size(), equalTo(100));
+
+        StringWriter info = new StringWriter();
+        database.getInfo(new PrintWriter(info));
+        assertThat(info.toString(), containsString("Group commit"));
+    }
+
+    @Test
+    public void shouldIsolateFailingUpdate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> failing = executor.submit(() -> {
+                database.commit(() -> {
+                    views.getAccessTimeInfo().put("bad", new AccessTimeInfo(1L));
+                    throw new IllegalStateException("failure");
+                });
+                return null;
+            });
+            Future<?> succeeding = executor.submit(() -> {
+                database.commit(() -> views.getAccessTimeInfo().put("good", new AccessTimeInfo(2L)));
+                return null;
+            });
+
+            succeeding.get();
+            try {
+                failing.get();
+                fail("Failing update did not fail");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause().getMessage(), equalTo("failure"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(views.getAccessTimeInfo().containsKey("good"), equalTo(true));
+        assertThat(views.getAccessTimeInfo().containsKey("bad"), equalTo(false));
+    }
+
+    @Test
+    public void shouldCommitPendingUpdatesOnClose() throws Exception {
+        database.commit(() -> views.getAccessTimeInfo().put("a", new AccessTimeInfo(1L)));
+        database.close();
+
+        database = new ReplicaStoreDatabase(new Properties(), dir.toFile(), false);
+        views = new ReplicaStoreView(database);
+
+        assertThat(views.getAccessTimeInfo().containsKey("a"), equalTo(true));
+    }
+}
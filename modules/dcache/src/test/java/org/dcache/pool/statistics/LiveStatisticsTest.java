@@ -0,0 +1,99 @@
+package org.dcache.pool.statistics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LiveStatisticsTest {
+
+    @Test
+    public void shouldHaveContiguousBuckets() {
+        for (int bucket = 0; bucket < LogHistogram.BUCKETS - 1; bucket++) {
+            long lower = LogHistogram.lowerBound(bucket);
+            long upper = LogHistogram.upperBound(bucket);
+            assertThat(LogHistogram.bucketOf(lower), is(equalTo(bucket)));
+            assertThat(LogHistogram.bucketOf(upper), is(equalTo(bucket)));
+            assertThat(LogHistogram.lowerBound(bucket + 1), is(equalTo(upper + 1)));
+        }
+        assertThat(LogHistogram.bucketOf(LogHistogram.MAX_VALUE),
+              is(equalTo(LogHistogram.BUCKETS - 1)));
+    }
+
+    @Test
+    public void shouldReportNoResultsWhenEmpty() {
+        SnapshotStatistics snapshot = new LiveStatistics().snapshot();
+
+        assertThat(snapshot.requestedBytes().getN(), is(equalTo(0L)));
+        assertThat(Double.isNaN(snapshot.requestedBytes().getMean()), is(true));
+        assertThat(Double.isNaN(snapshot.requestedBytes().getQuantile(0.5)), is(true));
+    }
+
+    @Test
+    public void shouldSummarizeRecordedValues() {
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        HistogramSummary summary = histogram.snapshot();
+
+        assertThat(summary.getN(), is(equalTo(1000L)));
+        assertThat(summary.getMin(), is(equalTo(1.0)));
+        assertThat(summary.getMax(), is(equalTo(1000.0)));
+        assertThat(summary.getMean(), is(closeTo(500.5, 1e-9)));
+        assertThat(summary.getVariance(), is(closeTo(83416.67, 0.01)));
+        assertThat(summary.getQuantile(0.5), is(closeTo(500, 500 * 0.125)));
+        assertThat(summary.getQuantile(0.99), is(closeTo(990, 990 * 0.125)));
+        assertThat(summary.getQuantile(0.999), is(closeTo(999, 999 * 0.125)));
+        assertThat(summary.getQuantile(1), is(closeTo(1000, 1000 * 0.125)));
+    }
+
+    @Test
+    public void shouldMergeSummaries() {
+        LogHistogram small = new LogHistogram();
+        LogHistogram large = new LogHistogram();
+        for (int i = 0; i < 99; i++) {
+            small.record(10);
+        }
+        large.record(1_000_000);
+
+        HistogramSummary merged = small.snapshot().merge(large.snapshot());
+
+        assertThat(merged.getN(), is(equalTo(100L)));
+        assertThat(merged.getMin(), is(equalTo(10.0)));
+        assertThat(merged.getMax(), is(equalTo(1_000_000.0)));
+        assertThat(merged.getQuantile(0.99), is(closeTo(10, 10 * 0.125)));
+        assertThat(merged.getQuantile(0.999), is(closeTo(1_000_000, 1_000_000 * 0.125)));
+    }
+
+    @Test
+    public void shouldCombineOperationsFromConcurrentThreads() throws Exception {
+        LiveStatistics statistics = new LiveStatistics();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    statistics.accept(2, 4096, 1024, System.nanoTime());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        SnapshotStatistics snapshot = statistics.snapshot();
+
+        assertThat(snapshot.requestedBytes().getN(), is(equalTo(80_000L)));
+        assertThat(snapshot.requestedBytes().getSum(), is(equalTo(80_000 * 4096.0)));
+        assertThat(snapshot.transferredBytes().getQuantile(0.5), is(equalTo(1024.0)));
+        assertThat(snapshot.concurrency().getMax(), is(equalTo(2.0)));
+        assertThat(snapshot.IOTime().getN(), is(equalTo(80_000L)));
+    }
+}
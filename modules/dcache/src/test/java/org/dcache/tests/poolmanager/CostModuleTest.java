@@ -247,6 +247,54 @@ public class CostModuleTest {
         assertPercentileCost(FRACTION_JUST_BELOW_ONE, perfCost[2]);
     }
 
+    @Test
+    public void testPercentileFollowsUpdatesAndRemoval() {
+
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS),
+              buildPoolUpMessageWithCostAndQueue(
+                    POOL_NAME,
+                    100, 20, 30, 50,
+                    0, 100, 0,
+                    0, 0, 0,
+                    0, 0, 0));
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS_2),
+              buildPoolUpMessageWithCostAndQueue(
+                    POOL_NAME_2,
+                    100, 20, 30, 50,
+                    20, 100, 0,
+                    0, 0, 0,
+                    0, 0, 0));
+
+        double idleCost = getPerformanceCostOfPercentileFile(POOL_NAME);
+        double busyCost = getPerformanceCostOfPercentileFile(POOL_NAME_2);
+        assertPercentileCost(FRACTION_JUST_BELOW_HALF, idleCost);
+        assertPercentileCost(FRACTION_HALF, busyCost);
+
+        // First pool becomes busier than the second one
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS),
+              buildPoolUpMessageWithCostAndQueue(
+                    POOL_NAME,
+                    100, 20, 30, 50,
+                    40, 100, 0,
+                    0, 0, 0,
+                    0, 0, 0));
+
+        double busierCost = getPerformanceCostOfPercentileFile(POOL_NAME);
+        assertPercentileCost(FRACTION_JUST_BELOW_HALF, busyCost);
+        assertPercentileCost(FRACTION_HALF, busierCost);
+
+        // Second pool is disabled
+        _costModule.messageArrived(
+              buildEnvelope(POOL_ADDRESS_2),
+              buildEmptyPoolUpMessage(POOL_NAME_2, PoolV2Mode.DISABLED_STRICT));
+
+        assertPercentileCost(FRACTION_JUST_ABOVE_ZERO, busierCost);
+        assertPercentileCost(FRACTION_JUST_BELOW_ONE, busierCost);
+    }
+
     /*
      *  SUPPORT METHODS FOR BUILDING MESSAGES AND ASSERTING
      */
@@ -14,6 +14,8 @@ import diskCacheV111.vehicles.StorageInfo;
 import diskCacheV111.vehicles.StorageInfos;
 import dmg.util.CommandException;
 import dmg.util.CommandInterpreter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -852,4 +854,87 @@ public class PoolSelectionUnitTest {
                     defaultExclude);
         assertEquals(0, preference.length);
     }
+
+    @Test
+    public void testMatchReflectsConfigurationChange() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("h1:u1@osm", "*"), fileAttributes);
+
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        assertEquals(1, preference[0].getPoolList().size());
+
+        _ci.command(new Args("psu addto pgroup h1-read-pools zeus-read"));
+
+        preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        assertEquals(2, preference[0].getPoolList().size());
+        assertTrue(preference[0].getPoolList().contains("zeus-read"));
+    }
+
+    @Test
+    public void testMatchReflectsPoolState() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("h1:u1@osm", "*"), fileAttributes);
+
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        assertEquals("h1-read", preference[0].getPoolList().get(0));
+
+        _psu.getPool("h1-read").setPoolMode(new PoolV2Mode(PoolV2Mode.DISABLED_STRICT));
+
+        preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        assertEquals(2, preference.length);
+        assertTrue(preference[0].getPoolList().isEmpty());
+
+        preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, p -> p.equals("default-read"));
+        assertTrue(preference[1].getPoolList().isEmpty());
+    }
+
+    @Test
+    public void testRegexMatchReflectsNewUnit() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        _ci.command("psu set regex on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("h1:u3@osm", "*"), fileAttributes);
+
+        PoolPreferenceLevel[] preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        assertEquals(1, preference.length);
+        assertEquals("default-read", preference[0].getPoolList().get(0));
+
+        _ci.command(new Args("psu create unit -store h1:u[0-9]+@osm"));
+        _ci.command(new Args("psu addto ugroup all-h1 h1:u[0-9]+@osm"));
+        _ci.command(new Args("psu addto ugroup all h1:u[0-9]+@osm"));
+
+        preference = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        assertEquals(2, preference.length);
+        assertEquals("h1-read", preference[0].getPoolList().get(0));
+    }
+
+    @Test
+    public void testMatchCachesByNetUnit() throws CommandException {
+
+        _ci.command("psu set allpoolsactive on");
+        FileAttributes fileAttributes = new FileAttributes();
+        StorageInfos.injectInto(GenericStorageInfo.valueOf("h1:u1@osm", "*"), fileAttributes);
+
+        PoolPreferenceLevel[] first = _psu.match(DirectionType.READ,
+              "131.169.214.149", null, fileAttributes, null, defaultExclude);
+        PoolPreferenceLevel[] second = _psu.match(DirectionType.READ,
+              "131.169.1.1", null, fileAttributes, null, defaultExclude);
+
+        assertEquals(first[0].getPoolList(), second[0].getPoolList());
+        StringWriter info = new StringWriter();
+        _psu.getInfo(new PrintWriter(info));
+        assertTrue(info.toString().contains("Entries     : 1\n"));
+    }
 }
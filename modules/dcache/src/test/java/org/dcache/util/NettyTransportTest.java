@@ -0,0 +1,82 @@
+package org.dcache.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.junit.Test;
+
+public class NettyTransportTest {
+
+    @Test
+    public void shouldDefaultToNio() {
+        NettyTransport transport = new NettyTransport();
+
+        assertThat(transport.getType(), is(NettyTransport.Type.NIO));
+        assertThat(transport.getServerChannelClass(), equalTo(NioServerSocketChannel.class));
+        assertThat(transport.getSocketChannelClass(), equalTo(NioSocketChannel.class));
+    }
+
+    @Test
+    public void shouldCreateNioEventLoopGroupForNio() {
+        NettyTransport transport = new NettyTransport();
+        transport.setType(NettyTransport.Type.NIO);
+
+        EventLoopGroup group = transport.newEventLoopGroup(1, new DefaultThreadFactory("test"));
+        try {
+            assertThat(group instanceof NioEventLoopGroup, is(true));
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void shouldUseEpollForAutoIfAvailable() {
+        NettyTransport transport = new NettyTransport();
+        transport.setType(NettyTransport.Type.AUTO);
+
+        if (Epoll.isAvailable()) {
+            assertThat(transport.getType(), is(NettyTransport.Type.EPOLL));
+            assertThat(transport.getServerChannelClass(),
+                  equalTo(EpollServerSocketChannel.class));
+            EventLoopGroup group = transport.newEventLoopGroup(1,
+                  new DefaultThreadFactory("test"));
+            try {
+                assertThat(group instanceof EpollEventLoopGroup, is(true));
+            } finally {
+                group.shutdownGracefully();
+            }
+        } else {
+            assertThat(transport.getType(), is(NettyTransport.Type.NIO));
+        }
+    }
+
+    @Test
+    public void shouldFallBackIfIoUringUnavailable() {
+        NettyTransport transport = new NettyTransport();
+        transport.setType(NettyTransport.Type.IO_URING);
+
+        assertThat(transport.getType() == NettyTransport.Type.AUTO, is(false));
+    }
+
+    @Test
+    public void shouldConfigureServerChannelClass() {
+        NettyTransport transport = new NettyTransport();
+        transport.setType(NettyTransport.Type.NIO);
+        transport.setTcpCork(true);
+        transport.setBusyPoll(50);
+
+        ServerBootstrap bootstrap = transport.configure(new ServerBootstrap());
+
+        assertThat(bootstrap.config().childOptions().isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,82 @@
+package org.dcache.util.list;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Range;
+import diskCacheV111.util.FsPath;
+import diskCacheV111.util.PnfsHandler;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import javax.security.auth.Subject;
+import org.dcache.auth.attributes.Restrictions;
+import org.dcache.namespace.FileAttribute;
+import org.dcache.vehicles.FileAttributes;
+import org.dcache.vehicles.PnfsListDirectoryMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ListDirectoryHandlerTest {
+
+    private PnfsHandler pnfs;
+    private ListDirectoryHandler handler;
+
+    @Before
+    public void setUp() {
+        pnfs = mock(PnfsHandler.class);
+        when(pnfs.getPnfsTimeout()).thenReturn(1000L);
+        handler = new ListDirectoryHandler(pnfs);
+    }
+
+    @Test
+    public void shouldReportOrderedListing() throws Exception {
+        givenPnfsManager(true);
+
+        ListDirectoryHandler.Stream stream = handler.listAfter(new Subject(),
+              Restrictions.none(), FsPath.create("/dir"), null, "", Range.atLeast(0),
+              EnumSet.noneOf(FileAttribute.class));
+
+        assertThat(stream.isOrdered(), is(true));
+        assertThat(names(stream), contains("a", "b"));
+    }
+
+    @Test
+    public void shouldReportUnorderedListingOfOlderPnfsManager() throws Exception {
+        givenPnfsManager(false);
+
+        ListDirectoryHandler.Stream stream = handler.listAfter(new Subject(),
+              Restrictions.none(), FsPath.create("/dir"), null, "a", Range.atLeast(0),
+              EnumSet.noneOf(FileAttribute.class));
+
+        assertThat(stream.isOrdered(), is(false));
+    }
+
+    private void givenPnfsManager(boolean supportsOrder) {
+        doAnswer(invocation -> {
+            PnfsListDirectoryMessage msg = invocation.getArgument(0);
+            if (supportsOrder && msg.getAfter() != null) {
+                msg.setOrdered(true);
+            }
+            msg.addEntry("a", new FileAttributes());
+            msg.addEntry("b", new FileAttributes());
+            msg.setSucceeded(1);
+            msg.setReply();
+            handler.messageArrived(msg);
+            return null;
+        }).when(pnfs).send(any(PnfsListDirectoryMessage.class));
+    }
+
+    private static List<String> names(DirectoryStream stream) {
+        List<String> names = new ArrayList<>();
+        for (DirectoryEntry entry : stream) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+}